@@ -3,7 +3,6 @@ package com.iota.iri;
 import com.iota.iri.conf.IotaConfig;
 import com.iota.iri.conf.TipSelConfig;
 import com.iota.iri.controllers.TipsViewModel;
-import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.network.Node;
 import com.iota.iri.network.TransactionRequester;
 import com.iota.iri.network.UDPReceiver;
@@ -12,6 +11,7 @@ import com.iota.iri.network.replicator.Replicator;
 import com.iota.iri.service.TipsSolidifier;
 import com.iota.iri.service.ledger.impl.LedgerServiceImpl;
 import com.iota.iri.service.milestone.impl.*;
+import com.iota.iri.service.rescan.DatabaseRescanner;
 import com.iota.iri.service.snapshot.SnapshotException;
 import com.iota.iri.service.snapshot.impl.LocalSnapshotManagerImpl;
 import com.iota.iri.service.snapshot.impl.SnapshotProviderImpl;
@@ -24,11 +24,13 @@ import com.iota.iri.service.tipselection.impl.*;
 import com.iota.iri.service.transactionpruning.TransactionPruningException;
 import com.iota.iri.service.transactionpruning.async.AsyncTransactionPruner;
 import com.iota.iri.storage.*;
+import com.iota.iri.storage.memory.InMemoryPersistenceProvider;
+import com.iota.iri.storage.rocksDB.BulkIngestMonitor;
 import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
-import com.iota.iri.utils.Pair;
+import com.iota.iri.storage.rocksDB.StatisticsLogger;
 
+import java.io.File;
 import java.security.SecureRandom;
-import java.util.List;
 
 import com.iota.iri.zmq.ZmqMessageQueueProvider;
 import org.apache.commons.lang3.NotImplementedException;
@@ -69,6 +71,11 @@ import org.slf4j.LoggerFactory;
 public class Iota {
     private static final Logger log = LoggerFactory.getLogger(Iota.class);
 
+    /**
+     * The name of the file in the database folder that records the progress of a rescan.
+     */
+    private static final String RESCAN_PROGRESS_FILE = "rescan.progress";
+
     public final SpentAddressesProviderImpl spentAddressesProvider;
 
     public final SpentAddressesServiceImpl spentAddressesService;
@@ -107,6 +114,11 @@ public class Iota {
     public final IotaConfig configuration;
     public final TipsViewModel tipsViewModel;
     public final TipSelector tipsSelector;
+    public final MaxDepthCache maxDepthCache;
+
+    private RocksDBPersistenceProvider rocksDBPersistenceProvider;
+    private BulkIngestMonitor bulkIngestMonitor;
+    private StatisticsLogger statisticsLogger;
 
     /**
      * Initializes the latest snapshot and then creates all services needed to run an IOTA node.
@@ -148,6 +160,7 @@ public class Iota {
         replicator = new Replicator(node, configuration);
         udpReceiver = new UDPReceiver(node, configuration);
         tipsSolidifier = new TipsSolidifier(tangle, transactionValidator, tipsViewModel, configuration);
+        maxDepthCache = new MaxDepthCache();
         tipsSelector = createTipSelector(configuration);
 
         injectDependencies();
@@ -165,14 +178,30 @@ public class Iota {
         initializeTangle();
         tangle.init();
 
-        if (configuration.isRescanDb()){
-            rescanDb();
+        if (configuration.isDbBulkIngest() && rocksDBPersistenceProvider != null) {
+            rocksDBPersistenceProvider.startBulkIngest();
+            bulkIngestMonitor = new BulkIngestMonitor(rocksDBPersistenceProvider,
+                    () -> latestMilestoneTracker.isInitialScanComplete() &&
+                            snapshotProvider.getLatestSnapshot().getIndex() ==
+                                    latestMilestoneTracker.getLatestMilestoneIndex());
+        }
+
+        if (configuration.isDbStatistics() && rocksDBPersistenceProvider != null) {
+            statisticsLogger = new StatisticsLogger(rocksDBPersistenceProvider);
+        }
+
+        DatabaseRescanner databaseRescanner = new DatabaseRescanner(tangle,
+                rocksDBPersistenceProvider == null ? null : new File(configuration.getDbPath(), RESCAN_PROGRESS_FILE),
+                Runtime.getRuntime().availableProcessors());
+        if (configuration.isRescanDb() || databaseRescanner.isInterrupted()){
+            databaseRescanner.rescan();
         }
 
         if (configuration.isRevalidate()) {
             tangle.clearColumn(com.iota.iri.model.persistables.Milestone.class);
             tangle.clearColumn(com.iota.iri.model.StateDiff.class);
             tangle.clearMetadata(com.iota.iri.model.persistables.Transaction.class);
+            tangle.clearColumn(com.iota.iri.model.persistables.GraphNode.class);
         }
 
         transactionValidator.init(configuration.isTestnet(), configuration.getMwm());
@@ -194,6 +223,12 @@ public class Iota {
         if (transactionPruner != null) {
             transactionPruner.start();
         }
+        if (bulkIngestMonitor != null) {
+            bulkIngestMonitor.start();
+        }
+        if (statisticsLogger != null) {
+            statisticsLogger.start();
+        }
     }
 
     private void injectDependencies() throws SnapshotException, TransactionPruningException, SpentAddressesException {
@@ -221,29 +256,11 @@ public class Iota {
         transactionRequesterWorker.init(tangle, transactionRequester, tipsViewModel, node);
     }
 
-    private void rescanDb() throws Exception {
-        //delete all transaction indexes
-        tangle.clearColumn(com.iota.iri.model.persistables.Address.class);
-        tangle.clearColumn(com.iota.iri.model.persistables.Bundle.class);
-        tangle.clearColumn(com.iota.iri.model.persistables.Approvee.class);
-        tangle.clearColumn(com.iota.iri.model.persistables.ObsoleteTag.class);
-        tangle.clearColumn(com.iota.iri.model.persistables.Tag.class);
-        tangle.clearColumn(com.iota.iri.model.persistables.Milestone.class);
-        tangle.clearColumn(com.iota.iri.model.StateDiff.class);
-        tangle.clearMetadata(com.iota.iri.model.persistables.Transaction.class);
-
-        //rescan all tx & refill the columns
-        TransactionViewModel tx = TransactionViewModel.first(tangle);
-        int counter = 0;
-        while (tx != null) {
-            if (++counter % 10000 == 0) {
-                log.info("Rescanned {} Transactions", counter);
-            }
-            List<Pair<Indexable, Persistable>> saveBatch = tx.getSaveBatch();
-            saveBatch.remove(5);
-            tangle.saveBatch(saveBatch);
-            tx = tx.next(tangle);
-        }
+    /**
+     * @return the RocksDB database of the node or <code>null</code> if the node uses another database
+     */
+    public RocksDBPersistenceProvider getRocksDBPersistenceProvider() {
+        return rocksDBPersistenceProvider;
     }
 
     /**
@@ -252,6 +269,12 @@ public class Iota {
      */
     public void shutdown() throws Exception {
         // shutdown in reverse starting order (to not break any dependencies)
+        if (statisticsLogger != null) {
+            statisticsLogger.shutdown();
+        }
+        if (bulkIngestMonitor != null) {
+            bulkIngestMonitor.shutdown();
+        }
         transactionRequesterWorker.shutdown();
         milestoneSolidifier.shutdown();
         seenMilestonesRetriever.shutdown();
@@ -264,13 +287,16 @@ public class Iota {
         if (localSnapshotManager != null) {
             localSnapshotManager.shutdown();
         }
+        snapshotService.shutdown();
 
         tipsSolidifier.shutdown();
         node.shutdown();
         udpReceiver.shutdown();
         replicator.shutdown();
         transactionValidator.shutdown();
+        spentAddressesService.shutdown();
         tangle.shutdown();
+        spentAddressesProvider.shutdown();
 
         // free the resources of the snapshot provider last because all other instances need it
         snapshotProvider.shutdown();
@@ -279,10 +305,20 @@ public class Iota {
     private void initializeTangle() {
         switch (configuration.getMainDb()) {
             case "rocksdb": {
-                tangle.addPersistenceProvider(new RocksDBPersistenceProvider(
+                rocksDBPersistenceProvider = new RocksDBPersistenceProvider(
                         configuration.getDbPath(),
                         configuration.getDbLogPath(),
                         configuration.getDbCacheSize(),
+                        Tangle.COLUMN_FAMILIES,
+                        Tangle.METADATA_COLUMN_FAMILY,
+                        configuration.isDbColumnFamilyTuning(),
+                        configuration.getDbCompression(),
+                        configuration.isDbStatistics());
+                tangle.addPersistenceProvider(rocksDBPersistenceProvider);
+                break;
+            }
+            case "memory": {
+                tangle.addPersistenceProvider(new InMemoryPersistenceProvider(
                         Tangle.COLUMN_FAMILIES,
                         Tangle.METADATA_COLUMN_FAMILY)
                 );
@@ -304,6 +340,6 @@ public class Iota {
         TailFinder tailFinder = new TailFinderImpl(tangle);
         Walker walker = new WalkerAlpha(tailFinder, tangle, new SecureRandom(), config);
         return new TipSelectorImpl(tangle, snapshotProvider, ledgerService, entryPointSelector, ratingCalculator,
-                walker, config);
+                walker, config, maxDepthCache);
     }
 }
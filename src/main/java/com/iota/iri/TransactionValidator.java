@@ -7,9 +7,11 @@ import com.iota.iri.crypto.Sponge;
 import com.iota.iri.crypto.SpongeFactory;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.GraphNode;
 import com.iota.iri.network.TransactionRequester;
 import com.iota.iri.service.snapshot.SnapshotProvider;
 import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.dag.TraversalContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -246,12 +248,19 @@ public class TransactionValidator {
         if(fromHash(tangle, hash).isSolid()) {
             return true;
         }
-        Set<Hash> analyzedHashes = new HashSet<>(snapshotProvider.getInitialSnapshot().getSolidEntryPoints().keySet());
+        try (TraversalContext context = TraversalContext.acquire()) {
+            return checkSolidity(hash, milestone, maxProcessedTransactions, context.getVisited(), context.getQueue());
+        }
+    }
+
+    private boolean checkSolidity(Hash hash, boolean milestone, int maxProcessedTransactions, Set<Hash> analyzedHashes,
+                                  Queue<Hash> nonAnalyzedTransactions) throws Exception {
+        analyzedHashes.addAll(snapshotProvider.getInitialSnapshot().getSolidEntryPoints().keySet());
         if(maxProcessedTransactions != Integer.MAX_VALUE) {
             maxProcessedTransactions += analyzedHashes.size();
         }
         boolean solid = true;
-        final Queue<Hash> nonAnalyzedTransactions = new LinkedList<>(Collections.singleton(hash));
+        nonAnalyzedTransactions.add(hash);
         Hash hashPointer;
         while ((hashPointer = nonAnalyzedTransactions.poll()) != null) {
             if (analyzedHashes.add(hashPointer)) {
@@ -259,9 +268,11 @@ public class TransactionValidator {
                     return false;
                 }
 
-                final TransactionViewModel transaction = fromHash(tangle, hashPointer);
-                if(!transaction.isSolid() && !snapshotProvider.getInitialSnapshot().hasSolidEntryPoint(hashPointer)) {
-                    if (transaction.getType() == PREFILLED_SLOT) {
+                // a missing transaction has no graph node, which is what the PREFILLED_SLOT check used to detect
+                final GraphNode transaction = loadGraphNode(tangle, hashPointer);
+                if((transaction == null || !transaction.solid)
+                        && !snapshotProvider.getInitialSnapshot().hasSolidEntryPoint(hashPointer)) {
+                    if (transaction == null) {
                         solid = false;
 
                         if (!transactionRequester.isTransactionRequested(hashPointer, milestone)) {
@@ -269,8 +280,8 @@ public class TransactionValidator {
                             break;
                         }
                     } else {
-                        nonAnalyzedTransactions.offer(transaction.getTrunkTransactionHash());
-                        nonAnalyzedTransactions.offer(transaction.getBranchTransactionHash());
+                        nonAnalyzedTransactions.offer(transaction.trunk);
+                        nonAnalyzedTransactions.offer(transaction.branch);
                     }
                 }
             }
@@ -278,7 +289,6 @@ public class TransactionValidator {
         if (solid) {
             updateSolidTransactions(tangle, snapshotProvider.getInitialSnapshot(), analyzedHashes);
         }
-        analyzedHashes.clear();
         return solid;
     }
 
@@ -65,6 +65,10 @@ public abstract class BaseIotaConfig implements IotaConfig {
     protected String mainDb = Defaults.ROCKS_DB;
     protected boolean revalidate = Defaults.REVALIDATE;
     protected boolean rescanDb = Defaults.RESCAN_DB;
+    protected boolean dbBulkIngest = Defaults.DB_BULK_INGEST;
+    protected boolean dbColumnFamilyTuning = Defaults.DB_COLUMN_FAMILY_TUNING;
+    protected String dbCompression = Defaults.DB_COMPRESSION;
+    protected boolean dbStatistics = Defaults.DB_STATISTICS;
 
     //Protocol
     protected double pReplyRandomTip = Defaults.P_REPLY_RANDOM_TIP;
@@ -425,6 +429,51 @@ public abstract class BaseIotaConfig implements IotaConfig {
         this.rescanDb = rescanDb;
     }
 
+    @Override
+    public boolean isDbBulkIngest() {
+        return dbBulkIngest;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--db-bulk-ingest"}, description = DbConfig.Descriptions.DB_BULK_INGEST)
+    protected void setDbBulkIngest(boolean dbBulkIngest) {
+        this.dbBulkIngest = dbBulkIngest;
+    }
+
+    @Override
+    public boolean isDbColumnFamilyTuning() {
+        return dbColumnFamilyTuning;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--db-column-family-tuning"}, description = DbConfig.Descriptions.DB_COLUMN_FAMILY_TUNING,
+            arity = 1)
+    protected void setDbColumnFamilyTuning(boolean dbColumnFamilyTuning) {
+        this.dbColumnFamilyTuning = dbColumnFamilyTuning;
+    }
+
+    @Override
+    public String getDbCompression() {
+        return dbCompression;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--db-compression"}, description = DbConfig.Descriptions.DB_COMPRESSION)
+    protected void setDbCompression(String dbCompression) {
+        this.dbCompression = dbCompression;
+    }
+
+    @Override
+    public boolean isDbStatistics() {
+        return dbStatistics;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--db-statistics"}, description = DbConfig.Descriptions.DB_STATISTICS)
+    protected void setDbStatistics(boolean dbStatistics) {
+        this.dbStatistics = dbStatistics;
+    }
+
     @Override
     public int getMwm() {
         return Defaults.MWM;
@@ -880,6 +929,10 @@ public abstract class BaseIotaConfig implements IotaConfig {
         String ROCKS_DB = "rocksdb";
         boolean REVALIDATE = false;
         boolean RESCAN_DB = false;
+        boolean DB_BULK_INGEST = false;
+        boolean DB_COLUMN_FAMILY_TUNING = true;
+        String DB_COMPRESSION = "snappy";
+        boolean DB_STATISTICS = false;
 
         //Protocol
         double P_REPLY_RANDOM_TIP = 0.66d;
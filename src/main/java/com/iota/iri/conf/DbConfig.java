@@ -35,14 +35,45 @@ public interface DbConfig extends Config {
      */
     boolean isRescanDb();
 
+    /**
+     * @return {@value Descriptions#DB_BULK_INGEST}
+     */
+    boolean isDbBulkIngest();
+
+    /**
+     * @return {@value Descriptions#DB_COLUMN_FAMILY_TUNING}
+     */
+    boolean isDbColumnFamilyTuning();
+
+    /**
+     * @return {@value Descriptions#DB_COMPRESSION}
+     */
+    String getDbCompression();
+
+    /**
+     * @return {@value Descriptions#DB_STATISTICS}
+     */
+    boolean isDbStatistics();
+
     interface Descriptions {
 
         String DB_PATH = "The folder where the DB saves its data.";
         String DB_LOG_PATH = "The folder where the DB logs info";
         String DB_CACHE_SIZE = "The size of the DB cache in KB";
-        String MAIN_DB = "The DB engine used to store the transactions. Currently only RocksDB is supported.";
+        String MAIN_DB = "The DB engine used to store the transactions: rocksdb or memory (keeps the transactions " +
+                "off-heap and forgets them on shutdown, for tests and short lived nodes).";
         String REVALIDATE = "Reload from the db data about confirmed transaction (milestones), state of the ledger, " +
                 "and transaction metadata.";
         String RESCAN_DB = "Rescan all transaction metadata (Approvees, Bundles, and Tags)";
+        String DB_BULK_INGEST = "Disable the write ahead log of the DB and use larger memtables until the node is " +
+                "synced. This speeds up the initial sync and rescans, but writes of the last minute can get lost " +
+                "if the node crashes in that time.";
+        String DB_COLUMN_FAMILY_TUNING = "Use table settings that fit the data of each column family (point lookups " +
+                "for transactions, uncompressed larger blocks for the indexes). If disabled, all column families " +
+                "share the same settings.";
+        String DB_COMPRESSION = "The compression of the DB tables (none, snappy, zlib, bzip2, lz4, lz4hc or zstd). " +
+                "The indexes of the tangle are never compressed when the column family tuning is enabled.";
+        String DB_STATISTICS = "Count the block cache hits, stalls, compactions and latencies of the DB and log them " +
+                "every minute. The counters can also be read with the getDbStatistics API call.";
     }
 }
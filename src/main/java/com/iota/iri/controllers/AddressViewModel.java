@@ -8,6 +8,7 @@ import com.iota.iri.storage.Persistable;
 import com.iota.iri.storage.Tangle;
 import com.iota.iri.utils.Pair;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -92,6 +93,28 @@ public class AddressViewModel implements HashesViewModel {
         return self.set;
     }
 
+    /**
+     * Returns a page of the hashes of the referenced {@link Address} set. In contrast to {@link #getHashes()} this only
+     * decodes the hashes of the page, which allows to iterate over large sets without holding all of their hashes in
+     * memory.
+     *
+     * @param offset the number of hashes that are skipped
+     * @param limit the maximum number of hashes of the page
+     * @return the hashes of the page in the order in which they were stored
+     * @see com.iota.iri.model.persistables.Hashes#getHashes(int, int)
+     */
+    public List<Hash> getHashes(int offset, int limit) {
+        return self.getHashes(offset, limit);
+    }
+
+    /**
+     * @return the number of hashes of the referenced {@link Address} set (without decoding them)
+     * @see com.iota.iri.model.persistables.Hashes#countHashes()
+     */
+    public int countHashes() {
+        return self.countHashes();
+    }
+
     @Override
     public void delete(Tangle tangle) throws Exception {
         tangle.delete(Address.class,hash);
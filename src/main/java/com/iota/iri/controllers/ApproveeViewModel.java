@@ -8,6 +8,8 @@ import com.iota.iri.storage.Persistable;
 import com.iota.iri.storage.Tangle;
 import com.iota.iri.utils.Pair;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -51,6 +53,24 @@ public class ApproveeViewModel implements HashesViewModel {
         return new ApproveeViewModel((Approvee) tangle.load(Approvee.class, hash), hash);
     }
 
+    /**
+     * Creates the {@link Approvee} set controllers for a list of {@link Hash} identifiers. The sets are extracted from
+     * the database with a single batched request.
+     *
+     * @param tangle The tangle reference for the database to find the {@link Approvee} sets in
+     * @param hashes The hash identifiers for the {@link Approvee} sets that need to be found
+     * @return The {@link ApproveeViewModel} controllers in the order of {@code hashes}
+     * @throws Exception Thrown if the database cannot load the {@link Approvee} sets
+     */
+    public static List<ApproveeViewModel> load(Tangle tangle, List<? extends Indexable> hashes) throws Exception {
+        List<Persistable> approvees = tangle.loadBatch(Approvee.class, hashes);
+        List<ApproveeViewModel> approveeViewModels = new ArrayList<>(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            approveeViewModels.add(new ApproveeViewModel((Approvee) approvees.get(i), hashes.get(i)));
+        }
+        return approveeViewModels;
+    }
+
     /**
      * Fetches the first persistable {@link Approvee} set from the database and generates a new
      * {@link ApproveeViewModel} from it. If no {@link Approvee} sets exist in the database, it will return null.
@@ -1,10 +1,12 @@
 package com.iota.iri.controllers;
 
-import java.security.SecureRandom;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.iota.iri.model.Hash;
 
@@ -12,6 +14,10 @@ import com.iota.iri.model.Hash;
  * Acts as a controller interface for a <tt>Tips</tt> set. A tips set is a a First In First Out cache for
  * {@link com.iota.iri.model.persistables.Transaction} objects that have no children. <tt>Tips</tt> are stored in the
  * {@link TipsViewModel} until they are deemed solid or are removed from the cache.
+ * <p>
+ *     Modifications are synchronized, while random sampling and the size queries are lock-free, so readers like the
+ *     {@link com.iota.iri.network.Node} never have to wait for the ingestion threads.
+ * </p>
  */
 public class TipsViewModel {
 
@@ -21,17 +27,19 @@ public class TipsViewModel {
     private final FifoHashCache<Hash> tips = new FifoHashCache<>(TipsViewModel.MAX_TIPS);
     private final FifoHashCache<Hash> solidTips = new FifoHashCache<>(TipsViewModel.MAX_TIPS);
 
-    private final SecureRandom seed = new SecureRandom();
     private final Object sync = new Object();
 
     /**
-     * Adds a {@link Hash} object to the tip cache in a synchronous fashion.
+     * Adds a {@link Hash} object to the tip cache in a synchronous fashion. Tips that are already known to be solid
+     * are ignored.
      *
      * @param hash The {@link Hash} identifier of the object to be added
      */
     public void addTipHash(Hash hash) {
         synchronized (sync) {
-            tips.add(hash);
+            if (!solidTips.contains(hash)) {
+                tips.add(hash);
+            }
         }
     }
 
@@ -67,146 +75,115 @@ public class TipsViewModel {
     }
 
     /**
-     * Iterates through all solid and non-solid tips and compiles them into one {@link Hash} set to be returned. This
-     * does so in a synchronised fashion.
+     * Takes a snapshot of all solid and non-solid tips. The snapshot is a single copy of the internal arrays, and it
+     * is not affected by later modifications of the tips.
      *
-     * @return The {@link Hash} set containing all solid and non-solid tips
+     * @return An unmodifiable view of all solid and non-solid tips (without duplicates)
      */
-    public Set<Hash> getTips() {
-        Set<Hash> hashes = new HashSet<>();
+    public Collection<Hash> getTips() {
+        List<Hash> hashes;
         synchronized (sync) {
-            Iterator<Hash> hashIterator;
-            hashIterator = tips.iterator();
-            while (hashIterator.hasNext()) {
-                hashes.add(hashIterator.next());
-            }
-
-            hashIterator = solidTips.iterator();
-            while (hashIterator.hasNext()) {
-                hashes.add(hashIterator.next());
-            }
+            hashes = new ArrayList<>(tips.size() + solidTips.size());
+            tips.copyTo(hashes);
+            solidTips.copyTo(hashes);
         }
-        return hashes;
+        return Collections.unmodifiableList(hashes);
     }
 
     /**
-     * Returns a random tip by generating a random integer within the range of the <tt>SolidTips</tt> set, and iterates
-     * through the set until a hash is returned. If there are no <tt>Solid</tt> tips available, then
-     * <tt>getRandomNonSolidTipHash</tt> is called and returned instead.
+     * Returns a random tip from the <tt>SolidTips</tt> set in constant time without acquiring a lock. If there are no
+     * <tt>Solid</tt> tips available, then <tt>getRandomNonSolidTipHash</tt> is called and returned instead.
      *
      * @return A random <tt>Solid</tt> tip if available, a random <tt>NonSolid</tt> tip if not
      */
     public Hash getRandomSolidTipHash() {
-        synchronized (sync) {
-            int size = solidTips.size();
-            if (size == 0) {
-                return getRandomNonSolidTipHash();
-            }
-            int index = seed.nextInt(size);
-            Iterator<Hash> hashIterator;
-            hashIterator = solidTips.iterator();
-            Hash hash = null;
-            while (index-- >= 0 && hashIterator.hasNext()) {
-                hash = hashIterator.next();
-            }
-            return hash;
-            //return solidTips.size() != 0 ? solidTips.get(seed.nextInt(solidTips.size())) : getRandomNonSolidTipHash();
-        }
+        Hash hash = solidTips.getRandom();
+        return hash != null ? hash : getRandomNonSolidTipHash();
     }
 
     /**
-     * Returns a random tip by generating integer within the range of the <tt>Tips</tt> set, and iterates through the
-     * set until a hash is returned. If there are no tips available, then null is returned instead.
+     * Returns a random tip from the <tt>Tips</tt> set in constant time without acquiring a lock. If there are no tips
+     * available, then null is returned instead.
      *
      * @return A random tip if available, null if not
      */
     public Hash getRandomNonSolidTipHash() {
-        synchronized (sync) {
-            int size = tips.size();
-            if (size == 0) {
-                return null;
-            }
-            int index = seed.nextInt(size);
-            Iterator<Hash> hashIterator;
-            hashIterator = tips.iterator();
-            Hash hash = null;
-            while (index-- >= 0 && hashIterator.hasNext()) {
-                hash = hashIterator.next();
-            }
-            return hash;
-            //return tips.size() != 0 ? tips.get(seed.nextInt(tips.size())) : null;
-        }
+        return tips.getRandom();
     }
 
     /**
-     * Fetches the size of the <tt>Tips</tt> set in a synchronised fashion
+     * Fetches the size of the <tt>Tips</tt> set.
      * @return The size of the set
      */
     public int nonSolidSize() {
-        synchronized (sync) {
-            return tips.size();
-        }
+        return tips.size();
     }
 
     /**
-     * Fetches the size of the <tt>SolidTips</tt> set in a synchronised fashion
+     * Fetches the size of the <tt>SolidTips</tt> set.
      * @return The size of the set
      */
     public int solidSize() {
-        synchronized (sync) {
-            return solidTips.size();
-        }
+        return solidTips.size();
     }
 
     /**
-     * Fetches the size of the <tt>Tips</tt> set and <tt>SolidTips</tt>set combined. This does so in a synchronised
-     * fashion.
+     * Fetches the size of the <tt>Tips</tt> set and <tt>SolidTips</tt>set combined.
      * @return The size of both sets combined
      */
     public int size() {
-        synchronized (sync) {
-            return tips.size() + solidTips.size();
-        }
+        return tips.size() + solidTips.size();
     }
 
     /**
-     * A First In First Out hash set for storing <tt>Tip</tt> transactions.
+     * A First In First Out hash set for storing <tt>Tip</tt> transactions that supports random sampling in constant
+     * time.
+     *
+     * <p>
+     *     The elements are kept in a dense array, and an insertion ordered map stores the slot of every element.
+     *     Removing an element moves the last element of the array into the freed slot. Modifications have to be
+     *     synchronized by the caller, while {@link #getRandom()} and {@link #size()} can be called concurrently.
+     * </p>
      *
      * @param <K> The class of object that will be stored in the hash set
      */
-    private class FifoHashCache<K> {
+    private static class FifoHashCache<K> {
 
         private final int capacity;
-        private final LinkedHashSet<K> set;
+        private final LinkedHashMap<K, Integer> slots;
+        private final AtomicReferenceArray<K> elements;
+        private volatile int size;
 
         /**
-         * Constructor for a <tt>Fifo LinkedHashSet Hash</tt> set of a given size.
+         * Constructor for a <tt>Fifo</tt> hash set of a given size.
          *
          * @param capacity The maximum size allocated for the set
          */
         public FifoHashCache(int capacity) {
             this.capacity = capacity;
-            this.set = new LinkedHashSet<>();
+            this.slots = new LinkedHashMap<>();
+            this.elements = new AtomicReferenceArray<>(capacity);
         }
 
         /**
-         * Determines if there is vacant space available in the set, and adds the provided object to the set if so. If
-         * there is no space available, the set removes the next available object iteratively until there is room
-         * available.
+         * Adds the provided object to the set. If there is no space available, the oldest objects are removed until
+         * there is room available.
          *
          * @param key The {@link Hash} identifier for the object that will be added to the set
          * @return True if the new objects have been added, False if not
          */
         public boolean add(K key) {
-            int vacancy = this.capacity - this.set.size();
-            if (vacancy <= 0) {
-                Iterator<K> it = this.set.iterator();
-                for (int i = vacancy; i <= 0; i++) {
-                    it.next();
-                    it.remove();
-                }
+            if (slots.containsKey(key)) {
+                return false;
+            }
+            while (size >= capacity) {
+                remove(slots.keySet().iterator().next());
             }
-            return this.set.add(key);
+            int slot = size;
+            elements.set(slot, key);
+            slots.put(key, slot);
+            size = slot + 1;
+            return true;
         }
 
         /**
@@ -216,19 +193,64 @@ public class TipsViewModel {
          * @return True if the object is removed, False if not
          */
         public boolean remove(K key) {
-            return this.set.remove(key);
+            Integer slot = slots.remove(key);
+            if (slot == null) {
+                return false;
+            }
+            int last = size - 1;
+            if (slot != last) {
+                K moved = elements.get(last);
+                elements.set(slot, moved);
+                slots.put(moved, slot);
+            }
+            size = last;
+            elements.set(last, null);
+            return true;
         }
 
-        /**@return The integer size of the stored {@link Hash} set*/
-        public int size() {
-            return this.set.size();
+        /**
+         * Checks if the referenced object is part of the set.
+         *
+         * @param key The {@link Hash} identifier for the object that shall be checked
+         * @return True if the object is in the set, False if not
+         */
+        public boolean contains(K key) {
+            return slots.containsKey(key);
+        }
+
+        /**
+         * Picks a random element of the set. A reader that races with a removal might get the element that was just
+         * removed, which is fine for the purpose of selecting a random tip.
+         *
+         * @return A random element or null if the set is empty
+         */
+        public K getRandom() {
+            while (true) {
+                int currentSize = size;
+                if (currentSize == 0) {
+                    return null;
+                }
+                K element = elements.get(ThreadLocalRandom.current().nextInt(currentSize));
+                if (element != null) {
+                    return element;
+                }
+            }
         }
 
         /**
-         * Creates a new iterator for the object set based on the {@link Hash} class of the set.
-         * @return The class matched iterator for the stored set*/
-        public Iterator<K> iterator() {
-            return this.set.iterator();
+         * Appends all elements of the set to the given collection.
+         *
+         * @param target The collection that receives the elements
+         */
+        public void copyTo(Collection<? super K> target) {
+            for (int i = 0; i < size; i++) {
+                target.add(elements.get(i));
+            }
+        }
+
+        /**@return The integer size of the stored {@link Hash} set*/
+        public int size() {
+            return size;
         }
     }
 
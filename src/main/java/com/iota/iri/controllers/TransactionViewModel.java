@@ -134,6 +134,27 @@ public class TransactionViewModel {
         return transactionViewModel;
     }
 
+    /**
+     * Creates the controllers for a list of {@link Hash} identifiers. In contrast to {@link #fromHash} the
+     * {@link Transaction} objects are read from the database with a single batched request.
+     *
+     * @param tangle The tangle reference for the database
+     * @param hashes The {@link Hash} identifiers to search with
+     * @return The {@link TransactionViewModel}s (with their Metadata filled in) in the order of {@code hashes}
+     * @throws Exception Thrown if there is an error loading the {@link Transaction} objects from the database
+     */
+    public static List<TransactionViewModel> fromHashes(Tangle tangle, final List<Hash> hashes) throws Exception {
+        List<Persistable> transactions = tangle.loadBatch(Transaction.class, hashes);
+        List<TransactionViewModel> transactionViewModels = new ArrayList<>(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            TransactionViewModel transactionViewModel = new TransactionViewModel(
+                    (Transaction) transactions.get(i), hashes.get(i));
+            fillMetadata(tangle, transactionViewModel);
+            transactionViewModels.add(transactionViewModel);
+        }
+        return transactionViewModels;
+    }
+
     /**
      * Constructor for a {@link Transaction} set controller interface. This controller is used to interact with and
      * manipulate a provided {@link Transaction} set.
@@ -251,9 +272,10 @@ public class TransactionViewModel {
     /**
      * This method updates the metadata contained in the {@link Transaction} object, and updates the object in the
      * database. First, all the most recent {@link Hash} identifiers are fetched to make sure the object's metadata is
-     * up to date. Then it checks if the current {@link TransactionHash} is null. If it is, then the method immediately
+     * up to date (unless they were read from the stored metadata, which they are copied from without decoding them).
+     * Then it checks if the current {@link TransactionHash} is null. If it is, then the method immediately
      * returns false, and if not, it attempts to update the {@link Transaction} object and the referencing {@link Hash}
-     * identifier in the database.
+     * identifier in the database. The {@link GraphNode} is only rewritten if one of its fields is updated.
      *
      * @param tangle The tangle reference for the database
      * @param initialSnapshot snapshot that acts as genesis
@@ -261,18 +283,38 @@ public class TransactionViewModel {
      * @throws Exception Thrown if any of the metadata fails to fetch, or if the database update fails
      */
     public void update(Tangle tangle, Snapshot initialSnapshot, String item) throws Exception {
-        getAddressHash();
-        getTrunkTransactionHash();
-        getBranchTransactionHash();
-        getBundleHash();
-        getTagValue();
-        getObsoleteTagValue();
+        if (!transaction.hasStoredHashes()) {
+            getAddressHash();
+            getTrunkTransactionHash();
+            getBranchTransactionHash();
+            getBundleHash();
+            getTagValue();
+            getObsoleteTagValue();
+        }
         setAttachmentData();
         setMetadata();
         if (initialSnapshot.hasSolidEntryPoint(hash)) {
             return;
         }
-        tangle.update(transaction, hash, item);
+        if (getType() == FILLED_SLOT && updatesGraphNode(item)) {
+            tangle.update(transaction, hash, item,
+                    Collections.singletonList(new Pair<>(hash, getGraphNode())));
+        } else {
+            tangle.update(transaction, hash, item);
+        }
+    }
+
+    /**
+     * @param item the updated fields, separated by "|" (see {@link #update(Tangle, Snapshot, String)})
+     * @return <code>true</code> if one of the fields is stored in the {@link GraphNode} as well
+     */
+    private static boolean updatesGraphNode(String item) {
+        for (String field : item.split("\\|")) {
+            if ("solid".equals(field) || "milestone".equals(field) || "snapshot".equals(field)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -323,6 +365,7 @@ public class TransactionViewModel {
      */
     public void delete(Tangle tangle) throws Exception {
         tangle.delete(Transaction.class, hash);
+        tangle.delete(GraphNode.class, hash);
     }
 
     /**
@@ -333,6 +376,20 @@ public class TransactionViewModel {
      * there is a problem populating the list.
      */
     public List<Pair<Indexable, Persistable>> getMetadataSaveBatch() {
+        List<Pair<Indexable, Persistable>> hashesList = getIndexEntries();
+        setAttachmentData();
+        setMetadata();
+        return hashesList;
+    }
+
+    /**
+     * Creates the entries that index this transaction by its {@link Address}, {@link Bundle}, {@link Approvee}s,
+     * {@link ObsoleteTag} and {@link Tag}. The same entries are used to add the transaction to the indexes and to
+     * remove it from them again.
+     *
+     * @return the index entries of this transaction paired with their keys
+     */
+    public List<Pair<Indexable, Persistable>> getIndexEntries() {
         List<Pair<Indexable, Persistable>> hashesList = new ArrayList<>();
         hashesList.add(new Pair<>(getAddressHash(), new Address(hash)));
         hashesList.add(new Pair<>(getBundleHash(), new Bundle(hash)));
@@ -340,8 +397,6 @@ public class TransactionViewModel {
         hashesList.add(new Pair<>(getTrunkTransactionHash(), new Approvee(hash)));
         hashesList.add(new Pair<>(getObsoleteTagValue(), new ObsoleteTag(hash)));
         hashesList.add(new Pair<>(getTagValue(), new Tag(hash)));
-        setAttachmentData();
-        setMetadata();
         return hashesList;
     }
 
@@ -358,9 +413,52 @@ public class TransactionViewModel {
         hashesList.addAll(getMetadataSaveBatch());
         getBytes();
         hashesList.add(new Pair<>(hash, transaction));
+        hashesList.add(new Pair<>(hash, getGraphNode()));
         return hashesList;
     }
 
+    /**
+     * Creates the {@link GraphNode} of this transaction, which holds the fields that are needed to walk the tangle.
+     *
+     * @return a new {@link GraphNode} with the current values of this transaction
+     */
+    public GraphNode getGraphNode() {
+        GraphNode graphNode = new GraphNode();
+        graphNode.trunk = getTrunkTransactionHash();
+        graphNode.branch = getBranchTransactionHash();
+        graphNode.bundle = getBundleHash();
+        graphNode.currentIndex = getCurrentIndex();
+        graphNode.solid = isSolid();
+        graphNode.milestone = isMilestone();
+        graphNode.snapshot = snapshotIndex();
+        return graphNode;
+    }
+
+    /**
+     * Loads the {@link GraphNode} of a transaction without reading the full transaction from the database. Traversals
+     * that only follow the references of transactions should use this method instead of {@link #fromHash}.
+     *
+     * Transactions that were stored before the {@link GraphNode}s were introduced have no such record, so their
+     * {@link GraphNode} is derived from the full transaction.
+     *
+     * @param tangle The tangle reference for the database
+     * @param hash The {@link Hash} identifier of the transaction
+     * @return the {@link GraphNode} of the transaction or <code>null</code> if the transaction is not stored
+     * @throws Exception Thrown if there is an error loading the transaction from the database
+     */
+    public static GraphNode loadGraphNode(Tangle tangle, Hash hash) throws Exception {
+        GraphNode graphNode = (GraphNode) tangle.load(GraphNode.class, hash);
+        if (graphNode != null && graphNode.trunk != null) {
+            return graphNode;
+        }
+
+        TransactionViewModel transactionViewModel = fromHash(tangle, hash);
+        if (transactionViewModel.getType() == PREFILLED_SLOT) {
+            return null;
+        }
+        return transactionViewModel.getGraphNode();
+    }
+
     /**
      * Fetches the next indexed persistable {@link Transaction} object from the database and generates a new
      * {@link TransactionViewModel} from it. If no objects exist in the database, it will return null.
@@ -381,7 +479,8 @@ public class TransactionViewModel {
      * This method fetches the saved batch of metadata and orders them into a list of {@link Hash} objects and
      * {@link Hash} identifier pairs. If the {@link Hash} identifier of the {@link Transaction} is null, or the database
      * already contains the {@link Transaction}, then the method returns False. Otherwise, the method tries to store the
-     * {@link Transaction} batch into the database.
+     * {@link Transaction} batch into the database. The existence check and the write are done atomically by the
+     * database with a single lookup (see {@link Tangle#saveBatchIfAbsent}).
      *
      * @param tangle The tangle reference for the database.
      * @param initialSnapshot snapshot that acts as genesis
@@ -389,15 +488,11 @@ public class TransactionViewModel {
      * @throws Exception Thrown if there is an error fetching the batch or storing in the database.
      */
     public boolean store(Tangle tangle, Snapshot initialSnapshot) throws Exception {
-        if (initialSnapshot.hasSolidEntryPoint(hash) || exists(tangle, hash)) {
+        if (initialSnapshot.hasSolidEntryPoint(hash)) {
             return false;
         }
 
-        List<Pair<Indexable, Persistable>> batch = getSaveBatch();
-        if (exists(tangle, hash)) {
-            return false;
-        }
-        return tangle.saveBatch(batch);
+        return tangle.saveBatchIfAbsent(Transaction.class, hash, getSaveBatch());
     }
 
     /**
@@ -498,7 +593,7 @@ public class TransactionViewModel {
      * @return The {@link AddressHash} identifier.
      */
     public Hash getAddressHash() {
-        if (transaction.address == null) {
+        if (transaction.getAddress() == null) {
             transaction.address = HashFactory.ADDRESS.create(trits(), ADDRESS_TRINARY_OFFSET);
         }
         return transaction.address;
@@ -510,7 +605,7 @@ public class TransactionViewModel {
      * @return The {@link ObsoleteTagHash} identifier.
      */
     public Hash getObsoleteTagValue() {
-        if (transaction.obsoleteTag == null) {
+        if (transaction.getObsoleteTag() == null) {
             byte[] tagBytes = Converter.allocateBytesForTrits(OBSOLETE_TAG_TRINARY_SIZE);
             Converter.bytes(trits(), OBSOLETE_TAG_TRINARY_OFFSET, tagBytes, 0, OBSOLETE_TAG_TRINARY_SIZE);
 
@@ -525,7 +620,7 @@ public class TransactionViewModel {
      * @return The {@link BundleHash} identifier.
      */
     public Hash getBundleHash() {
-        if (transaction.bundle == null) {
+        if (transaction.getBundle() == null) {
             transaction.bundle = HashFactory.BUNDLE.create(trits(), BUNDLE_TRINARY_OFFSET);
         }
         return transaction.bundle;
@@ -537,7 +632,7 @@ public class TransactionViewModel {
      * @return The trunk {@link TransactionHash} identifier.
      */
     public Hash getTrunkTransactionHash() {
-        if (transaction.trunk == null) {
+        if (transaction.getTrunk() == null) {
             transaction.trunk = HashFactory.TRANSACTION.create(trits(), TRUNK_TRANSACTION_TRINARY_OFFSET);
         }
         return transaction.trunk;
@@ -549,7 +644,7 @@ public class TransactionViewModel {
      * @return The branch {@link TransactionHash} identifier.
      */
     public Hash getBranchTransactionHash() {
-        if (transaction.branch == null) {
+        if (transaction.getBranch() == null) {
             transaction.branch = HashFactory.TRANSACTION.create(trits(), BRANCH_TRANSACTION_TRINARY_OFFSET);
         }
         return transaction.branch;
@@ -561,7 +656,7 @@ public class TransactionViewModel {
      * @return The {@link TagHash} identifier.
      */
     public Hash getTagValue() {
-        if (transaction.tag == null) {
+        if (transaction.getTag() == null) {
             byte[] tagBytes = Converter.allocateBytesForTrits(TAG_TRINARY_SIZE);
             Converter.bytes(trits(), TAG_TRINARY_OFFSET, tagBytes, 0, TAG_TRINARY_SIZE);
             transaction.tag = HashFactory.TAG.create(tagBytes, 0, TAG_SIZE_IN_BYTES);
@@ -667,10 +762,13 @@ public class TransactionViewModel {
      * Fetches the {@link Transaction#tag}, and converts the transaction trits for the
      * {@link Transaction#attachmentTimestamp}, the {@link Transaction#attachmentTimestampLowerBound}, and the
      * {@link Transaction#attachmentTimestampUpperBound} to long values.The method then sets these values to the
-     * {@link TransactionViewModel} metadata.
+     * {@link TransactionViewModel} metadata. A {@link Transaction#tag} that was read from the stored metadata is not
+     * decoded.
      */
     public void setAttachmentData() {
-        getTagValue();
+        if (!transaction.hasStoredHashes()) {
+            getTagValue();
+        }
         transaction.attachmentTimestamp = Converter.longValue(trits(), ATTACHMENT_TIMESTAMP_TRINARY_OFFSET,
                 ATTACHMENT_TIMESTAMP_TRINARY_SIZE);
         transaction.attachmentTimestampLowerBound = Converter.longValue(trits(),
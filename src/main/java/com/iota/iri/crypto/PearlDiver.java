@@ -12,6 +12,12 @@ import java.util.List;
  * <pre>
  *     trailingZeros(hash(transaction || nonce)) < minWeightMagnitude
  * </pre>
+ * <p>
+ *     Candidates are bit-sliced: every state cell holds one {@code long} per lane, and every bit of a lane is an
+ *     independent nonce candidate. With {@code n} lanes one iteration of a worker tests {@code 64 * n} candidates.
+ *     The words of a cell are stored next to each other, so the wide kernel applies the same branch-free expression
+ *     to a contiguous block of memory per cell.
+ * </p>
  */
 public class PearlDiver {
 
@@ -29,9 +35,40 @@ public class PearlDiver {
     private static final long HIGH_BITS = 0b11111111_11111111_11111111_11111111_11111111_11111111_11111111_11111111L;
     private static final long LOW_BITS = 0b00000000_00000000_00000000_00000000_00000000_00000000_00000000_00000000L;
 
+    /**
+     * Number of {@code long} words per state cell that is used if nothing else was specified.
+     */
+    public static final int DEFAULT_LANES = 1;
+
+    /**
+     * Upper bound for the number of lanes.
+     */
+    public static final int MAX_LANES = 8;
+
+    private final int lanes;
+
     private volatile State state;
     private final Object syncObj = new Object();
 
+    /**
+     * Creates a PoW calculator that uses {@value #DEFAULT_LANES} lanes per state cell.
+     */
+    public PearlDiver() {
+        this(DEFAULT_LANES);
+    }
+
+    /**
+     * Creates a PoW calculator that tests {@code 64 * lanes} nonce candidates per transform.
+     *
+     * @param lanes number of {@code long} words per state cell (between 1 and {@value #MAX_LANES})
+     */
+    public PearlDiver(int lanes) {
+        if (lanes < 1 || lanes > MAX_LANES) {
+            throw new IllegalArgumentException("Invalid number of lanes: " + lanes);
+        }
+        this.lanes = lanes;
+    }
+
     /**
      * Searches for a nonce such that the hash ends with {@code minWeightMagnitude} zeros.<br>
      * To add the {@value com.iota.iri.controllers.TransactionViewModel#NONCE_TRINARY_SIZE}
@@ -105,30 +142,48 @@ public class PearlDiver {
     private Runnable getRunnable(final int threadIndex, final byte[] transactionTrits, final int minWeightMagnitude,
                                  final long[] midStateCopyLow, final long[] midStateCopyHigh) {
         return () -> {
-            for (int i = 0; i < threadIndex; i++) {
+            // every lane of every thread starts at a different offset of the middle third of the nonce
+            for (int i = 0; i < threadIndex * lanes; i++) {
+                increment(midStateCopyLow, midStateCopyHigh, 162 + CURL_HASH_LENGTH / 9,
+                    162 + (CURL_HASH_LENGTH / 9) * 2, 1, 0);
+            }
+
+            final long[] midStateLow = new long[CURL_STATE_LENGTH * lanes];
+            final long[] midStateHigh = new long[CURL_STATE_LENGTH * lanes];
+            for (int lane = 0; lane < lanes; lane++) {
+                for (int i = 0; i < CURL_STATE_LENGTH; i++) {
+                    midStateLow[i * lanes + lane] = midStateCopyLow[i];
+                    midStateHigh[i * lanes + lane] = midStateCopyHigh[i];
+                }
                 increment(midStateCopyLow, midStateCopyHigh, 162 + CURL_HASH_LENGTH / 9,
-                    162 + (CURL_HASH_LENGTH / 9) * 2);
+                    162 + (CURL_HASH_LENGTH / 9) * 2, 1, 0);
             }
 
-            final long[] stateLow = new long[CURL_STATE_LENGTH];
-            final long[] stateHigh = new long[CURL_STATE_LENGTH];
+            final long[] stateLow = new long[CURL_STATE_LENGTH * lanes];
+            final long[] stateHigh = new long[CURL_STATE_LENGTH * lanes];
 
-            final long[] scratchpadLow = new long[CURL_STATE_LENGTH];
-            final long[] scratchpadHigh = new long[CURL_STATE_LENGTH];
+            final long[] scratchpadLow = new long[CURL_STATE_LENGTH * lanes];
+            final long[] scratchpadHigh = new long[CURL_STATE_LENGTH * lanes];
 
             final int maskStartIndex = CURL_HASH_LENGTH - minWeightMagnitude;
             long mask = 0;
+            int foundLane = 0;
             while (state == State.RUNNING && mask == 0) {
 
-                increment(midStateCopyLow, midStateCopyHigh, 162 + (CURL_HASH_LENGTH / 9) * 2,
-                    CURL_HASH_LENGTH);
+                for (int lane = 0; lane < lanes; lane++) {
+                    increment(midStateLow, midStateHigh, 162 + (CURL_HASH_LENGTH / 9) * 2,
+                        CURL_HASH_LENGTH, lanes, lane);
+                }
 
-                copy(midStateCopyLow, midStateCopyHigh, stateLow, stateHigh);
-                transform(stateLow, stateHigh, scratchpadLow, scratchpadHigh);
+                copy(midStateLow, midStateHigh, stateLow, stateHigh);
+                transform(stateLow, stateHigh, scratchpadLow, scratchpadHigh, lanes);
 
-                mask = HIGH_BITS;
-                for (int i = maskStartIndex; i < CURL_HASH_LENGTH && mask != 0; i++) {
-                    mask &= ~(stateLow[i] ^ stateHigh[i]);
+                for (int lane = 0; lane < lanes && mask == 0; lane++) {
+                    mask = HIGH_BITS;
+                    for (int i = maskStartIndex; i < CURL_HASH_LENGTH && mask != 0; i++) {
+                        mask &= ~(stateLow[i * lanes + lane] ^ stateHigh[i * lanes + lane]);
+                    }
+                    foundLane = lane;
                 }
             }
             if (mask != 0) {
@@ -140,9 +195,10 @@ public class PearlDiver {
                             outMask <<= 1;
                         }
                         for (int i = 0; i < CURL_HASH_LENGTH; i++) {
+                            final int index = i * lanes + foundLane;
                             transactionTrits[TRANSACTION_LENGTH - CURL_HASH_LENGTH + i] =
-                                (midStateCopyLow[i] & outMask) == 0 ? 1
-                                    : (midStateCopyHigh[i] & outMask) == 0 ? (byte) -1 : (byte) 0;
+                                (midStateLow[index] & outMask) == 0 ? 1
+                                    : (midStateHigh[index] & outMask) == 0 ? (byte) -1 : (byte) 0;
                         }
                     }
                 }
@@ -151,8 +207,8 @@ public class PearlDiver {
     }
 
     private static void copy(long[] srcLow, long[] srcHigh, long[] destLow, long[] destHigh) {
-        System.arraycopy(srcLow, 0, destLow, 0, CURL_STATE_LENGTH);
-        System.arraycopy(srcHigh, 0, destHigh, 0, CURL_STATE_LENGTH);
+        System.arraycopy(srcLow, 0, destLow, 0, srcLow.length);
+        System.arraycopy(srcHigh, 0, destHigh, 0, srcHigh.length);
     }
 
     private static void initializeMidCurlStates(byte[] transactionTrits, long[] midStateLow, long[] midStateHigh) {
@@ -181,7 +237,7 @@ public class PearlDiver {
                         midStateHigh[j] = LOW_BITS;
                 }
             }
-            transform(midStateLow, midStateHigh, curlScratchpadLow, curlScratchpadHigh);
+            transform(midStateLow, midStateHigh, curlScratchpadLow, curlScratchpadHigh, 1);
         }
 
         for (int i = 0; i < 162; i++) {
@@ -210,42 +266,101 @@ public class PearlDiver {
         midStateHigh[162 + 3] = 0b0000000000111111111111111111111111111111111111111111111111111111L;
     }
 
+    /**
+     * Applies the Curl-P-81 permutation to a bit-sliced state.
+     * <p>
+     *     Cell {@code i} of lane {@code j} is stored at index {@code i * lanes + j}. Instead of copying the state into
+     *     the scratchpad before every round, the two buffers swap roles after each round, so only the final result
+     *     has to be copied back.
+     * </p>
+     */
     private static void transform(final long[] stateLow, final long[] stateHigh,
-                                  final long[] scratchpadLow, final long[] scratchpadHigh) {
+                                  final long[] scratchpadLow, final long[] scratchpadHigh, final int lanes) {
 
+        long[] fromLow = stateLow;
+        long[] fromHigh = stateHigh;
+        long[] toLow = scratchpadLow;
+        long[] toHigh = scratchpadHigh;
         for (int round = 0; round < Curl.NUMBER_OF_ROUNDSP81; round++) {
-            copy(stateLow, stateHigh, scratchpadLow, scratchpadHigh);
-
-            int scratchpadIndex = 0;
-            for (int stateIndex = 0; stateIndex < CURL_STATE_LENGTH; stateIndex++) {
-                final long alpha = scratchpadLow[scratchpadIndex];
-                final long beta = scratchpadHigh[scratchpadIndex];
-                if (scratchpadIndex < 365) {
-                    scratchpadIndex += 364;
-                } else {
-                    scratchpadIndex += -365;
-                }
-                final long gamma = scratchpadHigh[scratchpadIndex];
-                final long delta = (alpha | (~gamma)) & (scratchpadLow[scratchpadIndex] ^ beta);
+            if (lanes == 1) {
+                substitute(fromLow, fromHigh, toLow, toHigh);
+            } else {
+                substitute(fromLow, fromHigh, toLow, toHigh, lanes);
+            }
+
+            long[] swap = fromLow;
+            fromLow = toLow;
+            toLow = swap;
+            swap = fromHigh;
+            fromHigh = toHigh;
+            toHigh = swap;
+        }
+        if (fromLow != stateLow) {
+            copy(fromLow, fromHigh, stateLow, stateHigh);
+        }
+    }
+
+    private static void substitute(final long[] fromLow, final long[] fromHigh,
+                                   final long[] toLow, final long[] toHigh) {
+
+        int scratchpadIndex = 0;
+        for (int stateIndex = 0; stateIndex < CURL_STATE_LENGTH; stateIndex++) {
+            final long alpha = fromLow[scratchpadIndex];
+            final long beta = fromHigh[scratchpadIndex];
+            if (scratchpadIndex < 365) {
+                scratchpadIndex += 364;
+            } else {
+                scratchpadIndex += -365;
+            }
+            final long gamma = fromHigh[scratchpadIndex];
+            final long delta = (alpha | (~gamma)) & (fromLow[scratchpadIndex] ^ beta);
+
+            toLow[stateIndex] = ~delta;
+            toHigh[stateIndex] = (alpha ^ gamma) | delta;
+        }
+    }
+
+    private static void substitute(final long[] fromLow, final long[] fromHigh,
+                                   final long[] toLow, final long[] toHigh, final int lanes) {
+
+        final int stateLength = CURL_STATE_LENGTH * lanes;
+        final int forwardStep = 364 * lanes;
+        final int backwardStep = 365 * lanes;
+
+        int scratchpadIndex = 0;
+        for (int stateIndex = 0; stateIndex < stateLength; stateIndex += lanes) {
+            final int alphaIndex = scratchpadIndex;
+            if (scratchpadIndex < backwardStep) {
+                scratchpadIndex += forwardStep;
+            } else {
+                scratchpadIndex -= backwardStep;
+            }
+
+            for (int lane = 0; lane < lanes; lane++) {
+                final long alpha = fromLow[alphaIndex + lane];
+                final long beta = fromHigh[alphaIndex + lane];
+                final long gamma = fromHigh[scratchpadIndex + lane];
+                final long delta = (alpha | (~gamma)) & (fromLow[scratchpadIndex + lane] ^ beta);
 
-                stateLow[stateIndex] = ~delta;
-                stateHigh[stateIndex] = (alpha ^ gamma) | delta;
+                toLow[stateIndex + lane] = ~delta;
+                toHigh[stateIndex + lane] = (alpha ^ gamma) | delta;
             }
         }
     }
 
     private static void increment(final long[] midStateCopyLow, final long[] midStateCopyHigh,
-                                  final int fromIndex, final int toIndex) {
+                                  final int fromIndex, final int toIndex, final int lanes, final int lane) {
 
         for (int i = fromIndex; i < toIndex; i++) {
-            if (midStateCopyLow[i] == LOW_BITS) {
-                midStateCopyLow[i] = HIGH_BITS;
-                midStateCopyHigh[i] = LOW_BITS;
-            } else if (midStateCopyHigh[i] == LOW_BITS) {
-                midStateCopyHigh[i] = HIGH_BITS;
+            final int index = i * lanes + lane;
+            if (midStateCopyLow[index] == LOW_BITS) {
+                midStateCopyLow[index] = HIGH_BITS;
+                midStateCopyHigh[index] = LOW_BITS;
+            } else if (midStateCopyHigh[index] == LOW_BITS) {
+                midStateCopyHigh[index] = HIGH_BITS;
                 break;
             } else {
-                midStateCopyLow[i] = LOW_BITS;
+                midStateCopyLow[index] = LOW_BITS;
                 break;
             }
         }
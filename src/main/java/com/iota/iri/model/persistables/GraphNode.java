@@ -0,0 +1,82 @@
+package com.iota.iri.model.persistables;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.storage.Persistable;
+import com.iota.iri.utils.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The part of a transaction that is needed to walk the tangle.
+ *
+ * Traversals (solidity checks, the depth checks of the tip selection) only look at the references, the position in
+ * the bundle and a few flags of a transaction. Loading the full transaction for this means reading about 2.2kB (the
+ * trits and the metadata) per step, while this record holds the same information in {@link #SIZE} bytes. It is
+ * written in the same batch as the transaction and its metadata, so it never disagrees with them.
+ */
+public class GraphNode implements Persistable {
+    /**
+     * The size of a serialized node: trunk, branch, bundle, current index, flags and snapshot index.
+     */
+    public static final int SIZE = Hash.SIZE_IN_BYTES * 3 + Long.BYTES + 1 + Integer.BYTES;
+
+    public Hash trunk;
+    public Hash branch;
+    public Hash bundle;
+    public long currentIndex;
+    public boolean solid;
+    public boolean milestone;
+    public int snapshot;
+
+    @Override
+    public byte[] bytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.put(trunk.bytes());
+        buffer.put(branch.bytes());
+        buffer.put(bundle.bytes());
+        buffer.put(Serializer.serialize(currentIndex));
+
+        byte flags = 0;
+        flags |= solid ? Transaction.IS_SOLID_BITMASK : 0;
+        flags |= milestone ? Transaction.IS_MILESTONE_BITMASK : 0;
+        buffer.put(flags);
+
+        buffer.put(Serializer.serialize(snapshot));
+        return buffer.array();
+    }
+
+    @Override
+    public void read(byte[] bytes) {
+        if(bytes != null) {
+            int i = 0;
+            trunk = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
+            i += Hash.SIZE_IN_BYTES;
+            branch = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
+            i += Hash.SIZE_IN_BYTES;
+            bundle = HashFactory.BUNDLE.create(bytes, i, Hash.SIZE_IN_BYTES);
+            i += Hash.SIZE_IN_BYTES;
+            currentIndex = Serializer.getLong(bytes, i);
+            i += Long.BYTES;
+            solid = (bytes[i] & Transaction.IS_SOLID_BITMASK) != 0;
+            milestone = (bytes[i] & Transaction.IS_MILESTONE_BITMASK) != 0;
+            i++;
+            snapshot = Serializer.getInteger(bytes, i);
+        }
+    }
+
+    @Override
+    public byte[] metadata() {
+        return new byte[0];
+    }
+
+    @Override
+    public void readMetadata(byte[] bytes) {
+
+    }
+
+    @Override
+    public boolean merge() {
+        return false;
+    }
+}
@@ -3,9 +3,12 @@ package com.iota.iri.model.persistables;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
 import com.iota.iri.storage.Persistable;
-import org.apache.commons.lang3.ArrayUtils;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -15,20 +18,97 @@ public class Hashes implements Persistable {
     public Set<Hash> set = new LinkedHashSet<>();
     private static final byte delimiter = ",".getBytes()[0];
 
+    /**
+     * Every hash occupies a fixed width block of the serialized value. The blocks are separated by the same delimiter
+     * that the merge operator of the database puts between merged values, so appending a single hash with a merge
+     * results in exactly the same layout.
+     */
+    private static final int BLOCK_SIZE = Hash.SIZE_IN_BYTES + 1;
+
     public byte[] bytes() {
-        return set.parallelStream()
-                .map(Hash::bytes)
-                .reduce((a,b) -> ArrayUtils.addAll(ArrayUtils.add(a, delimiter), b))
-                .orElse(new byte[0]);
+        if (set instanceof StoredHashes && !((StoredHashes) set).isDecoded()) {
+            return ((StoredHashes) set).value.clone();
+        }
+        if (set.isEmpty()) {
+            return new byte[0];
+        }
+
+        byte[] bytes = new byte[set.size() * BLOCK_SIZE - 1];
+        int offset = 0;
+        for (Hash hash : set) {
+            if (offset != 0) {
+                bytes[offset - 1] = delimiter;
+            }
+            System.arraycopy(hash.bytes(), 0, bytes, offset, Hash.SIZE_IN_BYTES);
+            offset += BLOCK_SIZE;
+        }
+        return bytes;
     }
 
+    /**
+     * Reads the stored value without decoding it. The hashes are only decoded when the {@link #set} is used, while
+     * {@link #getHashes(int, int)} and {@link #countHashes()} work on the stored blocks directly.
+     *
+     * @param bytes the stored value
+     */
     public void read(byte[] bytes) {
         if(bytes != null) {
-            set = new LinkedHashSet<>(bytes.length / (1 + Hash.SIZE_IN_BYTES) + 1);
-            for (int i = 0; i < bytes.length; i += 1 + Hash.SIZE_IN_BYTES) {
-                set.add(HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES));
+            set = new StoredHashes(bytes);
+        }
+    }
+
+    /**
+     * Returns a page of the hashes in the order in which they were stored.
+     *
+     * If the value was read from the database and the {@link #set} was not used yet, only the blocks of the page are
+     * decoded. A hash that was merged into the value more than once occupies more than one block, so it can show up
+     * in more than one page.
+     *
+     * @param offset the number of hashes that are skipped
+     * @param limit the maximum number of hashes of the page
+     * @return the hashes of the page
+     */
+    public List<Hash> getHashes(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+
+        if (set instanceof StoredHashes && !((StoredHashes) set).isDecoded()) {
+            byte[] value = ((StoredHashes) set).value;
+            int end = (int) Math.min((long) offset + limit, countBlocks(value));
+            List<Hash> page = new ArrayList<>(Math.max(0, end - offset));
+            for (int block = offset; block < end; block++) {
+                page.add(HashFactory.TRANSACTION.create(value, block * BLOCK_SIZE, Hash.SIZE_IN_BYTES));
             }
+            return page;
         }
+
+        List<Hash> page = new ArrayList<>();
+        Iterator<Hash> iterator = set.iterator();
+        for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * Counts the hashes without decoding them (if the {@link #set} was not used yet).
+     *
+     * @return the number of stored hashes (including hashes that were merged into the value more than once)
+     */
+    public int countHashes() {
+        if (set instanceof StoredHashes && !((StoredHashes) set).isDecoded()) {
+            return countBlocks(((StoredHashes) set).value);
+        }
+        return set.size();
+    }
+
+    private static int countBlocks(byte[] value) {
+        // the last block has no delimiter
+        return (value.length + 1) / BLOCK_SIZE;
     }
 
     @Override
@@ -45,4 +125,63 @@ public class Hashes implements Persistable {
     public boolean merge() {
         return true;
     }
+
+    /**
+     * The hashes of a stored value, which are decoded when the set is used for the first time.
+     */
+    private static class StoredHashes extends AbstractSet<Hash> {
+
+        private final byte[] value;
+
+        private Set<Hash> decoded;
+
+        private StoredHashes(byte[] value) {
+            this.value = value;
+        }
+
+        private boolean isDecoded() {
+            return decoded != null;
+        }
+
+        private Set<Hash> decoded() {
+            if (decoded == null) {
+                Set<Hash> hashes = new LinkedHashSet<>(countBlocks(value) + 1);
+                for (int i = 0; i < value.length; i += BLOCK_SIZE) {
+                    hashes.add(HashFactory.TRANSACTION.create(value, i, Hash.SIZE_IN_BYTES));
+                }
+                decoded = hashes;
+            }
+            return decoded;
+        }
+
+        @Override
+        public Iterator<Hash> iterator() {
+            return decoded().iterator();
+        }
+
+        @Override
+        public int size() {
+            return decoded().size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return decoded().contains(o);
+        }
+
+        @Override
+        public boolean add(Hash hash) {
+            return decoded().add(hash);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return decoded().remove(o);
+        }
+
+        @Override
+        public void clear() {
+            decoded().clear();
+        }
+    }
 }
@@ -21,8 +21,23 @@ public class Transaction implements Persistable {
      */
     public static final int IS_MILESTONE_BITMASK = 0b10;
 
+    /**
+     * Positions of the hashes in the serialized metadata (see {@link #metadata()}).
+     */
+    private static final int ADDRESS_OFFSET = 0;
+    private static final int BUNDLE_OFFSET = ADDRESS_OFFSET + Hash.SIZE_IN_BYTES;
+    private static final int TRUNK_OFFSET = BUNDLE_OFFSET + Hash.SIZE_IN_BYTES;
+    private static final int BRANCH_OFFSET = TRUNK_OFFSET + Hash.SIZE_IN_BYTES;
+    private static final int OBSOLETE_TAG_OFFSET = BRANCH_OFFSET + Hash.SIZE_IN_BYTES;
+    private static final int TAG_OFFSET = OBSOLETE_TAG_OFFSET + Hash.SIZE_IN_BYTES + Long.BYTES * 4;
+
     public byte[] bytes;
 
+    /**
+     * The serialized metadata that the hashes are decoded from when they are accessed for the first time.
+     */
+    private byte[] metadataBytes;
+
     public Hash address;
     public Hash bundle;
     public Hash trunk;
@@ -59,14 +74,92 @@ public class Transaction implements Persistable {
         return bytes;
     }
 
+    /**
+     * Reads the transaction bytes. Values of the database are freshly allocated for every read, so an array of the
+     * exact size is used without copying it.
+     *
+     * @param bytes the serialized transaction (the array must not be modified afterwards)
+     */
     public void read(byte[] bytes) {
         if(bytes != null) {
-            this.bytes = new byte[SIZE];
-            System.arraycopy(bytes, 0, this.bytes, 0, SIZE);
+            if (bytes.length == SIZE) {
+                this.bytes = bytes;
+            } else {
+                this.bytes = new byte[SIZE];
+                System.arraycopy(bytes, 0, this.bytes, 0, SIZE);
+            }
             this.type = TransactionViewModel.FILLED_SLOT;
         }
     }
 
+    /**
+     * @return <code>true</code> if the hashes were read from the stored metadata, so {@link #metadata()} can copy the
+     *         ones that were never accessed without decoding them
+     */
+    public boolean hasStoredHashes() {
+        return metadataBytes != null;
+    }
+
+    /**
+     * @return the address or <code>null</code> if neither the metadata nor the caller have set it
+     */
+    public Hash getAddress() {
+        if (address == null && metadataBytes != null) {
+            address = HashFactory.ADDRESS.create(metadataBytes, ADDRESS_OFFSET, Hash.SIZE_IN_BYTES);
+        }
+        return address;
+    }
+
+    /**
+     * @return the bundle hash or <code>null</code> if neither the metadata nor the caller have set it
+     */
+    public Hash getBundle() {
+        if (bundle == null && metadataBytes != null) {
+            bundle = HashFactory.BUNDLE.create(metadataBytes, BUNDLE_OFFSET, Hash.SIZE_IN_BYTES);
+        }
+        return bundle;
+    }
+
+    /**
+     * @return the trunk transaction hash or <code>null</code> if neither the metadata nor the caller have set it
+     */
+    public Hash getTrunk() {
+        if (trunk == null && metadataBytes != null) {
+            trunk = HashFactory.TRANSACTION.create(metadataBytes, TRUNK_OFFSET, Hash.SIZE_IN_BYTES);
+        }
+        return trunk;
+    }
+
+    /**
+     * @return the branch transaction hash or <code>null</code> if neither the metadata nor the caller have set it
+     */
+    public Hash getBranch() {
+        if (branch == null && metadataBytes != null) {
+            branch = HashFactory.TRANSACTION.create(metadataBytes, BRANCH_OFFSET, Hash.SIZE_IN_BYTES);
+        }
+        return branch;
+    }
+
+    /**
+     * @return the obsolete tag or <code>null</code> if neither the metadata nor the caller have set it
+     */
+    public Hash getObsoleteTag() {
+        if (obsoleteTag == null && metadataBytes != null) {
+            obsoleteTag = HashFactory.OBSOLETETAG.create(metadataBytes, OBSOLETE_TAG_OFFSET, Hash.SIZE_IN_BYTES);
+        }
+        return obsoleteTag;
+    }
+
+    /**
+     * @return the tag or <code>null</code> if neither the metadata nor the caller have set it
+     */
+    public Hash getTag() {
+        if (tag == null && metadataBytes != null) {
+            tag = HashFactory.TAG.create(metadataBytes, TAG_OFFSET, Hash.SIZE_IN_BYTES);
+        }
+        return tag;
+    }
+
     @Override
     public byte[] metadata() {
         int allocateSize =
@@ -76,17 +169,17 @@ public class Transaction implements Persistable {
                         1 + //solid
                         sender.getBytes().length; //sender
         ByteBuffer buffer = ByteBuffer.allocate(allocateSize);
-        buffer.put(address.bytes());
-        buffer.put(bundle.bytes());
-        buffer.put(trunk.bytes());
-        buffer.put(branch.bytes());
-        buffer.put(obsoleteTag.bytes());
+        putHash(buffer, address, ADDRESS_OFFSET);
+        putHash(buffer, bundle, BUNDLE_OFFSET);
+        putHash(buffer, trunk, TRUNK_OFFSET);
+        putHash(buffer, branch, BRANCH_OFFSET);
+        putHash(buffer, obsoleteTag, OBSOLETE_TAG_OFFSET);
         buffer.put(Serializer.serialize(value));
         buffer.put(Serializer.serialize(currentIndex));
         buffer.put(Serializer.serialize(lastIndex));
         buffer.put(Serializer.serialize(timestamp));
 
-        buffer.put(tag.bytes());
+        putHash(buffer, tag, TAG_OFFSET);
         buffer.put(Serializer.serialize(attachmentTimestamp));
         buffer.put(Serializer.serialize(attachmentTimestampLowerBound));
         buffer.put(Serializer.serialize(attachmentTimestampUpperBound));
@@ -108,20 +201,38 @@ public class Transaction implements Persistable {
         return buffer.array();
     }
 
+    /**
+     * Writes a hash to the serialized metadata. Hashes that were never accessed are copied from the metadata they
+     * were read from, so updating the flags of a transaction does not decode its hashes.
+     */
+    private void putHash(ByteBuffer buffer, Hash hash, int offset) {
+        if (hash != null) {
+            buffer.put(hash.bytes());
+        } else if (metadataBytes != null) {
+            buffer.put(metadataBytes, offset, Hash.SIZE_IN_BYTES);
+        } else {
+            throw new IllegalStateException("the hashes of the transaction are unknown");
+        }
+    }
+
+    /**
+     * Reads the metadata of the transaction. The numeric fields are decoded right away, while the hashes are only
+     * decoded when they are accessed through their getter (traversals for example only need trunk and branch).
+     *
+     * @param bytes the serialized metadata (the array must not be modified afterwards)
+     */
     @Override
     public void readMetadata(byte[] bytes) {
         int i = 0;
         if(bytes != null) {
-            address = HashFactory.ADDRESS.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            bundle = HashFactory.BUNDLE.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            trunk = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            branch = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            obsoleteTag = HashFactory.OBSOLETETAG.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
+            metadataBytes = bytes;
+            address = null;
+            bundle = null;
+            trunk = null;
+            branch = null;
+            obsoleteTag = null;
+            tag = null;
+            i += Hash.SIZE_IN_BYTES * 5;
             value = Serializer.getLong(bytes, i);
             i += Long.BYTES;
             currentIndex = Serializer.getLong(bytes, i);
@@ -131,7 +242,6 @@ public class Transaction implements Persistable {
             timestamp = Serializer.getLong(bytes, i);
             i += Long.BYTES;
 
-            tag = HashFactory.TAG.create(bytes, i, Hash.SIZE_IN_BYTES);
             i += Hash.SIZE_IN_BYTES;
             attachmentTimestamp = Serializer.getLong(bytes, i);
             i += Long.BYTES;
@@ -160,11 +270,7 @@ public class Transaction implements Persistable {
 
             snapshot = Serializer.getInteger(bytes, i);
             i += Integer.BYTES;
-            byte[] senderBytes = new byte[bytes.length - i];
-            if (senderBytes.length != 0) {
-                System.arraycopy(bytes, i, senderBytes, 0, senderBytes.length);
-            }
-            sender = new String(senderBytes);
+            sender = bytes.length == i ? "" : new String(bytes, i, bytes.length - i);
             parsed = true;
         }
     }
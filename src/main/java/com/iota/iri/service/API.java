@@ -20,6 +20,7 @@ import com.iota.iri.network.Neighbor;
 import com.iota.iri.service.dto.*;
 import com.iota.iri.service.tipselection.TipSelector;
 import com.iota.iri.service.tipselection.impl.WalkValidatorImpl;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
 import com.iota.iri.utils.Converter;
 import com.iota.iri.utils.IotaIOUtils;
 import com.iota.iri.utils.MapIdentityManager;
@@ -51,10 +52,12 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static io.undertow.Handlers.path;
 
@@ -99,6 +102,16 @@ public class API {
 
     private final static long MAX_TIMESTAMP_VALUE = (long) (Math.pow(3, 27) - 1) / 2; // max positive 27-trits value
 
+    /**
+     * The time (in milliseconds) a single wereAddressesSpentFrom request may spend checking the addresses.
+     */
+    private final static long WERE_ADDRESSES_SPENT_FROM_TIMEOUT = 30000;
+
+    /**
+     * The number of hashes of a bundle or an address that findTransactions decodes at once.
+     */
+    private final static int HASHES_PAGE_SIZE = 1000;
+
     private static int counterGetTxToApprove = 0;
     private static long ellapsedTime_getTxToApprove = 0L;
     private static int counter_PoW = 0;
@@ -418,6 +431,9 @@ public class API {
                 case "getNodeAPIConfiguration": {
                     return getNodeAPIConfigurationStatement();
                 }
+                case "getDbStatistics": {
+                    return getDbStatisticsStatement();
+                }
                 case "getTips": {
                     return getTipsStatement();
                 }
@@ -496,6 +512,7 @@ public class API {
     /**
      * Check if a list of addresses was ever spent from, in the current epoch, or in previous epochs.
      * If an address has a pending transaction, it is also marked as spend.
+     * The addresses are checked as a batch, which has to finish within {@link #WERE_ADDRESSES_SPENT_FROM_TIMEOUT}.
      *
      * @param addresses List of addresses to check if they were ever spent from.
      **/
@@ -504,11 +521,14 @@ public class API {
                 .map(HashFactory.ADDRESS::create)
                 .collect(Collectors.toList());
 
+        final Set<Hash> spentAddresses = instance.spentAddressesService.wereAddressesSpentFrom(addressesHash,
+                WERE_ADDRESSES_SPENT_FROM_TIMEOUT);
+
         final boolean[] states = new boolean[addressesHash.size()];
         int index = 0;
 
         for (Hash address : addressesHash) {
-            states[index++] = instance.spentAddressesService.wasAddressSpentFrom(address);
+            states[index++] = spentAddresses.contains(address);
         }
         return WereAddressesSpentFrom.create(states);
     }
@@ -598,7 +618,7 @@ public class API {
             instance.snapshotProvider.getLatestSnapshot().lockRead();
             try {
                 WalkValidatorImpl walkValidator = new WalkValidatorImpl(instance.tangle, instance.snapshotProvider, instance.ledgerService,
-                        instance.configuration);
+                        instance.configuration, instance.maxDepthCache);
                 for (Hash transaction : transactions) {
                     if (!walkValidator.isValid(transaction)) {
                         state = false;
@@ -910,6 +930,28 @@ public class API {
                 instance.configuration.getCoordinator().toString());
     }
 
+    /**
+      * Returns the counters of the database together with the milestone indexes of the node, so the behaviour of the
+      * database can be correlated with the sync state. The cache, stall, compaction and latency counters are only
+      * collected if the node was started with <tt>--db-statistics</tt>, which the response reports in
+      * <tt>statisticsEnabled</tt>.
+      *
+      * @return {@link com.iota.iri.service.dto.GetDbStatisticsResponse}
+      * @throws Exception When the properties of the database could not be read
+      **/
+    private AbstractResponse getDbStatisticsStatement() throws Exception {
+        RocksDBPersistenceProvider persistenceProvider = instance.getRocksDBPersistenceProvider();
+        if (persistenceProvider == null) {
+            return ErrorResponse.create("Statistics are only available for the rocksdb database");
+        }
+
+        return GetDbStatisticsResponse.create(
+                instance.latestMilestoneTracker.getLatestMilestoneIndex(),
+                instance.snapshotProvider.getLatestSnapshot().getIndex(),
+                persistenceProvider.isStatisticsEnabled(),
+                persistenceProvider.getStatistics());
+    }
+
     /**
      *  Returns information about this node configuration.
      *
@@ -1124,13 +1166,20 @@ public class API {
         final Set<Hash> foundTransactions =  new HashSet<>();
         boolean containsKey = false;
 
+        //Without an intersection, the result exceeds maxFindTxs as soon as one of the fields does
+        final int maxTransactionsOfField = Stream.of("bundles", "addresses", "tags", "approvees")
+                .filter(request::containsKey)
+                .count() == 1 ? maxFindTxs : Integer.MAX_VALUE;
+
         final Set<Hash> bundlesTransactions = new HashSet<>();
         if (request.containsKey("bundles")) {
             final Set<String> bundles = getParameterAsSet(request,"bundles",HASH_SIZE);
             for (final String bundle : bundles) {
-                bundlesTransactions.addAll(
-                        BundleViewModel.load(instance.tangle, HashFactory.BUNDLE.create(bundle))
-                        .getHashes());
+                BundleViewModel bundleViewModel = BundleViewModel.load(instance.tangle,
+                        HashFactory.BUNDLE.create(bundle));
+                if (!addHashes(bundlesTransactions, bundleViewModel::getHashes, maxTransactionsOfField)) {
+                    return ErrorResponse.create(overMaxErrorMessage);
+                }
             }
             foundTransactions.addAll(bundlesTransactions);
             containsKey = true;
@@ -1140,9 +1189,11 @@ public class API {
         if (request.containsKey("addresses")) {
             final Set<String> addresses = getParameterAsSet(request,"addresses",HASH_SIZE);
             for (final String address : addresses) {
-                addressesTransactions.addAll(
-                        AddressViewModel.load(instance.tangle, HashFactory.ADDRESS.create(address))
-                        .getHashes());
+                AddressViewModel addressViewModel = AddressViewModel.load(instance.tangle,
+                        HashFactory.ADDRESS.create(address));
+                if (!addHashes(addressesTransactions, addressViewModel::getHashes, maxTransactionsOfField)) {
+                    return ErrorResponse.create(overMaxErrorMessage);
+                }
             }
             foundTransactions.addAll(addressesTransactions);
             containsKey = true;
@@ -1211,6 +1262,29 @@ public class API {
         return FindTransactionsResponse.create(elements);
     }
 
+    /**
+     * Adds the hashes of an index to a set, decoding them page by page.
+     *
+     * @param hashes the set the hashes are added to
+     * @param pages returns the page of hashes for an offset and a limit
+     * @param maxHashes the maximum size of the set
+     * @return {@code false} if the set exceeded {@code maxHashes} (the remaining pages are not decoded then)
+     */
+    private static boolean addHashes(Set<Hash> hashes, BiFunction<Integer, Integer, List<Hash>> pages,
+            int maxHashes) {
+
+        for (int offset = 0; ; offset += HASHES_PAGE_SIZE) {
+            List<Hash> page = pages.apply(offset, HASHES_PAGE_SIZE);
+            hashes.addAll(page);
+            if (hashes.size() > maxHashes) {
+                return false;
+            }
+            if (page.size() < HASHES_PAGE_SIZE) {
+                return true;
+            }
+        }
+    }
+
     /**
      * Adds '9' until the String is of {@link #HASH_SIZE} length.
      *
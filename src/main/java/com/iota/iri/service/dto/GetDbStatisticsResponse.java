@@ -0,0 +1,85 @@
+package com.iota.iri.service.dto;
+
+import java.util.Map;
+
+import com.iota.iri.service.API;
+
+/**
+ *
+ * Contains information about the result of a successful {@code getDbStatistics} API call.
+ * See {@link API#getDbStatisticsStatement} for how this response is created.
+ *
+ */
+public class GetDbStatisticsResponse extends AbstractResponse {
+
+    /**
+     * The index of the latest milestone that this node knows about.
+     */
+    private int latestMilestoneIndex;
+
+    /**
+     * The index of the latest milestone whose subtangle is solid on this node.
+     */
+    private int latestSolidSubtangleMilestoneIndex;
+
+    /**
+     * Whether the database collects the cache, stall, compaction and latency counters.
+     */
+    private boolean statisticsEnabled;
+
+    /**
+     * The counters of the database by their name.
+     */
+    private Map<String, Object> statistics;
+
+    /**
+     * Creates a new {@link GetDbStatisticsResponse}
+     *
+     * @param latestMilestoneIndex {@link #latestMilestoneIndex}
+     * @param latestSolidSubtangleMilestoneIndex {@link #latestSolidSubtangleMilestoneIndex}
+     * @param statisticsEnabled {@link #statisticsEnabled}
+     * @param statistics {@link #statistics}
+     * @return a {@link GetDbStatisticsResponse} filled with the provided counters
+     */
+    public static AbstractResponse create(int latestMilestoneIndex, int latestSolidSubtangleMilestoneIndex,
+                                          boolean statisticsEnabled, Map<String, Object> statistics) {
+        GetDbStatisticsResponse res = new GetDbStatisticsResponse();
+        res.latestMilestoneIndex = latestMilestoneIndex;
+        res.latestSolidSubtangleMilestoneIndex = latestSolidSubtangleMilestoneIndex;
+        res.statisticsEnabled = statisticsEnabled;
+        res.statistics = statistics;
+        return res;
+    }
+
+    /**
+     *
+     * @return {@link #latestMilestoneIndex}
+     */
+    public int getLatestMilestoneIndex() {
+        return latestMilestoneIndex;
+    }
+
+    /**
+     *
+     * @return {@link #latestSolidSubtangleMilestoneIndex}
+     */
+    public int getLatestSolidSubtangleMilestoneIndex() {
+        return latestSolidSubtangleMilestoneIndex;
+    }
+
+    /**
+     *
+     * @return {@link #statisticsEnabled}
+     */
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
+    /**
+     *
+     * @return {@link #statistics}
+     */
+    public Map<String, Object> getStatistics() {
+        return statistics;
+    }
+}
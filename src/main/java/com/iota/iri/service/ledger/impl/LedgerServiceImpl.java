@@ -15,6 +15,7 @@ import com.iota.iri.service.snapshot.SnapshotService;
 import com.iota.iri.service.snapshot.impl.SnapshotStateDiffImpl;
 import com.iota.iri.service.spentaddresses.SpentAddressesService;
 import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.dag.TraversalContext;
 
 import java.util.*;
 
@@ -159,8 +160,16 @@ public class LedgerServiceImpl implements LedgerService {
     public Map<Hash, Long> generateBalanceDiff(Set<Hash> visitedTransactions, Hash startTransaction, int milestoneIndex)
             throws LedgerException {
 
+        try (TraversalContext context = TraversalContext.acquire()) {
+            return generateBalanceDiff(visitedTransactions, startTransaction, milestoneIndex, context.getVisited(),
+                    context.getQueue());
+        }
+    }
+
+    private Map<Hash, Long> generateBalanceDiff(Set<Hash> visitedTransactions, Hash startTransaction,
+            int milestoneIndex, Set<Hash> countedTx, Queue<Hash> nonAnalyzedTransactions) throws LedgerException {
+
         Map<Hash, Long> state = new HashMap<>();
-        Set<Hash> countedTx = new HashSet<>();
 
         Snapshot initialSnapshot = snapshotProvider.getInitialSnapshot();
         Map<Hash, Integer> solidEntryPoints = initialSnapshot.getSolidEntryPoints();
@@ -169,7 +178,7 @@ public class LedgerServiceImpl implements LedgerService {
             countedTx.add(solidEntryPointHash);
         });
 
-        final Queue<Hash> nonAnalyzedTransactions = new LinkedList<>(Collections.singleton(startTransaction));
+        nonAnalyzedTransactions.add(startTransaction);
         Hash transactionPointer;
         while ((transactionPointer = nonAnalyzedTransactions.poll()) != null) {
             if (visitedTransactions.add(transactionPointer)) {
@@ -0,0 +1,233 @@
+package com.iota.iri.service.rescan;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.StateDiff;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Approvee;
+import com.iota.iri.model.persistables.Bundle;
+import com.iota.iri.model.persistables.GraphNode;
+import com.iota.iri.model.persistables.Milestone;
+import com.iota.iri.model.persistables.ObsoleteTag;
+import com.iota.iri.model.persistables.Tag;
+import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.storage.Indexable;
+import com.iota.iri.storage.Persistable;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.Pair;
+import com.iota.iri.utils.log.interval.IntervalLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the indexes and the metadata of all stored transactions.
+ *
+ * The key space of the transactions is split into {@link #PARTITIONS} ranges (one per value of the first byte of the
+ * hash), which are processed in parallel. Every worker reads its range with its own iterator and writes the indexes
+ * of {@link #BATCH_SIZE} transactions with a single batch.
+ *
+ * The progress file is created before the indexes are cleared and records the finished ranges, so a rescan that was
+ * interrupted (for example by a crash) can be resumed without starting over. It is only deleted after the last range
+ * was finished. Ranges that were interrupted are processed again, which is harmless because the
+ * indexes are sets. The progress only survives a crash of the process if the writes of the database are not buffered
+ * in memory (which they are while the database is in bulk ingest mode).
+ */
+public class DatabaseRescanner {
+    /**
+     * The number of ranges the key space is split into.
+     */
+    static final int PARTITIONS = 256;
+
+    /**
+     * The number of transactions whose indexes are written with a single batch.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * The interval (in milliseconds) of the progress messages.
+     */
+    private static final int LOG_INTERVAL = 10000;
+
+    private static final IntervalLogger log = new IntervalLogger(DatabaseRescanner.class, LOG_INTERVAL);
+
+    private final Tangle tangle;
+
+    private final File progressFile;
+
+    private final int threads;
+
+    private final AtomicLong rescannedTransactions = new AtomicLong();
+
+    private final AtomicInteger finishedPartitions = new AtomicInteger();
+
+    private long estimatedTransactions;
+
+    private long startTime;
+
+    /**
+     * Creates a rescanner for the given tangle.
+     *
+     * @param tangle the tangle whose transactions are rescanned
+     * @param progressFile the file that records the finished ranges or {@code null} if a rescan can not be resumed
+     * @param threads the number of ranges that are processed in parallel
+     */
+    public DatabaseRescanner(Tangle tangle, File progressFile, int threads) {
+        this.tangle = tangle;
+        this.progressFile = progressFile;
+        this.threads = threads;
+    }
+
+    /**
+     * @return {@code true} if a rescan was started but did not finish
+     */
+    public boolean isInterrupted() {
+        return progressFile != null && progressFile.exists();
+    }
+
+    /**
+     * Rebuilds the indexes of all transactions or resumes an interrupted rescan.
+     *
+     * @throws Exception if the database could not be read or written
+     */
+    public void rescan() throws Exception {
+        Set<Integer> finished;
+        if (isInterrupted()) {
+            finished = readProgress();
+            log.delegate().info("Resuming the interrupted rescan ({} of {} ranges were finished)", finished.size(),
+                    PARTITIONS);
+        } else {
+            // the progress file marks the rescan as started, so a crash while clearing the indexes resumes it
+            writeProgress(null);
+            finished = new HashSet<>();
+            clearIndexes();
+        }
+
+        estimatedTransactions = tangle.getCount(Transaction.class);
+        startTime = System.currentTimeMillis();
+        finishedPartitions.set(finished.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                if (!finished.contains(partition)) {
+                    int currentPartition = partition;
+                    tasks.add(executor.submit(() -> {
+                        rescanPartition(currentPartition);
+                        return null;
+                    }));
+                }
+            }
+
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        if (progressFile != null) {
+            Files.delete(progressFile.toPath());
+        }
+        log.delegate().info("Rescanned {} transactions in {} s", rescannedTransactions.get(),
+                (System.currentTimeMillis() - startTime) / 1000);
+    }
+
+    private void clearIndexes() throws Exception {
+        tangle.clearColumn(Address.class);
+        tangle.clearColumn(Bundle.class);
+        tangle.clearColumn(Approvee.class);
+        tangle.clearColumn(ObsoleteTag.class);
+        tangle.clearColumn(Tag.class);
+        tangle.clearColumn(Milestone.class);
+        tangle.clearColumn(StateDiff.class);
+        tangle.clearMetadata(Transaction.class);
+        tangle.clearColumn(GraphNode.class);
+    }
+
+    private void rescanPartition(int partition) throws Exception {
+        byte[] from = {(byte) partition};
+        byte[] to = partition == PARTITIONS - 1 ? null : new byte[]{(byte) (partition + 1)};
+
+        List<Pair<Indexable, Persistable>> batch = new ArrayList<>();
+        AtomicInteger batchedTransactions = new AtomicInteger();
+        tangle.forEachInRange(Transaction.class, TransactionHash.class, from, to, (hash, transaction) -> {
+            List<Pair<Indexable, Persistable>> saveBatch = new TransactionViewModel((Transaction) transaction,
+                    (Hash) hash).getSaveBatch();
+            saveBatch.remove(5);
+            batch.addAll(saveBatch);
+
+            if (batchedTransactions.incrementAndGet() == BATCH_SIZE) {
+                saveBatch(batch, batchedTransactions);
+            }
+        });
+        saveBatch(batch, batchedTransactions);
+
+        finishedPartitions.incrementAndGet();
+        writeProgress(partition);
+    }
+
+    private void saveBatch(List<Pair<Indexable, Persistable>> batch, AtomicInteger batchedTransactions)
+            throws Exception {
+        if (!batch.isEmpty()) {
+            tangle.saveBatch(batch);
+            batch.clear();
+        }
+
+        long rescanned = rescannedTransactions.addAndGet(batchedTransactions.getAndSet(0));
+        logProgress(rescanned);
+    }
+
+    private void logProgress(long rescanned) {
+        long elapsed = System.currentTimeMillis() - startTime;
+        // the estimated number of keys is inaccurate, so we fall back to the finished ranges if it is too small
+        double progress = Math.max(finishedPartitions.get() / (double) PARTITIONS,
+                estimatedTransactions == 0 ? 0 : Math.min(1, rescanned / (double) estimatedTransactions));
+        String eta = progress == 0 ? "unknown" : (long) (elapsed / progress - elapsed) / 1000 + " s";
+
+        log.info(String.format("Rescanned %d transactions (%.1f%%, %d of %d ranges finished, ETA %s)", rescanned,
+                progress * 100, finishedPartitions.get(), PARTITIONS, eta));
+    }
+
+    private Set<Integer> readProgress() throws IOException {
+        Set<Integer> finished = new HashSet<>();
+        for (String line : Files.readAllLines(progressFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                finished.add(Integer.parseInt(line.trim()));
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Records a finished range in the progress file (or creates the file if no range is given).
+     */
+    private synchronized void writeProgress(Integer partition) throws IOException {
+        if (progressFile != null) {
+            Files.write(progressFile.toPath(),
+                    (partition == null ? "" : partition + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.iota.iri.service.snapshot;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The data provider that allows to retrieve the {@link Snapshot} instances that are relevant for the node.
  */
@@ -29,7 +31,7 @@ public interface SnapshotProvider {
      * restarts.
      *
      * Note: This method writes two files - the meta data file and the state file. The path of the corresponding file is
-     *       determined by appending ".snapshot.meta" / ".snapshot.state" to the given base path.
+     *       determined by appending ".snapshot.meta" / ".snapshot.state.bin" to the given base path.
      *
      * @param snapshot the {@link Snapshot} that shall be persisted
      * @param basePath base path of the local snapshot files
@@ -37,6 +39,25 @@ public interface SnapshotProvider {
      */
     void writeSnapshotToDisk(Snapshot snapshot, String basePath) throws SnapshotException;
 
+    /**
+     * This method hands the snapshot over to a background writer that dumps it to the hard disk.
+     *
+     * It works like {@link #writeSnapshotToDisk(Snapshot, String)}, but the files are written by a dedicated thread at
+     * a limited rate, so persisting a large snapshot neither delays the caller nor starves the database of I/O. The
+     * returned {@link CompletableFuture} allows the caller to run the steps that rely on the files once they were
+     * written. If another snapshot is handed over before the previous one was written, only the newer one is written
+     * and both futures complete with its write. Snapshots that were not written yet are written when the provider is
+     * shut down.
+     *
+     * Note: The snapshot is read while it is written, so it must not be modified after it was handed over.
+     *
+     * @param snapshot the {@link Snapshot} that shall be persisted
+     * @param basePath base path of the local snapshot files
+     * @return a future that completes when the files were written or fails with the {@link SnapshotException} that
+     *         prevented the write
+     */
+    CompletableFuture<Void> writeSnapshotToDiskInBackground(Snapshot snapshot, String basePath);
+
     /**
      * Frees the resources of the {@link SnapshotProvider}.
      *
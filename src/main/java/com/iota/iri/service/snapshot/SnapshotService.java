@@ -55,11 +55,13 @@ public interface SnapshotService {
      * This method takes a "full" local snapshot according to the configuration of the node.
      *
      * It first determines the necessary configuration parameters and which milestone to us as a reference. It then
-     * generates the local {@link Snapshot}, issues the the required {@link TransactionPruner} jobs and writes the
-     * resulting {@link Snapshot} to the disk.
+     * generates the local {@link Snapshot} and updates the {@link Snapshot} instances used by the
+     * {@code snapshotProvider} to reflect the newly created {@link Snapshot}.
      *
-     * After persisting the local snapshot on the hard disk of the node, it updates the {@link Snapshot} instances used
-     * by the {@code snapshotProvider} to reflect the newly created {@link Snapshot}.
+     * Finally it hands the resulting {@link Snapshot} over to the background writer of the {@code snapshotProvider},
+     * which persists it on the hard disk of the node, and returns without waiting for the files. The required
+     * {@link TransactionPruner} jobs are only issued after the files were written, so the node can always resume from
+     * the files on the disk.
      *
      * @param latestMilestoneTracker milestone tracker that allows us to retrieve information about the known milestones
      * @param transactionPruner manager for the pruning jobs that takes care of cleaning up the old data that
@@ -110,4 +112,9 @@ public interface SnapshotService {
      */
     Map<Hash, Integer> generateSeenMilestones(LatestMilestoneTracker latestMilestoneTracker,
             MilestoneViewModel targetMilestone) throws SnapshotException;
+
+    /**
+     * This method stops the threads that are used to generate the local snapshots.<br />
+     */
+    void shutdown();
 }
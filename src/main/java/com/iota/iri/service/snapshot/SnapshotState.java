@@ -4,6 +4,8 @@ import com.iota.iri.model.Hash;
 
 import java.util.Map;
 
+import pl.touk.throwing.ThrowingBiConsumer;
+
 /**
  * Represents the "state" of the ledger at a given time, which means how many IOTA are available on a certain address.
  *
@@ -27,6 +29,18 @@ public interface SnapshotState {
      */
     Map<Hash, Long> getBalances();
 
+    /**
+     * Passes the balances of all addresses to the given consumer without copying the state.
+     *
+     * It allows us to stream large states (i.e. to the disk) without creating a temporary copy of the whole ledger.
+     * The state must not be modified by the consumer.
+     *
+     * @param consumer consumer that receives the addresses and their balance
+     * @param <E> type of the exception that can be thrown by the consumer
+     * @throws E if the consumer fails
+     */
+    <E extends Exception> void forEachBalance(ThrowingBiConsumer<Hash, Long, E> consumer) throws E;
+
     /**
      * Checks if the state is consistent, which means that there are no addresses with a negative balance.
      *
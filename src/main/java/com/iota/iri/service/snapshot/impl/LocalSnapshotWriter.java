@@ -0,0 +1,195 @@
+package com.iota.iri.service.snapshot.impl;
+
+import com.iota.iri.service.snapshot.Snapshot;
+import com.iota.iri.service.snapshot.SnapshotException;
+import com.iota.iri.utils.thread.DedicatedScheduledExecutorService;
+import com.iota.iri.utils.thread.SilentScheduledExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists local snapshots in the background.<br />
+ * <br />
+ * Writing the state of a large ledger takes a few seconds, so instead of blocking the creation of the local snapshot,
+ * the snapshot is handed over to this writer. The writer streams the balances directly from the handed over snapshot
+ * to the disk (at a limited rate, so the database is not starved of I/O) and does not hold any lock of the snapshots
+ * that are used by the ledger. The returned {@link CompletableFuture} allows the caller to run the steps that rely on
+ * the files once they were written.<br />
+ * <br />
+ * Only the most recent snapshot is written: if a new one is handed over before the previous one was written, the
+ * previous one is skipped and its future completes together with the one of the newer snapshot. A snapshot that was
+ * not written yet is written without throttling when the writer is shut down.<br />
+ */
+public class LocalSnapshotWriter {
+    /**
+     * Holds the interval (in milliseconds) in which the writer checks for new snapshots.<br />
+     */
+    private static final int WRITE_INTERVAL = 1000;
+
+    /**
+     * Holds the maximum number of bytes per second that are written while the node is running.<br />
+     */
+    private static final long MAX_BYTES_PER_SECOND = 16 * 1024 * 1024;
+
+    /**
+     * Holds the logger of this class.<br />
+     */
+    private static final Logger log = LoggerFactory.getLogger(LocalSnapshotWriter.class);
+
+    /**
+     * Holds the provider that knows how to write the snapshot files.<br />
+     */
+    private final SnapshotProviderImpl snapshotProvider;
+
+    /**
+     * Holds the snapshot (and its base path) that shall be written next.<br />
+     */
+    private final AtomicReference<PendingSnapshot> pendingSnapshot = new AtomicReference<>();
+
+    /**
+     * Holds a reference to the manager of the background worker.<br />
+     */
+    private final SilentScheduledExecutorService executorService = new DedicatedScheduledExecutorService(
+            "Local Snapshot Writer", log);
+
+    /**
+     * Creates a writer that uses the given provider to write the snapshot files.<br />
+     *
+     * @param snapshotProvider the provider that writes the snapshot files
+     */
+    public LocalSnapshotWriter(SnapshotProviderImpl snapshotProvider) {
+        this.snapshotProvider = snapshotProvider;
+    }
+
+    /**
+     * Starts the background worker that writes the handed over snapshots.<br />
+     */
+    public void start() {
+        // the first run is delayed as well, since there is nothing to write yet and a task that completes before the
+        // executor returned its future is not rescheduled
+        executorService.silentScheduleWithFixedDelay(() -> writePendingSnapshot(MAX_BYTES_PER_SECOND),
+                WRITE_INTERVAL, WRITE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background worker and writes the snapshot that was not written yet.<br />
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+        try {
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        writePendingSnapshot(0);
+    }
+
+    /**
+     * Hands over a snapshot that shall be written to the disk.<br />
+     * <br />
+     * The snapshot must not be modified after it was handed over.<br />
+     *
+     * @param snapshot the snapshot that shall be written
+     * @param basePath base path of the local snapshot files
+     * @return a future that completes when the files were written or fails with the {@link SnapshotException} that
+     *         prevented the write
+     */
+    public CompletableFuture<Void> persist(Snapshot snapshot, String basePath) {
+        PendingSnapshot newSnapshot = new PendingSnapshot(snapshot, basePath);
+
+        PendingSnapshot skippedSnapshot = pendingSnapshot.getAndSet(newSnapshot);
+        if (skippedSnapshot != null) {
+            log.info("skipping the write of local snapshot #" + skippedSnapshot.snapshot.getIndex() +
+                    " in favor of #" + snapshot.getIndex());
+
+            skippedSnapshot.completeWith(newSnapshot);
+        }
+
+        return newSnapshot.written;
+    }
+
+    /**
+     * Writes the pending snapshot (if there is one).<br />
+     * <br />
+     * If the write is interrupted (because the writer is shut down), the snapshot is kept, so it can be written
+     * without throttling during the shutdown.<br />
+     *
+     * @param maxBytesPerSecond the maximum write rate or 0 if the write shall not be throttled
+     */
+    private void writePendingSnapshot(long maxBytesPerSecond) {
+        PendingSnapshot pending = pendingSnapshot.getAndSet(null);
+        if (pending == null) {
+            return;
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            snapshotProvider.writeSnapshotToDisk(pending.snapshot, pending.basePath, maxBytesPerSecond);
+            log.info("persisted local snapshot #" + pending.snapshot.getIndex() + " in " +
+                    (System.currentTimeMillis() - startTime) + " ms");
+
+            pending.written.complete(null);
+        } catch (SnapshotException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                if (!pendingSnapshot.compareAndSet(null, pending)) {
+                    pending.completeWith(pendingSnapshot.get());
+                }
+            } else {
+                log.error("failed to persist local snapshot #" + pending.snapshot.getIndex(), e);
+
+                pending.written.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * A snapshot that was handed over to the writer together with the {@link CompletableFuture} of its write.<br />
+     */
+    private static class PendingSnapshot {
+        /**
+         * Holds the snapshot that shall be written.<br />
+         */
+        private final Snapshot snapshot;
+
+        /**
+         * Holds the base path of the local snapshot files.<br />
+         */
+        private final String basePath;
+
+        /**
+         * Holds the {@link CompletableFuture} that completes when the snapshot was written.<br />
+         */
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        /**
+         * Creates a pending write of the given snapshot.<br />
+         *
+         * @param snapshot the snapshot that shall be written
+         * @param basePath base path of the local snapshot files
+         */
+        PendingSnapshot(Snapshot snapshot, String basePath) {
+            this.snapshot = snapshot;
+            this.basePath = basePath;
+        }
+
+        /**
+         * Completes the write of this snapshot together with the write of a newer snapshot that replaced it.<br />
+         *
+         * @param newerSnapshot the snapshot that is written instead of this one
+         */
+        void completeWith(PendingSnapshot newerSnapshot) {
+            newerSnapshot.written.whenComplete((result, error) -> {
+                if (error == null) {
+                    written.complete(null);
+                } else {
+                    written.completeExceptionally(error);
+                }
+            });
+        }
+    }
+}
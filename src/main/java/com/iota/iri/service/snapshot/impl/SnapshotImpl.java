@@ -14,6 +14,8 @@ import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import pl.touk.throwing.ThrowingBiConsumer;
+
 /**
  * Implements the basic contract of the {@link Snapshot} interface.
  */
@@ -499,6 +501,22 @@ public class SnapshotImpl implements Snapshot {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * This is a thread-safe wrapper for the underlying {@link SnapshotState} method.
+     */
+    @Override
+    public <E extends Exception> void forEachBalance(ThrowingBiConsumer<Hash, Long, E> consumer) throws E {
+        lockRead();
+
+        try {
+            state.forEachBalance(consumer);
+        } finally {
+            unlockRead();
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
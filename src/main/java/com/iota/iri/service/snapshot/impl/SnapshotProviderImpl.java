@@ -14,6 +14,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
@@ -79,6 +80,11 @@ public class SnapshotProviderImpl implements SnapshotProvider {
      */
     private Snapshot latestSnapshot;
 
+    /**
+     * Holds the background writer of the local snapshots (it is created when the first snapshot is handed over).
+     */
+    private LocalSnapshotWriter localSnapshotWriter;
+
     /**
      * This method initializes the instance and registers its dependencies.<br />
      * <br />
@@ -133,25 +139,58 @@ public class SnapshotProviderImpl implements SnapshotProvider {
      */
     @Override
     public void writeSnapshotToDisk(Snapshot snapshot, String basePath) throws SnapshotException {
+        writeSnapshotToDisk(snapshot, basePath, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CompletableFuture<Void> writeSnapshotToDiskInBackground(Snapshot snapshot, String basePath) {
+        if (localSnapshotWriter == null) {
+            localSnapshotWriter = new LocalSnapshotWriter(this);
+            localSnapshotWriter.start();
+        }
+
+        return localSnapshotWriter.persist(snapshot, basePath);
+    }
+
+    /**
+     * This method dumps the whole snapshot to the hard disk at a limited rate.
+     *
+     * It works like {@link #writeSnapshotToDisk(Snapshot, String)}, but limits the rate at which the state file is
+     * written, so a snapshot that is persisted in the background does not starve the database of I/O.
+     *
+     * @param snapshot the {@link Snapshot} that shall be persisted
+     * @param basePath base path of the local snapshot files
+     * @param maxBytesPerSecond the maximum write rate of the state file or 0 if the write shall not be throttled
+     * @throws SnapshotException if anything goes wrong while writing the file
+     */
+    void writeSnapshotToDisk(Snapshot snapshot, String basePath, long maxBytesPerSecond) throws SnapshotException {
         snapshot.lockRead();
 
         try {
             // write new temp files
-            writeSnapshotStateToDisk(snapshot, basePath + ".snapshot.state.tmp");
+            writeSnapshotStateToDisk(snapshot, basePath + ".snapshot.state.bin.tmp", maxBytesPerSecond);
             writeSnapshotMetaDataToDisk(snapshot, basePath + ".snapshot.meta.tmp");
 
-            // rename current files by appending ".bkp"
+            // rename current files by appending ".bkp" (including the text state file of older versions, which would
+            // otherwise be paired with the new metadata file by a node that is downgraded to such a version)
             if (new File(basePath + ".snapshot.state").exists()) {
                 Files.move(Paths.get(basePath + ".snapshot.state"), Paths.get(basePath + ".snapshot.state.bkp"),
                         StandardCopyOption.REPLACE_EXISTING);
             }
+            if (new File(basePath + ".snapshot.state.bin").exists()) {
+                Files.move(Paths.get(basePath + ".snapshot.state.bin"),
+                        Paths.get(basePath + ".snapshot.state.bin.bkp"), StandardCopyOption.REPLACE_EXISTING);
+            }
             if (new File(basePath + ".snapshot.meta").exists()) {
                 Files.move(Paths.get(basePath + ".snapshot.meta"), Paths.get(basePath + ".snapshot.meta.bkp"),
                         StandardCopyOption.REPLACE_EXISTING);
             }
 
             // rename temp files to their final name
-            Files.move(Paths.get(basePath + ".snapshot.state.tmp"), Paths.get(basePath + ".snapshot.state"));
+            Files.move(Paths.get(basePath + ".snapshot.state.bin.tmp"), Paths.get(basePath + ".snapshot.state.bin"));
             Files.move(Paths.get(basePath + ".snapshot.meta.tmp"), Paths.get(basePath + ".snapshot.meta"));
         } catch (IOException e) {
             throw new SnapshotException("failed to write snapshot files", e);
@@ -165,6 +204,13 @@ public class SnapshotProviderImpl implements SnapshotProvider {
      */
     @Override
     public void shutdown() {
+        synchronized (this) {
+            if (localSnapshotWriter != null) {
+                localSnapshotWriter.shutdown();
+                localSnapshotWriter = null;
+            }
+        }
+
         initialSnapshot = null;
         latestSnapshot = null;
     }
@@ -198,12 +244,20 @@ public class SnapshotProviderImpl implements SnapshotProvider {
      * This method checks if local snapshot files are available on the hard disk of the node and tries to load them. If
      * no local snapshot files exist or local snapshots are not enabled we simply return null.
      *
+     * The state is read from the binary ".snapshot.state.bin" file. If it doesn't exist, we fall back to the text
+     * ".snapshot.state" file that was written by older versions. Since older versions only know the text file, a node
+     * that is downgraded after writing a binary file ignores the local snapshot and starts from the builtin one.
+     *
      * @return local snapshot of the node
      * @throws SnapshotException if local snapshot files exist but are malformed
      */
     private Snapshot loadLocalSnapshot() throws SnapshotException, SpentAddressesException {
         if (config.getLocalSnapshotsEnabled()) {
-            File localSnapshotFile = new File(config.getLocalSnapshotsBasePath() + ".snapshot.state");
+            File localSnapshotFile = new File(config.getLocalSnapshotsBasePath() + ".snapshot.state.bin");
+            boolean binary = localSnapshotFile.exists();
+            if (!binary) {
+                localSnapshotFile = new File(config.getLocalSnapshotsBasePath() + ".snapshot.state");
+            }
             File localSnapshotMetadDataFile = new File(config.getLocalSnapshotsBasePath() + ".snapshot.meta");
 
             if (localSnapshotFile.exists() && localSnapshotFile.isFile() && localSnapshotMetadDataFile.exists() &&
@@ -211,7 +265,9 @@ public class SnapshotProviderImpl implements SnapshotProvider {
 
                 assertSpentAddressesDbExist();
 
-                SnapshotState snapshotState = readSnapshotStatefromFile(localSnapshotFile.getAbsolutePath());
+                SnapshotState snapshotState = binary
+                        ? new SnapshotStateImpl(SnapshotStateFile.readBinary(localSnapshotFile.getAbsolutePath()))
+                        : readSnapshotStatefromFile(localSnapshotFile.getAbsolutePath());
                 if (!snapshotState.hasCorrectSupply()) {
                     throw new SnapshotException("the snapshot state file has an invalid supply");
                 }
@@ -310,28 +366,25 @@ public class SnapshotProviderImpl implements SnapshotProvider {
     //region SNAPSHOT STATE RELATED UTILITY METHODS ////////////////////////////////////////////////////////////////////
 
     /**
-     * This method reads the balances from the given file on the disk and creates the corresponding SnapshotState.
+     * This method reads the balances from the given text file on the disk and creates the corresponding
+     * SnapshotState.
      *
-     * It simply creates the corresponding reader and for the file on the given location and passes it on to
-     * {@link #readSnapshotState(BufferedReader)}.
+     * It is used for the builtin snapshot and the local snapshots of older versions, which are stored in the text
+     * format of {@link SnapshotStateFile}.
      *
      * @param snapshotStateFilePath location of the snapshot state file
      * @return the unserialized version of the state file
      * @throws SnapshotException if anything goes wrong while reading the state file
      */
     private SnapshotState readSnapshotStatefromFile(String snapshotStateFilePath) throws SnapshotException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new BufferedInputStream(new FileInputStream(snapshotStateFilePath))))) {
-            return readSnapshotState(reader);
-        } catch (IOException e) {
-            throw new SnapshotException("failed to read the snapshot file at " + snapshotStateFilePath, e);
-        }
+        return new SnapshotStateImpl(SnapshotStateFile.readText(snapshotStateFilePath));
     }
 
     /**
      * This method reads the balances from the given file in the JAR and creates the corresponding SnapshotState.
      *
      * It simply creates the corresponding reader and for the file on the given location in the JAR and passes it on to
-     * {@link #readSnapshotState(BufferedReader)}.
+     * {@link SnapshotStateFile#readText(BufferedReader)}.
      *
      * @param snapshotStateFilePath location of the snapshot state file
      * @return the unserialized version of the state file
@@ -339,62 +392,28 @@ public class SnapshotProviderImpl implements SnapshotProvider {
      */
     private SnapshotState readSnapshotStateFromJAR(String snapshotStateFilePath) throws SnapshotException {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new BufferedInputStream(SnapshotProviderImpl.class.getResourceAsStream(snapshotStateFilePath))))) {
-            return readSnapshotState(reader);
+            return new SnapshotStateImpl(SnapshotStateFile.readText(reader));
         } catch (IOException e) {
             throw new SnapshotException("failed to read the snapshot file from JAR at " + snapshotStateFilePath, e);
         }
     }
 
-    /**
-     * This method reads the balances from the given reader.
-     *
-     * The format of the input is pairs of "address;balance" separated by newlines. It simply reads the input line by
-     * line, adding the corresponding values to the map.
-     *
-     * @param reader reader allowing us to retrieve the lines of the {@link SnapshotState} file
-     * @return the unserialized version of the snapshot state state file
-     * @throws IOException if something went wrong while trying to access the file
-     * @throws SnapshotException if anything goes wrong while reading the state file
-     */
-    private SnapshotState readSnapshotState(BufferedReader reader) throws IOException, SnapshotException {
-        Map<Hash, Long> state = new HashMap<>();
-
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split(";", 2);
-            if (parts.length == 2) {
-                state.put(HashFactory.ADDRESS.create(parts[0]), Long.valueOf(parts[1]));
-            } else {
-                throw new SnapshotException("malformed snapshot state file");
-            }
-        }
-
-        return new SnapshotStateImpl(state);
-    }
-
     /**
      * This method dumps the current state to a file.
      *
      * It is used by local snapshots to persist the in memory states and allow IRI to resume from the local snapshot.
+     * The balances are streamed in the binary format of {@link SnapshotStateFile}, which can be converted to the text
+     * format of the builtin snapshot if necessary.
      *
      * @param snapshotState state object that shall be written
      * @param snapshotPath location of the file that shall be written
+     * @param maxBytesPerSecond the maximum write rate or 0 if the write shall not be throttled
      * @throws SnapshotException if anything goes wrong while writing the file
      */
-    private void writeSnapshotStateToDisk(SnapshotState snapshotState, String snapshotPath) throws SnapshotException {
-        try {
-            Files.write(
-                    Paths.get(snapshotPath),
-                    () -> snapshotState.getBalances().entrySet()
-                            .stream()
-                            .filter(entry -> entry.getValue() != 0)
-                            .<CharSequence>map(entry -> entry.getKey() + ";" + entry.getValue())
-                            .sorted()
-                            .iterator()
-            );
-        } catch (IOException e) {
-            throw new SnapshotException("failed to write the snapshot state file at " + snapshotPath, e);
-        }
+    private void writeSnapshotStateToDisk(SnapshotState snapshotState, String snapshotPath, long maxBytesPerSecond)
+            throws SnapshotException {
+
+        SnapshotStateFile.writeBinary(snapshotState, snapshotPath, maxBytesPerSecond);
     }
 
     //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -15,15 +15,24 @@ import com.iota.iri.service.transactionpruning.TransactionPruningException;
 import com.iota.iri.service.transactionpruning.jobs.MilestonePrunerJob;
 import com.iota.iri.service.transactionpruning.jobs.UnconfirmedSubtanglePrunerJob;
 import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.Pair;
 import com.iota.iri.utils.dag.DAGHelper;
 import com.iota.iri.utils.dag.TraversalException;
 import com.iota.iri.utils.log.ProgressLogger;
 import com.iota.iri.utils.log.interval.IntervalProgressLogger;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -33,7 +42,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Creates a service instance that allows us to access the business logic for {@link Snapshot}s.<br />
  * <br />
- * The service instance is stateless and can be shared by multiple other consumers.<br />
+ * The service instance can be shared by multiple other consumers. Its only state is a cache of the transactions that
+ * were confirmed by the recent milestones, which does not change once the milestones were applied.<br />
  */
 public class SnapshotServiceImpl implements SnapshotService {
     /**
@@ -65,6 +75,24 @@ public class SnapshotServiceImpl implements SnapshotService {
      */
     private static final int SOLID_ENTRY_POINT_LIFETIME = 1000;
 
+    /**
+     * Holds the transactions that were confirmed by the milestones of the outer shell of the last local snapshot
+     * (indexed by the milestone index and tagged with the hash of the milestone transaction).
+     *
+     * Consecutive local snapshots share most of their outer shell, so this allows us to only traverse the milestones
+     * that were confirmed since the previous snapshot.
+     */
+    private final NavigableMap<Integer, Pair<Hash, List<Hash>>> confirmedTransactions =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Holds the pool that is used to traverse the milestones and check the solid entry points in parallel.
+     *
+     * The checks only read from the database, so they don't use the common pool where they could block unrelated
+     * parallel streams.
+     */
+    private final ForkJoinPool traversalPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
     /**
      * Holds the tangle object which acts as a database interface.<br />
      */
@@ -216,14 +244,23 @@ public class SnapshotServiceImpl implements SnapshotService {
 
         Snapshot newSnapshot = generateSnapshot(latestMilestoneTracker, targetMilestone);
 
-        if (transactionPruner != null) {
-            cleanupExpiredSolidEntryPoints(tangle, snapshotProvider.getInitialSnapshot().getSolidEntryPoints(),
-                    newSnapshot.getSolidEntryPoints(), transactionPruner);
+        Map<Hash, Integer> oldSolidEntryPoints = snapshotProvider.getInitialSnapshot().getSolidEntryPoints();
 
-            cleanupOldData(config, transactionPruner, targetMilestone);
-        }
+        persistLocalSnapshot(snapshotProvider, newSnapshot, config).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("failed to persist local snapshot #" + newSnapshot.getIndex() + " - skipping the cleanup",
+                        error);
+            } else if (transactionPruner != null) {
+                cleanupExpiredSolidEntryPoints(tangle, oldSolidEntryPoints, newSnapshot.getSolidEntryPoints(),
+                        transactionPruner);
 
-        persistLocalSnapshot(snapshotProvider, newSnapshot, config);
+                try {
+                    cleanupOldData(config, transactionPruner, targetMilestone);
+                } catch (SnapshotException e) {
+                    log.error("failed to clean up the data of local snapshot #" + newSnapshot.getIndex(), e);
+                }
+            }
+        });
     }
 
     /**
@@ -279,8 +316,16 @@ public class SnapshotServiceImpl implements SnapshotService {
         Map<Hash, Integer> solidEntryPoints = new HashMap<>();
         solidEntryPoints.put(Hash.NULL_HASH, targetMilestone.index());
 
-        processOldSolidEntryPoints(tangle, snapshotProvider, targetMilestone, solidEntryPoints);
-        processNewSolidEntryPoints(tangle, snapshotProvider, targetMilestone, solidEntryPoints);
+        OrphanedStatusCache orphanedStatusCache;
+        try {
+            orphanedStatusCache = new OrphanedStatusCache(TransactionViewModel.fromHash(tangle,
+                    targetMilestone.getHash()).getTimestamp());
+        } catch (Exception e) {
+            throw new SnapshotException("could not load the transaction of " + targetMilestone, e);
+        }
+
+        processOldSolidEntryPoints(tangle, snapshotProvider, targetMilestone, orphanedStatusCache, solidEntryPoints);
+        processNewSolidEntryPoints(tangle, snapshotProvider, targetMilestone, orphanedStatusCache, solidEntryPoints);
 
         return solidEntryPoints;
     }
@@ -317,6 +362,14 @@ public class SnapshotServiceImpl implements SnapshotService {
         return seenMilestones;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdown() {
+        traversalPool.shutdownNow();
+    }
+
     /**
      * This method reverts the changes caused by the last milestone that was applied to this snapshot.
      *
@@ -486,17 +539,18 @@ public class SnapshotServiceImpl implements SnapshotService {
      * This method persists the local snapshot on the disk and updates the instances used by the
      * {@link SnapshotProvider}.
      *
-     * It first writes the files to the disk and then updates the two {@link Snapshot}s accordingly.
+     * It first updates the two {@link Snapshot}s accordingly and then hands the new {@link Snapshot} over to the
+     * background writer of the {@link SnapshotProvider}, so we don't have to wait for the files to be written. Since
+     * the new {@link Snapshot} is not used anywhere else, it stays unchanged while it is being written.
      *
      * @param snapshotProvider data provider for the {@link Snapshot}s that are relevant for the node
      * @param newSnapshot Snapshot that shall be persisted
      * @param config important snapshot related configuration parameters
-     * @throws SnapshotException if anything goes wrong while persisting the snapshot
+     * @return a {@link CompletableFuture} that completes when the files were written or fails with the
+     *         {@link SnapshotException} that prevented the write
      */
-    private void persistLocalSnapshot(SnapshotProvider snapshotProvider, Snapshot newSnapshot, SnapshotConfig config)
-            throws SnapshotException {
-
-        snapshotProvider.writeSnapshotToDisk(newSnapshot, config.getLocalSnapshotsBasePath());
+    private CompletableFuture<Void> persistLocalSnapshot(SnapshotProvider snapshotProvider, Snapshot newSnapshot,
+            SnapshotConfig config) {
 
         snapshotProvider.getLatestSnapshot().lockWrite();
         snapshotProvider.getLatestSnapshot().setInitialHash(newSnapshot.getHash());
@@ -505,6 +559,8 @@ public class SnapshotServiceImpl implements SnapshotService {
         snapshotProvider.getLatestSnapshot().unlockWrite();
 
         snapshotProvider.getInitialSnapshot().update(newSnapshot);
+
+        return snapshotProvider.writeSnapshotToDiskInBackground(newSnapshot, config.getLocalSnapshotsBasePath());
     }
 
     /**
@@ -517,28 +573,41 @@ public class SnapshotServiceImpl implements SnapshotService {
      * Since we currently use milestones as reference transactions that are sufficiently old, this definition in fact is
      * a relatively safe way to determine if a subtangle "above" a transaction got orphaned.
      *
+     * The status of the transactions is memoized in the passed in cache: the traversal stops at approvers that are
+     * known to be "not orphaned" and does not enter the approvers of transactions that are known to be orphaned. If no
+     * approver arrived after the reference transaction, all visited transactions are orphaned as well.
+     *
      * @param tangle Tangle object which acts as a database interface
      * @param transaction transaction that shall be checked
-     * @param referenceTransaction transaction that acts as a judge to the other transaction
-     * @param processedTransactions transactions that were visited already while trying to determine the orphaned status
+     * @param orphanedStatusCache memoized results of previous checks against the same reference transaction
      * @return true if the transaction got orphaned and false otherwise
      * @throws SnapshotException if anything goes wrong while determining the orphaned status
      */
     private boolean isOrphaned(Tangle tangle, TransactionViewModel transaction,
-            TransactionViewModel referenceTransaction, Set<Hash> processedTransactions) throws SnapshotException {
+            OrphanedStatusCache orphanedStatusCache) throws SnapshotException {
+
+        Boolean cachedStatus = orphanedStatusCache.get(transaction.getHash());
+        if (cachedStatus != null) {
+            return cachedStatus;
+        }
+
+        if (orphanedStatusCache.arrivedAfterReference(transaction)) {
+            orphanedStatusCache.markNonOrphaned(transaction.getHash());
 
-        long arrivalTime = transaction.getArrivalTime() / 1000L;
-        if (arrivalTime > referenceTransaction.getTimestamp()) {
             return false;
         }
 
         AtomicBoolean nonOrphanedTransactionFound = new AtomicBoolean(false);
+        Set<Hash> processedTransactions = new HashSet<>();
         try {
             DAGHelper.get(tangle).traverseApprovers(
                     transaction.getHash(),
-                    currentTransaction -> !nonOrphanedTransactionFound.get(),
+                    currentTransaction -> !nonOrphanedTransactionFound.get() &&
+                            !Boolean.TRUE.equals(orphanedStatusCache.get(currentTransaction.getHash())),
                     currentTransaction -> {
-                        if (arrivalTime > referenceTransaction.getTimestamp()) {
+                        if (orphanedStatusCache.arrivedAfterReference(currentTransaction) ||
+                                Boolean.FALSE.equals(orphanedStatusCache.get(currentTransaction.getHash()))) {
+
                             nonOrphanedTransactionFound.set(true);
                         }
                     },
@@ -548,7 +617,16 @@ public class SnapshotServiceImpl implements SnapshotService {
             throw new SnapshotException("failed to determine orphaned status of " + transaction, e);
         }
 
-        return !nonOrphanedTransactionFound.get();
+        if (nonOrphanedTransactionFound.get()) {
+            orphanedStatusCache.markNonOrphaned(transaction.getHash());
+
+            return false;
+        }
+
+        orphanedStatusCache.markOrphaned(transaction.getHash());
+        processedTransactions.forEach(orphanedStatusCache::markOrphaned);
+
+        return true;
     }
 
     /**
@@ -558,7 +636,7 @@ public class SnapshotServiceImpl implements SnapshotService {
      *
      * To check if the transaction has non-orphaned approvers we first check if any of its approvers got confirmed by a
      * future milestone, since this is very cheap. If none of them got confirmed by another milestone we do the more
-     * expensive check from {@link #isOrphaned(Tangle, TransactionViewModel, TransactionViewModel, Set)}.
+     * expensive check from {@link #isOrphaned(Tangle, TransactionViewModel, OrphanedStatusCache)}.
      *
      * Since solid entry points have a limited life time and to prevent potential problems due to temporary errors in
      * the database, we assume that the checked transaction is a solid entry point if any error occurs while determining
@@ -568,9 +646,12 @@ public class SnapshotServiceImpl implements SnapshotService {
      * @param tangle Tangle object which acts as a database interface
      * @param transactionHash hash of the transaction that shall be checked
      * @param targetMilestone milestone that is used as an anchor for our checks
+     * @param orphanedStatusCache memoized orphaned status of the transactions relative to the target milestone
      * @return true if the transaction is a solid entry point and false otherwise
      */
-    private boolean isSolidEntryPoint(Tangle tangle, Hash transactionHash, MilestoneViewModel targetMilestone) {
+    private boolean isSolidEntryPoint(Tangle tangle, Hash transactionHash, MilestoneViewModel targetMilestone,
+            OrphanedStatusCache orphanedStatusCache) {
+
         Set<TransactionViewModel> unconfirmedApprovers = new HashSet<>();
 
         try {
@@ -584,10 +665,8 @@ public class SnapshotServiceImpl implements SnapshotService {
                 }
             }
 
-            Set<Hash> processedTransactions = new HashSet<>();
-            TransactionViewModel milestoneTransaction = TransactionViewModel.fromHash(tangle, targetMilestone.getHash());
             for (TransactionViewModel unconfirmedApprover : unconfirmedApprovers) {
-                if (!isOrphaned(tangle, unconfirmedApprover, milestoneTransaction, processedTransactions)) {
+                if (!isOrphaned(tangle, unconfirmedApprover, orphanedStatusCache)) {
                     return true;
                 }
             }
@@ -609,10 +688,12 @@ public class SnapshotServiceImpl implements SnapshotService {
      * @param tangle Tangle object which acts as a database interface
      * @param snapshotProvider data provider for the {@link Snapshot}s that are relevant for the node
      * @param targetMilestone milestone that is used to generate the solid entry points
+     * @param orphanedStatusCache memoized orphaned status of the transactions relative to the target milestone
      * @param solidEntryPoints map that is used to collect the solid entry points
      */
     private void processOldSolidEntryPoints(Tangle tangle, SnapshotProvider snapshotProvider,
-            MilestoneViewModel targetMilestone, Map<Hash, Integer> solidEntryPoints) {
+            MilestoneViewModel targetMilestone, OrphanedStatusCache orphanedStatusCache,
+            Map<Hash, Integer> solidEntryPoints) {
 
         ProgressLogger progressLogger = new IntervalProgressLogger(
                 "Taking local snapshot [analyzing old solid entry points]", log)
@@ -621,7 +702,7 @@ public class SnapshotServiceImpl implements SnapshotService {
         Snapshot initialSnapshot = snapshotProvider.getInitialSnapshot();
         initialSnapshot.getSolidEntryPoints().forEach((hash, milestoneIndex) -> {
             if (!Hash.NULL_HASH.equals(hash) && targetMilestone.index() - milestoneIndex <= SOLID_ENTRY_POINT_LIFETIME
-                    && isSolidEntryPoint(tangle, hash, targetMilestone)) {
+                    && isSolidEntryPoint(tangle, hash, targetMilestone, orphanedStatusCache)) {
 
                 solidEntryPoints.put(hash, milestoneIndex);
             }
@@ -639,14 +720,20 @@ public class SnapshotServiceImpl implements SnapshotService {
      * Every transaction is checked for being a solid entry point and added to the passed in map (if it was found to be
      * one).
      *
+     * The transactions that were confirmed by a milestone do not change anymore, so we only traverse the milestones
+     * that were confirmed since the previous snapshot and take the others from the {@link #confirmedTransactions}
+     * cache (see {@link #getConfirmedTransactions(Tangle, MilestoneViewModel)}).
+     *
      * @param tangle Tangle object which acts as a database interface
      * @param snapshotProvider data provider for the {@link Snapshot}s that are relevant for the node
      * @param targetMilestone milestone that is used to generate the solid entry points
+     * @param orphanedStatusCache memoized orphaned status of the transactions relative to the target milestone
      * @param solidEntryPoints map that is used to collect the solid entry points
      * @throws SnapshotException if anything goes wrong while determining the solid entry points
      */
     private void processNewSolidEntryPoints(Tangle tangle, SnapshotProvider snapshotProvider,
-            MilestoneViewModel targetMilestone, Map<Hash, Integer> solidEntryPoints) throws SnapshotException {
+            MilestoneViewModel targetMilestone, OrphanedStatusCache orphanedStatusCache,
+            Map<Hash, Integer> solidEntryPoints) throws SnapshotException {
 
         ProgressLogger progressLogger = new IntervalProgressLogger(
                 "Taking local snapshot [generating solid entry points]", log);
@@ -655,22 +742,24 @@ public class SnapshotServiceImpl implements SnapshotService {
             progressLogger.start(Math.min(targetMilestone.index() - snapshotProvider.getInitialSnapshot().getIndex(),
                     OUTER_SHELL_SIZE));
 
+            int oldestProcessedIndex = targetMilestone.index();
             MilestoneViewModel nextMilestone = targetMilestone;
             while (nextMilestone != null && nextMilestone.index() > snapshotProvider.getInitialSnapshot().getIndex() &&
                     progressLogger.getCurrentStep() < progressLogger.getStepCount()) {
 
                 MilestoneViewModel currentMilestone = nextMilestone;
-                DAGHelper.get(tangle).traverseApprovees(
-                        currentMilestone.getHash(),
-                        currentTransaction -> currentTransaction.snapshotIndex() >= currentMilestone.index(),
-                        currentTransaction -> {
-                            if (isSolidEntryPoint(tangle, currentTransaction.getHash(), targetMilestone)) {
-                                solidEntryPoints.put(currentTransaction.getHash(), targetMilestone.index());
-                            }
+                List<Hash> milestoneTransactions = getConfirmedTransactions(tangle, currentMilestone);
+                // the solid entry point checks only read from the database, so they can run in parallel
+                traversalPool.submit(() -> milestoneTransactions.parallelStream().forEach(transactionHash -> {
+                    if (isSolidEntryPoint(tangle, transactionHash, targetMilestone, orphanedStatusCache)) {
+                        synchronized (solidEntryPoints) {
+                            solidEntryPoints.put(transactionHash, targetMilestone.index());
                         }
-                );
+                    }
+                })).get();
 
                 solidEntryPoints.put(currentMilestone.getHash(), targetMilestone.index());
+                oldestProcessedIndex = currentMilestone.index();
 
                 nextMilestone = MilestoneViewModel.findClosestPrevMilestone(tangle, currentMilestone.index(),
                         snapshotProvider.getInitialSnapshot().getIndex());
@@ -678,6 +767,9 @@ public class SnapshotServiceImpl implements SnapshotService {
                 progressLogger.progress();
             }
 
+            // the following snapshots have a higher target, so they will never need the older milestones again
+            confirmedTransactions.headMap(oldestProcessedIndex).clear();
+
             progressLogger.finish();
         } catch (Exception e) {
             progressLogger.abort(e);
@@ -685,4 +777,96 @@ public class SnapshotServiceImpl implements SnapshotService {
             throw new SnapshotException("could not generate the solid entry points for " + targetMilestone, e);
         }
     }
+
+    /**
+     * This method retrieves the transactions that were confirmed by the given milestone.
+     *
+     * The result is cached in {@link #confirmedTransactions}, so the approvees of a milestone are only traversed once
+     * while it is part of the outer shell of the consecutive local snapshots. The cached result is only used if it was
+     * created for the same milestone transaction (a milestone index can be re-assigned if a corrupted milestone gets
+     * reset).
+     *
+     * @param tangle Tangle object which acts as a database interface
+     * @param milestone milestone whose confirmed transactions shall be retrieved
+     * @return hashes of the transactions that were confirmed by the milestone (without the milestone itself)
+     * @throws TraversalException if anything goes wrong while traversing the approvees
+     */
+    private List<Hash> getConfirmedTransactions(Tangle tangle, MilestoneViewModel milestone)
+            throws TraversalException {
+
+        Pair<Hash, List<Hash>> cachedTransactions = confirmedTransactions.get(milestone.index());
+        if (cachedTransactions != null && cachedTransactions.low.equals(milestone.getHash())) {
+            return cachedTransactions.hi;
+        }
+
+        List<Hash> transactions = Collections.synchronizedList(new ArrayList<>());
+        DAGHelper.get(tangle).traverseApproveesBatched(
+                milestone.getHash(),
+                currentTransaction -> currentTransaction.snapshotIndex() >= milestone.index(),
+                currentTransaction -> transactions.add(currentTransaction.getHash()),
+                traversalPool
+        );
+
+        confirmedTransactions.put(milestone.index(), new Pair<>(milestone.getHash(), transactions));
+
+        return transactions;
+    }
+
+    /**
+     * Memoizes the orphaned status of transactions relative to a reference transaction (see
+     * {@link #isOrphaned(Tangle, TransactionViewModel, OrphanedStatusCache)}).
+     *
+     * The status depends on the timestamp of the reference transaction, so a cache is only valid for the generation of
+     * the solid entry points of a single snapshot. It is accessed by the parallel solid entry point checks.
+     */
+    private static class OrphanedStatusCache {
+        /**
+         * Holds the timestamp (in seconds) of the reference transaction.
+         */
+        private final long referenceTimestamp;
+
+        /**
+         * Holds the known status of the transactions ({@code true} if the transaction is orphaned).
+         */
+        private final Map<Hash, Boolean> orphanedStatus = new ConcurrentHashMap<>();
+
+        /**
+         * Creates an empty cache for the given reference transaction.
+         *
+         * @param referenceTimestamp timestamp (in seconds) of the reference transaction
+         */
+        OrphanedStatusCache(long referenceTimestamp) {
+            this.referenceTimestamp = referenceTimestamp;
+        }
+
+        /**
+         * @param transaction transaction that shall be checked
+         * @return true if the transaction arrived after the reference transaction
+         */
+        boolean arrivedAfterReference(TransactionViewModel transaction) {
+            return transaction.getArrivalTime() / 1000L > referenceTimestamp;
+        }
+
+        /**
+         * @param transactionHash hash of the transaction
+         * @return the known status of the transaction or {@code null} if it is unknown
+         */
+        Boolean get(Hash transactionHash) {
+            return orphanedStatus.get(transactionHash);
+        }
+
+        /**
+         * @param transactionHash hash of a transaction that was found to be orphaned
+         */
+        void markOrphaned(Hash transactionHash) {
+            orphanedStatus.putIfAbsent(transactionHash, true);
+        }
+
+        /**
+         * @param transactionHash hash of a transaction that was found to be not orphaned
+         */
+        void markNonOrphaned(Hash transactionHash) {
+            orphanedStatus.put(transactionHash, false);
+        }
+    }
 }
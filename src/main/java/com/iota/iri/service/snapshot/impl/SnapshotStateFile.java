@@ -0,0 +1,399 @@
+package com.iota.iri.service.snapshot.impl;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.service.snapshot.SnapshotException;
+import com.iota.iri.service.snapshot.SnapshotState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads and writes the balances of a snapshot state in one of the two supported file formats.<br />
+ * <br />
+ * The text format holds one "address;balance" pair per line (with the address encoded in trytes). It is used by the
+ * builtin snapshot and was used by the local snapshots of older versions.<br />
+ * <br />
+ * The binary format is used by the local snapshots, which store it in a file with the ".snapshot.state.bin" extension
+ * (see {@link SnapshotProviderImpl}). It consists of:<br />
+ * <ul>
+ *     <li>a header with the {@link #MAGIC} number, the {@link #VERSION} of the format and the number of records</li>
+ *     <li>the records, each holding the {@link Hash#SIZE_IN_BYTES} bytes of the address and the balance as a long</li>
+ *     <li>the CRC32 checksum of all preceding bytes</li>
+ * </ul>
+ * Since all records have the same size, the file is memory-mapped and split into chunks that are decoded in
+ * parallel, without parsing trytes or numbers and without creating intermediate strings.<br />
+ */
+public class SnapshotStateFile {
+    /**
+     * Holds the magic number that identifies a binary snapshot state file ("ISST").<br />
+     */
+    static final int MAGIC = 0x49535354;
+
+    /**
+     * Holds the version of the binary format that is written by this class.<br />
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Holds the size of the header (magic number, version and number of records).<br />
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    /**
+     * Holds the size of a single record (address and balance).<br />
+     */
+    private static final int RECORD_SIZE = Hash.SIZE_IN_BYTES + Long.BYTES;
+
+    /**
+     * Holds the size of the checksum at the end of the file.<br />
+     */
+    private static final int CHECKSUM_SIZE = Long.BYTES;
+
+    /**
+     * Holds the minimum number of records that are decoded by a single task.<br />
+     */
+    private static final int MIN_CHUNK_SIZE = 10000;
+
+    /**
+     * Utility class.<br />
+     */
+    private SnapshotStateFile() {
+    }
+
+    /**
+     * Reads the balances from a binary snapshot state file.<br />
+     * <br />
+     * The file is memory-mapped and its checksum is verified before the records are decoded in parallel chunks.<br />
+     *
+     * @param path location of the binary snapshot state file
+     * @return the balances of the addresses
+     * @throws SnapshotException if the file can not be read or is malformed
+     */
+    public static Map<Hash, Long> readBinary(String path) throws SnapshotException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + CHECKSUM_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new SnapshotException("malformed snapshot state file at " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new SnapshotException("the file at " + path + " is not a binary snapshot state file");
+            }
+            int version = buffer.getInt(Integer.BYTES);
+            if (version != VERSION) {
+                throw new SnapshotException("unsupported version " + version + " of the snapshot state file at " +
+                        path);
+            }
+            long recordCount = buffer.getLong(Integer.BYTES * 2);
+            if (recordCount < 0 || HEADER_SIZE + recordCount * RECORD_SIZE + CHECKSUM_SIZE != fileSize) {
+                throw new SnapshotException("malformed snapshot state file at " + path);
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer content = buffer.duplicate();
+            content.limit((int) fileSize - CHECKSUM_SIZE);
+            crc.update(content);
+            if (crc.getValue() != buffer.getLong((int) fileSize - CHECKSUM_SIZE)) {
+                throw new SnapshotException("the checksum of the snapshot state file at " + path + " is invalid");
+            }
+
+            return decodeRecords(buffer, (int) recordCount);
+        } catch (IOException e) {
+            throw new SnapshotException("failed to read the snapshot state file at " + path, e);
+        }
+    }
+
+    /**
+     * Writes the balances to a binary snapshot state file.<br />
+     * <br />
+     * Addresses without a balance are omitted, just like in the text format.<br />
+     *
+     * @param balances the balances of the addresses
+     * @param path location of the file that shall be written
+     * @throws SnapshotException if the file can not be written
+     */
+    public static void writeBinary(Map<Hash, Long> balances, String path) throws SnapshotException {
+        writeBinary(new SnapshotStateImpl(balances), path, 0);
+    }
+
+    /**
+     * Streams the balances of the given state to a binary snapshot state file.<br />
+     * <br />
+     * The balances are read directly from the state, so no copy of the ledger is created, but the state must not be
+     * modified while it is written. Addresses without a balance are omitted, just like in the text format.<br />
+     *
+     * @param state the state whose balances shall be written
+     * @param path location of the file that shall be written
+     * @param maxBytesPerSecond the maximum write rate or 0 if the write shall not be throttled
+     * @throws SnapshotException if the file can not be written
+     */
+    public static void writeBinary(SnapshotState state, String path, long maxBytesPerSecond)
+            throws SnapshotException {
+
+        AtomicLong recordCount = new AtomicLong();
+        state.forEachBalance((address, balance) -> {
+            if (balance != 0) {
+                recordCount.incrementAndGet();
+            }
+        });
+
+        CRC32 crc = new CRC32();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new ThrottledOutputStream(
+                new FileOutputStream(path), maxBytesPerSecond)))) {
+
+            DataOutputStream checkedOutput = new DataOutputStream(new CheckedOutputStream(output, crc));
+            checkedOutput.writeInt(MAGIC);
+            checkedOutput.writeInt(VERSION);
+            checkedOutput.writeLong(recordCount.get());
+            state.forEachBalance((address, balance) -> {
+                if (balance != 0) {
+                    checkedOutput.write(address.bytes(), 0, Hash.SIZE_IN_BYTES);
+                    checkedOutput.writeLong(balance);
+                }
+            });
+            checkedOutput.flush();
+
+            output.writeLong(crc.getValue());
+        } catch (IOException e) {
+            throw new SnapshotException("failed to write the snapshot state file at " + path, e);
+        }
+    }
+
+    /**
+     * Reads the balances from a text snapshot state file.<br />
+     *
+     * @param path location of the text snapshot state file
+     * @return the balances of the addresses
+     * @throws SnapshotException if the file can not be read or is malformed
+     */
+    public static Map<Hash, Long> readText(String path) throws SnapshotException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new BufferedInputStream(
+                new FileInputStream(path))))) {
+            return readText(reader);
+        } catch (IOException e) {
+            throw new SnapshotException("failed to read the snapshot file at " + path, e);
+        }
+    }
+
+    /**
+     * Reads the balances from the given reader.<br />
+     * <br />
+     * The format of the input is pairs of "address;balance" separated by newlines. It simply reads the input line by
+     * line, adding the corresponding values to the map.<br />
+     *
+     * @param reader reader allowing us to retrieve the lines of the text snapshot state file
+     * @return the balances of the addresses
+     * @throws IOException if something went wrong while trying to access the file
+     * @throws SnapshotException if the content is malformed
+     */
+    public static Map<Hash, Long> readText(BufferedReader reader) throws IOException, SnapshotException {
+        Map<Hash, Long> state = new HashMap<>();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(";", 2);
+            if (parts.length == 2) {
+                state.put(HashFactory.ADDRESS.create(parts[0]), Long.valueOf(parts[1]));
+            } else {
+                throw new SnapshotException("malformed snapshot state file");
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Writes the balances to a text snapshot state file, sorted by address.<br />
+     *
+     * @param balances the balances of the addresses
+     * @param path location of the file that shall be written
+     * @throws SnapshotException if the file can not be written
+     */
+    public static void writeText(Map<Hash, Long> balances, String path) throws SnapshotException {
+        try {
+            Files.write(
+                    Paths.get(path),
+                    () -> balances.entrySet()
+                            .stream()
+                            .filter(entry -> entry.getValue() != 0)
+                            .<CharSequence>map(entry -> entry.getKey() + ";" + entry.getValue())
+                            .sorted()
+                            .iterator()
+            );
+        } catch (IOException e) {
+            throw new SnapshotException("failed to write the snapshot state file at " + path, e);
+        }
+    }
+
+    /**
+     * Converts a text snapshot state file into a binary one.<br />
+     *
+     * @param textPath location of the text file
+     * @param binaryPath location of the binary file that shall be written
+     * @throws SnapshotException if anything goes wrong while reading or writing the files
+     */
+    public static void convertTextToBinary(String textPath, String binaryPath) throws SnapshotException {
+        writeBinary(readText(textPath), binaryPath);
+    }
+
+    /**
+     * Converts a binary snapshot state file into a text one.<br />
+     *
+     * @param binaryPath location of the binary file
+     * @param textPath location of the text file that shall be written
+     * @throws SnapshotException if anything goes wrong while reading or writing the files
+     */
+    public static void convertBinaryToText(String binaryPath, String textPath) throws SnapshotException {
+        writeText(readBinary(binaryPath), textPath);
+    }
+
+    /**
+     * Decodes the records of a verified binary file in parallel chunks and merges the results.<br />
+     *
+     * @param buffer the mapped content of the file
+     * @param recordCount the number of records in the file
+     * @return the balances of the addresses
+     * @throws SnapshotException if an address occurs more than once
+     */
+    private static Map<Hash, Long> decodeRecords(ByteBuffer buffer, int recordCount) throws SnapshotException {
+        int chunkCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                recordCount / MIN_CHUNK_SIZE));
+        int chunkSize = (recordCount + chunkCount - 1) / chunkCount;
+
+        List<Map<Hash, Long>> chunks = IntStream.range(0, chunkCount).parallel()
+                .mapToObj(chunk -> decodeChunk(buffer.duplicate(), chunk * chunkSize,
+                        Math.min(recordCount, (chunk + 1) * chunkSize)))
+                .collect(Collectors.toList());
+
+        if (chunks.size() == 1) {
+            if (chunks.get(0).size() != recordCount) {
+                throw new SnapshotException("the snapshot state file contains duplicate addresses");
+            }
+            return chunks.get(0);
+        }
+
+        Map<Hash, Long> balances = new HashMap<>((int) (recordCount / 0.75f) + 1);
+        chunks.forEach(balances::putAll);
+        if (balances.size() != recordCount) {
+            throw new SnapshotException("the snapshot state file contains duplicate addresses");
+        }
+
+        return balances;
+    }
+
+    /**
+     * Decodes the records with the given indexes.<br />
+     *
+     * @param buffer an independent view of the mapped content of the file
+     * @param from index of the first record (inclusive)
+     * @param to index of the last record (exclusive)
+     * @return the balances of the decoded addresses
+     */
+    private static Map<Hash, Long> decodeChunk(ByteBuffer buffer, int from, int to) {
+        Map<Hash, Long> balances = new HashMap<>((int) ((to - from) / 0.75f) + 1);
+
+        buffer.position(HEADER_SIZE + from * RECORD_SIZE);
+        byte[] address = new byte[Hash.SIZE_IN_BYTES];
+        for (int i = from; i < to; i++) {
+            buffer.get(address);
+            balances.put(HashFactory.ADDRESS.create(address, 0, Hash.SIZE_IN_BYTES), buffer.getLong());
+        }
+
+        return balances;
+    }
+
+    /**
+     * Limits the rate at which the data is written to the underlying stream.<br />
+     * <br />
+     * It allows us to write large snapshots in the background without saturating the disk that is also used by the
+     * database.<br />
+     */
+    private static class ThrottledOutputStream extends FilterOutputStream {
+        /**
+         * Holds the maximum number of bytes per second (0 means unlimited).<br />
+         */
+        private final long maxBytesPerSecond;
+
+        /**
+         * Holds the time when the first byte was written.<br />
+         */
+        private final long startTime = System.nanoTime();
+
+        /**
+         * Holds the number of bytes that were written so far.<br />
+         */
+        private long writtenBytes;
+
+        /**
+         * Creates a stream that limits the write rate of the given stream.<br />
+         *
+         * @param out the underlying stream
+         * @param maxBytesPerSecond the maximum number of bytes per second or 0 if the rate shall not be limited
+         */
+        ThrottledOutputStream(OutputStream out, long maxBytesPerSecond) {
+            super(out);
+
+            this.maxBytesPerSecond = maxBytesPerSecond;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            throttle(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            throttle(len);
+        }
+
+        /**
+         * Sleeps until the written bytes are within the allowed rate.<br />
+         *
+         * @param bytes the number of bytes that were just written
+         * @throws InterruptedIOException if the thread is interrupted while sleeping
+         */
+        private void throttle(int bytes) throws InterruptedIOException {
+            if (maxBytesPerSecond > 0) {
+                writtenBytes += bytes;
+
+                long delay = writtenBytes * 1000 / maxBytesPerSecond - (System.nanoTime() - startTime) / 1000000;
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+
+                        throw new InterruptedIOException("the write of the snapshot state file was interrupted");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.iota.iri.utils.IotaIOUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingBiConsumer;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -70,6 +71,16 @@ public class SnapshotStateImpl implements SnapshotState {
         return new HashMap<>(balances);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <E extends Exception> void forEachBalance(ThrowingBiConsumer<Hash, Long, E> consumer) throws E {
+        for (Map.Entry<Hash, Long> entry : balances.entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -97,7 +108,7 @@ public class SnapshotStateImpl implements SnapshotState {
     @Override
     public void update(SnapshotState newState) {
         balances.clear();
-        balances.putAll(newState.getBalances());
+        newState.forEachBalance(balances::put);
     }
 
     /**
@@ -3,6 +3,7 @@ package com.iota.iri.service.spentaddresses;
 import com.iota.iri.model.Hash;
 
 import java.util.Collection;
+import java.util.Set;
 
 /**
  * Find, mark and store spent addresses
@@ -17,6 +18,15 @@ public interface SpentAddressesProvider {
      */
     boolean containsAddress(Hash addressHash) throws SpentAddressesException;
 
+    /**
+     * Checks which of the given address hashes have been spent from, with a single lookup for all of them
+     *
+     * @param addressHashes The addresses to check for
+     * @return the addresses that have been spent from
+     * @throws SpentAddressesException If the provider fails to check the addresses
+     */
+    Set<Hash> containsAddresses(Collection<Hash> addressHashes) throws SpentAddressesException;
+
     /**
      * Mark an address as spent.
      * 
@@ -4,6 +4,7 @@ import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.model.Hash;
 
 import java.util.Collection;
+import java.util.Set;
 
 /**
  * 
@@ -21,6 +22,19 @@ public interface SpentAddressesService {
      */
     boolean wasAddressSpentFrom(Hash addressHash) throws SpentAddressesException;
 
+    /**
+     * Checks which of the addresses are associated with a valid signed output
+     *
+     * Every address is checked only once, the addresses are looked up in the spent addresses database with a single
+     * request and the transactions of the remaining addresses are checked concurrently on a bounded pool.
+     *
+     * @param addressHashes the addresses in question
+     * @param timeout the time (in milliseconds) the checks may take
+     * @return the addresses that were spent from
+     * @throws SpentAddressesException if the addresses could not be checked within the given time
+     */
+    Set<Hash> wereAddressesSpentFrom(Collection<Hash> addressHashes, long timeout) throws SpentAddressesException;
+
 
     /**
      * Persist all the verifiable spent from a given list of transactions
@@ -36,4 +50,12 @@ public interface SpentAddressesService {
      *                     Non spent transactions will be filtered out when persisting
      */
     void persistValidatedSpentAddressesAsync(Collection<TransactionViewModel> transactions);
+
+    /**
+     * Stops the background threads of the service.
+     *
+     * The spent addresses that were handed over to {@link #persistValidatedSpentAddressesAsync(Collection)} are still
+     * persisted, while running checks of {@link #wereAddressesSpentFrom(Collection, long)} are interrupted.
+     */
+    void shutdown();
 }
@@ -2,6 +2,7 @@ package com.iota.iri.service.spentaddresses.impl;
 
 import com.iota.iri.conf.IotaConfig;
 import com.iota.iri.conf.SnapshotConfig;
+import com.iota.iri.model.AddressHash;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
 import com.iota.iri.model.persistables.SpentAddress;
@@ -11,15 +12,35 @@ import com.iota.iri.storage.Indexable;
 import com.iota.iri.storage.Persistable;
 import com.iota.iri.storage.Tangle;
 import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import com.iota.iri.utils.IotaUtils;
 import com.iota.iri.utils.Pair;
+import com.iota.iri.utils.collections.impl.BloomFilter;
 
 import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingFunction;
+import pl.touk.throwing.ThrowingRunnable;
 
 /**
  *
@@ -27,14 +48,70 @@ import org.slf4j.LoggerFactory;
  * Addresses are saved/found on the {@link Tangle}.
  * The folder location is provided by {@link IotaConfig#getLocalSnapshotsBasePath()}
  *
+ * Most checked addresses were never spent from, so the lookups go through a memory tier first: a bloom filter over
+ * all spent addresses answers the negative checks without touching the database, and a small LRU cache of recently
+ * found addresses answers the repeated positive checks. The filter is built from the database when the provider is
+ * started and rebuilt with twice the capacity when it gets full.
+ *
  */
 public class SpentAddressesProviderImpl implements SpentAddressesProvider {
     private static final Logger log = LoggerFactory.getLogger(SpentAddressesProviderImpl.class);
 
+    /**
+     * The minimum number of addresses the bloom filter is sized for.
+     */
+    private static final long MIN_FILTER_CAPACITY = 1 << 20;
+
+    /**
+     * The bits per address of the bloom filter (about 1% false positives).
+     */
+    private static final int FILTER_BITS_PER_ADDRESS = 10;
+
+    /**
+     * The number of spent addresses that are kept in the LRU cache.
+     */
+    private static final int POSITIVE_CACHE_SIZE = 10000;
+
+    /**
+     * The number of addresses that are written with a single batch while importing the previous epochs.
+     */
+    private static final int IMPORT_BATCH_SIZE = 100000;
+
+    /**
+     * The file (in the database folder) that holds the checksum of the imported previous epochs.
+     */
+    private static final String IMPORT_CHECKSUM_FILE = "previous-epochs.sha256";
+
     private RocksDBPersistenceProvider rocksDBPersistenceProvider;
 
     private SnapshotConfig config;
 
+    /**
+     * Guards the replacement of the filter: lookups and saves hold the read lock, a rebuild holds the write lock so
+     * no address that is saved during the rebuild gets lost.
+     */
+    private final ReadWriteLock filterLock = new ReentrantReadWriteLock();
+
+    private BloomFilter filter;
+
+    private long filterCapacity;
+
+    private final AtomicLong filteredAddresses = new AtomicLong();
+
+    private final Map<Hash, Boolean> recentlySpentAddresses = Collections.synchronizedMap(
+            new LinkedHashMap<Hash, Boolean>(POSITIVE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Hash, Boolean> eldest) {
+                    return size() > POSITIVE_CACHE_SIZE;
+                }
+            });
+
+    private final AtomicLong filteredLookups = new AtomicLong();
+
+    private final AtomicLong cachedLookups = new AtomicLong();
+
+    private final AtomicLong databaseLookups = new AtomicLong();
+
     /**
      * Starts the SpentAddressesProvider by reading the previous spent addresses from files.
      *
@@ -53,6 +130,8 @@ public class SpentAddressesProviderImpl implements SpentAddressesProvider {
                     new HashMap<String, Class<? extends Persistable>>(1)
                     {{put("spent-addresses", SpentAddress.class);}}, null);
             this.rocksDBPersistenceProvider.init();
+            rebuildFilter(Math.max(MIN_FILTER_CAPACITY,
+                    2 * rocksDBPersistenceProvider.count(SpentAddress.class)));
             readPreviousEpochsSpentAddresses();
         }
         catch (Exception e) {
@@ -61,59 +140,266 @@ public class SpentAddressesProviderImpl implements SpentAddressesProvider {
         return this;
     }
 
+    /**
+     * Imports the spent addresses of the previous epochs that are bundled with the node.
+     *
+     * The files are parsed in parallel and the addresses are written in sorted order with large batches. A checksum of
+     * the files is stored next to the database after a successful import, so the import is skipped on the following
+     * starts (as long as the bundled files do not change).
+     *
+     * @throws SpentAddressesException if the files could not be read or the addresses could not be saved
+     */
     private void readPreviousEpochsSpentAddresses() throws SpentAddressesException {
         if (config.isTestnet()) {
             return;
         }
 
-        for (String previousEpochsSpentAddressesFile : config.getPreviousEpochSpentAddressesFiles().split(" ")) {
-                readSpentAddressesFromStream(
-                        SpentAddressesProviderImpl.class.getResourceAsStream(previousEpochsSpentAddressesFile));
+        String[] files = config.getPreviousEpochSpentAddressesFiles().split(" ");
+        File checksumFile = new File(config.getSpentAddressesDbPath(), IMPORT_CHECKSUM_FILE);
+        String checksum = checksum(files);
+        try {
+            if (checksumFile.exists() && checksum.equals(
+                    new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim())) {
+
+                log.info("Spent addresses of the previous epochs were imported already");
+                return;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read the checksum of the imported spent addresses", e);
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<Hash> addresses;
+        try {
+            addresses = Arrays.stream(files).parallel()
+                    .flatMap(ThrowingFunction.unchecked(file -> readSpentAddressesFromResource(file).stream()))
+                    .sorted((first, second) -> IotaUtils.compareUnsigned(first.bytes(), second.bytes()))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            throw new SpentAddressesException("Failed to read the spent addresses of the previous epochs", e);
+        }
+
+        // size the filter for the imported addresses upfront instead of growing it while they are saved
+        rebuildFilter(Math.max(filterCapacity, 2 * (filteredAddresses.get() + addresses.size())));
+        for (int i = 0; i < addresses.size(); i += IMPORT_BATCH_SIZE) {
+            saveAddressesBatch(addresses.subList(i, Math.min(addresses.size(), i + IMPORT_BATCH_SIZE)));
         }
+
+        try {
+            Files.write(checksumFile.toPath(), checksum.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Failed to store the checksum of the imported spent addresses", e);
+        }
+        log.info("Imported {} spent addresses of the previous epochs in {} ms", addresses.size(),
+                System.currentTimeMillis() - startTime);
     }
 
-    private void readSpentAddressesFromStream(InputStream in) throws SpentAddressesException {
+    private List<Hash> readSpentAddressesFromResource(String file) throws SpentAddressesException {
+        InputStream in = SpentAddressesProviderImpl.class.getResourceAsStream(file);
+        if (in == null) {
+            throw new SpentAddressesException("Missing spent addresses file " + file);
+        }
+
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                saveAddress(HashFactory.ADDRESS.create(line));
-            }
+            return reader.lines().parallel()
+                    .map(HashFactory.ADDRESS::create)
+                    .collect(Collectors.toList());
         } catch (Exception e) {
-            throw new SpentAddressesException("Failed to read or save spent address", e);
+            throw new SpentAddressesException("Failed to read spent addresses from " + file, e);
+        }
+    }
+
+    /**
+     * Calculates a checksum over the contents of the bundled spent addresses files.
+     */
+    private static String checksum(String[] files) throws SpentAddressesException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (String file : files) {
+                InputStream in = SpentAddressesProviderImpl.class.getResourceAsStream(file);
+                if (in == null) {
+                    throw new SpentAddressesException("Missing spent addresses file " + file);
+                }
+                try (InputStream stream = in) {
+                    int read;
+                    while ((read = stream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new SpentAddressesException("Failed to calculate the checksum of the spent addresses files", e);
         }
     }
 
     @Override
     public boolean containsAddress(Hash addressHash) throws SpentAddressesException {
+        if (recentlySpentAddresses.containsKey(addressHash)) {
+            cachedLookups.incrementAndGet();
+            return true;
+        }
+
+        filterLock.readLock().lock();
         try {
-            return rocksDBPersistenceProvider.exists(SpentAddress.class, addressHash);
+            if (!filter.mightContain(addressHash.bytes())) {
+                filteredLookups.incrementAndGet();
+                return false;
+            }
+        } finally {
+            filterLock.readLock().unlock();
+        }
+
+        try {
+            databaseLookups.incrementAndGet();
+            boolean spent = rocksDBPersistenceProvider.exists(SpentAddress.class, addressHash);
+            if (spent) {
+                recentlySpentAddresses.put(addressHash, Boolean.TRUE);
+            }
+            return spent;
         } catch (Exception e) {
             throw new SpentAddressesException(e);
         }
     }
 
     @Override
-    public void saveAddress(Hash addressHash) throws SpentAddressesException {
+    public Set<Hash> containsAddresses(Collection<Hash> addressHashes) throws SpentAddressesException {
+        Set<Hash> spentAddresses = new HashSet<>();
+        List<Hash> candidates = new ArrayList<>();
+
+        filterLock.readLock().lock();
+        try {
+            for (Hash addressHash : new HashSet<>(addressHashes)) {
+                if (recentlySpentAddresses.containsKey(addressHash)) {
+                    cachedLookups.incrementAndGet();
+                    spentAddresses.add(addressHash);
+                } else if (filter.mightContain(addressHash.bytes())) {
+                    candidates.add(addressHash);
+                } else {
+                    filteredLookups.incrementAndGet();
+                }
+            }
+        } finally {
+            filterLock.readLock().unlock();
+        }
+
         try {
-            rocksDBPersistenceProvider.save(new SpentAddress(), addressHash);
+            databaseLookups.addAndGet(candidates.size());
+            List<Persistable> models = rocksDBPersistenceProvider.getBatch(SpentAddress.class, candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (((SpentAddress) models.get(i)).exists()) {
+                    recentlySpentAddresses.put(candidates.get(i), Boolean.TRUE);
+                    spentAddresses.add(candidates.get(i));
+                }
+            }
         } catch (Exception e) {
             throw new SpentAddressesException(e);
         }
+
+        return spentAddresses;
+    }
+
+    @Override
+    public void saveAddress(Hash addressHash) throws SpentAddressesException {
+        save(Collections.singletonList(addressHash),
+                () -> rocksDBPersistenceProvider.save(new SpentAddress(), addressHash));
     }
 
     @Override
     public void saveAddressesBatch(Collection<Hash> addressHash) throws SpentAddressesException {
+        // Its bytes are always new byte[0], therefore identical in storage
+        SpentAddress spentAddressModel = new SpentAddress();
+
+        save(addressHash, () -> rocksDBPersistenceProvider.saveBatch(addressHash
+            .stream()
+            .map(address -> new Pair<Indexable, Persistable>(address, spentAddressModel))
+            .collect(Collectors.toList())
+        ));
+    }
+
+    /**
+     * Shuts down the database of the spent addresses and logs how the lookups were answered.
+     */
+    public void shutdown() {
+        if (rocksDBPersistenceProvider == null) {
+            return;
+        }
+
+        log.info("Spent address lookups: {} answered by the filter, {} by the cache, {} by the database",
+                filteredLookups.get(), cachedLookups.get(), databaseLookups.get());
+        rocksDBPersistenceProvider.shutdown();
+    }
+
+    /**
+     * Adds the addresses to the filter and writes them to the database while holding the read lock of the filter, so a
+     * rebuild either sees the addresses in the database or gets replaced before they are added. Rebuilds the filter if
+     * it holds more addresses than it was sized for.
+     *
+     * @param addressHashes the addresses that are saved
+     * @param write writes the addresses to the database
+     * @throws SpentAddressesException if the addresses could not be written or the filter could not be rebuilt
+     */
+    private void save(Collection<Hash> addressHashes, ThrowingRunnable<Exception> write)
+            throws SpentAddressesException {
+
+        long capacity;
+        filterLock.readLock().lock();
         try {
-            // Its bytes are always new byte[0], therefore identical in storage
-            SpentAddress spentAddressModel = new SpentAddress();
-
-            rocksDBPersistenceProvider.saveBatch(addressHash
-                .stream()
-                .map(address -> new Pair<Indexable, Persistable>(address, spentAddressModel))
-                .collect(Collectors.toList())
-            );
+            addressHashes.forEach(addressHash -> filter.add(addressHash.bytes()));
+            capacity = filterCapacity;
+            write.run();
         } catch (Exception e) {
             throw new SpentAddressesException(e);
+        } finally {
+            filterLock.readLock().unlock();
+        }
+
+        if (filteredAddresses.addAndGet(addressHashes.size()) > capacity) {
+            // the counter includes addresses that were saved more than once, so it only ever overestimates
+            rebuildFilter(2 * capacity);
+        }
+    }
+
+    /**
+     * Replaces the filter by a new one that is filled with all addresses of the database.
+     *
+     * @param capacity the number of addresses the new filter is sized for
+     * @throws SpentAddressesException if the database could not be read
+     */
+    void rebuildFilter(long capacity) throws SpentAddressesException {
+        filterLock.writeLock().lock();
+        try {
+            if (filter != null && capacity <= filterCapacity) {
+                // another thread rebuilt the filter already
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            BloomFilter newFilter = new BloomFilter(capacity, FILTER_BITS_PER_ADDRESS);
+            AtomicLong addresses = new AtomicLong();
+            rocksDBPersistenceProvider.forEachInRange(SpentAddress.class, AddressHash.class, null, null,
+                    (address, spentAddress) -> {
+                        newFilter.add(address.bytes());
+                        addresses.incrementAndGet();
+                    });
+
+            filter = newFilter;
+            filterCapacity = capacity;
+            filteredAddresses.set(addresses.get());
+            log.info("Built the spent addresses filter for {} addresses ({} MB) in {} ms", addresses.get(),
+                    newFilter.sizeInBytes() >> 20, System.currentTimeMillis() - startTime);
+
+            if (addresses.get() > capacity) {
+                rebuildFilter(2 * addresses.get());
+            }
+        } catch (SpentAddressesException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SpentAddressesException("failed to build the filter of the spent addresses", e);
+        } finally {
+            filterLock.writeLock().unlock();
         }
     }
 }
@@ -17,7 +17,14 @@ import com.iota.iri.utils.IotaUtils;
 
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -38,6 +45,17 @@ public class SpentAddressesServiceImpl implements SpentAddressesService {
 
     private static final Logger log = LoggerFactory.getLogger(SpentAddressesServiceImpl.class);
 
+    /**
+     * The number of transaction hashes of an address that are decoded at once while checking if it was spent from.
+     */
+    private static final int HASHES_PAGE_SIZE = 1000;
+
+    /**
+     * The number of seconds we wait for the spent addresses that were handed over asynchronously to be persisted
+     * during the shutdown.
+     */
+    private static final int SHUTDOWN_TIMEOUT = 60;
+
     private Tangle tangle;
 
     private SnapshotProvider snapshotProvider;
@@ -53,6 +71,17 @@ public class SpentAddressesServiceImpl implements SpentAddressesService {
     private final ExecutorService asyncSpentAddressesPersistor =
             IotaUtils.createNamedSingleThreadExecutor("Persist Spent Addresses Async");
 
+    /**
+     * Checks the transactions of the addresses of batched requests. It is shared by all requests, so the number of
+     * concurrent checks is bounded no matter how many requests arrive.
+     */
+    private final ExecutorService spentAddressesCheckers = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "Spent Addresses Checker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     /**
      * Creates a Spent address service using the Tangler
      *
@@ -80,6 +109,54 @@ public class SpentAddressesServiceImpl implements SpentAddressesService {
         return wasAddressSpentFrom(addressHash, getInitialUnspentAddresses());
     }
 
+    @Override
+    public Set<Hash> wereAddressesSpentFrom(Collection<Hash> addressHashes, long timeout)
+            throws SpentAddressesException {
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Set<Hash> uniqueAddresses = addressHashes.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Set<Hash> spentAddresses = ConcurrentHashMap.newKeySet();
+        spentAddresses.addAll(spentAddressesProvider.containsAddresses(uniqueAddresses));
+
+        Set<Hash> checkedAddresses = ConcurrentHashMap.newKeySet();
+        checkedAddresses.addAll(getInitialUnspentAddresses());
+
+        List<Future<?>> checks = new ArrayList<>();
+        try {
+            for (Hash addressHash : uniqueAddresses) {
+                if (!spentAddresses.contains(addressHash) && !checkedAddresses.contains(addressHash)) {
+                    checks.add(spentAddressesCheckers.submit(() -> {
+                        if (wasAddressSpentFromTransactions(addressHash, checkedAddresses)) {
+                            spentAddresses.add(addressHash);
+                        }
+                        return null;
+                    }));
+                }
+            }
+
+            for (Future<?> check : checks) {
+                check.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            throw new SpentAddressesException("The spent addresses service is shutting down", e);
+        } catch (TimeoutException e) {
+            throw new SpentAddressesException("Checking " + uniqueAddresses.size() + " addresses took longer than " +
+                    timeout + " ms");
+        } catch (ExecutionException e) {
+            throw new SpentAddressesException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SpentAddressesException(e);
+        } finally {
+            checks.forEach(check -> check.cancel(true));
+        }
+
+        return spentAddresses;
+    }
+
     @Override
     public void persistSpentAddresses(Collection<TransactionViewModel> transactions) throws SpentAddressesException {
         try {
@@ -108,6 +185,21 @@ public class SpentAddressesServiceImpl implements SpentAddressesService {
         });
     }
 
+    @Override
+    public void shutdown() {
+        spentAddressesCheckers.shutdownNow();
+        asyncSpentAddressesPersistor.shutdown();
+        try {
+            if (!asyncSpentAddressesPersistor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                log.warn("Spent addresses were still being persisted after {} seconds", SHUTDOWN_TIMEOUT);
+                asyncSpentAddressesPersistor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            asyncSpentAddressesPersistor.shutdownNow();
+        }
+    }
+
     private boolean wasTransactionSpentFrom(TransactionViewModel tx) throws Exception {
         Optional<Hash> tailFromTx = tailFinder.findTailFromTx(tx);
         if (tailFromTx.isPresent() && tx.value() < 0) {
@@ -149,27 +241,49 @@ public class SpentAddressesServiceImpl implements SpentAddressesService {
             return true;
         }
 
+        return wasAddressSpentFromTransactions(addressHash, checkedAddresses);
+    }
+
+    /**
+     * Checks the transactions of an address that is not in the spent addresses database for a valid signed output.
+     *
+     * @param addressHash the address in question
+     * @param checkedAddresses known unspent addresses, used to skip calculations.
+     * @return {@code true} if address was spent from, else {@code false}
+     * @throws SpentAddressesException if the transactions could not be checked
+     */
+    private boolean wasAddressSpentFromTransactions(Hash addressHash, Collection<Hash> checkedAddresses)
+            throws SpentAddressesException {
+
         //If address has already been checked this session, return false
         if (checkedAddresses.contains(addressHash)){
             return false;
         }
 
         try {
-            Set<Hash> hashes = AddressViewModel.load(tangle, addressHash).getHashes();
+            AddressViewModel address = AddressViewModel.load(tangle, addressHash);
             int setSizeLimit = 100_000;
 
-            //If the hash set returned contains more than 100 000 entries, it likely will not be a spent address.
-            //To avoid unnecessary overhead while processing, the loop will return false
-            if (hashes.size() > setSizeLimit){
+            //If the address has more than 100 000 transactions, it likely will not be a spent address.
+            //To avoid unnecessary overhead while processing (the hashes are counted without decoding them), the loop
+            //will return false
+            if (address.countHashes() > setSizeLimit){
                 checkedAddresses.add(addressHash);
                 return false;
             }
 
-            for (Hash hash: hashes) {
-                TransactionViewModel tx = TransactionViewModel.fromHash(tangle, hash);
-                // Check for spending transactions
-                if (wasTransactionSpentFrom(tx)) {
-                    return true;
+            //The hashes are decoded page by page, so a spending transaction found early saves decoding the rest
+            for (int offset = 0; ; offset += HASHES_PAGE_SIZE) {
+                List<Hash> hashes = address.getHashes(offset, HASHES_PAGE_SIZE);
+                for (Hash hash : hashes) {
+                    TransactionViewModel tx = TransactionViewModel.fromHash(tangle, hash);
+                    // Check for spending transactions
+                    if (wasTransactionSpentFrom(tx)) {
+                        return true;
+                    }
+                }
+                if (hashes.size() < HASHES_PAGE_SIZE) {
+                    break;
                 }
             }
 
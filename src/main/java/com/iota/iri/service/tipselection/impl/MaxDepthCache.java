@@ -0,0 +1,140 @@
+package com.iota.iri.service.tipselection.impl;
+
+import com.iota.iri.model.Hash;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the results of the below max depth checks of the {@link WalkValidatorImpl} between tip selections.
+ *
+ * <p>
+ *     Whether a transaction references a transaction that is confirmed below the max depth only changes when a new
+ *     milestone gets applied to the ledger (which moves the lowest allowed snapshot index and confirms transactions)
+ *     or when a local snapshot changes the solid entry points. The results are therefore collected in a {@link Scope}
+ *     that is bound to the lowest allowed snapshot index that the results were computed for and to the initial
+ *     snapshot index, and a new (empty) scope is started as soon as one of them changes. This way repeated walks over
+ *     the same part of the tangle only cost a hash lookup instead of a database traversal.
+ * </p>
+ * <p>
+ *     Checks that were aborted because they analyzed too many transactions are not a result, so they are not
+ *     memorized.
+ * </p>
+ * <p>
+ *     Callers are expected to hold the read lock of the latest snapshot while they use a {@link Scope}, so the indexes
+ *     it was created for can not change in between.
+ * </p>
+ */
+public class MaxDepthCache {
+
+    /**
+     * Maximum number of results that are memorized per milestone (this keeps the memory footprint bounded if the
+     * node is flooded with transactions).
+     */
+    private static final int MAX_ENTRIES = 100_000;
+
+    /**
+     * Holds the results for the milestone that was processed most recently.
+     */
+    private volatile Scope currentScope = new Scope(Integer.MIN_VALUE, -1);
+
+    /**
+     * Returns the results that were collected for the given snapshot indexes.
+     *
+     * <p>
+     *     If the indexes differ from the ones of the previous call, the existing results are dropped and a new scope
+     *     is started.
+     * </p>
+     *
+     * @param lowerAllowedSnapshotIndex lowest snapshot index that a referenced transaction may be confirmed by (the
+     *                                  bound that the results of the scope are computed with)
+     * @param initialSnapshotIndex index of the snapshot that defines the solid entry points
+     * @return the scope that holds the results for the given indexes
+     */
+    public Scope getScope(int lowerAllowedSnapshotIndex, int initialSnapshotIndex) {
+        Scope scope = currentScope;
+        if (scope.lowerAllowedSnapshotIndex != lowerAllowedSnapshotIndex
+                || scope.initialSnapshotIndex != initialSnapshotIndex) {
+
+            synchronized (this) {
+                scope = currentScope;
+                if (scope.lowerAllowedSnapshotIndex != lowerAllowedSnapshotIndex
+                        || scope.initialSnapshotIndex != initialSnapshotIndex) {
+
+                    scope = new Scope(lowerAllowedSnapshotIndex, initialSnapshotIndex);
+                    currentScope = scope;
+                }
+            }
+        }
+
+        return scope;
+    }
+
+    /**
+     * The below max depth results that are valid for a single milestone.
+     *
+     * <p>
+     *     Results can safely be added to an outdated scope, since it is no longer reachable through the cache.
+     * </p>
+     */
+    public static class Scope {
+
+        private final int lowerAllowedSnapshotIndex;
+
+        private final int initialSnapshotIndex;
+
+        private final Set<Hash> maxDepthOk = ConcurrentHashMap.newKeySet();
+
+        private final Set<Hash> belowMaxDepth = ConcurrentHashMap.newKeySet();
+
+        private Scope(int lowerAllowedSnapshotIndex, int initialSnapshotIndex) {
+            this.lowerAllowedSnapshotIndex = lowerAllowedSnapshotIndex;
+            this.initialSnapshotIndex = initialSnapshotIndex;
+        }
+
+        /**
+         * @return the lowest allowed snapshot index that the results of this scope are computed with
+         */
+        public int getLowerAllowedSnapshotIndex() {
+            return lowerAllowedSnapshotIndex;
+        }
+
+        /**
+         * @param transactionHash hash of the transaction
+         * @return <code>true</code> if the transaction is known to not reference anything below the max depth
+         */
+        public boolean isMaxDepthOk(Hash transactionHash) {
+            return maxDepthOk.contains(transactionHash);
+        }
+
+        /**
+         * @param transactionHash hash of the transaction
+         * @return <code>true</code> if the transaction is known to reference something below the max depth
+         */
+        public boolean isBelowMaxDepth(Hash transactionHash) {
+            return belowMaxDepth.contains(transactionHash);
+        }
+
+        /**
+         * Memorizes that the transaction does not reference anything below the max depth.
+         *
+         * @param transactionHash hash of the transaction
+         */
+        public void addMaxDepthOk(Hash transactionHash) {
+            if (maxDepthOk.size() < MAX_ENTRIES) {
+                maxDepthOk.add(transactionHash);
+            }
+        }
+
+        /**
+         * Memorizes that the transaction references something below the max depth.
+         *
+         * @param transactionHash hash of the transaction
+         */
+        public void addBelowMaxDepth(Hash transactionHash) {
+            if (belowMaxDepth.size() < MAX_ENTRIES) {
+                belowMaxDepth.add(transactionHash);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class TipSelectorImpl implements TipSelector {
     private final Tangle tangle;
     private final SnapshotProvider snapshotProvider;
     private final TipSelConfig config;
+    private final MaxDepthCache maxDepthCache;
 
     /**
      * Constructor for Tip Selector.
@@ -43,6 +44,7 @@ public class TipSelectorImpl implements TipSelector {
      * @param ratingCalculator instance of rating calculator, to calculate weighted walks.
      * @param walkerAlpha instance of walker (alpha), to perform weighted random walks as per the IOTA white paper.
      * @param config configurations to set internal parameters.
+     * @param maxDepthCache below max depth results that are shared between the tip selections.
      */
     public TipSelectorImpl(Tangle tangle,
                            SnapshotProvider snapshotProvider,
@@ -50,7 +52,8 @@ public class TipSelectorImpl implements TipSelector {
                            EntryPointSelector entryPointSelector,
                            RatingCalculator ratingCalculator,
                            Walker walkerAlpha,
-                           TipSelConfig config) {
+                           TipSelConfig config,
+                           MaxDepthCache maxDepthCache) {
 
         this.entryPointSelector = entryPointSelector;
         this.ratingCalculator = ratingCalculator;
@@ -62,6 +65,7 @@ public class TipSelectorImpl implements TipSelector {
         this.tangle = tangle;
         this.snapshotProvider = snapshotProvider;
         this.config = config;
+        this.maxDepthCache = maxDepthCache;
     }
 
     /**
@@ -93,7 +97,8 @@ public class TipSelectorImpl implements TipSelector {
 
             //random walk
             List<Hash> tips = new LinkedList<>();
-            WalkValidator walkValidator = new WalkValidatorImpl(tangle, snapshotProvider, ledgerService, config);
+            WalkValidator walkValidator = new WalkValidatorImpl(tangle, snapshotProvider, ledgerService, config,
+                    maxDepthCache);
             Hash tip = walker.walk(entryPoint, rating, walkValidator);
             tips.add(tip);
 
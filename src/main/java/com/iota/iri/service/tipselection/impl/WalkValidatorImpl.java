@@ -3,10 +3,12 @@ package com.iota.iri.service.tipselection.impl;
 import com.iota.iri.conf.TipSelConfig;
 import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.model.Hash;
+import com.iota.iri.model.persistables.GraphNode;
 import com.iota.iri.service.ledger.LedgerService;
 import com.iota.iri.service.snapshot.SnapshotProvider;
 import com.iota.iri.service.tipselection.WalkValidator;
 import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.dag.TraversalContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,13 +33,13 @@ public class WalkValidatorImpl implements WalkValidator {
     private final SnapshotProvider snapshotProvider;
     private final LedgerService ledgerService;
     private final TipSelConfig config;
+    private final MaxDepthCache maxDepthCache;
 
-    private Set<Hash> maxDepthOkMemoization;
     private Map<Hash, Long> myDiff;
     private Set<Hash> myApprovedHashes;
 
     /**
-     * Constructor of Walk Validator
+     * Constructor of Walk Validator that only memorizes its own below max depth results.
      * @param tangle Tangle object which acts as a database interface.
      * @param snapshotProvider grants access to snapshots od the ledger state.
      * @param ledgerService allows to perform ledger related logic.
@@ -45,12 +47,25 @@ public class WalkValidatorImpl implements WalkValidator {
      */
     public WalkValidatorImpl(Tangle tangle, SnapshotProvider snapshotProvider, LedgerService ledgerService,
                              TipSelConfig config) {
+        this(tangle, snapshotProvider, ledgerService, config, new MaxDepthCache());
+    }
+
+    /**
+     * Constructor of Walk Validator
+     * @param tangle Tangle object which acts as a database interface.
+     * @param snapshotProvider grants access to snapshots od the ledger state.
+     * @param ledgerService allows to perform ledger related logic.
+     * @param config configurations to set internal parameters.
+     * @param maxDepthCache below max depth results that are shared with other validators.
+     */
+    public WalkValidatorImpl(Tangle tangle, SnapshotProvider snapshotProvider, LedgerService ledgerService,
+                             TipSelConfig config, MaxDepthCache maxDepthCache) {
         this.tangle = tangle;
         this.snapshotProvider = snapshotProvider;
         this.ledgerService = ledgerService;
         this.config = config;
+        this.maxDepthCache = maxDepthCache;
 
-        maxDepthOkMemoization = new HashSet<>();
         myDiff = new HashMap<>();
         myApprovedHashes = new HashSet<>();
     }
@@ -68,8 +83,7 @@ public class WalkValidatorImpl implements WalkValidator {
         } else if (!transactionViewModel.isSolid()) {
             log.debug("Validation failed: {} is not solid", transactionHash);
             return false;
-        } else if (belowMaxDepth(transactionViewModel.getHash(),
-                snapshotProvider.getLatestSnapshot().getIndex() - config.getMaxDepth())) {
+        } else if (belowMaxDepth(transactionViewModel.getHash(), getMaxDepthScope())) {
             log.debug("Validation failed: {} is below max depth", transactionHash);
             return false;
         } else if (!ledgerService.isBalanceDiffConsistent(myApprovedHashes, myDiff, transactionViewModel.getHash())) {
@@ -79,14 +93,51 @@ public class WalkValidatorImpl implements WalkValidator {
         return true;
     }
 
-    private boolean belowMaxDepth(Hash tip, int lowerAllowedSnapshotIndex) throws Exception {
+    /**
+     * Resolves the shared below max depth results for the current lowest allowed snapshot index.
+     *
+     * The bound is read only once and the scope is keyed by it, so results that are computed with an older bound can
+     * never end up in the scope of a newer one (even if the latest snapshot advances during the walk).
+     *
+     * @return the scope that holds the results for the current bound
+     */
+    private MaxDepthCache.Scope getMaxDepthScope() {
+        int lowerAllowedSnapshotIndex = snapshotProvider.getLatestSnapshot().getIndex() - config.getMaxDepth();
+        return maxDepthCache.getScope(lowerAllowedSnapshotIndex, snapshotProvider.getInitialSnapshot().getIndex());
+    }
+
+    private boolean belowMaxDepth(Hash tip, MaxDepthCache.Scope maxDepthOkMemoization) throws Exception {
+        int lowerAllowedSnapshotIndex = maxDepthOkMemoization.getLowerAllowedSnapshotIndex();
+        //if the tip was analyzed for the same milestone already stop
+        if (maxDepthOkMemoization.isMaxDepthOk(tip)) {
+            return false;
+        }
+        if (maxDepthOkMemoization.isBelowMaxDepth(tip)) {
+            return true;
+        }
         //if tip is confirmed stop
         if (TransactionViewModel.fromHash(tangle, tip).snapshotIndex() >= lowerAllowedSnapshotIndex) {
             return false;
         }
         //if tip unconfirmed, check if any referenced tx is confirmed below maxDepth
-        Queue<Hash> nonAnalyzedTransactions = new LinkedList<>(Collections.singleton(tip));
-        Set<Hash> analyzedTransactions = new HashSet<>();
+        try (TraversalContext context = TraversalContext.acquire()) {
+            if (belowMaxDepth(tip, lowerAllowedSnapshotIndex, maxDepthOkMemoization, context.getQueue(),
+                    context.getVisited())) {
+                // a traversal that was cut off by the limit is not a verdict about the tip, so it is not shared
+                if (context.getVisited().size() < config.getBelowMaxDepthTransactionLimit()) {
+                    maxDepthOkMemoization.addBelowMaxDepth(tip);
+                }
+                return true;
+            }
+        }
+        maxDepthOkMemoization.addMaxDepthOk(tip);
+        return false;
+    }
+
+    private boolean belowMaxDepth(Hash tip, int lowerAllowedSnapshotIndex, MaxDepthCache.Scope maxDepthOkMemoization,
+                                  Queue<Hash> nonAnalyzedTransactions, Set<Hash> analyzedTransactions)
+            throws Exception {
+        nonAnalyzedTransactions.add(tip);
         Hash hash;
         final int maxAnalyzedTransactions = config.getBelowMaxDepthTransactionLimit();
         while ((hash = nonAnalyzedTransactions.poll()) != null) {
@@ -97,22 +148,24 @@ public class WalkValidatorImpl implements WalkValidator {
             }
 
             if (analyzedTransactions.add(hash)) {
-                TransactionViewModel transaction = TransactionViewModel.fromHash(tangle, hash);
-                if ((transaction.snapshotIndex() != 0 || snapshotProvider.getInitialSnapshot().hasSolidEntryPoint(transaction.getHash()))
-                        && transaction.snapshotIndex() < lowerAllowedSnapshotIndex) {
+                // only the references and the snapshot index are needed, so we don't load the full transaction
+                GraphNode transaction = TransactionViewModel.loadGraphNode(tangle, hash);
+                int snapshotIndex = transaction == null ? 0 : transaction.snapshot;
+                if ((snapshotIndex != 0 || snapshotProvider.getInitialSnapshot().hasSolidEntryPoint(hash))
+                        && snapshotIndex < lowerAllowedSnapshotIndex) {
                     log.debug("failed below max depth because of reaching a tx below the allowed snapshot index {}",
                             lowerAllowedSnapshotIndex);
                     return true;
                 }
-                if (transaction.snapshotIndex() == 0) {
-                    if (!maxDepthOkMemoization.contains(hash)) {
-                        nonAnalyzedTransactions.offer(transaction.getTrunkTransactionHash());
-                        nonAnalyzedTransactions.offer(transaction.getBranchTransactionHash());
+                if (snapshotIndex == 0) {
+                    if (!maxDepthOkMemoization.isMaxDepthOk(hash)) {
+                        // a missing transaction references the null hash, just like an empty TransactionViewModel
+                        nonAnalyzedTransactions.offer(transaction == null ? Hash.NULL_HASH : transaction.trunk);
+                        nonAnalyzedTransactions.offer(transaction == null ? Hash.NULL_HASH : transaction.branch);
                     }
                 }
             }
         }
-        maxDepthOkMemoization.add(tip);
         return false;
     }
 }
@@ -5,6 +5,8 @@ import com.iota.iri.service.snapshot.Snapshot;
 import com.iota.iri.service.spentaddresses.SpentAddressesService;
 import com.iota.iri.storage.Tangle;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Represents the basic contract for a job that get processed by the {@link TransactionPruner}.
  */
@@ -83,6 +85,24 @@ public interface TransactionPrunerJob {
      */
     TipsViewModel getTipsViewModel();
 
+    /**
+     * Allows to set the {@link ForkJoinPool} that this job uses to process its sub-tasks in parallel.
+     *
+     * We do not create the pool in the job itself because the {@link TransactionPruner} processes one job after another
+     * and can therefore share a single long-lived pool between all of its jobs (and shut it down together with its
+     * background threads). It gets automatically set when we add a job to a {@link TransactionPruner}.
+     *
+     * @param traversalPool pool that is used to process the sub-tasks of the job in parallel
+     */
+    void setTraversalPool(ForkJoinPool traversalPool);
+
+    /**
+     * This method returns the previously set {@link ForkJoinPool} instance.
+     *
+     * @return pool that is used to process the sub-tasks of the job in parallel
+     */
+    ForkJoinPool getTraversalPool();
+
     /**
      * Allows to set the {@link Snapshot} that the node is using as a starting point for the state of the ledger.
      *
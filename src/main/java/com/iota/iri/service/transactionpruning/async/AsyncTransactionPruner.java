@@ -18,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -99,6 +100,11 @@ public class AsyncTransactionPruner implements TransactionPruner {
      */
     private final Map<String, JobParser> jobParsers = new HashMap<>();
 
+    /**
+     * Pool that is shared by the jobs to process their sub-tasks in parallel (the jobs are processed one at a time).
+     */
+    private final ForkJoinPool traversalPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
     /**
      * List of cleanup jobs that shall get processed by the {@link AsyncTransactionPruner} (grouped by their class).
      */
@@ -153,6 +159,7 @@ public class AsyncTransactionPruner implements TransactionPruner {
         job.setTangle(tangle);
         job.setTipsViewModel(tipsViewModel);
         job.setSnapshot(snapshotProvider.getInitialSnapshot());
+        job.setTraversalPool(traversalPool);
 
         // this call is "unchecked" to a "raw" JobQueue and it is intended since the matching JobQueue is defined by the
         // registered job types
@@ -202,11 +209,12 @@ public class AsyncTransactionPruner implements TransactionPruner {
     }
 
     /**
-     * Shuts down the background job by setting the corresponding shutdown flag.
+     * Shuts down the background job by setting the corresponding shutdown flag and stops the pool of the jobs.
      */
     public void shutdown() {
         ThreadUtils.stopThread(cleanupThreadIdentifier);
         ThreadUtils.stopThread(persisterThreadIdentifier);
+        traversalPool.shutdownNow();
     }
 
     /**
@@ -9,6 +9,8 @@ import com.iota.iri.service.transactionpruning.TransactionPrunerJobStatus;
 import com.iota.iri.service.transactionpruning.TransactionPruningException;
 import com.iota.iri.storage.Tangle;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Implements the most basic functionality that is shared by the different kinds of jobs.
  */
@@ -38,6 +40,11 @@ public abstract class AbstractTransactionPrunerJob implements TransactionPrunerJ
      */
     private TipsViewModel tipsViewModel;
 
+    /**
+     * Holds a reference to the pool that is used to process the sub-tasks of the job in parallel.
+     */
+    private ForkJoinPool traversalPool;
+
     /**
      * Holds a reference to the last local or global snapshot that acts as a starting point for the state of ledger.
      */
@@ -91,6 +98,22 @@ public abstract class AbstractTransactionPrunerJob implements TransactionPrunerJ
         return tipsViewModel;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTraversalPool(ForkJoinPool traversalPool) {
+        this.traversalPool = traversalPool;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ForkJoinPool getTraversalPool() {
+        return traversalPool;
+    }
+
     @Override
     public void setSpentAddressesService(SpentAddressesService spentAddressesService) {
         this.spentAddressesService = spentAddressesService;
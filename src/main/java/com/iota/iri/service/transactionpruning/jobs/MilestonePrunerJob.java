@@ -1,8 +1,11 @@
 package com.iota.iri.service.transactionpruning.jobs;
 
 import com.iota.iri.controllers.MilestoneViewModel;
+import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.IntegerIndex;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.GraphNode;
 import com.iota.iri.model.persistables.Milestone;
 import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.service.transactionpruning.TransactionPrunerJobStatus;
@@ -11,10 +14,15 @@ import com.iota.iri.storage.Indexable;
 import com.iota.iri.storage.Persistable;
 import com.iota.iri.utils.Pair;
 import com.iota.iri.utils.dag.DAGHelper;
+import com.iota.iri.utils.thread.ThreadUtils;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,13 +33,55 @@ import org.slf4j.LoggerFactory;
  * off of the deleted transactions).
  *
  * It is used by the {@link com.iota.iri.service.snapshot.LocalSnapshotManager} to clean up milestones prior to a
- * snapshot. Even though it defines a range of milestones that shall be deleted, it gets processed one milestone at a
- * time, persisting the progress after each step.
+ * snapshot. Even though it defines a range of milestones that shall be deleted, it gets processed in batches of
+ * milestones, updating the progress after each batch.
+ *
+ * The transactions of different milestones are disjoint, so the milestones of a batch are traversed in parallel and
+ * deleted with a single write. The size of the batches adapts to the load of the node: it grows while batches finish
+ * quickly and shrinks when they get slow or when the node is busy with other work.
+ *
+ * When a lot of the milestones that are still to be cleaned up exist in the database (for example after enabling
+ * pruning on a big database), the job does not traverse them at all. Instead it sweeps the metadata of the transactions
+ * once in the order of their keys and deletes the ones whose stored snapshot index lies within the pruned range.
+ * Every transaction confirmed by a milestone carries the index of that milestone, so this deletes exactly the
+ * transactions that the traversal would find.
  */
 public class MilestonePrunerJob extends AbstractTransactionPrunerJob {
 
     private static final Logger log = LoggerFactory.getLogger(MilestonePrunerJob.class);
 
+    /**
+     * Holds the number of bytes that a pruned transaction occupies in the database (its key and its value - the
+     * metadata is not taken into account).
+     */
+    private static final int TRANSACTION_SIZE_IN_BYTES = Hash.SIZE_IN_BYTES + TransactionViewModel.SIZE;
+
+    /**
+     * Holds the maximum number of milestones that are cleaned up in a single batch.
+     */
+    private static final int MAX_MILESTONES_PER_BATCH = 64;
+
+    /**
+     * Holds the time (in milliseconds) that a batch may take before the size of the following batches is reduced.
+     */
+    private static final long TARGET_BATCH_DURATION = 2000;
+
+    /**
+     * Holds the time (in milliseconds) that the job pauses when the node is fully loaded.
+     */
+    private static final int OVERLOAD_PAUSE = 1000;
+
+    /**
+     * Holds the number of existing milestones in the remaining range from which on the transactions are swept instead
+     * of traversing the milestones.
+     */
+    private static final int MIN_MILESTONES_FOR_SWEEP = 1000;
+
+    /**
+     * Holds the number of transactions that are deleted with a single write while sweeping the transactions.
+     */
+    private static final int SWEEP_BATCH_SIZE = 10000;
+
     /**
      * Holds the milestone index where this job starts cleaning up.
      */
@@ -47,6 +97,11 @@ public class MilestonePrunerJob extends AbstractTransactionPrunerJob {
      */
     private int currentIndex;
 
+    /**
+     * Holds the number of milestones that are cleaned up in the next batch.
+     */
+    private int milestonesPerBatch = 1;
+
     /**
      * This method parses the string representation of a {@link MilestonePrunerJob} and creates the corresponding
      * object.
@@ -110,8 +165,8 @@ public class MilestonePrunerJob extends AbstractTransactionPrunerJob {
     /**
      * {@inheritDoc}
      *
-     * It iterates from the {@link #currentIndex} to the provided {@link #targetIndex} and processes every milestone
-     * one by one. After each step is finished we persist the progress to be able to continue with the current progress
+     * It iterates from the {@link #currentIndex} to the provided {@link #targetIndex} and processes the milestones in
+     * batches. After each batch is finished we update the progress to be able to continue with the current progress
      * upon IRI restarts.
      */
     @Override
@@ -120,10 +175,25 @@ public class MilestonePrunerJob extends AbstractTransactionPrunerJob {
             setStatus(TransactionPrunerJobStatus.RUNNING);
 
             try {
+                boolean sweep = countMilestones(getCurrentIndex(), getTargetIndex()) >= MIN_MILESTONES_FOR_SWEEP;
                 while (!Thread.currentThread().isInterrupted() && getStatus() != TransactionPrunerJobStatus.DONE) {
-                    cleanupMilestoneTransactions();
+                    int lastIndex;
+                    if (sweep) {
+                        lastIndex = getTargetIndex();
+                        if (!sweepTransactions(getCurrentIndex(), lastIndex)) {
+                            break;
+                        }
+
+                        sweep = false;
+                    } else {
+                        lastIndex = Math.min(getCurrentIndex() + milestonesPerBatch - 1, getTargetIndex());
 
-                    setCurrentIndex(getCurrentIndex() + 1);
+                        long startTime = System.currentTimeMillis();
+                        cleanupMilestoneTransactions(getCurrentIndex(), lastIndex);
+                        adjustMilestonesPerBatch(System.currentTimeMillis() - startTime);
+                    }
+
+                    setCurrentIndex(lastIndex + 1);
 
                     // synchronize this call because the MilestonePrunerJobQueue needs it to check if we can be extended
                     synchronized (this) {
@@ -206,10 +276,36 @@ public class MilestonePrunerJob extends AbstractTransactionPrunerJob {
     }
 
     /**
-     * This method takes care of cleaning up a single milestone and all of its transactions and performs the actual
-     * database operations.
+     * Adapts the number of milestones of the next batch to the duration of the last batch and to the load of the node.
      *
-     * It performs the deletions in an atomic way, which means that either the full processing succeeds or fails.
+     * The size grows by one milestone as long as the batches finish in time and is halved when a batch takes too long
+     * or when the system load exceeds the number of available processors (in which case the job also pauses, so the
+     * processing of new transactions takes precedence).
+     *
+     * @param batchDuration the time (in milliseconds) that the last batch took
+     */
+    private void adjustMilestonesPerBatch(long batchDuration) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        // the load average is negative on systems that don't provide it
+        boolean overloaded = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage() > processors;
+
+        if (overloaded || batchDuration > TARGET_BATCH_DURATION) {
+            milestonesPerBatch = Math.max(1, milestonesPerBatch / 2);
+        } else {
+            milestonesPerBatch = Math.min(MAX_MILESTONES_PER_BATCH, milestonesPerBatch + 1);
+        }
+
+        if (overloaded) {
+            ThreadUtils.sleep(OVERLOAD_PAUSE);
+        }
+    }
+
+    /**
+     * This method takes care of cleaning up a batch of milestones and all of their transactions and performs the
+     * actual database operations.
+     *
+     * The milestones are traversed in parallel, but the deletions are performed in an atomic way, which means that
+     * either the full processing succeeds or fails.
      *
      * We first retrieve the elements that shall be deleted and then analyze them before removing them from the
      * database. While processing them, we issue additional {@link UnconfirmedSubtanglePrunerJob}s that remove the
@@ -217,65 +313,250 @@ public class MilestonePrunerJob extends AbstractTransactionPrunerJob {
      * connection to the rest of the tangle unless they are branching off a solid entry point (in which case we wait
      * with the deletion until the solid entry point expires).
      *
-     * @throws TransactionPruningException if something goes wrong while cleaning up the milestone
+     * The deleted transactions are removed from the {@link com.iota.iri.model.persistables.Hashes} indexes as well
+     * (before they are deleted, so a job that gets restarted after a crash still finds them), which keeps the indexes
+     * from growing with hashes of transactions that do not exist anymore.
+     *
+     * @param firstIndex index of the first milestone of the batch
+     * @param lastIndex index of the last milestone of the batch
+     * @throws TransactionPruningException if something goes wrong while cleaning up the milestones
      */
-    private void cleanupMilestoneTransactions() throws TransactionPruningException {
+    private void cleanupMilestoneTransactions(int firstIndex, int lastIndex) throws TransactionPruningException {
         try {
-            List<Pair<Indexable, ? extends Class<? extends Persistable>>> elementsToDelete = getElementsToDelete();
+            List<Pair<Indexable, Persistable>> indexEntriesToRemove = new ArrayList<>();
+            List<Pair<Indexable, ? extends Class<? extends Persistable>>> elementsToDelete = new ArrayList<>();
+            getTraversalPool().submit(() -> IntStream.rangeClosed(firstIndex, lastIndex).parallel().forEach(index -> {
+                try {
+                    List<Pair<Indexable, Persistable>> indexEntries = new ArrayList<>();
+                    List<Pair<Indexable, ? extends Class<? extends Persistable>>> elements =
+                            getElementsToDelete(index, indexEntries);
+
+                    synchronized (elementsToDelete) {
+                        elementsToDelete.addAll(elements);
+                        indexEntriesToRemove.addAll(indexEntries);
+                    }
+                } catch (TransactionPruningException e) {
+                    throw new RuntimeException(e);
+                }
+            })).get();
+
+            Pair<Integer, Long> deleted = deleteElements(elementsToDelete, indexEntriesToRemove, true);
+            logReclaimedBytes(firstIndex, lastIndex, deleted.low, deleted.hi);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new TransactionPruningException("interrupted while cleaning up milestones #" + firstIndex + " to #" +
+                    lastIndex, e);
+        } catch (ExecutionException e) {
+            throw new TransactionPruningException("failed to cleanup milestones #" + firstIndex + " to #" + lastIndex,
+                    e.getCause());
+        } catch(Exception e) {
+            throw new TransactionPruningException("failed to cleanup milestones #" + firstIndex + " to #" + lastIndex,
+                    e);
+        }
+    }
 
-            elementsToDelete.forEach(element -> {
-                if(Transaction.class.equals(element.hi)) {
-                    getTipsViewModel().removeTipHash((Hash) element.low);
+    /**
+     * This method cleans up a range of milestones by sweeping all transactions once instead of traversing the
+     * milestones.
+     *
+     * Only the metadata of the transactions is swept (it holds the snapshot index and is a lot smaller than the
+     * transactions), and the transactions themselves are only loaded when they get deleted. The transactions are
+     * deleted in batches while they are being swept. The milestones themselves are deleted after the sweep, so a sweep
+     * that gets interrupted is repeated when the job is processed again.
+     *
+     * @param firstIndex index of the first milestone of the range
+     * @param lastIndex index of the last milestone of the range
+     * @return {@code true} if the sweep finished and {@code false} if it was interrupted
+     * @throws TransactionPruningException if something goes wrong while cleaning up the milestones
+     */
+    private boolean sweepTransactions(int firstIndex, int lastIndex) throws TransactionPruningException {
+        try {
+            log.info("sweeping the transactions of milestones #{} to #{}", firstIndex, lastIndex);
 
-                    if (!getSnapshot().hasSolidEntryPoint((Hash) element.low)) {
-                        try {
-                            getTransactionPruner().addJob(new UnconfirmedSubtanglePrunerJob((Hash) element.low));
-                        } catch (TransactionPruningException e) {
-                            throw new RuntimeException(e);
+            List<Pair<Indexable, ? extends Class<? extends Persistable>>> elementsToDelete = new ArrayList<>();
+            List<Pair<Indexable, Persistable>> indexEntriesToRemove = new ArrayList<>();
+            AtomicInteger deletedTransactions = new AtomicInteger();
+            long[] reclaimedIndexBytes = new long[1];
+
+            getTangle().forEachMetadataInRange(Transaction.class, TransactionHash.class, null, null,
+                    (hash, metadata) -> {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedException();
                         }
-                    }
-                } else if(Milestone.class.equals(element.hi)) {
-                    MilestoneViewModel.clear(((IntegerIndex) element.low).getValue());
+
+                        int snapshotIndex = ((Transaction) metadata).snapshot;
+                        if (snapshotIndex >= firstIndex && snapshotIndex <= lastIndex) {
+                            TransactionViewModel transactionViewModel = TransactionViewModel.fromHash(getTangle(),
+                                    (Hash) hash);
+                            ensureSpentAddressIsRecorded(transactionViewModel);
+
+                            elementsToDelete.add(new Pair<>(hash, Transaction.class));
+                            elementsToDelete.add(new Pair<>(hash, GraphNode.class));
+                            indexEntriesToRemove.addAll(transactionViewModel.getIndexEntries());
+
+                            if (elementsToDelete.size() >= 2 * SWEEP_BATCH_SIZE) {
+                                Pair<Integer, Long> deleted = deleteElements(elementsToDelete, indexEntriesToRemove,
+                                        false);
+                                deletedTransactions.addAndGet(deleted.low);
+                                reclaimedIndexBytes[0] += deleted.hi;
+
+                                elementsToDelete.clear();
+                                indexEntriesToRemove.clear();
+                            }
+                        }
+                    });
+
+            getTangle().forEachInRange(Milestone.class, IntegerIndex.class, new IntegerIndex(firstIndex).bytes(),
+                    new IntegerIndex(lastIndex + 1).bytes(),
+                    (index, milestone) -> elementsToDelete.add(new Pair<>(index, Milestone.class)));
+
+            Pair<Integer, Long> deleted = deleteElements(elementsToDelete, indexEntriesToRemove, true);
+            logReclaimedBytes(firstIndex, lastIndex, deletedTransactions.get() + deleted.low,
+                    reclaimedIndexBytes[0] + deleted.hi);
+
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        } catch (Exception e) {
+            throw new TransactionPruningException("failed to sweep the transactions of milestones #" + firstIndex +
+                    " to #" + lastIndex, e);
+        }
+    }
+
+    /**
+     * Counts the milestones of the given range that exist in the database.
+     *
+     * @param firstIndex index of the first milestone of the range
+     * @param lastIndex index of the last milestone of the range
+     * @return the number of milestones that exist in the database
+     * @throws TransactionPruningException if the milestones could not be read
+     */
+    private int countMilestones(int firstIndex, int lastIndex) throws TransactionPruningException {
+        if (firstIndex > lastIndex) {
+            return 0;
+        }
+
+        try {
+            AtomicInteger milestones = new AtomicInteger();
+            getTangle().forEachInRange(Milestone.class, IntegerIndex.class, new IntegerIndex(firstIndex).bytes(),
+                    new IntegerIndex(lastIndex + 1).bytes(), (index, milestone) -> milestones.incrementAndGet());
+
+            return milestones.get();
+        } catch (Exception e) {
+            throw new TransactionPruningException("failed to count the milestones #" + firstIndex + " to #" +
+                    lastIndex, e);
+        }
+    }
+
+    /**
+     * Deletes the given elements and index entries from the database.
+     *
+     * Before the elements are deleted, the pruned transactions are removed from the tips and we issue
+     * {@link UnconfirmedSubtanglePrunerJob}s for the orphaned subtangles that branch off of them (unless they are a
+     * solid entry point).
+     *
+     * The last deletion of a batch is synced, because the progress of the job is persisted separately and a batch
+     * whose deletions got lost in a crash would otherwise never be cleaned up again (the removed index entries are not
+     * restored either).
+     *
+     * @param elementsToDelete elements that shall be deleted from the database
+     * @param indexEntriesToRemove index entries of the deleted transactions
+     * @param sync {@code true} if the deletion has to be durable before the progress of the job advances
+     * @return the number of deleted transactions paired with the number of bytes that were removed from the indexes
+     * @throws Exception if anything goes wrong while deleting the elements
+     */
+    private Pair<Integer, Long> deleteElements(List<Pair<Indexable, ? extends Class<? extends Persistable>>>
+            elementsToDelete, List<Pair<Indexable, Persistable>> indexEntriesToRemove, boolean sync) throws Exception {
+
+        int deletedTransactions = 0;
+        for (Pair<Indexable, ? extends Class<? extends Persistable>> element : elementsToDelete) {
+            if (Transaction.class.equals(element.hi)) {
+                deletedTransactions++;
+
+                getTipsViewModel().removeTipHash((Hash) element.low);
+
+                if (!getSnapshot().hasSolidEntryPoint((Hash) element.low)) {
+                    getTransactionPruner().addJob(new UnconfirmedSubtanglePrunerJob((Hash) element.low));
                 }
-            });
+            } else if (Milestone.class.equals(element.hi)) {
+                MilestoneViewModel.clear(((IntegerIndex) element.low).getValue());
+            }
+        }
 
-            getTangle().deleteBatch(elementsToDelete);
-        } catch(Exception e) {
-            throw new TransactionPruningException("failed to cleanup milestone #" + getCurrentIndex(), e);
+        long reclaimedIndexBytes = getTangle().removeFromIndexes(indexEntriesToRemove);
+        getTangle().deleteBatch(elementsToDelete, sync);
+
+        return new Pair<>(deletedTransactions, reclaimedIndexBytes);
+    }
+
+    /**
+     * Logs the number of transactions and bytes that were reclaimed by cleaning up a range of milestones.
+     *
+     * @param firstIndex index of the first milestone of the range
+     * @param lastIndex index of the last milestone of the range
+     * @param deletedTransactions number of deleted transactions
+     * @param reclaimedIndexBytes number of bytes that were removed from the indexes
+     */
+    private void logReclaimedBytes(int firstIndex, int lastIndex, int deletedTransactions, long reclaimedIndexBytes) {
+        long reclaimedBytes = (long) deletedTransactions * TRANSACTION_SIZE_IN_BYTES + reclaimedIndexBytes;
+        log.info("pruned milestones #{} to #{}: {} transactions, {} bytes reclaimed ({} bytes per milestone, " +
+                "{} bytes of indexes)", firstIndex, lastIndex, deletedTransactions, reclaimedBytes,
+                reclaimedBytes / (lastIndex - firstIndex + 1), reclaimedIndexBytes);
+    }
+
+    /**
+     * Records the address of a pruned spend transaction as spent, if that didn't happen already.
+     *
+     * @param transaction the transaction that gets pruned
+     * @throws Exception if the spent address could not be checked or persisted
+     */
+    private void ensureSpentAddressIsRecorded(TransactionViewModel transaction) throws Exception {
+        if (transaction.value() < 0 && !spentAddressesService.wasAddressSpentFrom(transaction.getAddressHash())) {
+            log.warn("Pruned spend transaction " + transaction.getHash() +
+                    " did not have its spent address recorded. Persisting it now");
+            spentAddressesService.persistSpentAddresses(Collections.singletonList(transaction));
         }
     }
 
     /**
-     * Collects all database items that belong to the current milestone and that shall be deleted.
+     * Collects all database items that belong to the given milestone and that shall be deleted.
      *
-     * It does that by iterating through all the transactions that belong to the current milestone (that are directly or
+     * It does that by iterating through all the transactions that belong to the milestone (that are directly or
      * indirectly referenced by the chosen milestone) and collecting them in a List of items to delete.
      *
+     * @param milestoneIndex index of the milestone whose items shall be collected
+     * @param indexEntriesToRemove list that receives the index entries of the collected transactions
      * @return list of elements that shall be deleted from the database
      * @throws TransactionPruningException if anything goes wrong while collecting the elements
      */
-    private List<Pair<Indexable, ? extends Class<? extends Persistable>>> getElementsToDelete() throws
-            TransactionPruningException {
+    private List<Pair<Indexable, ? extends Class<? extends Persistable>>> getElementsToDelete(int milestoneIndex,
+            List<Pair<Indexable, Persistable>> indexEntriesToRemove) throws TransactionPruningException {
 
         try {
             List<Pair<Indexable, ? extends Class<? extends Persistable>>> elementsToDelete = new ArrayList<>();
 
-            MilestoneViewModel milestoneViewModel = MilestoneViewModel.get(getTangle(), getCurrentIndex());
+            MilestoneViewModel milestoneViewModel = MilestoneViewModel.get(getTangle(), milestoneIndex);
             if (milestoneViewModel != null) {
                 elementsToDelete.add(new Pair<>(milestoneViewModel.getHash(), Transaction.class));
+                elementsToDelete.add(new Pair<>(milestoneViewModel.getHash(), GraphNode.class));
                 elementsToDelete.add(new Pair<>(new IntegerIndex(milestoneViewModel.index()), Milestone.class));
 
+                TransactionViewModel milestoneTransaction = TransactionViewModel.fromHash(getTangle(),
+                        milestoneViewModel.getHash());
+                if (milestoneTransaction.getType() != TransactionViewModel.PREFILLED_SLOT) {
+                    indexEntriesToRemove.addAll(milestoneTransaction.getIndexEntries());
+                }
+
                 DAGHelper.get(getTangle()).traverseApprovees(milestoneViewModel.getHash(),
                         approvedTransaction -> approvedTransaction.snapshotIndex() >= milestoneViewModel.index(),
                         approvedTransaction -> {
-                            if (approvedTransaction.value() < 0 &&
-                                    !spentAddressesService.wasAddressSpentFrom(approvedTransaction.getAddressHash())) {
-                                log.warn("Pruned spend transaction " + approvedTransaction.getHash() +
-                                                " did not have its spent address recorded. Persisting it now");
-                                spentAddressesService
-                                        .persistSpentAddresses(Collections.singletonList(approvedTransaction));
-                            }
-                                elementsToDelete.add(new Pair<>(approvedTransaction.getHash(), Transaction.class));
+                            ensureSpentAddressIsRecorded(approvedTransaction);
+                            elementsToDelete.add(new Pair<>(approvedTransaction.getHash(), Transaction.class));
+                            elementsToDelete.add(new Pair<>(approvedTransaction.getHash(), GraphNode.class));
+                            indexEntriesToRemove.addAll(approvedTransaction.getIndexEntries());
                         });
             }
 
@@ -3,6 +3,7 @@ package com.iota.iri.service.transactionpruning.jobs;
 import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.persistables.GraphNode;
 import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.service.spentaddresses.SpentAddressesService;
 import com.iota.iri.service.transactionpruning.TransactionPrunerJobStatus;
@@ -12,10 +13,10 @@ import com.iota.iri.storage.Persistable;
 import com.iota.iri.utils.Pair;
 import com.iota.iri.utils.dag.DAGHelper;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Represents a job for the {@link com.iota.iri.service.transactionpruning.TransactionPruner} that cleans up all
@@ -66,23 +67,26 @@ public class UnconfirmedSubtanglePrunerJob extends AbstractTransactionPrunerJob
 
             Collection<TransactionViewModel> unconfirmedTxs = new HashSet<>();
             try {
-                DAGHelper.get(getTangle()).traverseApprovers(
+                DAGHelper.get(getTangle()).traverseApproversBatched(
                     transactionHash,
                     approverTransaction -> approverTransaction.snapshotIndex() == 0,
-                        unconfirmedTxs::add
+                        unconfirmedTxs::add,
+                        null
                     );
 
                 //Only persist to db
                 spentAddressesService.persistSpentAddresses(unconfirmedTxs);
-                List<Pair<Indexable, ? extends Class<? extends Persistable>>> elementsToDelete = unconfirmedTxs.stream()
-                        .map(tx -> new Pair<>((Indexable) tx.getHash(), Transaction.class))
-                        .collect(Collectors.toList());
+                List<Pair<Indexable, ? extends Class<? extends Persistable>>> elementsToDelete = new ArrayList<>();
+                unconfirmedTxs.forEach(tx -> {
+                    elementsToDelete.add(new Pair<>(tx.getHash(), Transaction.class));
+                    elementsToDelete.add(new Pair<>(tx.getHash(), GraphNode.class));
+                });
 
                 // clean database entries
                 getTangle().deleteBatch(elementsToDelete);
 
                 // clean runtime caches
-                elementsToDelete.forEach(element -> getTipsViewModel().removeTipHash((Hash) element.low));
+                unconfirmedTxs.forEach(tx -> getTipsViewModel().removeTipHash(tx.getHash()));
 
                 setStatus(TransactionPrunerJobStatus.DONE);
             } catch (Exception e) {
@@ -2,6 +2,8 @@ package com.iota.iri.storage;
 
 import com.iota.iri.utils.Pair;
 
+import pl.touk.throwing.ThrowingBiConsumer;
+
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -19,6 +21,20 @@ public interface PersistenceProvider {
 
     boolean update(Persistable model, Indexable index, String item) throws Exception;
 
+    /**
+     * Atomically updates the metadata of {@code model} and saves {@code models}, so that readers never see the
+     * metadata without the models that are derived from it.
+     *
+     * @param model the object whose metadata shall be written
+     * @param index the key of the object
+     * @param item identifying the purpose of the update
+     * @param models key value pairs that are saved together with the metadata
+     * @return {@code false}, just like {@link #update(Persistable, Indexable, String)}
+     * @throws Exception if the data could not be written to the db
+     */
+    boolean update(Persistable model, Indexable index, String item, List<Pair<Indexable, Persistable>> models)
+            throws Exception;
+
     boolean exists(Class<?> model, Indexable key) throws Exception;
 
     Pair<Indexable, Persistable> latest(Class<?> model, Class<?> indexModel) throws Exception;
@@ -27,6 +43,16 @@ public interface PersistenceProvider {
 
     Persistable get(Class<?> model, Indexable index) throws Exception;
 
+    /**
+     * Loads the objects stored under the given keys with a single round trip to the db.
+     *
+     * @param model the type of the objects
+     * @param indexes the keys of the objects
+     * @return the objects in the order of {@code indexes} (missing objects are returned empty, just like {@link #get})
+     * @throws Exception if the data could not be read from the db
+     */
+    List<Persistable> getBatch(Class<?> model, List<? extends Indexable> indexes) throws Exception;
+
     boolean mayExist(Class<?> model, Indexable index) throws Exception;
 
     long count(Class<?> model) throws Exception;
@@ -40,8 +66,52 @@ public interface PersistenceProvider {
 
     Pair<Indexable, Persistable> first(Class<?> model, Class<?> indexModel) throws Exception;
 
+    /**
+     * Passes the objects whose keys are in the range [{@code from}, {@code to}) to the consumer in the order of their
+     * keys. In contrast to repeated calls of {@link #next} the range is read with a single iterator. The consumer may
+     * write to the db.
+     *
+     * @param model the type of the objects
+     * @param indexModel the type of the keys
+     * @param from the first key of the range or {@code null} to start at the first object
+     * @param to the key after the range or {@code null} to continue until the last object
+     * @param consumer receives the keys and the objects (including their metadata)
+     * @throws Exception if the data could not be read from the db or the consumer failed
+     */
+    void forEachInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                        ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer) throws Exception;
+
+    /**
+     * Does the same as {@link #forEachInRange} but only reads the metadata of the objects, which is a lot smaller than
+     * their values. The consumer receives objects that only have their metadata set.
+     *
+     * @param model the type of the objects (it needs to have a metadata column family)
+     * @param indexModel the type of the keys
+     * @param from the first key of the range or {@code null} to start at the first object
+     * @param to the key after the range or {@code null} to continue until the last object
+     * @param consumer receives the keys and the objects (with their metadata only)
+     * @throws Exception if the data could not be read from the db or the consumer failed
+     */
+    void forEachMetadataInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                                ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception;
+
     boolean saveBatch(List<Pair<Indexable, Persistable>> models) throws Exception;
 
+    /**
+     * Atomically saves {@code models} unless an object of type {@code model} is already stored under {@code index}.
+     * This replaces an {@link #exists} check followed by {@link #saveBatch}, which needs an additional lookup and lets
+     * two threads store the same object.
+     *
+     * @param model the type of the object that decides if the models are saved
+     * @param index the key of the object
+     * @param models key value pairs that are saved if the object does not exist yet
+     * @return {@code true} if the models were saved and {@code false} if the object existed already
+     * @throws Exception if the data could not be read from or written to the db
+     */
+    boolean saveBatchIfAbsent(Class<?> model, Indexable index, List<Pair<Indexable, Persistable>> models)
+            throws Exception;
+
     /**
      * Atomically delete all {@code models}.
      * @param models key value pairs that to be expunged from the db.
@@ -49,6 +119,34 @@ public interface PersistenceProvider {
      */
     void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models) throws Exception;
 
+    /**
+     * Atomically delete all {@code models}, like {@link #deleteBatch(Collection)}.
+     *
+     * A synced deletion is durable (together with all the writes before it) when this method returns, so callers that
+     * record their progress separately use it for the last deletion before they advance their progress.
+     *
+     * @param models key value pairs that to be expunged from the db.
+     * @param sync {@code true} if the deletion has to survive a crash of the node
+     * @throws Exception if data could not be expunged from the db.
+     */
+    void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models, boolean sync)
+            throws Exception;
+
+    /**
+     * Removes the hashes of the given merged objects (the ones that {@link #saveBatch} appends to the stored values)
+     * from the values stored under their keys. Values that do not hold any hash afterwards are deleted. Merges of other
+     * threads are not lost while the values are rewritten.
+     *
+     * Keys that consist of zero bytes only (the empty tag, the null address and the null hash that is approved by the
+     * first transactions) are skipped: they index a large share of all transactions, so rewriting them would cost far
+     * more than the removed hashes free up.
+     *
+     * @param models key value pairs of {@link com.iota.iri.model.persistables.Hashes} that shall be removed
+     * @return the number of bytes that were removed from the stored keys and values
+     * @throws Exception if data could not be read from or written to the db
+     */
+    long removeFromIndexes(List<Pair<Indexable, Persistable>> models) throws Exception;
+
     void clear(Class<?> column) throws Exception;
     void clearMetadata(Class<?> column) throws Exception;
 
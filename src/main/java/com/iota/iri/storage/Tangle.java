@@ -5,6 +5,7 @@ import com.iota.iri.model.StateDiff;
 import com.iota.iri.model.persistables.Address;
 import com.iota.iri.model.persistables.Approvee;
 import com.iota.iri.model.persistables.Bundle;
+import com.iota.iri.model.persistables.GraphNode;
 import com.iota.iri.model.persistables.Milestone;
 import com.iota.iri.model.persistables.ObsoleteTag;
 import com.iota.iri.model.persistables.Tag;
@@ -18,6 +19,7 @@ import java.util.stream.Collectors;
 import com.iota.iri.zmq.MessageQueueProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingBiConsumer;
 
 /**
  * Created by paul on 3/3/17 for iri.
@@ -35,6 +37,7 @@ public class Tangle {
                 put("bundle", Bundle.class);
                 put("obsoleteTag", ObsoleteTag.class);
                 put("tag", Tag.class);
+                put("graph", GraphNode.class);
             }};
 
     public static final Map.Entry<String, Class<? extends Persistable>> METADATA_COLUMN_FAMILY =
@@ -80,6 +83,64 @@ public class Tangle {
             return out;
     }
 
+    /**
+     * Loads the objects stored under the given keys with a single request to the persistence provider.
+     *
+     * @param model the type of the objects
+     * @param indexes the keys of the objects
+     * @return the objects in the order of {@code indexes}
+     * @throws Exception if the data could not be read
+     */
+    public List<Persistable> loadBatch(Class<?> model, List<? extends Indexable> indexes) throws Exception {
+        List<Persistable> out = null;
+        for(PersistenceProvider provider: this.persistenceProviders) {
+            if((out = provider.getBatch(model, indexes)) != null) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Passes the objects whose keys are in the range [{@code from}, {@code to}) to the consumer in the order of their
+     * keys. The objects are read from the first {@link PersistenceProvider}.
+     *
+     * @param model the type of the objects
+     * @param indexModel the type of the keys
+     * @param from the first key of the range or {@code null} to start at the first object
+     * @param to the key after the range or {@code null} to continue until the last object
+     * @param consumer receives the keys and the objects
+     * @throws Exception if the data could not be read or the consumer failed
+     * @see PersistenceProvider#forEachInRange(Class, Class, byte[], byte[], ThrowingBiConsumer)
+     */
+    public void forEachInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                               ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception {
+        if (!persistenceProviders.isEmpty()) {
+            persistenceProviders.get(0).forEachInRange(model, indexModel, from, to, consumer);
+        }
+    }
+
+    /**
+     * Passes the metadata of the objects whose keys are in the range [{@code from}, {@code to}) to the consumer. The
+     * metadata is read from the first {@link PersistenceProvider}.
+     *
+     * @param model the type of the objects
+     * @param indexModel the type of the keys
+     * @param from the first key of the range or {@code null} to start at the first object
+     * @param to the key after the range or {@code null} to continue until the last object
+     * @param consumer receives the keys and the objects (with their metadata only)
+     * @throws Exception if the data could not be read or the consumer failed
+     * @see PersistenceProvider#forEachMetadataInRange(Class, Class, byte[], byte[], ThrowingBiConsumer)
+     */
+    public void forEachMetadataInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                                       ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception {
+        if (!persistenceProviders.isEmpty()) {
+            persistenceProviders.get(0).forEachMetadataInRange(model, indexModel, from, to, consumer);
+        }
+    }
+
     public Boolean saveBatch(List<Pair<Indexable, Persistable>> models) throws Exception {
         boolean exists = false;
         for(PersistenceProvider provider: persistenceProviders) {
@@ -91,6 +152,26 @@ public class Tangle {
         }
         return exists;
     }
+    /**
+     * Saves the models in all {@link PersistenceProvider} unless an object of type {@code model} is already stored
+     * under {@code index}.
+     *
+     * @param model the type of the object that decides if the models are saved
+     * @param index the key of the object
+     * @param models key value pairs that are saved if the object does not exist yet
+     * @return {@code true} if the models were saved by any of the providers
+     * @throws Exception if the data could not be read or written
+     * @see PersistenceProvider#saveBatchIfAbsent(Class, Indexable, List)
+     */
+    public Boolean saveBatchIfAbsent(Class<?> model, Indexable index, List<Pair<Indexable, Persistable>> models)
+            throws Exception {
+        boolean saved = false;
+        for(PersistenceProvider provider: persistenceProviders) {
+            saved |= provider.saveBatchIfAbsent(model, index, models);
+        }
+        return saved;
+    }
+
     public Boolean save(Persistable model, Indexable index) throws Exception {
             boolean exists = false;
             for(PersistenceProvider provider: persistenceProviders) {
@@ -109,6 +190,37 @@ public class Tangle {
         }
     }
 
+    /**
+     * Deletes the given models from all {@link PersistenceProvider}.
+     *
+     * @param models the keys and types of the models that shall be deleted
+     * @param sync {@code true} if the deletion has to survive a crash of the node
+     * @throws Exception if the data could not be deleted
+     * @see PersistenceProvider#deleteBatch(Collection, boolean)
+     */
+    public void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models, boolean sync)
+            throws Exception {
+        for (PersistenceProvider provider : persistenceProviders) {
+            provider.deleteBatch(models, sync);
+        }
+    }
+
+    /**
+     * Removes the hashes of the given index entries from the indexes of all {@link PersistenceProvider}.
+     *
+     * @param models the index entries that shall be removed
+     * @return the number of bytes that were removed from the first {@link PersistenceProvider}
+     * @throws Exception if the data could not be read or written
+     * @see PersistenceProvider#removeFromIndexes(List)
+     */
+    public long removeFromIndexes(List<Pair<Indexable, Persistable>> models) throws Exception {
+        long removedBytes = 0;
+        for (int i = persistenceProviders.size() - 1; i >= 0; i--) {
+            removedBytes = persistenceProviders.get(i).removeFromIndexes(models);
+        }
+        return removedBytes;
+    }
+
     public void delete(Class<?> model, Indexable index) throws Exception {
             for(PersistenceProvider provider: persistenceProviders) {
                 provider.delete(model, index);
@@ -138,6 +250,24 @@ public class Tangle {
         updateMessageQueueProvider(model, index, item);
     }
 
+    /**
+     * Atomically updates the metadata of the model together with the given models in all {@link PersistenceProvider}
+     * and publishes the update to all {@link com.iota.iri.storage.MessageQueueProvider}.
+     *
+     * @param model with transaction data
+     * @param index {@link Hash} identifier of the {@link Transaction} set
+     * @param item identifying the purpose of the update
+     * @param models key value pairs that are written in the same batch as the metadata
+     * @throws Exception when updating the {@link PersistenceProvider} fails
+     */
+    public void update(Persistable model, Indexable index, String item, List<Pair<Indexable, Persistable>> models)
+            throws Exception {
+        for(PersistenceProvider provider: this.persistenceProviders) {
+            provider.update(model, index, item, models);
+        }
+        updateMessageQueueProvider(model, index, item);
+    }
+
     private void updatePersistenceProvider(Persistable model, Indexable index, String item) throws Exception {
         for(PersistenceProvider provider: this.persistenceProviders) {
                 provider.update(model, index, item);
@@ -0,0 +1,678 @@
+package com.iota.iri.storage.memory;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.persistables.Hashes;
+import com.iota.iri.storage.Indexable;
+import com.iota.iri.storage.Persistable;
+import com.iota.iri.storage.PersistenceProvider;
+import com.iota.iri.utils.IotaUtils;
+import com.iota.iri.utils.Pair;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingBiConsumer;
+import pl.touk.throwing.ThrowingFunction;
+
+/**
+ * A {@link PersistenceProvider} that keeps all data in memory and forgets it on shutdown.
+ *
+ * <p>
+ *     It is meant for nodes that don't need to survive a restart (tests and short lived nodes), where the startup and
+ *     the disk I/O of RocksDB are pure overhead. Every column family is a map that is sorted like the default
+ *     comparator of RocksDB (unsigned lexicographic order of the keys), so iterating methods like {@link #next} or
+ *     {@link #keysStartingWith} behave the same in both providers. The values are stored off-heap in the slabs of a
+ *     {@link SlabAllocator}, so even large tangles don't put pressure on the garbage collector. Merges append the new
+ *     value with the same delimiter as the {@code StringAppendOperator} of the RocksDB provider.
+ * </p>
+ * <p>
+ *     All reads share a lock that is held exclusively by writes, so batches are applied atomically.
+ * </p>
+ */
+public class InMemoryPersistenceProvider implements PersistenceProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryPersistenceProvider.class);
+
+    /**
+     * The delimiter that the merge operator of RocksDB puts between two merged values.
+     */
+    private static final byte MERGE_DELIMITER = ',';
+
+    private static final Pair<Indexable, Persistable> PAIR_OF_NULLS = new Pair<>(null, null);
+
+    /**
+     * The number of objects that {@link #forEachInRange} copies while it holds the read lock.
+     */
+    private static final int RANGE_CHUNK_SIZE = 1000;
+
+    private final SecureRandom seed = new SecureRandom();
+
+    private final Map<String, Class<? extends Persistable>> columnFamilies;
+    private final Map.Entry<String, Class<? extends Persistable>> metadataColumnFamily;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SlabAllocator allocator = new SlabAllocator();
+
+    private Map<Class<?>, NavigableMap<byte[], ByteBuffer>> classTreeMap = Collections.emptyMap();
+    private Map<Class<?>, NavigableMap<byte[], ByteBuffer>> metadataReference = Collections.emptyMap();
+
+    private volatile boolean available;
+
+    /**
+     * Creates a provider with the same column families as a RocksDB provider.
+     *
+     * @param columnFamilies the column families and the models stored in them
+     * @param metadataColumnFamily the column family that holds the metadata of a model (can be <code>null</code>)
+     */
+    public InMemoryPersistenceProvider(Map<String, Class<? extends Persistable>> columnFamilies,
+                                       Map.Entry<String, Class<? extends Persistable>> metadataColumnFamily) {
+        this.columnFamilies = columnFamilies;
+        this.metadataColumnFamily = metadataColumnFamily;
+    }
+
+    @Override
+    public void init() throws Exception {
+        Map<Class<?>, NavigableMap<byte[], ByteBuffer>> classMap = new HashMap<>();
+        for (Class<? extends Persistable> model : columnFamilies.values()) {
+            classMap.put(model, new TreeMap<>(IotaUtils::compareUnsigned));
+        }
+        classTreeMap = Collections.unmodifiableMap(classMap);
+
+        if (metadataColumnFamily != null) {
+            metadataReference = Collections.singletonMap(metadataColumnFamily.getValue(),
+                    new TreeMap<>(IotaUtils::compareUnsigned));
+        }
+
+        available = true;
+        log.info("In-memory persistence provider initialized.");
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public void shutdown() {
+        writeLock().lock();
+        try {
+            available = false;
+            classTreeMap.values().forEach(Map::clear);
+            metadataReference.values().forEach(Map::clear);
+            allocator.clear();
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean save(Persistable model, Indexable index) throws Exception {
+        writeLock().lock();
+        try {
+            put(table(model.getClass()), index.bytes(), model.bytes());
+
+            NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(model.getClass());
+            if (metadataTable != null) {
+                put(metadataTable, index.bytes(), model.metadata());
+            }
+            return true;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Class<?> model, Indexable index) throws Exception {
+        writeLock().lock();
+        try {
+            remove(table(model), index.bytes());
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(Persistable model, Indexable index, String item) throws Exception {
+        writeLock().lock();
+        try {
+            NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(model.getClass());
+            if (metadataTable != null) {
+                put(metadataTable, index.bytes(), model.metadata());
+            }
+            return false;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(Persistable model, Indexable index, String item, List<Pair<Indexable, Persistable>> models)
+            throws Exception {
+        // the lock is reentrant, so both writes happen while other threads are locked out
+        writeLock().lock();
+        try {
+            update(model, index, item);
+            saveBatch(models);
+            return false;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(Class<?> model, Indexable key) throws Exception {
+        readLock().lock();
+        try {
+            NavigableMap<byte[], ByteBuffer> table = classTreeMap.get(model);
+            return table != null && table.containsKey(key.bytes());
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Pair<Indexable, Persistable> latest(Class<?> model, Class<?> indexModel) throws Exception {
+        readLock().lock();
+        try {
+            return modelAndIndex(model, (Class<Indexable>) indexModel, table(model).lastEntry());
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Indexable> keysWithMissingReferences(Class<?> modelClass, Class<?> otherClass) throws Exception {
+        readLock().lock();
+        try {
+            // both tables are sorted by their keys, so we walk them side by side instead of looking up every key
+            Iterator<byte[]> otherKeys = table(otherClass).keySet().iterator();
+            byte[] otherKey = otherKeys.hasNext() ? otherKeys.next() : null;
+            Set<Indexable> indexables = null;
+            for (byte[] key : table(modelClass).keySet()) {
+                while (otherKey != null && IotaUtils.compareUnsigned(otherKey, key) < 0) {
+                    otherKey = otherKeys.hasNext() ? otherKeys.next() : null;
+                }
+                if (otherKey == null || IotaUtils.compareUnsigned(otherKey, key) != 0) {
+                    indexables = indexables == null ? new HashSet<>() : indexables;
+                    indexables.add(HashFactory.GENERIC.create(modelClass, key));
+                }
+            }
+            return indexables == null ? Collections.emptySet() : Collections.unmodifiableSet(indexables);
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public Persistable get(Class<?> model, Indexable index) throws Exception {
+        readLock().lock();
+        try {
+            return load(model, index == null ? new byte[0] : index.bytes());
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Persistable> getBatch(Class<?> model, List<? extends Indexable> indexes) throws Exception {
+        readLock().lock();
+        try {
+            List<Persistable> objects = new ArrayList<>(indexes.size());
+            for (Indexable index : indexes) {
+                objects.add(load(model, index.bytes()));
+            }
+            return objects;
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean mayExist(Class<?> model, Indexable index) throws Exception {
+        return exists(model, index);
+    }
+
+    @Override
+    public long count(Class<?> model) throws Exception {
+        readLock().lock();
+        try {
+            return table(model).size();
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Indexable> keysStartingWith(Class<?> modelClass, byte[] value) {
+        Objects.requireNonNull(value, "value byte[] cannot be null");
+        readLock().lock();
+        try {
+            NavigableMap<byte[], ByteBuffer> table = classTreeMap.get(modelClass);
+            Set<Indexable> keys = null;
+            if (table != null) {
+                byte[] start = HashFactory.GENERIC.create(modelClass, value, 0, value.length).bytes();
+                for (byte[] key : table.tailMap(start, true).keySet()) {
+                    if (!keyStartsWithValue(value, key)) {
+                        break;
+                    }
+                    keys = keys == null ? new HashSet<>() : keys;
+                    keys.add(HashFactory.GENERIC.create(modelClass, key));
+                }
+            }
+            return keys == null ? Collections.emptySet() : Collections.unmodifiableSet(keys);
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public Persistable seek(Class<?> model, byte[] key) throws Exception {
+        Set<Indexable> hashes = keysStartingWith(model, key);
+        if (hashes.isEmpty()) {
+            return get(model, null);
+        }
+        if (hashes.size() == 1) {
+            return get(model, (Indexable) hashes.toArray()[0]);
+        }
+        return get(model, (Indexable) hashes.toArray()[seed.nextInt(hashes.size())]);
+    }
+
+    /**
+     * Behaves like a RocksDB iterator that seeks to {@code index} and then steps forward: if the key does not exist,
+     * the key after its successor is returned.
+     */
+    @Override
+    public Pair<Indexable, Persistable> next(Class<?> model, Indexable index) throws Exception {
+        readLock().lock();
+        try {
+            NavigableMap<byte[], ByteBuffer> table = table(model);
+            byte[] seekedKey = table.ceilingKey(index.bytes());
+            return modelAndIndex(model, index.getClass(), seekedKey == null ? null : table.higherEntry(seekedKey));
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                               ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception {
+        forEachInRange(table(model), from, to, entry -> modelAndIndex(model, indexModel, entry), consumer);
+    }
+
+    @Override
+    public void forEachMetadataInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                                       ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception {
+        NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(model);
+        if (metadataTable == null) {
+            throw new IllegalArgumentException("no metadata column family for " + model.getSimpleName());
+        }
+
+        forEachInRange(metadataTable, from, to, entry -> {
+            Indexable indexable = indexModel.newInstance();
+            indexable.read(entry.getKey().clone());
+
+            Persistable object = (Persistable) model.newInstance();
+            object.readMetadata(read(entry.getValue()));
+            return new Pair<>(indexable, object);
+        }, consumer);
+    }
+
+    private void forEachInRange(NavigableMap<byte[], ByteBuffer> fullTable, byte[] from, byte[] to,
+            ThrowingFunction<Map.Entry<byte[], ByteBuffer>, Pair<Indexable, Persistable>, ? extends Exception> reader,
+            ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer) throws Exception {
+
+        // the consumer may write, which is not possible while we hold the read lock, so the range is copied in chunks
+        List<Pair<Indexable, Persistable>> chunk = new ArrayList<>(RANGE_CHUNK_SIZE);
+        byte[] lastKey = null;
+        do {
+            chunk.clear();
+            readLock().lock();
+            try {
+                NavigableMap<byte[], ByteBuffer> table = fullTable;
+                if (lastKey != null) {
+                    table = table.tailMap(lastKey, false);
+                } else if (from != null) {
+                    table = table.tailMap(from, true);
+                }
+                if (to != null) {
+                    table = table.headMap(to, false);
+                }
+                for (Map.Entry<byte[], ByteBuffer> entry : table.entrySet()) {
+                    if (chunk.size() == RANGE_CHUNK_SIZE) {
+                        break;
+                    }
+                    chunk.add(reader.apply(entry));
+                    lastKey = entry.getKey();
+                }
+            } finally {
+                readLock().unlock();
+            }
+
+            for (Pair<Indexable, Persistable> entry : chunk) {
+                consumer.accept(entry.low, entry.hi);
+            }
+        } while (chunk.size() == RANGE_CHUNK_SIZE);
+    }
+
+    @Override
+    public Pair<Indexable, Persistable> previous(Class<?> model, Indexable index) throws Exception {
+        readLock().lock();
+        try {
+            return modelAndIndex(model, index.getClass(), table(model).lowerEntry(index.bytes()));
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Pair<Indexable, Persistable> first(Class<?> model, Class<?> indexModel) throws Exception {
+        readLock().lock();
+        try {
+            return modelAndIndex(model, (Class<Indexable>) indexModel, table(model).firstEntry());
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the value of the model to the stored value (just like the merge operator of the RocksDB provider).
+     *
+     * @param model the model that shall be merged
+     * @param index the key of the model
+     * @return <code>true</code> if a value was stored under the key before
+     * @throws Exception if the model can not be stored
+     */
+    public boolean merge(Persistable model, Indexable index) throws Exception {
+        writeLock().lock();
+        try {
+            return merge(table(model.getClass()), index.bytes(), model.bytes());
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveBatch(List<Pair<Indexable, Persistable>> models) throws Exception {
+        writeLock().lock();
+        try {
+            for (Pair<Indexable, Persistable> entry : models) {
+                Indexable key = entry.low;
+                Persistable value = entry.hi;
+
+                NavigableMap<byte[], ByteBuffer> table = table(value.getClass());
+                if (value.merge()) {
+                    merge(table, key.bytes(), value.bytes());
+                } else {
+                    put(table, key.bytes(), value.bytes());
+                }
+
+                NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(value.getClass());
+                if (metadataTable != null) {
+                    put(metadataTable, key.bytes(), value.metadata());
+                }
+            }
+            return true;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveBatchIfAbsent(Class<?> model, Indexable index, List<Pair<Indexable, Persistable>> models)
+            throws Exception {
+        writeLock().lock();
+        try {
+            if (exists(model, index)) {
+                return false;
+            }
+            return saveBatch(models);
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models)
+            throws Exception {
+        deleteBatch(models, false);
+    }
+
+    @Override
+    public void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models, boolean sync)
+            throws Exception {
+        writeLock().lock();
+        try {
+            for (Pair<Indexable, ? extends Class<? extends Persistable>> entry : models) {
+                byte[] keyBytes = entry.low.bytes();
+                remove(table(entry.hi), keyBytes);
+
+                NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(entry.hi);
+                if (metadataTable != null) {
+                    remove(metadataTable, keyBytes);
+                }
+            }
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long removeFromIndexes(List<Pair<Indexable, Persistable>> models) throws Exception {
+        writeLock().lock();
+        try {
+            long removedBytes = 0;
+            for (Pair<Indexable, Persistable> entry : models) {
+                if (!(entry.hi instanceof Hashes)) {
+                    throw new IllegalArgumentException(entry.hi.getClass().getSimpleName() + " is not an index");
+                }
+
+                NavigableMap<byte[], ByteBuffer> table = table(entry.hi.getClass());
+                byte[] key = entry.low.bytes();
+                if (Arrays.equals(key, Hash.NULL_HASH.bytes())) {
+                    continue;
+                }
+                byte[] value = read(table.get(key));
+                if (value == null) {
+                    continue;
+                }
+
+                Hashes hashes = (Hashes) entry.hi.getClass().newInstance();
+                hashes.read(value);
+                if (!hashes.set.removeAll(((Hashes) entry.hi).set)) {
+                    continue;
+                }
+
+                if (hashes.set.isEmpty()) {
+                    remove(table, key);
+                    removedBytes += key.length + value.length;
+                } else {
+                    byte[] remainingValue = hashes.bytes();
+                    put(table, key, remainingValue);
+                    removedBytes += value.length - remainingValue.length;
+                }
+            }
+            return removedBytes;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear(Class<?> column) throws Exception {
+        log.info("Deleting: {} entries", column.getSimpleName());
+        writeLock().lock();
+        try {
+            clear(table(column));
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearMetadata(Class<?> column) throws Exception {
+        log.info("Deleting: {} metadata", column.getSimpleName());
+        writeLock().lock();
+        try {
+            NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(column);
+            if (metadataTable != null) {
+                clear(metadataTable);
+            }
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<byte[]> loadAllKeysFromTable(Class<? extends Persistable> model) {
+        readLock().lock();
+        try {
+            List<byte[]> keyBytes = new ArrayList<>();
+            for (byte[] key : table(model).keySet()) {
+                keyBytes.add(key.clone());
+            }
+            return keyBytes;
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the amount of off-heap memory that is reserved for the values
+     */
+    public long getReservedBytes() {
+        return allocator.getReservedBytes();
+    }
+
+    private Lock readLock() {
+        return lock.readLock();
+    }
+
+    private Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    private NavigableMap<byte[], ByteBuffer> table(Class<?> model) {
+        NavigableMap<byte[], ByteBuffer> table = classTreeMap.get(model);
+        if (table == null) {
+            throw new IllegalArgumentException("no column family for " + model.getSimpleName());
+        }
+        return table;
+    }
+
+    private Persistable load(Class<?> model, byte[] key) throws InstantiationException, IllegalAccessException {
+        Persistable object = (Persistable) model.newInstance();
+        object.read(read(table(model).get(key)));
+
+        NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(model);
+        if (metadataTable != null) {
+            object.readMetadata(read(metadataTable.get(key)));
+        }
+        return object;
+    }
+
+    private Pair<Indexable, Persistable> modelAndIndex(Class<?> model, Class<? extends Indexable> index,
+                                                       Map.Entry<byte[], ByteBuffer> entry)
+            throws InstantiationException, IllegalAccessException {
+
+        if (entry == null) {
+            return PAIR_OF_NULLS;
+        }
+
+        Indexable indexable = index.newInstance();
+        indexable.read(entry.getKey().clone());
+
+        Persistable object = (Persistable) model.newInstance();
+        object.read(read(entry.getValue()));
+
+        NavigableMap<byte[], ByteBuffer> metadataTable = metadataReference.get(model);
+        if (metadataTable != null) {
+            object.readMetadata(read(metadataTable.get(entry.getKey())));
+        }
+        return new Pair<>(indexable, object);
+    }
+
+    private void put(NavigableMap<byte[], ByteBuffer> table, byte[] key, byte[] value) {
+        ByteBuffer previous = table.put(key.clone(), allocator.allocate(value));
+        if (previous != null) {
+            allocator.release(previous);
+        }
+    }
+
+    private boolean merge(NavigableMap<byte[], ByteBuffer> table, byte[] key, byte[] value) {
+        ByteBuffer previous = table.get(key);
+        if (previous == null) {
+            put(table, key, value);
+            return false;
+        }
+
+        byte[] merged = new byte[previous.remaining() + 1 + value.length];
+        previous.duplicate().get(merged, 0, previous.remaining());
+        merged[previous.remaining()] = MERGE_DELIMITER;
+        System.arraycopy(value, 0, merged, previous.remaining() + 1, value.length);
+        put(table, key, merged);
+        return true;
+    }
+
+    private void remove(NavigableMap<byte[], ByteBuffer> table, byte[] key) {
+        ByteBuffer previous = table.remove(key);
+        if (previous != null) {
+            allocator.release(previous);
+        }
+    }
+
+    private void clear(NavigableMap<byte[], ByteBuffer> table) {
+        table.values().forEach(allocator::release);
+        table.clear();
+    }
+
+    /**
+     * Copies a stored value back to the heap.
+     *
+     * @param value the stored value (can be <code>null</code>)
+     * @return a copy of the value or <code>null</code> if there is no value
+     */
+    private static byte[] read(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static boolean keyStartsWithValue(byte[] value, byte[] key) {
+        if (key.length < value.length) {
+            return false;
+        }
+        for (int n = 0; n < value.length; n++) {
+            if (value[n] != key[n]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
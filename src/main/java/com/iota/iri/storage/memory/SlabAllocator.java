@@ -0,0 +1,142 @@
+package com.iota.iri.storage.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Hands out off-heap buffers that are cut from large direct memory slabs.
+ *
+ * <p>
+ *     Allocating a direct {@link ByteBuffer} per value is expensive (every buffer registers a cleaner and reserves
+ *     memory globally), so the allocator reserves {@link #SLAB_SIZE} bytes at once and cuts them into chunks whose
+ *     size is a power of two. Released chunks are kept in a free list per size and reused by later allocations of the
+ *     same size. Values that are larger than a slab get a dedicated buffer.
+ * </p>
+ * <p>
+ *     The allocator is thread safe, but it does not protect the content of a chunk: the caller has to make sure that
+ *     nobody reads a chunk after it was released.
+ * </p>
+ */
+class SlabAllocator {
+
+    /**
+     * The size of the direct memory blocks that the chunks are cut from.
+     */
+    static final int SLAB_SIZE = 1 << 20;
+
+    /**
+     * The size of the smallest chunk (which is also the alignment of all chunks).
+     */
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(SLAB_SIZE / MIN_CHUNK_SIZE) + 1;
+
+    @SuppressWarnings("unchecked")
+    private final Deque<ByteBuffer>[] freeChunks = new Deque[SIZE_CLASSES];
+
+    private ByteBuffer currentSlab;
+
+    private long reservedBytes;
+
+    SlabAllocator() {
+        for (int i = 0; i < freeChunks.length; i++) {
+            freeChunks[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Copies the given bytes to off-heap memory.
+     *
+     * @param bytes the bytes that shall be stored
+     * @return a buffer whose remaining bytes are a copy of {@code bytes}
+     */
+    synchronized ByteBuffer allocate(byte[] bytes) {
+        ByteBuffer chunk;
+        if (bytes.length > SLAB_SIZE) {
+            chunk = ByteBuffer.allocateDirect(bytes.length);
+            reservedBytes += bytes.length;
+        } else {
+            int sizeClass = sizeClass(bytes.length);
+            chunk = freeChunks[sizeClass].poll();
+            if (chunk == null) {
+                chunk = cutChunk(MIN_CHUNK_SIZE << sizeClass);
+            }
+        }
+
+        chunk.clear();
+        chunk.put(bytes);
+        chunk.flip();
+
+        return chunk;
+    }
+
+    /**
+     * Returns a buffer of {@link #allocate(byte[])} to the allocator.
+     *
+     * @param chunk the buffer that is no longer used
+     */
+    synchronized void release(ByteBuffer chunk) {
+        if (chunk.capacity() > SLAB_SIZE) {
+            // dedicated buffers are released by the garbage collector
+            reservedBytes -= chunk.capacity();
+        } else {
+            freeChunks[sizeClass(chunk.capacity())].push(chunk);
+        }
+    }
+
+    /**
+     * @return the amount of direct memory that was reserved by this allocator
+     */
+    synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Drops all slabs (the memory is given back once the garbage collector frees the buffers).
+     */
+    synchronized void clear() {
+        for (Deque<ByteBuffer> chunks : freeChunks) {
+            chunks.clear();
+        }
+        currentSlab = null;
+        reservedBytes = 0;
+    }
+
+    private ByteBuffer cutChunk(int chunkSize) {
+        if (currentSlab == null || currentSlab.remaining() < chunkSize) {
+            // the rest of the old slab is too small for this chunk, so we hand it out to the free lists
+            if (currentSlab != null) {
+                while (currentSlab.remaining() >= MIN_CHUNK_SIZE) {
+                    int sizeClass = Integer.numberOfTrailingZeros(Integer.highestOneBit(currentSlab.remaining())
+                            / MIN_CHUNK_SIZE);
+                    freeChunks[sizeClass].push(slice(currentSlab, MIN_CHUNK_SIZE << sizeClass));
+                }
+            }
+            currentSlab = ByteBuffer.allocateDirect(SLAB_SIZE);
+            reservedBytes += SLAB_SIZE;
+        }
+
+        return slice(currentSlab, chunkSize);
+    }
+
+    private static ByteBuffer slice(ByteBuffer slab, int size) {
+        ByteBuffer chunk = slab.slice();
+        chunk.limit(size);
+        slab.position(slab.position() + size);
+
+        return chunk.slice();
+    }
+
+    /**
+     * @param length the length of a value
+     * @return the index of the smallest chunk size that can hold the value
+     */
+    private static int sizeClass(int length) {
+        if (length <= MIN_CHUNK_SIZE) {
+            return 0;
+        }
+
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.iota.iri.storage.rocksDB;
+
+import com.iota.iri.utils.thread.DedicatedScheduledExecutorService;
+import com.iota.iri.utils.thread.SilentScheduledExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Switches a {@link RocksDBPersistenceProvider} back from the bulk ingest mode once the node is synced.<br />
+ * <br />
+ * The bulk ingest mode only pays off while the node catches up with the network. After that the node receives few
+ * transactions and the lost writes of a crash would be more expensive than the faster writes.<br />
+ */
+public class BulkIngestMonitor {
+    /**
+     * Holds the interval (in milliseconds) in which the sync state is checked.<br />
+     */
+    private static final int CHECK_INTERVAL = 10000;
+
+    /**
+     * Holds the logger of this class.<br />
+     */
+    private static final Logger log = LoggerFactory.getLogger(BulkIngestMonitor.class);
+
+    /**
+     * Holds the database that is in bulk ingest mode.<br />
+     */
+    private final RocksDBPersistenceProvider persistenceProvider;
+
+    /**
+     * Tells if the node is in sync with the network.<br />
+     */
+    private final BooleanSupplier inSync;
+
+    /**
+     * Holds a reference to the manager of the background worker.<br />
+     */
+    private final SilentScheduledExecutorService executorService = new DedicatedScheduledExecutorService(
+            "Bulk Ingest Monitor", log);
+
+    /**
+     * Creates a monitor for the given database.<br />
+     *
+     * @param persistenceProvider the database that should leave the bulk ingest mode
+     * @param inSync tells if the node is in sync with the network
+     */
+    public BulkIngestMonitor(RocksDBPersistenceProvider persistenceProvider, BooleanSupplier inSync) {
+        this.persistenceProvider = persistenceProvider;
+        this.inSync = inSync;
+    }
+
+    /**
+     * Starts the background worker that checks the sync state.<br />
+     */
+    public void start() {
+        executorService.silentScheduleWithFixedDelay(this::checkSyncState, CHECK_INTERVAL, CHECK_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background worker.<br />
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Leaves the bulk ingest mode and stops the worker if the node is in sync.<br />
+     */
+    private void checkSyncState() {
+        if (!persistenceProvider.isBulkIngest()) {
+            shutdown();
+
+            return;
+        }
+
+        if (inSync.getAsBoolean()) {
+            try {
+                log.info("Node is synced - leaving the bulk ingest mode of the database ...");
+                persistenceProvider.stopBulkIngest();
+                log.info("Node is synced - leaving the bulk ingest mode of the database ... [DONE]");
+
+                shutdown();
+            } catch (Exception e) {
+                log.error("failed to leave the bulk ingest mode of the database", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.iota.iri.storage.rocksDB;
+
+import java.util.Locale;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.util.SizeUnit;
+
+/**
+ * Describes how the tables of a column family are laid out on disk.
+ *
+ * The column families of the tangle hold very different data: the transaction column family is read with point
+ * lookups of mostly unknown keys (every incoming transaction is checked for existence), while the index column
+ * families (addresses, bundles, tags and approvees) hold lists of hashes that are appended to with the merge
+ * operator. Hash lists are random data, so compressing them only costs CPU.
+ *
+ * None of the profiles uses a prefix extractor, because the iterators of the provider (prefix searches of tags and
+ * the ordered walks over milestones and transactions) rely on total order seeks.
+ */
+public enum ColumnFamilyProfile {
+    /**
+     * The settings of the provider before the column families were tuned individually.
+     */
+    DEFAULT(4 * SizeUnit.KB, 10, true),
+
+    /**
+     * Small blocks (a block holds about two transactions) and a more selective bloom filter, so lookups of unknown
+     * keys rarely touch the disk.
+     */
+    POINT_LOOKUP(4 * SizeUnit.KB, 16, true),
+
+    /**
+     * Larger blocks for the growing hash lists, which keeps the index blocks small. The values are not compressed.
+     */
+    INDEX(16 * SizeUnit.KB, 10, false);
+
+    private final long blockSize;
+    private final int bloomFilterBitsPerKey;
+    private final boolean compressed;
+
+    ColumnFamilyProfile(long blockSize, int bloomFilterBitsPerKey, boolean compressed) {
+        this.blockSize = blockSize;
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+        this.compressed = compressed;
+    }
+
+    /**
+     * @return the number of bits per key of the bloom filter of this profile
+     */
+    public int getBloomFilterBitsPerKey() {
+        return bloomFilterBitsPerKey;
+    }
+
+    /**
+     * Applies the table settings of this profile to the options of a column family.
+     *
+     * @param options the options of the column family
+     * @param blockCache the block cache that is shared by all column families
+     * @param bloomFilter a bloom filter with {@link #getBloomFilterBitsPerKey()} bits per key
+     * @param compression the compression that was configured for the database
+     * @return the given options
+     */
+    public ColumnFamilyOptions apply(ColumnFamilyOptions options, Cache blockCache, BloomFilter bloomFilter,
+                                     CompressionType compression) {
+        BlockBasedTableConfig blockBasedTableConfig = new BlockBasedTableConfig()
+            .setFilter(bloomFilter)
+            .setBlockCache(blockCache)
+            .setBlockSize(blockSize)
+            .setBlockSizeDeviation(10)
+            .setBlockRestartInterval(16)
+            .setBlockCacheCompressedNumShardBits(10)
+            .setBlockCacheCompressedSize(32 * SizeUnit.KB);
+
+        return options
+            .setTableFormatConfig(blockBasedTableConfig)
+            .setCompressionType(compressed ? compression : CompressionType.NO_COMPRESSION);
+    }
+
+    /**
+     * Parses the name of a compression algorithm (for example {@code "snappy"}, {@code "lz4"} or {@code "none"}).
+     *
+     * @param name the name of the compression algorithm
+     * @return the matching compression type
+     * @throws IllegalArgumentException if the compression is unknown
+     */
+    public static CompressionType parseCompression(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ENGLISH);
+        if ("NONE".equals(normalized)) {
+            return CompressionType.NO_COMPRESSION;
+        }
+
+        try {
+            return CompressionType.valueOf(normalized + "_COMPRESSION");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown db compression: " + name, e);
+        }
+    }
+}
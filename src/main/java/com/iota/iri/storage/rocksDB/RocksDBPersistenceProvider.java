@@ -1,16 +1,29 @@
 package com.iota.iri.storage.rocksDB;
 
+import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Approvee;
+import com.iota.iri.model.persistables.Bundle;
+import com.iota.iri.model.persistables.GraphNode;
+import com.iota.iri.model.persistables.Hashes;
+import com.iota.iri.model.persistables.ObsoleteTag;
+import com.iota.iri.model.persistables.Tag;
+import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.storage.Indexable;
 import com.iota.iri.storage.Persistable;
 import com.iota.iri.storage.PersistenceProvider;
 import com.iota.iri.utils.IotaIOUtils;
+import com.iota.iri.utils.IotaUtils;
 import com.iota.iri.utils.Pair;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -20,39 +33,95 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.rocksdb.BackupEngine;
 import org.rocksdb.BackupableDBOptions;
-import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.BloomFilter;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Env;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.HistogramData;
+import org.rocksdb.HistogramType;
+import org.rocksdb.LRUCache;
 import org.rocksdb.MergeOperator;
+import org.rocksdb.MutableColumnFamilyOptions;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RestoreOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksEnv;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Statistics;
 import org.rocksdb.StringAppendOperator;
+import org.rocksdb.TickerType;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import org.rocksdb.util.SizeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingBiConsumer;
 
 public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     private static final Logger log = LoggerFactory.getLogger(RocksDBPersistenceProvider.class);
-    private static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    private static final long WRITE_BUFFER_SIZE = 2 * SizeUnit.MB;
+    private static final int MAX_WRITE_BUFFER_NUMBER = 2;
+
+    /**
+     * Memtable settings while bulk ingesting (larger memtables result in fewer and larger level 0 files).
+     */
+    private static final long BULK_INGEST_WRITE_BUFFER_SIZE = 64 * SizeUnit.MB;
+    private static final int BULK_INGEST_MAX_WRITE_BUFFER_NUMBER = 4;
+
+    /**
+     * Interval in milliseconds in which the memtables are flushed while bulk ingesting. Since the write ahead log is
+     * disabled in that mode, this limits the amount of data that is lost if the process crashes.
+     */
+    private static final long BULK_INGEST_FLUSH_INTERVAL = 60_000;
+
+    private static final String DEFAULT_COMPRESSION = "snappy";
+
+    /**
+     * Interval in milliseconds in which {@link #deleteBatch(Collection)} syncs the write ahead log. A synced write
+     * persists all the writes before it as well, so the deletions in between are made durable together.
+     */
+    private static final long DELETE_SYNC_INTERVAL = 10_000;
+
+    /**
+     * Profiles of the column families whose data differs from the default. Every other column family (including the
+     * metadata column family) uses {@link ColumnFamilyProfile#DEFAULT}.
+     */
+    private static final Map<Class<?>, ColumnFamilyProfile> COLUMN_FAMILY_PROFILES =
+            new HashMap<Class<?>, ColumnFamilyProfile>() {{
+                put(Transaction.class, ColumnFamilyProfile.POINT_LOOKUP);
+                put(GraphNode.class, ColumnFamilyProfile.POINT_LOOKUP);
+                put(Address.class, ColumnFamilyProfile.INDEX);
+                put(Approvee.class, ColumnFamilyProfile.INDEX);
+                put(Bundle.class, ColumnFamilyProfile.INDEX);
+                put(ObsoleteTag.class, ColumnFamilyProfile.INDEX);
+                put(Tag.class, ColumnFamilyProfile.INDEX);
+            }};
 
     private static final Pair<Indexable, Persistable> PAIR_OF_NULLS = new Pair<>(null, null);
 
+    private static final int INSERT_LOCK_STRIPES = 64;
+
+    private static final int MERGE_LOCK_STRIPES = 64;
+
     private final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
     private final SecureRandom seed = new SecureRandom();
 
@@ -61,6 +130,9 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     private final int cacheSize;
     private final Map<String, Class<? extends Persistable>> columnFamilies;
     private final Map.Entry<String, Class<? extends Persistable>> metadataColumnFamily;
+    private final boolean columnFamilyTuning;
+    private final String compression;
+    private final boolean statisticsEnabled;
 
     private Map<Class<?>, ColumnFamilyHandle> classTreeMap;
     private Map<Class<?>, ColumnFamilyHandle> metadataReference = Collections.emptyMap();
@@ -68,18 +140,96 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     private RocksDB db;
     // DBOptions is only used in initDB(). However, it is closeable - so we keep a reference for shutdown.
     private DBOptions options;
-    private BloomFilter bloomFilter;
+    private LRUCache blockCache;
+    private Statistics statistics;
+    private MergeOperator mergeOperator;
+    private final Map<Integer, BloomFilter> bloomFilters = new HashMap<>();
+    private final List<ColumnFamilyOptions> columnFamilyOptions = new ArrayList<>();
     private boolean available;
 
+    private WriteOptions writeOptions;
+    private WriteOptions bulkIngestWriteOptions;
+    private volatile boolean bulkIngest;
+    private final AtomicLong lastBulkIngestFlush = new AtomicLong();
+    private final AtomicLong lastDeleteSync = new AtomicLong();
+    private Thread compactionThread;
+
+    /**
+     * Serializes the inserts of the same key (the stripe is chosen by the hash code of the key), so that the existence
+     * check and the write of {@link #saveBatchIfAbsent} can not interleave with a concurrent insert of the same key.
+     */
+    private final Lock[] insertLocks = new Lock[INSERT_LOCK_STRIPES];
+
+    /**
+     * Writes that merge values share the locks of the merged keys (the stripe is chosen by the hash code of the key),
+     * while {@link #removeFromIndexes} holds them exclusively, so no merge can happen between reading a merged value
+     * and writing it back without the removed hashes.
+     */
+    private final ReadWriteLock[] mergeLocks = new ReadWriteLock[MERGE_LOCK_STRIPES];
+
+    private final AtomicLong insertedModels = new AtomicLong();
+    private final AtomicLong duplicateInserts = new AtomicLong();
+    private final AtomicLong insertReadsSkipped = new AtomicLong();
+
     public RocksDBPersistenceProvider(String dbPath, String logPath, int cacheSize,
                                       Map<String, Class<? extends Persistable>> columnFamilies,
                                       Map.Entry<String, Class<? extends Persistable>> metadataColumnFamily) {
+        this(dbPath, logPath, cacheSize, columnFamilies, metadataColumnFamily, true, DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a provider with the given table settings.
+     *
+     * @param dbPath the folder of the database
+     * @param logPath the folder of the logs of the database
+     * @param cacheSize the size of the block cache in KB (shared by all column families)
+     * @param columnFamilies the column families and the models stored in them
+     * @param metadataColumnFamily the column family that holds the metadata of a model (can be <code>null</code>)
+     * @param columnFamilyTuning <code>true</code> if the column families should use the {@link ColumnFamilyProfile}
+     *                           that fits their data and <code>false</code> if they all use the default profile
+     * @param compression the compression of the column families (see
+     *                    {@link ColumnFamilyProfile#parseCompression(String)})
+     */
+    public RocksDBPersistenceProvider(String dbPath, String logPath, int cacheSize,
+                                      Map<String, Class<? extends Persistable>> columnFamilies,
+                                      Map.Entry<String, Class<? extends Persistable>> metadataColumnFamily,
+                                      boolean columnFamilyTuning, String compression) {
+        this(dbPath, logPath, cacheSize, columnFamilies, metadataColumnFamily, columnFamilyTuning, compression, false);
+    }
+
+    /**
+     * Creates a provider with the given table settings that optionally collects statistics.
+     *
+     * @param dbPath the folder of the database
+     * @param logPath the folder of the logs of the database
+     * @param cacheSize the size of the block cache in KB (shared by all column families)
+     * @param columnFamilies the column families and the models stored in them
+     * @param metadataColumnFamily the column family that holds the metadata of a model (can be <code>null</code>)
+     * @param columnFamilyTuning <code>true</code> if the column families should use the {@link ColumnFamilyProfile}
+     *                           that fits their data and <code>false</code> if they all use the default profile
+     * @param compression the compression of the column families (see
+     *                    {@link ColumnFamilyProfile#parseCompression(String)})
+     * @param statistics <code>true</code> if the database should count cache hits, stalls and latencies (which costs
+     *                   a few percent of the throughput)
+     */
+    public RocksDBPersistenceProvider(String dbPath, String logPath, int cacheSize,
+                                      Map<String, Class<? extends Persistable>> columnFamilies,
+                                      Map.Entry<String, Class<? extends Persistable>> metadataColumnFamily,
+                                      boolean columnFamilyTuning, String compression, boolean statistics) {
         this.dbPath = dbPath;
         this.logPath = logPath;
         this.cacheSize = cacheSize;
         this.columnFamilies = columnFamilies;
         this.metadataColumnFamily = metadataColumnFamily;
-
+        this.columnFamilyTuning = columnFamilyTuning;
+        this.compression = compression;
+        this.statisticsEnabled = statistics;
+        for (int i = 0; i < insertLocks.length; i++) {
+            insertLocks[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < mergeLocks.length; i++) {
+            mergeLocks[i] = new ReentrantReadWriteLock();
+        }
     }
 
     @Override
@@ -98,24 +248,199 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public void shutdown() {
+        if (compactionThread != null && compactionThread.isAlive()) {
+            // a running manual compaction can not be cancelled, so we stop after the current column family
+            log.info("Waiting for the compaction of the bulk ingested data to finish ...");
+            compactionThread.interrupt();
+            try {
+                compactionThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (bulkIngest) {
+            // the memtables are not backed by the write ahead log, so they have to be persisted before we close
+            try {
+                flushAll(true);
+            } catch (RocksDBException e) {
+                log.error("Failed to flush the bulk ingested data", e);
+            }
+        }
+        if (insertedModels.get() + duplicateInserts.get() > 0) {
+            log.info("Inserted {} models ({} duplicates rejected, {} existence reads skipped by the bloom filters)",
+                    insertedModels.get(), duplicateInserts.get(), insertReadsSkipped.get());
+        }
         for (final ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
             IotaIOUtils.closeQuietly(columnFamilyHandle);
         }
-        IotaIOUtils.closeQuietly(db, options, bloomFilter);
+        IotaIOUtils.closeQuietly(db, options, writeOptions, bulkIngestWriteOptions);
+        IotaIOUtils.closeQuietly(columnFamilyOptions.toArray(new AutoCloseable[0]));
+        IotaIOUtils.closeQuietly(bloomFilters.values().toArray(new AutoCloseable[0]));
+        IotaIOUtils.closeQuietly(mergeOperator, blockCache, statistics);
+    }
+
+    /**
+     * Switches the database into a write optimized mode for the initial sync or a rescan.
+     *
+     * Writes skip the write ahead log and the column families use larger memtables which get flushed every
+     * {@link #BULK_INGEST_FLUSH_INTERVAL} milliseconds. This trades crash safety for throughput: if the process dies,
+     * the writes since the last flush are lost (deletions are still written to the log).
+     *
+     * @throws RocksDBException if the options of the column families could not be changed
+     */
+    public synchronized void startBulkIngest() throws RocksDBException {
+        if (bulkIngest) {
+            return;
+        }
+
+        log.info("Starting bulk ingest mode (write ahead log disabled)");
+        setWriteBufferOptions(BULK_INGEST_WRITE_BUFFER_SIZE, BULK_INGEST_MAX_WRITE_BUFFER_NUMBER);
+        lastBulkIngestFlush.set(System.currentTimeMillis());
+        bulkIngest = true;
+    }
+
+    /**
+     * Switches the database back to the normal mode.
+     *
+     * The data that was written without the write ahead log is flushed, the memtable settings are restored and the
+     * whole database is compacted in the background, so the level 0 files of the ingest do not slow down reads.
+     *
+     * @throws RocksDBException if the data could not be flushed or the options could not be restored
+     */
+    public synchronized void stopBulkIngest() throws RocksDBException {
+        if (!bulkIngest) {
+            return;
+        }
+
+        bulkIngest = false;
+        flushAll(true);
+        setWriteBufferOptions(WRITE_BUFFER_SIZE, MAX_WRITE_BUFFER_NUMBER);
+        log.info("Stopped bulk ingest mode");
+
+        compactionThread = new Thread(() -> {
+            try {
+                for (ColumnFamilyHandle handle : columnFamilyHandles) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    db.compactRange(handle);
+                }
+                log.info("Finished the compaction of the bulk ingested data");
+            } catch (RocksDBException e) {
+                log.error("Failed to compact the bulk ingested data", e);
+            }
+        }, "RocksDB Bulk Ingest Compaction");
+        compactionThread.start();
+    }
+
+    /**
+     * @return <code>true</code> if the database is in bulk ingest mode
+     */
+    public boolean isBulkIngest() {
+        return bulkIngest;
+    }
+
+    private WriteOptions writeOptions() {
+        return bulkIngest ? bulkIngestWriteOptions : writeOptions;
+    }
+
+    /**
+     * Flushes the memtables if the bulk ingest mode is active and the last flush is older than
+     * {@link #BULK_INGEST_FLUSH_INTERVAL}.
+     *
+     * @throws RocksDBException if the flush could not be scheduled
+     */
+    private void flushIfNecessary() throws RocksDBException {
+        if (bulkIngest) {
+            long lastFlush = lastBulkIngestFlush.get();
+            long now = System.currentTimeMillis();
+            if (now - lastFlush >= BULK_INGEST_FLUSH_INTERVAL && lastBulkIngestFlush.compareAndSet(lastFlush, now)) {
+                flushAll(false);
+            }
+        }
+    }
+
+    private void flushAll(boolean waitForFlush) throws RocksDBException {
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(waitForFlush)) {
+            for (ColumnFamilyHandle handle : columnFamilyHandles) {
+                db.flush(flushOptions, handle);
+            }
+        }
+    }
+
+    private void setWriteBufferOptions(long writeBufferSize, int maxWriteBufferNumber) throws RocksDBException {
+        MutableColumnFamilyOptions mutableOptions = MutableColumnFamilyOptions.builder()
+                .setWriteBufferSize(writeBufferSize)
+                .setMaxWriteBufferNumber(maxWriteBufferNumber)
+                .build();
+        for (ColumnFamilyHandle handle : columnFamilyHandles) {
+            db.setOptions(handle, mutableOptions);
+        }
     }
 
     @Override
     public boolean save(Persistable thing, Indexable index) throws Exception {
         ColumnFamilyHandle handle = classTreeMap.get(thing.getClass());
-        db.put(handle, index.bytes(), thing.bytes());
+        db.put(handle, writeOptions(), index.bytes(), thing.bytes());
 
         ColumnFamilyHandle referenceHandle = metadataReference.get(thing.getClass());
         if (referenceHandle != null) {
-            db.put(referenceHandle, index.bytes(), thing.metadata());
+            db.put(referenceHandle, writeOptions(), index.bytes(), thing.metadata());
         }
+        flushIfNecessary();
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The key is only read from the disk if the bloom filters and the memtables can not rule it out, so the insert of
+     * a new model usually costs no read at all.
+     */
+    @Override
+    public boolean saveBatchIfAbsent(Class<?> model, Indexable index, List<Pair<Indexable, Persistable>> models)
+            throws Exception {
+        byte[] key = index.bytes();
+        Lock insertLock = insertLocks[Arrays.hashCode(key) & (INSERT_LOCK_STRIPES - 1)];
+        insertLock.lock();
+        try {
+            ColumnFamilyHandle handle = classTreeMap.get(model);
+            if (!db.keyMayExist(handle, key, new StringBuilder())) {
+                insertReadsSkipped.incrementAndGet();
+            } else if (db.get(handle, key) != null) {
+                duplicateInserts.incrementAndGet();
+                return false;
+            }
+
+            saveBatch(models);
+            insertedModels.incrementAndGet();
+            return true;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of models that were stored by {@link #saveBatchIfAbsent}
+     */
+    public long getInsertedModels() {
+        return insertedModels.get();
+    }
+
+    /**
+     * @return the number of models that {@link #saveBatchIfAbsent} did not store because they existed already
+     */
+    public long getDuplicateInserts() {
+        return duplicateInserts.get();
+    }
+
+    /**
+     * @return the number of inserts that did not have to read the key, because the bloom filters ruled it out
+     */
+    public long getInsertReadsSkipped() {
+        return insertReadsSkipped.get();
+    }
+
     @Override
     public void delete(Class<?> model, Indexable index) throws Exception {
         db.delete(classTreeMap.get(model), index.bytes());
@@ -136,13 +461,22 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         ColumnFamilyHandle handle = classTreeMap.get(model);
         ColumnFamilyHandle otherHandle = classTreeMap.get(other);
 
-        try (RocksIterator iterator = db.newIterator(handle)) {
+        // both column families are sorted by their keys, so we walk them side by side instead of looking up every key
+        // (the scan would evict the hot blocks, so it bypasses the block cache)
+        try (ReadOptions readOptions = new ReadOptions().setFillCache(false);
+             RocksIterator iterator = db.newIterator(handle, readOptions);
+             RocksIterator otherIterator = db.newIterator(otherHandle, readOptions)) {
             Set<Indexable> indexables = null;
 
+            otherIterator.seekToFirst();
             for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
-                if (db.get(otherHandle, iterator.key()) == null) {
+                byte[] key = iterator.key();
+                if (otherIterator.isValid() && IotaUtils.compareUnsigned(otherIterator.key(), key) < 0) {
+                    otherIterator.seek(key);
+                }
+                if (!otherIterator.isValid() || !Arrays.equals(otherIterator.key(), key)) {
                     indexables = indexables == null ? new HashSet<>() : indexables;
-                    indexables.add(HashFactory.GENERIC.create(model, iterator.key()));
+                    indexables.add(HashFactory.GENERIC.create(model, key));
                 }
             }
             return indexables == null ? Collections.emptySet() : Collections.unmodifiableSet(indexables);
@@ -161,6 +495,40 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         return object;
     }
 
+    @Override
+    public List<Persistable> getBatch(Class<?> model, List<? extends Indexable> indexes) throws Exception {
+        if (indexes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        ColumnFamilyHandle handle = classTreeMap.get(model);
+        ColumnFamilyHandle referenceHandle = metadataReference.get(model);
+        int keysPerIndex = referenceHandle == null ? 1 : 2;
+        List<ColumnFamilyHandle> handles = new ArrayList<>(indexes.size() * keysPerIndex);
+        List<byte[]> keys = new ArrayList<>(indexes.size() * keysPerIndex);
+        for (Indexable index : indexes) {
+            // the result map is keyed by array identity, so every lookup needs its own copy of the key
+            handles.add(handle);
+            keys.add(index.bytes().clone());
+            if (referenceHandle != null) {
+                handles.add(referenceHandle);
+                keys.add(index.bytes().clone());
+            }
+        }
+
+        Map<byte[], byte[]> values = db.multiGet(handles, keys);
+        List<Persistable> objects = new ArrayList<>(indexes.size());
+        for (int i = 0; i < keys.size(); i += keysPerIndex) {
+            Persistable object = (Persistable) model.newInstance();
+            object.read(values.get(keys.get(i)));
+            if (referenceHandle != null) {
+                object.readMetadata(values.get(keys.get(i + 1)));
+            }
+            objects.add(object);
+        }
+        return objects;
+    }
+
     @Override
     public boolean mayExist(Class<?> model, Indexable index) {
         ColumnFamilyHandle handle = classTreeMap.get(model);
@@ -172,6 +540,75 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         return getCountEstimate(model);
     }
 
+    /**
+     * Collects the counters of the database. The counters of the block cache, the bloom filters, the stalls, the
+     * compactions and the latencies are only available if the provider was created with statistics enabled; the
+     * sizes of the column families are always available.
+     *
+     * @return the counters of the database by their name
+     * @throws RocksDBException if the properties of the database could not be read
+     */
+    public Map<String, Object> getStatistics() throws RocksDBException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("insertedModels", insertedModels.get());
+        result.put("duplicateInserts", duplicateInserts.get());
+        result.put("insertReadsSkipped", insertReadsSkipped.get());
+        result.put("bulkIngest", bulkIngest);
+
+        if (statistics != null) {
+            long cacheHits = statistics.getTickerCount(TickerType.BLOCK_CACHE_HIT);
+            long cacheMisses = statistics.getTickerCount(TickerType.BLOCK_CACHE_MISS);
+            result.put("blockCacheHits", cacheHits);
+            result.put("blockCacheMisses", cacheMisses);
+            result.put("blockCacheHitRate", cacheHits + cacheMisses == 0 ? 0d
+                    : (double) cacheHits / (cacheHits + cacheMisses));
+            result.put("bloomFilterUseful", statistics.getTickerCount(TickerType.BLOOM_FILTER_USEFUL));
+            result.put("memtableHits", statistics.getTickerCount(TickerType.MEMTABLE_HIT));
+            result.put("memtableMisses", statistics.getTickerCount(TickerType.MEMTABLE_MISS));
+            result.put("stallMicros", statistics.getTickerCount(TickerType.STALL_MICROS));
+            result.put("compactionReadBytes", statistics.getTickerCount(TickerType.COMPACT_READ_BYTES));
+            result.put("compactionWriteBytes", statistics.getTickerCount(TickerType.COMPACT_WRITE_BYTES));
+            result.put("getMicros", histogram(HistogramType.DB_GET));
+            result.put("multiGetMicros", histogram(HistogramType.DB_MULTIGET));
+            result.put("writeMicros", histogram(HistogramType.DB_WRITE));
+            result.put("sstReadMicros", histogram(HistogramType.SST_READ_MICROS));
+        }
+
+        Map<String, Object> columnFamilyStatistics = new LinkedHashMap<>();
+        // the first handle belongs to the unused default column family
+        for (ColumnFamilyHandle handle : columnFamilyHandles.subList(1, columnFamilyHandles.size())) {
+            Map<String, Long> properties = new LinkedHashMap<>();
+            properties.put("estimatedKeys", db.getLongProperty(handle, "rocksdb.estimate-num-keys"));
+            properties.put("sstFilesSize", db.getLongProperty(handle, "rocksdb.total-sst-files-size"));
+            properties.put("memtablesSize", db.getLongProperty(handle, "rocksdb.cur-size-all-mem-tables"));
+            // this property has no integer variant
+            properties.put("level0Files", Long.parseLong(db.getProperty(handle, "rocksdb.num-files-at-level0")));
+            properties.put("pendingCompactionBytes",
+                    db.getLongProperty(handle, "rocksdb.estimate-pending-compaction-bytes"));
+            columnFamilyStatistics.put(new String(handle.getName(), StandardCharsets.UTF_8), properties);
+        }
+        result.put("columnFamilies", columnFamilyStatistics);
+
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if the database counts cache hits, stalls and latencies
+     */
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
+    private Map<String, Double> histogram(HistogramType type) {
+        HistogramData data = statistics.getHistogramData(type);
+        Map<String, Double> result = new LinkedHashMap<>();
+        result.put("average", data.getAverage());
+        result.put("median", data.getMedian());
+        result.put("p95", data.getPercentile95());
+        result.put("p99", data.getPercentile99());
+        return result;
+    }
+
     private long getCountEstimate(Class<?> model) throws RocksDBException {
         ColumnFamilyHandle handle = classTreeMap.get(model);
         return db.getLongProperty(handle, "rocksdb.estimate-num-keys");
@@ -229,6 +666,16 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     private Pair<Indexable, Persistable> modelAndIndex(Class<?> model, Class<? extends Indexable> index, RocksIterator iterator)
         throws InstantiationException, IllegalAccessException, RocksDBException {
 
+        return modelAndIndex(model, index, iterator, null);
+    }
+
+    /**
+     * @param readOptions the options that the metadata is read with or {@code null} to use the default options
+     */
+    private Pair<Indexable, Persistable> modelAndIndex(Class<?> model, Class<? extends Indexable> index,
+            RocksIterator iterator, ReadOptions readOptions)
+            throws InstantiationException, IllegalAccessException, RocksDBException {
+
         if (!iterator.isValid()) {
             return PAIR_OF_NULLS;
         }
@@ -241,7 +688,9 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
         ColumnFamilyHandle referenceHandle = metadataReference.get(model);
         if (referenceHandle != null) {
-            object.readMetadata(db.get(referenceHandle, iterator.key()));
+            object.readMetadata(readOptions == null
+                    ? db.get(referenceHandle, iterator.key())
+                    : db.get(referenceHandle, readOptions, iterator.key()));
         }
         return new Pair<>(indexable, object);
     }
@@ -255,6 +704,57 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         }
     }
 
+    @Override
+    public void forEachInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                               ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception {
+        // ranges are usually read once, so they bypass the block cache to not evict the hot blocks
+        try (ReadOptions readOptions = new ReadOptions().setFillCache(false);
+             RocksIterator iterator = db.newIterator(classTreeMap.get(model), readOptions)) {
+            if (from == null) {
+                iterator.seekToFirst();
+            } else {
+                iterator.seek(from);
+            }
+
+            for (; iterator.isValid() && (to == null || IotaUtils.compareUnsigned(iterator.key(), to) < 0);
+                    iterator.next()) {
+                Pair<Indexable, Persistable> entry = modelAndIndex(model, indexModel, iterator, readOptions);
+                consumer.accept(entry.low, entry.hi);
+            }
+        }
+    }
+
+    @Override
+    public void forEachMetadataInRange(Class<?> model, Class<? extends Indexable> indexModel, byte[] from, byte[] to,
+                                       ThrowingBiConsumer<Indexable, Persistable, ? extends Exception> consumer)
+            throws Exception {
+        ColumnFamilyHandle referenceHandle = metadataReference.get(model);
+        if (referenceHandle == null) {
+            throw new IllegalArgumentException("no metadata column family for " + model.getSimpleName());
+        }
+
+        // ranges are usually read once, so they bypass the block cache to not evict the hot blocks
+        try (ReadOptions readOptions = new ReadOptions().setFillCache(false);
+             RocksIterator iterator = db.newIterator(referenceHandle, readOptions)) {
+            if (from == null) {
+                iterator.seekToFirst();
+            } else {
+                iterator.seek(from);
+            }
+
+            for (; iterator.isValid() && (to == null || IotaUtils.compareUnsigned(iterator.key(), to) < 0);
+                    iterator.next()) {
+                Indexable indexable = indexModel.newInstance();
+                indexable.read(iterator.key());
+
+                Persistable object = (Persistable) model.newInstance();
+                object.readMetadata(iterator.value());
+                consumer.accept(indexable, object);
+            }
+        }
+    }
+
     @Override
     public Pair<Indexable, Persistable> previous(Class<?> model, Indexable index) throws Exception {
         try (RocksIterator iterator = db.newIterator(classTreeMap.get(model))) {
@@ -285,40 +785,89 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     // 2018 March 28 - Unused code
     public boolean merge(Persistable model, Indexable index) throws Exception {
         boolean exists = mayExist(model.getClass(), index);
-        db.merge(classTreeMap.get(model.getClass()), index.bytes(), model.bytes());
+        byte[] key = index.bytes();
+        Lock mergeLock = mergeLocks[mergeLockStripe(key)].readLock();
+        mergeLock.lock();
+        try {
+            db.merge(classTreeMap.get(model.getClass()), key, model.bytes());
+        } finally {
+            mergeLock.unlock();
+        }
         return exists;
     }
 
     @Override
     public boolean saveBatch(List<Pair<Indexable, Persistable>> models) throws Exception {
-        try (WriteBatch writeBatch = new WriteBatch();
-             WriteOptions writeOptions = new WriteOptions()) {
-
-            for (Pair<Indexable, Persistable> entry : models) {
+        try (WriteBatch writeBatch = new WriteBatch()) {
+            write(writeBatch, addToBatch(writeBatch, models));
+            flushIfNecessary();
+            return true;
+        }
+    }
 
-                Indexable key = entry.low;
-                Persistable value = entry.hi;
+    /**
+     * Writes a batch that may contain merges while holding the merge locks of the merged keys. The locks are taken in
+     * the order of their stripes and {@link #removeFromIndexes} holds a single stripe at a time, so this can not
+     * deadlock.
+     *
+     * @param writeBatch the batch that is written
+     * @param mergedStripes the stripes of the keys that are merged by the batch
+     * @throws RocksDBException if the batch could not be written
+     */
+    private void write(WriteBatch writeBatch, BitSet mergedStripes) throws RocksDBException {
+        for (int i = mergedStripes.nextSetBit(0); i >= 0; i = mergedStripes.nextSetBit(i + 1)) {
+            mergeLocks[i].readLock().lock();
+        }
+        try {
+            db.write(writeOptions(), writeBatch);
+        } finally {
+            for (int i = mergedStripes.nextSetBit(0); i >= 0; i = mergedStripes.nextSetBit(i + 1)) {
+                mergeLocks[i].readLock().unlock();
+            }
+        }
+    }
 
-                ColumnFamilyHandle handle = classTreeMap.get(value.getClass());
-                ColumnFamilyHandle referenceHandle = metadataReference.get(value.getClass());
+    private static int mergeLockStripe(byte[] key) {
+        return Arrays.hashCode(key) & (MERGE_LOCK_STRIPES - 1);
+    }
 
-                if (value.merge()) {
-                    writeBatch.merge(handle, key.bytes(), value.bytes());
-                } else {
-                    writeBatch.put(handle, key.bytes(), value.bytes());
-                }
-                if (referenceHandle != null) {
-                    writeBatch.put(referenceHandle, key.bytes(), value.metadata());
-                }
+    /**
+     * @return the stripes of the merge locks of the keys that are merged by the batch
+     */
+    private BitSet addToBatch(WriteBatch writeBatch, List<Pair<Indexable, Persistable>> models)
+            throws RocksDBException {
+        BitSet mergedStripes = new BitSet(MERGE_LOCK_STRIPES);
+        for (Pair<Indexable, Persistable> entry : models) {
+
+            Indexable key = entry.low;
+            Persistable value = entry.hi;
+
+            ColumnFamilyHandle handle = classTreeMap.get(value.getClass());
+            ColumnFamilyHandle referenceHandle = metadataReference.get(value.getClass());
+
+            if (value.merge()) {
+                byte[] keyBytes = key.bytes();
+                writeBatch.merge(handle, keyBytes, value.bytes());
+                mergedStripes.set(mergeLockStripe(keyBytes));
+            } else {
+                writeBatch.put(handle, key.bytes(), value.bytes());
+            }
+            if (referenceHandle != null) {
+                writeBatch.put(referenceHandle, key.bytes(), value.metadata());
             }
-
-            db.write(writeOptions, writeBatch);
-            return true;
         }
+        return mergedStripes;
     }
 
+    @Override
     public void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models)
             throws Exception {
+        deleteBatch(models, false);
+    }
+
+    @Override
+    public void deleteBatch(Collection<Pair<Indexable, ? extends Class<? extends Persistable>>> models, boolean sync)
+            throws Exception {
         if (CollectionUtils.isNotEmpty(models)) {
             try (WriteBatch writeBatch = new WriteBatch()) {
                 for (Pair<Indexable, ? extends Class<? extends Persistable>> entry : models) {
@@ -332,14 +881,125 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
                     }
                 }
 
-                WriteOptions writeOptions = new WriteOptions()
+                long now = System.currentTimeMillis();
+                long lastSync = lastDeleteSync.get();
+                if (sync) {
+                    lastDeleteSync.set(now);
+                } else {
+                    sync = now - lastSync >= DELETE_SYNC_INTERVAL && lastDeleteSync.compareAndSet(lastSync, now);
+                }
+                try (WriteOptions writeOptions = new WriteOptions()
                         //We are explicit about what happens if the node reboots before a flush to the db
                         .setDisableWAL(false)
-                        //We want to make sure deleted data was indeed deleted
-                        .setSync(true);
-                db.write(writeOptions, writeBatch);
+                        //Syncing every batch stalls large deletions, so unless the caller asks for a synced write
+                        //we only sync periodically. An unsynced deletion can get lost in a crash, so callers that
+                        //persist their progress separately have to sync before they do so.
+                        .setSync(sync)) {
+                    db.write(writeOptions, writeBatch);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Neither the merge operator nor compaction filters can be customized through the Java API of RocksDB, so the
+     * affected values are read with a single lookup and written back without the removed hashes. The keys are
+     * processed by the stripes of their merge locks, so only the merges of the stripe that is being rewritten have to
+     * wait.
+     */
+    @Override
+    public long removeFromIndexes(List<Pair<Indexable, Persistable>> models) throws Exception {
+        long removedBytes = 0;
+        for (Map.Entry<Integer, Map<Class<?>, Map<Indexable, Set<Hash>>>> stripe
+                : groupIndexEntries(models).entrySet()) {
+
+            Lock mergeLock = mergeLocks[stripe.getKey()].writeLock();
+            mergeLock.lock();
+            try {
+                removedBytes += removeFromIndexes(stripe.getValue());
+            } finally {
+                mergeLock.unlock();
+            }
+        }
+
+        flushIfNecessary();
+        return removedBytes;
+    }
+
+    /**
+     * Rewrites the values of the given keys without the removed hashes in a single batch. The caller holds the merge
+     * locks of the keys.
+     */
+    private long removeFromIndexes(Map<Class<?>, Map<Indexable, Set<Hash>>> removals) throws Exception {
+        List<ColumnFamilyHandle> handles = new ArrayList<>();
+        List<byte[]> keys = new ArrayList<>();
+        List<Class<?>> columns = new ArrayList<>();
+        List<Set<Hash>> removedHashes = new ArrayList<>();
+        for (Map.Entry<Class<?>, Map<Indexable, Set<Hash>>> column : removals.entrySet()) {
+            for (Map.Entry<Indexable, Set<Hash>> entry : column.getValue().entrySet()) {
+                handles.add(classTreeMap.get(column.getKey()));
+                // the result map is keyed by array identity, so every lookup needs its own copy of the key
+                keys.add(entry.getKey().bytes().clone());
+                columns.add(column.getKey());
+                removedHashes.add(entry.getValue());
+            }
+        }
+
+        try (WriteBatch writeBatch = new WriteBatch()) {
+            long removedBytes = 0;
+            Map<byte[], byte[]> values = db.multiGet(handles, keys);
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] key = keys.get(i);
+                byte[] value = values.get(key);
+                if (value == null) {
+                    continue;
+                }
+
+                Hashes hashes = (Hashes) columns.get(i).newInstance();
+                hashes.read(value);
+                if (!hashes.set.removeAll(removedHashes.get(i))) {
+                    continue;
+                }
+
+                if (hashes.set.isEmpty()) {
+                    writeBatch.delete(handles.get(i), key);
+                    removedBytes += key.length + value.length;
+                } else {
+                    byte[] remainingValue = hashes.bytes();
+                    writeBatch.put(handles.get(i), key, remainingValue);
+                    removedBytes += value.length - remainingValue.length;
+                }
+            }
+
+            db.write(writeOptions(), writeBatch);
+            return removedBytes;
+        }
+    }
+
+    /**
+     * Groups the hashes of the index entries by the stripe of their merge lock, their column family and their key.
+     * Keys that consist of zero bytes only are skipped (see {@link PersistenceProvider#removeFromIndexes}).
+     */
+    private static Map<Integer, Map<Class<?>, Map<Indexable, Set<Hash>>>> groupIndexEntries(
+            List<Pair<Indexable, Persistable>> models) {
+
+        Map<Integer, Map<Class<?>, Map<Indexable, Set<Hash>>>> removals = new TreeMap<>();
+        for (Pair<Indexable, Persistable> entry : models) {
+            if (!(entry.hi instanceof Hashes)) {
+                throw new IllegalArgumentException(entry.hi.getClass().getSimpleName() + " is not an index");
             }
+            byte[] key = entry.low.bytes();
+            if (Arrays.equals(key, Hash.NULL_HASH.bytes())) {
+                continue;
+            }
+            removals.computeIfAbsent(mergeLockStripe(key), stripe -> new HashMap<>())
+                    .computeIfAbsent(entry.hi.getClass(), model -> new HashMap<>())
+                    .computeIfAbsent(entry.low, index -> new HashSet<>())
+                    .addAll(((Hashes) entry.hi).set);
         }
+        return removals;
     }
 
     @Override
@@ -367,31 +1027,56 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         return keyBytes;
     }
 
+    /**
+     * Removes all entries of a column family.
+     *
+     * Instead of writing a tombstone per key, the whole key range is covered by a single range tombstone (the end of
+     * a range is exclusive, so the last key gets its own tombstone). This makes clearing independent of the size of
+     * the column family; the deleted data is dropped by the regular background compaction. The handle stays valid,
+     * so concurrent readers are not affected (which would not be the case if we dropped and recreated the column
+     * family).
+     *
+     * @param handle the column family that shall be cleared
+     * @throws RocksDBException if the range could not be deleted
+     */
     private void flushHandle(ColumnFamilyHandle handle) throws RocksDBException {
-        List<byte[]> itemsToDelete = new ArrayList<>();
+        byte[] firstKey;
+        byte[] lastKey;
         try (RocksIterator iterator = db.newIterator(handle)) {
-
-            for (iterator.seekToLast(); iterator.isValid(); iterator.prev()) {
-                itemsToDelete.add(iterator.key());
-            }
-        }
-        if (!itemsToDelete.isEmpty()) {
-            log.info("Amount to delete: " + itemsToDelete.size());
-        }
-        int counter = 0;
-        for (byte[] itemToDelete : itemsToDelete) {
-            if (++counter % 10000 == 0) {
-                log.info("Deleted: {}", counter);
+            iterator.seekToFirst();
+            if (!iterator.isValid()) {
+                return;
             }
-            db.delete(handle, itemToDelete);
+            firstKey = iterator.key();
+
+            iterator.seekToLast();
+            lastKey = iterator.key();
         }
+
+        db.deleteRange(handle, firstKey, lastKey);
+        db.delete(handle, lastKey);
     }
 
     @Override
     public boolean update(Persistable thing, Indexable index, String item) throws Exception {
         ColumnFamilyHandle referenceHandle = metadataReference.get(thing.getClass());
         if (referenceHandle != null) {
-            db.put(referenceHandle, index.bytes(), thing.metadata());
+            db.put(referenceHandle, writeOptions(), index.bytes(), thing.metadata());
+            flushIfNecessary();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean update(Persistable thing, Indexable index, String item, List<Pair<Indexable, Persistable>> models)
+            throws Exception {
+        try (WriteBatch writeBatch = new WriteBatch()) {
+            ColumnFamilyHandle referenceHandle = metadataReference.get(thing.getClass());
+            if (referenceHandle != null) {
+                writeBatch.put(referenceHandle, index.bytes(), thing.metadata());
+            }
+            write(writeBatch, addToBatch(writeBatch, models));
+            flushIfNecessary();
         }
         return false;
     }
@@ -423,6 +1108,25 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         initDB(path, logPath, columnFamilies);
     }
 
+    /**
+     * Creates the options of a column family with the table settings of the given profile.
+     *
+     * @param profile the profile of the column family
+     * @param compressionType the configured compression
+     * @return the options of the column family
+     */
+    private ColumnFamilyOptions createColumnFamilyOptions(ColumnFamilyProfile profile,
+                                                          CompressionType compressionType) {
+        BloomFilter bloomFilter = bloomFilters.computeIfAbsent(profile.getBloomFilterBitsPerKey(), BloomFilter::new);
+        ColumnFamilyOptions columnFamilyOptions = new ColumnFamilyOptions()
+            .setMergeOperator(mergeOperator)
+            .setMaxWriteBufferNumber(MAX_WRITE_BUFFER_NUMBER)
+            .setWriteBufferSize(WRITE_BUFFER_SIZE);
+        this.columnFamilyOptions.add(columnFamilyOptions);
+
+        return profile.apply(columnFamilyOptions, blockCache, bloomFilter, compressionType);
+    }
+
     private void initDB(String path, String logPath, Map<String, Class<? extends Persistable>> columnFamilies) throws Exception {
         try {
             try {
@@ -460,37 +1164,36 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
             options.setMaxSubcompactions(Runtime.getRuntime().availableProcessors());
 
-            bloomFilter = new BloomFilter(BLOOM_FILTER_BITS_PER_KEY);
+            options.setAllowConcurrentMemtableWrite(true);
 
-            BlockBasedTableConfig blockBasedTableConfig = new BlockBasedTableConfig().setFilter(bloomFilter);
-            blockBasedTableConfig
-                .setFilter(bloomFilter)
-                .setCacheNumShardBits(2)
-                .setBlockSizeDeviation(10)
-                .setBlockRestartInterval(16)
-                .setBlockCacheSize(cacheSize * SizeUnit.KB)
-                .setBlockCacheCompressedNumShardBits(10)
-                .setBlockCacheCompressedSize(32 * SizeUnit.KB);
+            if (statisticsEnabled) {
+                statistics = new Statistics();
+                options.setStatistics(statistics);
+            }
 
-            options.setAllowConcurrentMemtableWrite(true);
+            // all column families share one block cache, so the configured size is an upper bound for the database
+            blockCache = new LRUCache(cacheSize * SizeUnit.KB, 2);
+            mergeOperator = new StringAppendOperator();
+            CompressionType compressionType = ColumnFamilyProfile.parseCompression(compression);
 
-            MergeOperator mergeOperator = new StringAppendOperator();
-            ColumnFamilyOptions columnFamilyOptions = new ColumnFamilyOptions()
-                .setMergeOperator(mergeOperator)
-                .setTableFormatConfig(blockBasedTableConfig)
-                .setMaxWriteBufferNumber(2)
-                .setWriteBufferSize(2 * SizeUnit.MB);
+            writeOptions = new WriteOptions();
+            bulkIngestWriteOptions = new WriteOptions().setDisableWAL(true);
 
             List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>();
             //Add default column family. Main motivation is to not change legacy code
-            columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnFamilyOptions));
-            for (String name : columnFamilies.keySet()) {
-                columnFamilyDescriptors.add(new ColumnFamilyDescriptor(name.getBytes(), columnFamilyOptions));
+            columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY,
+                    createColumnFamilyOptions(ColumnFamilyProfile.DEFAULT, compressionType)));
+            for (Map.Entry<String, Class<? extends Persistable>> columnFamily : columnFamilies.entrySet()) {
+                ColumnFamilyProfile profile = columnFamilyTuning
+                        ? COLUMN_FAMILY_PROFILES.getOrDefault(columnFamily.getValue(), ColumnFamilyProfile.DEFAULT)
+                        : ColumnFamilyProfile.DEFAULT;
+                columnFamilyDescriptors.add(new ColumnFamilyDescriptor(columnFamily.getKey().getBytes(),
+                        createColumnFamilyOptions(profile, compressionType)));
             }
             // metadata descriptor is always last
             if (metadataColumnFamily != null) {
-                columnFamilyDescriptors.add(
-                        new ColumnFamilyDescriptor(metadataColumnFamily.getKey().getBytes(), columnFamilyOptions));
+                columnFamilyDescriptors.add(new ColumnFamilyDescriptor(metadataColumnFamily.getKey().getBytes(),
+                        createColumnFamilyOptions(ColumnFamilyProfile.DEFAULT, compressionType)));
                 metadataReference = new HashMap<>();
             }
 
@@ -0,0 +1,89 @@
+package com.iota.iri.storage.rocksDB;
+
+import com.iota.iri.utils.thread.DedicatedScheduledExecutorService;
+import com.iota.iri.utils.thread.SilentScheduledExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes the statistics of a {@link RocksDBPersistenceProvider} to the log.<br />
+ * <br />
+ * The summary is logged on the info level, so the behaviour of the database can be correlated with the sync state of
+ * the node that is logged next to it. The sizes of the single column families are logged on the debug level.<br />
+ */
+public class StatisticsLogger {
+    /**
+     * Holds the interval (in milliseconds) in which the statistics are logged.<br />
+     */
+    private static final int LOG_INTERVAL = 60000;
+
+    /**
+     * Holds the logger of this class.<br />
+     */
+    private static final Logger log = LoggerFactory.getLogger(StatisticsLogger.class);
+
+    /**
+     * Holds the database whose statistics are logged.<br />
+     */
+    private final RocksDBPersistenceProvider persistenceProvider;
+
+    /**
+     * Holds a reference to the manager of the background worker.<br />
+     */
+    private final SilentScheduledExecutorService executorService = new DedicatedScheduledExecutorService(
+            "DB Statistics Logger", log);
+
+    /**
+     * Creates a logger for the given database.<br />
+     *
+     * @param persistenceProvider the database whose statistics shall be logged
+     */
+    public StatisticsLogger(RocksDBPersistenceProvider persistenceProvider) {
+        this.persistenceProvider = persistenceProvider;
+    }
+
+    /**
+     * Starts the background worker that logs the statistics.<br />
+     */
+    public void start() {
+        executorService.silentScheduleWithFixedDelay(this::logStatistics, LOG_INTERVAL, LOG_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background worker.<br />
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Logs the current statistics of the database.<br />
+     */
+    @SuppressWarnings("unchecked")
+    private void logStatistics() {
+        try {
+            Map<String, Object> statistics = persistenceProvider.getStatistics();
+            Map<String, Double> getMicros = (Map<String, Double>) statistics.get("getMicros");
+
+            log.info(String.format("DB: cache hit rate %.1f%%, %d useful bloom filter checks, stalls %d ms, "
+                    + "compaction %d MB read / %d MB written, get p99 %.0f us",
+                    (Double) statistics.get("blockCacheHitRate") * 100,
+                    (Long) statistics.get("bloomFilterUseful"),
+                    (Long) statistics.get("stallMicros") / 1000,
+                    (Long) statistics.get("compactionReadBytes") >> 20,
+                    (Long) statistics.get("compactionWriteBytes") >> 20,
+                    getMicros.get("p99")));
+
+            if (log.isDebugEnabled()) {
+                ((Map<String, Object>) statistics.get("columnFamilies")).forEach((name, properties) ->
+                        log.debug("DB column family {}: {}", name, properties));
+            }
+        } catch (Exception e) {
+            log.error("failed to read the statistics of the database", e);
+        }
+    }
+}
@@ -40,6 +40,26 @@ public class IotaUtils {
         return ByteBuffer.wrap(Arrays.copyOf(hash.bytes(), length));
     }
 
+    /**
+     * Compares two byte arrays lexicographically by their unsigned bytes, which is the order of the default comparator
+     * of RocksDB (a shorter array comes first if it is a prefix of the other one).
+     *
+     * @param first the first array
+     * @param second the second array
+     * @return a negative number, zero or a positive number if the first array is less than, equal to or greater than
+     *         the second one
+     */
+    public static int compareUnsigned(byte[] first, byte[] second) {
+        int length = Math.min(first.length, second.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (first[i] & 0xFF) - (second[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return first.length - second.length;
+    }
+
     /**
      * @param clazz Class to inspect
      * @return All the declared and inherited setter method of {@code clazz}
@@ -0,0 +1,119 @@
+package com.iota.iri.utils.collections.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bloom filter for keys that are hashes already (like addresses or transaction hashes).
+ *
+ * <p>
+ *     The filter answers if a key might have been added or was definitely never added. It never returns a false
+ *     negative, while the rate of false positives depends on the number of bits per key: with 10 bits per key (and 7
+ *     hash functions) it is about 1%, as long as no more keys than the expected number were added.
+ * </p>
+ * <p>
+ *     Since the keys are hashes already, two cheap multiplicative hashes of the key are enough to derive the positions
+ *     of the bits (with double hashing). The filter is thread safe and lock free, but keys can not be removed. A filter
+ *     that is full has to be replaced by a bigger one.
+ * </p>
+ */
+public class BloomFilter {
+
+    /**
+     * Multiplier that spreads the bytes of the key over the 64 bits of the hash values.
+     */
+    private static final long MIX_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashFunctions;
+
+    /**
+     * Creates a filter that holds the expected number of keys with the given number of bits per key.
+     *
+     * @param expectedKeys the number of keys that is expected to be added
+     * @param bitsPerKey the number of bits that is reserved for every key
+     */
+    public BloomFilter(long expectedKeys, int bitsPerKey) {
+        if (expectedKeys <= 0 || bitsPerKey <= 0) {
+            throw new IllegalArgumentException("the number of keys and the bits per key must be positive");
+        }
+
+        long wordCount = (Math.max(expectedKeys * bitsPerKey, Long.SIZE) + Long.SIZE - 1) / Long.SIZE;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the filter for " + expectedKeys + " keys is too big");
+        }
+
+        words = new AtomicLongArray((int) wordCount);
+        bitCount = wordCount * Long.SIZE;
+        // the optimal number of hash functions is ln(2) * bits per key
+        hashFunctions = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+    }
+
+    /**
+     * Adds a key to the filter.
+     *
+     * @param key the bytes of the key
+     */
+    public void add(byte[] key) {
+        long hash1 = hash(key, 0);
+        long hash2 = hash(key, 1) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                // retry until the bit is set
+            }
+        }
+    }
+
+    /**
+     * Checks if a key might have been added to the filter.
+     *
+     * @param key the bytes of the key
+     * @return {@code false} if the key was definitely never added and {@code true} if it might have been added
+     */
+    public boolean mightContain(byte[] key) {
+        long hash1 = hash(key, 0);
+        long hash2 = hash(key, 1) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the size of the filter in bytes
+     */
+    public long sizeInBytes() {
+        return bitCount / Byte.SIZE;
+    }
+
+    /**
+     * Folds the bytes of the key into a 64 bit value (using a different seed for every hash value).
+     */
+    private static long hash(byte[] key, int seed) {
+        long hash = seed * MIX_MULTIPLIER;
+        for (byte b : key) {
+            hash = (hash ^ b) * MIX_MULTIPLIER;
+            hash ^= hash >>> 29;
+        }
+
+        // finalizer of MurmurHash3 to avalanche the remaining bits
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
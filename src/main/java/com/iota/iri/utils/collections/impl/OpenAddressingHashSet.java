@@ -0,0 +1,243 @@
+package com.iota.iri.utils.collections.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A hash set that stores its elements directly in an array and resolves collisions by linear probing.
+ *
+ * <p>
+ *     In contrast to {@link java.util.HashSet} it does not allocate a node object for every element, which makes it a
+ *     good fit for the "visited" sets of graph traversals that see millions of short-lived elements. Since {@link
+ *     #clear()} keeps the allocated table, an instance can be reused for many traversals without allocating anything
+ *     once it reached its working size.
+ * </p>
+ * <p>
+ *     The set does not permit {@code null} elements, it is not thread safe and its iterator does not support
+ *     {@link Iterator#remove()}.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ */
+public class OpenAddressingHashSet<E> extends AbstractSet<E> {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Multiplier of the fibonacci hashing that spreads the bits of the hash codes over the whole table.
+     */
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private Object[] table;
+
+    private int shift;
+
+    private int size;
+
+    /**
+     * Creates a set with a default initial capacity.
+     */
+    public OpenAddressingHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a set that can hold the given amount of elements without being resized.
+     *
+     * @param expectedSize the amount of elements that is expected to be stored
+     */
+    public OpenAddressingHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    @Override
+    public boolean add(E element) {
+        Objects.requireNonNull(element, "the set does not permit null elements");
+
+        Object[] table = this.table;
+        int mask = table.length - 1;
+        int index = indexOf(element);
+        Object current;
+        while ((current = table[index]) != null) {
+            if (current.equals(element)) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        table[index] = element;
+        if (++size > table.length >>> 1) {
+            resize(table.length << 1);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        if (element == null) {
+            return false;
+        }
+
+        Object[] table = this.table;
+        int mask = table.length - 1;
+        int index = indexOf(element);
+        Object current;
+        while ((current = table[index]) != null) {
+            if (current.equals(element)) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        if (element == null) {
+            return false;
+        }
+
+        Object[] table = this.table;
+        int mask = table.length - 1;
+        int index = indexOf(element);
+        Object current;
+        while ((current = table[index]) != null) {
+            if (current.equals(element)) {
+                shiftBack(index);
+                size--;
+
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all elements but keeps the allocated table, so the set can be refilled without allocating memory.
+     */
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(table, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the number of slots of the underlying table.
+     *
+     * @return the number of slots of the underlying table
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Object[] elements = table;
+
+            private int index = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return index < elements.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                E element = (E) elements[index];
+                index = advance(index + 1);
+
+                return element;
+            }
+
+            private int advance(int from) {
+                while (from < elements.length && elements[from] == null) {
+                    from++;
+                }
+
+                return from;
+            }
+        };
+    }
+
+    private int indexOf(Object element) {
+        return (element.hashCode() * GOLDEN_RATIO) >>> shift;
+    }
+
+    /**
+     * Closes the gap that the removal of an element leaves in its probe sequence by moving the following elements of
+     * the same cluster back (this way no tombstones are needed).
+     *
+     * @param gap index of the removed element
+     */
+    private void shiftBack(int gap) {
+        Object[] table = this.table;
+        int mask = table.length - 1;
+        int index = gap;
+        while (true) {
+            table[gap] = null;
+            Object current;
+            do {
+                index = (index + 1) & mask;
+                if ((current = table[index]) == null) {
+                    return;
+                }
+                int home = indexOf(current);
+                // move the element only if its home slot is not located (cyclically) between the gap and its slot
+                if (gap <= index ? (gap >= home || home > index) : (gap >= home && home > index)) {
+                    break;
+                }
+            } while (true);
+            table[gap] = current;
+            gap = index;
+        }
+    }
+
+    private void resize(int newCapacity) {
+        Object[] oldTable = table;
+        allocate(newCapacity);
+        Object[] table = this.table;
+        int mask = table.length - 1;
+        for (Object element : oldTable) {
+            if (element != null) {
+                int index = indexOf(element);
+                while (table[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = element;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new Object[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, DEFAULT_CAPACITY / 2) * 2 - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("expected size too large: " + expectedSize);
+        }
+
+        return capacity;
+    }
+}
@@ -6,16 +6,26 @@ import com.iota.iri.model.Hash;
 import com.iota.iri.storage.Tangle;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import pl.touk.throwing.ThrowingConsumer;
+import pl.touk.throwing.ThrowingPredicate;
+import pl.touk.throwing.exception.WrappedException;
 
 /**
  * This class offers generic functions for recurring tasks that are related to the tangle and that otherwise would have
  * to be implemented over and over again in different parts of the code.
  */
 public class DAGHelper {
+    /**
+     * Maximum amount of keys that the batched traversals request from the database at once.
+     */
+    private static final int BATCH_SIZE = 1000;
+
     /**
      * Holds references to the singleton DAGHelper instances.
      */
@@ -73,7 +83,8 @@ public class DAGHelper {
      *
      * It uses an non-recursive iterative algorithm that is able to handle huge chunks of the tangle without running out
      * of memory. It creates a queue of transactions that are being examined and processes them one by one. As new
-     * approvers are found, they will be added to the queue and processed accordingly.
+     * approvers are found, they will be added to the queue and processed accordingly. The queue is taken from a
+     * {@link TraversalContext}, so repeated traversals do not allocate new collections.
      *
      * Every found transaction is passed into the provided condition lambda, to determine if it still belongs to the
      * desired set of transactions and only then will be passed on to the currentTransactionConsumer lambda.
@@ -90,7 +101,39 @@ public class DAGHelper {
                                   Predicate<TransactionViewModel> condition,
                                   Consumer<TransactionViewModel> currentTransactionConsumer,
                                   Set<Hash> processedTransactions) throws TraversalException {
-        Queue<Hash> transactionsToExamine = new ArrayDeque<>(Collections.singleton(startingTransactionHash));
+        try (TraversalContext context = TraversalContext.acquire()) {
+            traverseApprovers(startingTransactionHash, condition, currentTransactionConsumer, processedTransactions,
+                    context.getQueue());
+        }
+    }
+
+    /**
+     * Works like {@link DAGHelper#traverseApprovers(Hash, Predicate, Consumer, Set)} but defaults to an empty
+     * set of processed transactions to consider all transactions.
+     *
+     * @see DAGHelper#traverseApprovers(Hash, Predicate, Consumer, Set)
+     *
+     * @param startingTransactionHash the starting point of the traversal
+     * @param condition predicate that allows to control how long the traversal should continue (receives the current
+     *                  transaction as a parameter)
+     * @param currentTransactionConsumer a lambda function that allows us to "process" the found transactions
+     * @throws TraversalException if anything goes wrong while traversing the graph and processing the transactions
+     */
+    public void traverseApprovers(Hash startingTransactionHash,
+                                  Predicate<TransactionViewModel> condition,
+                                  Consumer<TransactionViewModel> currentTransactionConsumer) throws TraversalException {
+        try (TraversalContext context = TraversalContext.acquire()) {
+            traverseApprovers(startingTransactionHash, condition, currentTransactionConsumer, context.getVisited(),
+                    context.getQueue());
+        }
+    }
+
+    private void traverseApprovers(Hash startingTransactionHash,
+                                   Predicate<TransactionViewModel> condition,
+                                   Consumer<TransactionViewModel> currentTransactionConsumer,
+                                   Set<Hash> processedTransactions,
+                                   Queue<Hash> transactionsToExamine) throws TraversalException {
+        transactionsToExamine.add(startingTransactionHash);
         try {
             Hash currentTransactionHash;
             while((currentTransactionHash = transactionsToExamine.poll()) != null) {
@@ -118,21 +161,87 @@ public class DAGHelper {
     }
 
     /**
-     * Works like {@link DAGHelper#traverseApprovers(Hash, Predicate, Consumer, Set)} but defaults to an empty
-     * set of processed transactions to consider all transactions.
+     * Works like {@link DAGHelper#traverseApprovers(Hash, Predicate, Consumer, Set)} but traverses the approvers level
+     * by level (breadth first) instead of one transaction at a time.
      *
-     * @see DAGHelper#traverseApprovers(Hash, Predicate, Consumer, Set)
+     * The transactions of a level and their approvers are loaded with batched database requests of up to
+     * {@link #BATCH_SIZE} keys, which saves a round trip to the database per transaction. If a {@link ForkJoinPool}
+     * is provided, the condition and the consumer are executed in parallel on it for all transactions of a level, so
+     * they have to be thread safe in that case. The set of processed transactions is only accessed by the calling
+     * thread.
      *
      * @param startingTransactionHash the starting point of the traversal
      * @param condition predicate that allows to control how long the traversal should continue (receives the current
      *                  transaction as a parameter)
      * @param currentTransactionConsumer a lambda function that allows us to "process" the found transactions
+     * @param processedTransactions a set of hashes that shall be considered as "processed" already and that will
+     *                              consequently be ignored in the traversal
+     * @param pool pool that processes the transactions of a level in parallel or {@code null} to process them in the
+     *             calling thread
      * @throws TraversalException if anything goes wrong while traversing the graph and processing the transactions
      */
-    public void traverseApprovers(Hash startingTransactionHash,
-                                  Predicate<TransactionViewModel> condition,
-                                  Consumer<TransactionViewModel> currentTransactionConsumer) throws TraversalException {
-        traverseApprovers(startingTransactionHash, condition, currentTransactionConsumer, new HashSet<>());
+    public void traverseApproversBatched(Hash startingTransactionHash,
+                                         Predicate<TransactionViewModel> condition,
+                                         Consumer<TransactionViewModel> currentTransactionConsumer,
+                                         Set<Hash> processedTransactions,
+                                         ForkJoinPool pool) throws TraversalException {
+        try {
+            List<Hash> currentLevel = loadApprovers(Collections.singletonList(startingTransactionHash),
+                    processedTransactions);
+            while (!currentLevel.isEmpty()) {
+                List<Hash> nextLevel = new ArrayList<>();
+                for (List<Hash> batch : batches(currentLevel)) {
+                    List<Hash> acceptedTransactions = processLevel(TransactionViewModel.fromHashes(tangle, batch),
+                            condition, currentTransactionConsumer::accept, pool).stream()
+                            .map(TransactionViewModel::getHash)
+                            .collect(Collectors.toList());
+
+                    nextLevel.addAll(loadApprovers(acceptedTransactions, processedTransactions));
+                }
+                currentLevel = nextLevel;
+            }
+        } catch (Exception e) {
+            throw new TraversalException("error while traversing the approvers of transaction " + startingTransactionHash, e);
+        }
+    }
+
+    /**
+     * Works like {@link DAGHelper#traverseApproversBatched(Hash, Predicate, Consumer, Set, ForkJoinPool)} but
+     * defaults to an empty set of processed transactions to consider all transactions.
+     *
+     * @see DAGHelper#traverseApproversBatched(Hash, Predicate, Consumer, Set, ForkJoinPool)
+     *
+     * @param startingTransactionHash the starting point of the traversal
+     * @param condition predicate that allows to control how long the traversal should continue (receives the current
+     *                  transaction as a parameter)
+     * @param currentTransactionConsumer a lambda function that allows us to "process" the found transactions
+     * @param pool pool that processes the transactions of a level in parallel or {@code null} to process them in the
+     *             calling thread
+     * @throws TraversalException if anything goes wrong while traversing the graph and processing the transactions
+     */
+    public void traverseApproversBatched(Hash startingTransactionHash,
+                                         Predicate<TransactionViewModel> condition,
+                                         Consumer<TransactionViewModel> currentTransactionConsumer,
+                                         ForkJoinPool pool) throws TraversalException {
+        try (TraversalContext context = TraversalContext.acquire()) {
+            traverseApproversBatched(startingTransactionHash, condition, currentTransactionConsumer,
+                    context.getVisited(), pool);
+        }
+    }
+
+    private List<Hash> loadApprovers(List<Hash> transactionHashes, Set<Hash> processedTransactions)
+            throws Exception {
+
+        List<Hash> approvers = new ArrayList<>();
+        for (ApproveeViewModel approveeViewModel : ApproveeViewModel.load(tangle, transactionHashes)) {
+            for (Hash approver : approveeViewModel.getHashes()) {
+                if (processedTransactions.add(approver)) {
+                    approvers.add(approver);
+                }
+            }
+        }
+
+        return approvers;
     }
 
     //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -148,7 +257,8 @@ public class DAGHelper {
      *
      * It uses an non-recursive iterative algorithm that is able to handle huge chunks of the tangle without running out
      * of memory. It creates a queue of transactions that are being examined and processes them one by one. As new
-     * approvees are found, they will be added to the queue and processed accordingly.
+     * approvees are found, they will be added to the queue and processed accordingly. The queue is taken from a
+     * {@link TraversalContext}, so repeated traversals do not allocate new collections.
      *
      * Every found transaction is passed into the provided condition lambda, to determine if it still belongs to the
      * desired set of transactions and only then will be passed on to the currentTransactionConsumer lambda.
@@ -165,7 +275,40 @@ public class DAGHelper {
                                   Predicate<TransactionViewModel> condition,
                                   ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer,
                                   Set<Hash> processedTransactions) throws TraversalException {
-        Queue<Hash> transactionsToExamine = new ArrayDeque<>(Collections.singleton(startingTransactionHash));
+        try (TraversalContext context = TraversalContext.acquire()) {
+            traverseApprovees(startingTransactionHash, condition, currentTransactionConsumer, processedTransactions,
+                    context.getQueue());
+        }
+    }
+
+    /**
+     * Works like {@link DAGHelper#traverseApprovees(Hash, Predicate, Consumer, Set)} but defaults to an empty
+     * set of processed transactions to consider all transactions.
+     *
+     * @see DAGHelper#traverseApprovees(Hash, Predicate, Consumer, Set)
+     *
+     * @param startingTransactionHash the starting point of the traversal
+     * @param condition predicate that allows to control how long the traversal should continue (receives the current
+     *                  transaction as a parameter)
+     * @param currentTransactionConsumer a lambda function that allows us to "process" the found transactions
+     * @throws TraversalException if anything goes wrong while traversing the graph and processing the transactions
+     */
+    public void traverseApprovees(Hash startingTransactionHash,
+                                  Predicate<TransactionViewModel> condition,
+                                  ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer)
+            throws TraversalException {
+        try (TraversalContext context = TraversalContext.acquire()) {
+            traverseApprovees(startingTransactionHash, condition, currentTransactionConsumer, context.getVisited(),
+                    context.getQueue());
+        }
+    }
+
+    private void traverseApprovees(Hash startingTransactionHash,
+                                   Predicate<TransactionViewModel> condition,
+                                   ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer,
+                                   Set<Hash> processedTransactions,
+                                   Queue<Hash> transactionsToExamine) throws TraversalException {
+        transactionsToExamine.add(startingTransactionHash);
         try {
             Hash currentTransactionHash;
             while((currentTransactionHash = transactionsToExamine.poll()) != null) {
@@ -194,22 +337,154 @@ public class DAGHelper {
     }
 
     /**
-     * Works like {@link DAGHelper#traverseApprovees(Hash, Predicate, Consumer, Set)} but defaults to an empty
-     * set of processed transactions to consider all transactions.
+     * Works like {@link DAGHelper#traverseApprovees(Hash, Predicate, ThrowingConsumer, Set)} but traverses the
+     * approvees level by level (breadth first) instead of one transaction at a time.
      *
-     * @see DAGHelper#traverseApprovees(Hash, Predicate, Consumer, Set)
+     * The transactions of a level are loaded with batched database requests of up to {@link #BATCH_SIZE} keys, which
+     * saves a round trip to the database per transaction. If a {@link ForkJoinPool} is provided, the condition and the
+     * consumer are executed in parallel on it for all transactions of a level, so they have to be thread safe in that
+     * case. The set of processed transactions is only accessed by the calling thread.
      *
      * @param startingTransactionHash the starting point of the traversal
      * @param condition predicate that allows to control how long the traversal should continue (receives the current
      *                  transaction as a parameter)
      * @param currentTransactionConsumer a lambda function that allows us to "process" the found transactions
+     * @param processedTransactions a set of hashes that shall be considered as "processed" already and that will
+     *                              consequently be ignored in the traversal
+     * @param pool pool that processes the transactions of a level in parallel or {@code null} to process them in the
+     *             calling thread
      * @throws TraversalException if anything goes wrong while traversing the graph and processing the transactions
      */
-    public void traverseApprovees(Hash startingTransactionHash,
-                                  Predicate<TransactionViewModel> condition,
-                                  ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer)
-            throws TraversalException {
-        traverseApprovees(startingTransactionHash, condition, currentTransactionConsumer, new HashSet<>());
+    public void traverseApproveesBatched(Hash startingTransactionHash, Predicate<TransactionViewModel> condition,
+            ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer,
+            Set<Hash> processedTransactions, ForkJoinPool pool) throws TraversalException {
+        try {
+            TransactionViewModel startingTransaction = TransactionViewModel.fromHash(tangle, startingTransactionHash);
+            if (startingTransaction.getType() == TransactionViewModel.PREFILLED_SLOT) {
+                return;
+            }
+
+            List<Hash> currentLevel = collectApprovees(Collections.singletonList(startingTransaction),
+                    processedTransactions);
+            while (!currentLevel.isEmpty()) {
+                List<Hash> nextLevel = new ArrayList<>();
+                for (List<Hash> batch : batches(currentLevel)) {
+                    nextLevel.addAll(collectApprovees(processLevel(TransactionViewModel.fromHashes(tangle, batch),
+                            condition, currentTransactionConsumer, pool), processedTransactions));
+                }
+                currentLevel = nextLevel;
+            }
+        } catch (Exception e) {
+            throw new TraversalException("error while traversing the approvees of transaction " + startingTransactionHash, e);
+        }
+    }
+
+    /**
+     * Works like {@link DAGHelper#traverseApproveesBatched(Hash, Predicate, ThrowingConsumer, Set, ForkJoinPool)} but
+     * defaults to an empty set of processed transactions to consider all transactions.
+     *
+     * @see DAGHelper#traverseApproveesBatched(Hash, Predicate, ThrowingConsumer, Set, ForkJoinPool)
+     *
+     * @param startingTransactionHash the starting point of the traversal
+     * @param condition predicate that allows to control how long the traversal should continue (receives the current
+     *                  transaction as a parameter)
+     * @param currentTransactionConsumer a lambda function that allows us to "process" the found transactions
+     * @param pool pool that processes the transactions of a level in parallel or {@code null} to process them in the
+     *             calling thread
+     * @throws TraversalException if anything goes wrong while traversing the graph and processing the transactions
+     */
+    public void traverseApproveesBatched(Hash startingTransactionHash, Predicate<TransactionViewModel> condition,
+            ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer,
+            ForkJoinPool pool) throws TraversalException {
+        try (TraversalContext context = TraversalContext.acquire()) {
+            traverseApproveesBatched(startingTransactionHash, condition, currentTransactionConsumer,
+                    context.getVisited(), pool);
+        }
+    }
+
+    private List<Hash> collectApprovees(List<TransactionViewModel> transactions, Set<Hash> processedTransactions) {
+        List<Hash> approvees = new ArrayList<>(transactions.size() * 2);
+        for (TransactionViewModel transaction : transactions) {
+            if (processedTransactions.add(transaction.getBranchTransactionHash())) {
+                approvees.add(transaction.getBranchTransactionHash());
+            }
+            if (processedTransactions.add(transaction.getTrunkTransactionHash())) {
+                approvees.add(transaction.getTrunkTransactionHash());
+            }
+        }
+
+        return approvees;
+    }
+
+    //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    //region BATCHED TRAVERSAL UTILITIES ///////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Splits a level of the traversal into chunks that can be requested from the database at once.
+     *
+     * @param level hashes of the transactions of the current level
+     * @return views of the level with at most {@link #BATCH_SIZE} elements each
+     */
+    private static List<List<Hash>> batches(List<Hash> level) {
+        List<List<Hash>> batches = new ArrayList<>((level.size() + BATCH_SIZE - 1) / BATCH_SIZE);
+        for (int from = 0; from < level.size(); from += BATCH_SIZE) {
+            batches.add(level.subList(from, Math.min(from + BATCH_SIZE, level.size())));
+        }
+
+        return batches;
+    }
+
+    /**
+     * Tests the loaded transactions of a level and passes the ones that belong to the traversal to the consumer.
+     *
+     * @param transactions the loaded transactions of the level
+     * @param condition predicate that decides if a transaction still belongs to the traversal
+     * @param currentTransactionConsumer a lambda function that "processes" the found transactions
+     * @param pool pool that processes the transactions in parallel or {@code null} to use the calling thread
+     * @return the transactions that passed the condition (in the order of {@code transactions})
+     * @throws Exception if the condition or the consumer fail
+     */
+    private static List<TransactionViewModel> processLevel(List<TransactionViewModel> transactions,
+            Predicate<TransactionViewModel> condition,
+            ThrowingConsumer<TransactionViewModel, ? extends Exception> currentTransactionConsumer,
+            ForkJoinPool pool) throws Exception {
+
+        ThrowingPredicate<TransactionViewModel, Exception> step = transaction -> {
+            if (transaction.getType() != TransactionViewModel.PREFILLED_SLOT && condition.test(transaction)) {
+                currentTransactionConsumer.accept(transaction);
+
+                return true;
+            }
+
+            return false;
+        };
+
+        if (pool == null) {
+            List<TransactionViewModel> acceptedTransactions = new ArrayList<>(transactions.size());
+            for (TransactionViewModel transaction : transactions) {
+                if (step.test(transaction)) {
+                    acceptedTransactions.add(transaction);
+                }
+            }
+
+            return acceptedTransactions;
+        }
+
+        try {
+            // a parallel stream that is started from within a pool runs its tasks in that pool
+            return pool.submit(() -> transactions.parallelStream()
+                    .filter(ThrowingPredicate.unchecked(step))
+                    .collect(Collectors.toList())
+            ).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof WrappedException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+
+            throw e;
+        }
     }
 
     //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,91 @@
+package com.iota.iri.utils.dag;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.utils.collections.impl.OpenAddressingHashSet;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Bundles the collections that are needed to traverse the tangle (a queue of transactions that still have to be
+ * examined and a set of transactions that were visited already) and reuses them across traversals.
+ *
+ * <p>
+ *     The queue is backed by a ring buffer and the set uses open addressing, so neither of them allocates objects per
+ *     element. Instances are pooled per thread and handed out by {@link #acquire()}. They have to be returned with
+ *     {@link #close()}, which is best done with a try-with-resources statement:
+ * </p>
+ * <pre>
+ *     try (TraversalContext context = TraversalContext.acquire()) {
+ *         Queue&lt;Hash&gt; queue = context.getQueue();
+ *         Set&lt;Hash&gt; visited = context.getVisited();
+ *         ...
+ *     }
+ * </pre>
+ * <p>
+ *     Nested traversals on the same thread simply receive different instances. The collections must not be used after
+ *     the context was closed.
+ * </p>
+ */
+public final class TraversalContext implements AutoCloseable {
+
+    /**
+     * Maximum amount of idle contexts that are kept per thread.
+     */
+    private static final int MAX_POOLED_CONTEXTS = 4;
+
+    /**
+     * Contexts whose visited set grew beyond this amount of slots are dropped instead of being pooled, so a single
+     * huge traversal does not pin its memory forever.
+     */
+    private static final int MAX_POOLED_CAPACITY = 1 << 20;
+
+    private static final ThreadLocal<Deque<TraversalContext>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final ArrayDeque<Hash> queue = new ArrayDeque<>();
+
+    private final OpenAddressingHashSet<Hash> visited = new OpenAddressingHashSet<>();
+
+    private TraversalContext() {
+    }
+
+    /**
+     * Takes an idle context of the current thread or creates a new one if there is none.
+     *
+     * @return a context with an empty queue and an empty visited set
+     */
+    public static TraversalContext acquire() {
+        TraversalContext context = POOL.get().poll();
+
+        return context != null ? context : new TraversalContext();
+    }
+
+    /**
+     * @return queue of the transactions that still have to be examined
+     */
+    public Queue<Hash> getQueue() {
+        return queue;
+    }
+
+    /**
+     * @return set of the transactions that were visited already
+     */
+    public Set<Hash> getVisited() {
+        return visited;
+    }
+
+    /**
+     * Empties the collections and hands the context back to the pool of the current thread.
+     */
+    @Override
+    public void close() {
+        Deque<TraversalContext> pool = POOL.get();
+        if (pool.size() < MAX_POOLED_CONTEXTS && visited.capacity() <= MAX_POOLED_CAPACITY) {
+            queue.clear();
+            visited.clear();
+            pool.push(this);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.iota.iri.benchmarks;
 
+import com.iota.iri.benchmarks.collections.TraversalCollectionsBenchmark;
 import com.iota.iri.benchmarks.dbbenchmark.RocksDbBenchmark;
 import org.junit.Test;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -43,4 +45,20 @@ public class BenchmarkRunner {
           .build();
         new Runner(opts).run();
     }
+
+    @Test
+    public void launchCollectionsBenchmark() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(TraversalCollectionsBenchmark.class.getName() + ".*")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(5)
+                .forks(1)
+                .measurementIterations(10)
+                .shouldFailOnError(true)
+                .shouldDoGC(false)
+                .build();
+        new Runner(opts).run();
+    }
 }
@@ -0,0 +1,79 @@
+package com.iota.iri.benchmarks.collections;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.utils.dag.TraversalContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the collections of a breadth first traversal (a {@link LinkedList} queue and a {@link HashSet}) with the
+ * pooled ones of the {@link TraversalContext}. Run it with the gc profiler to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+public class TraversalCollectionsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Hash[] hashes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        hashes = new Hash[size];
+        for (int i = 0; i < size; i++) {
+            byte[] trits = new byte[Hash.SIZE_IN_TRITS];
+            for (int j = 0; j < trits.length; j++) {
+                trits[j] = (byte) (random.nextInt(3) - 1);
+            }
+            hashes[i] = HashFactory.TRANSACTION.create(trits, 0, Hash.SIZE_IN_TRITS);
+        }
+    }
+
+    /**
+     * Traverses with freshly allocated JDK collections.
+     */
+    @Benchmark
+    public int jdkCollections() {
+        return traverse(new LinkedList<>(), new HashSet<>());
+    }
+
+    /**
+     * Traverses with the pooled collections of a {@link TraversalContext}.
+     */
+    @Benchmark
+    public int traversalContext() {
+        try (TraversalContext context = TraversalContext.acquire()) {
+            return traverse(context.getQueue(), context.getVisited());
+        }
+    }
+
+    /**
+     * Simulates a traversal in which every element is reached twice (like a transaction that is referenced as trunk
+     * and as branch).
+     */
+    private int traverse(Queue<Hash> queue, Set<Hash> visited) {
+        queue.add(hashes[0]);
+        int index = 1;
+        Hash hash;
+        while ((hash = queue.poll()) != null) {
+            if (visited.add(hash) && index < hashes.length) {
+                queue.offer(hashes[index]);
+                queue.offer(hashes[index]);
+                index++;
+            }
+        }
+
+        return visited.size();
+    }
+}
@@ -2,17 +2,25 @@ package com.iota.iri.controllers;
 
 import com.iota.iri.conf.MainnetConfig;
 import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
 import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.Bundle;
 import com.iota.iri.service.snapshot.SnapshotProvider;
 import com.iota.iri.service.snapshot.impl.SnapshotProviderImpl;
 import com.iota.iri.storage.Tangle;
 import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import com.iota.iri.utils.Pair;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
 import static com.iota.iri.TransactionTestUtils.getRandomTransactionTrits;
 
 public class BundleViewModelTest {
@@ -79,4 +87,20 @@ public class BundleViewModelTest {
         Assert.assertTrue(result.getHashes().contains(transactionViewModel.getHash()));
     }
 
+    @Test
+    public void hashesCanBeLoadedInPages() throws Exception {
+        Hash bundle = getRandomTransactionHash();
+        List<Hash> transactions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Hash transaction = getRandomTransactionHash();
+            transactions.add(transaction);
+            tangle.saveBatch(Collections.singletonList(new Pair<>(bundle, new Bundle(transaction))));
+        }
+
+        BundleViewModel bundleViewModel = BundleViewModel.load(tangle, bundle);
+        Assert.assertEquals("unexpected number of hashes", 5, bundleViewModel.countHashes());
+        Assert.assertEquals("unexpected first page", transactions.subList(0, 3), bundleViewModel.getHashes(0, 3));
+        Assert.assertEquals("unexpected last page", transactions.subList(3, 5), bundleViewModel.getHashes(3, 3));
+    }
+
 }
\ No newline at end of file
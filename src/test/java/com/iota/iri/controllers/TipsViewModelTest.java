@@ -6,6 +6,9 @@ import org.junit.Test;
 
 import com.iota.iri.model.Hash;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
@@ -30,27 +33,83 @@ public class TipsViewModelTest {
 
     @Test
     public void removeTipHash() throws Exception {
+        TipsViewModel tipsVM = new TipsViewModel();
+        Hash solid = getRandomTransactionHash();
+        Hash nonSolid = getRandomTransactionHash();
+        tipsVM.addTipHash(solid);
+        tipsVM.setSolid(solid);
+        tipsVM.addTipHash(nonSolid);
+
+        tipsVM.removeTipHash(solid);
+        tipsVM.removeTipHash(nonSolid);
 
+        assertEquals(0, tipsVM.size());
+        assertNull(tipsVM.getRandomSolidTipHash());
     }
 
     @Test
     public void setSolid() throws Exception {
-
+        TipsViewModel tipsVM = new TipsViewModel();
+        Hash hash = getRandomTransactionHash();
+        tipsVM.addTipHash(hash);
+        tipsVM.setSolid(hash);
+        //adding a tip that is already solid must not duplicate it
+        tipsVM.addTipHash(hash);
+
+        assertEquals(1, tipsVM.solidSize());
+        assertEquals(0, tipsVM.nonSolidSize());
     }
 
     @Test
     public void getTips() throws Exception {
+        TipsViewModel tipsVM = new TipsViewModel();
+        Set<Hash> expected = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Hash hash = getRandomTransactionHash();
+            tipsVM.addTipHash(hash);
+            if (i % 2 == 0) {
+                tipsVM.setSolid(hash);
+            }
+            expected.add(hash);
+        }
 
+        Collection<Hash> tips = tipsVM.getTips();
+        //the snapshot must not change anymore
+        tipsVM.addTipHash(getRandomTransactionHash());
+
+        assertEquals(expected.size(), tips.size());
+        assertEquals(expected, new HashSet<>(tips));
     }
 
     @Test
     public void getRandomSolidTipHash() throws Exception {
+        TipsViewModel tipsVM = new TipsViewModel();
+        Set<Hash> solidTips = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Hash hash = getRandomTransactionHash();
+            tipsVM.addTipHash(hash);
+            tipsVM.setSolid(hash);
+            solidTips.add(hash);
+        }
+        tipsVM.addTipHash(getRandomTransactionHash());
+        tipsVM.removeTipHash(solidTips.iterator().next());
+        solidTips.remove(solidTips.iterator().next());
 
+        for (int i = 0; i < 100; i++) {
+            assertTrue("should only return solid tips", solidTips.contains(tipsVM.getRandomSolidTipHash()));
+        }
     }
 
     @Test
     public void getRandomNonSolidTipHash() throws Exception {
+        TipsViewModel tipsVM = new TipsViewModel();
+        assertNull(tipsVM.getRandomNonSolidTipHash());
+
+        Hash hash = getRandomTransactionHash();
+        tipsVM.addTipHash(hash);
 
+        assertEquals(hash, tipsVM.getRandomNonSolidTipHash());
+        assertEquals("should fall back to non solid tips", hash, tipsVM.getRandomSolidTipHash());
     }
 
     @Test
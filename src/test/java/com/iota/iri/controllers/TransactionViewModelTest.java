@@ -4,6 +4,8 @@ import com.iota.iri.conf.MainnetConfig;
 import com.iota.iri.crypto.SpongeFactory;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.GraphNode;
+import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.service.snapshot.SnapshotProvider;
 import com.iota.iri.service.snapshot.impl.SnapshotProviderImpl;
 import com.iota.iri.storage.Tangle;
@@ -415,4 +417,75 @@ public class TransactionViewModelTest {
         TransactionViewModel result = TransactionViewModel.first(tangle);
         Assert.assertEquals(transactionViewModel.getHash(), result.getHash());
     }
+
+    @Test
+    public void graphNodeShouldFollowMetadataUpdates() throws Exception {
+        Hash trunk = getRandomTransactionHash();
+        Hash branch = getRandomTransactionHash();
+        Hash hash = getRandomTransactionHash();
+        TransactionViewModel transactionViewModel = new TransactionViewModel(
+                getTransactionWithTrunkAndBranch(trunk, branch), hash);
+        transactionViewModel.store(tangle, snapshotProvider.getInitialSnapshot());
+
+        GraphNode graphNode = (GraphNode) tangle.load(GraphNode.class, hash);
+        Assert.assertEquals(trunk, graphNode.trunk);
+        Assert.assertEquals(branch, graphNode.branch);
+        Assert.assertEquals(transactionViewModel.getBundleHash(), graphNode.bundle);
+        Assert.assertEquals(transactionViewModel.getCurrentIndex(), graphNode.currentIndex);
+        Assert.assertFalse(graphNode.solid);
+        Assert.assertEquals(0, graphNode.snapshot);
+
+        transactionViewModel.updateSolid(true);
+        transactionViewModel.setSnapshot(tangle, snapshotProvider.getInitialSnapshot(), 42);
+
+        graphNode = TransactionViewModel.loadGraphNode(tangle, hash);
+        Assert.assertTrue(graphNode.solid);
+        Assert.assertEquals(42, graphNode.snapshot);
+        Assert.assertNull(TransactionViewModel.loadGraphNode(tangle, getRandomTransactionHash()));
+    }
+
+    @Test
+    public void graphNodeShouldBeDerivedForTransactionsWithoutIt() throws Exception {
+        Hash trunk = getRandomTransactionHash();
+        Hash branch = getRandomTransactionHash();
+        Hash hash = getRandomTransactionHash();
+        new TransactionViewModel(getTransactionWithTrunkAndBranch(trunk, branch), hash)
+                .store(tangle, snapshotProvider.getInitialSnapshot());
+        tangle.delete(GraphNode.class, hash);
+
+        GraphNode graphNode = TransactionViewModel.loadGraphNode(tangle, hash);
+        Assert.assertEquals(trunk, graphNode.trunk);
+        Assert.assertEquals(branch, graphNode.branch);
+    }
+
+    @Test
+    public void metadataUpdatesShouldNotDecodeTheStoredHashes() throws Exception {
+        Hash trunk = getRandomTransactionHash();
+        Hash branch = getRandomTransactionHash();
+        Hash hash = getRandomTransactionHash();
+        TransactionViewModel storedTransaction = new TransactionViewModel(
+                getTransactionWithTrunkAndBranch(trunk, branch), hash);
+        storedTransaction.store(tangle, snapshotProvider.getInitialSnapshot());
+
+        Transaction transaction = (Transaction) tangle.load(Transaction.class, hash);
+        TransactionViewModel transactionViewModel = new TransactionViewModel(transaction, hash);
+        transactionViewModel.setValidity(tangle, snapshotProvider.getInitialSnapshot(), 1);
+        transactionViewModel.updateSolid(true);
+        transactionViewModel.update(tangle, snapshotProvider.getInitialSnapshot(), "solid");
+
+        Assert.assertNull("the address should not be decoded", transaction.address);
+        Assert.assertNull("the tag should not be decoded", transaction.tag);
+        Assert.assertNull("the obsolete tag should not be decoded", transaction.obsoleteTag);
+
+        TransactionViewModel updatedTransaction = TransactionViewModel.fromHash(tangle, hash);
+        Assert.assertEquals(1, updatedTransaction.getValidity());
+        Assert.assertTrue(updatedTransaction.isSolid());
+        Assert.assertEquals(storedTransaction.getAddressHash(), updatedTransaction.getAddressHash());
+        Assert.assertEquals(storedTransaction.getBundleHash(), updatedTransaction.getBundleHash());
+        Assert.assertEquals(trunk, updatedTransaction.getTrunkTransactionHash());
+        Assert.assertEquals(branch, updatedTransaction.getBranchTransactionHash());
+        Assert.assertEquals(storedTransaction.getTagValue(), updatedTransaction.getTagValue());
+        Assert.assertEquals(storedTransaction.getObsoleteTagValue(), updatedTransaction.getObsoleteTagValue());
+        Assert.assertTrue(TransactionViewModel.loadGraphNode(tangle, hash).solid);
+    }
 }
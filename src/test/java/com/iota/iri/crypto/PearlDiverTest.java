@@ -36,6 +36,21 @@ public class PearlDiverTest {
         assertTrue("The hash should have n nines", success);
     }
 
+    @Test
+    public void testRandomTryteHashWideKernel() {
+        for (int lanes = 2; lanes <= PearlDiver.MAX_LANES; lanes *= 2) {
+            pearlDiver = new PearlDiver(lanes);
+            String hash = getHashFor(getRandomTrytes());
+            boolean success = isAllNines(hash.substring(Curl.HASH_LENGTH / 3 - MIN_WEIGHT_MAGNITUDE / 3));
+            assertTrue("The hash should have n nines with " + lanes + " lanes", success);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLanes() {
+        new PearlDiver(0);
+    }
+
     @Test
     public void testCancel() {
         pearlDiver.cancel();
@@ -0,0 +1,100 @@
+package com.iota.iri.model.persistables;
+
+import com.iota.iri.model.Hash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+
+public class HashesTest {
+
+    @Test
+    public void testRoundTrip() {
+        Hashes hashes = new Hashes();
+        for (int i = 0; i < 100; i++) {
+            hashes.set.add(getRandomTransactionHash());
+        }
+
+        Hashes loaded = new Hashes();
+        loaded.read(hashes.bytes());
+
+        Assert.assertEquals("hashes should survive serialization", hashes.set, loaded.set);
+        Assert.assertEquals("unexpected size of the serialized value", 100 * (Hash.SIZE_IN_BYTES + 1) - 1,
+                hashes.bytes().length);
+    }
+
+    @Test
+    public void testEmpty() {
+        Hashes hashes = new Hashes();
+        Assert.assertEquals("empty set should be serialized to an empty value", 0, hashes.bytes().length);
+
+        hashes.read(new byte[0]);
+        Assert.assertTrue("empty value should be read as empty set", hashes.set.isEmpty());
+    }
+
+    @Test
+    public void testReadMergedValues() {
+        // the merge operator of the database joins the values with the delimiter of the format
+        Hashes first = new Hashes();
+        first.set.add(getRandomTransactionHash());
+        first.set.add(getRandomTransactionHash());
+        Hashes second = new Hashes();
+        second.set.add(getRandomTransactionHash());
+
+        byte[] firstBytes = first.bytes();
+        byte[] secondBytes = second.bytes();
+        byte[] merged = new byte[firstBytes.length + 1 + secondBytes.length];
+        System.arraycopy(firstBytes, 0, merged, 0, firstBytes.length);
+        merged[firstBytes.length] = ',';
+        System.arraycopy(secondBytes, 0, merged, firstBytes.length + 1, secondBytes.length);
+
+        Hashes loaded = new Hashes();
+        loaded.read(merged);
+
+        Set<Hash> expected = new LinkedHashSet<>(first.set);
+        expected.addAll(second.set);
+        Assert.assertEquals("merged values should contain the hashes of all operands", expected, loaded.set);
+    }
+
+    @Test
+    public void testPagesOfStoredValue() {
+        Hashes hashes = new Hashes();
+        for (int i = 0; i < 25; i++) {
+            hashes.set.add(getRandomTransactionHash());
+        }
+        List<Hash> expected = new ArrayList<>(hashes.set);
+
+        Hashes loaded = new Hashes();
+        loaded.read(hashes.bytes());
+
+        Assert.assertEquals("unexpected number of stored hashes", 25, loaded.countHashes());
+        List<Hash> pages = new ArrayList<>();
+        for (int offset = 0; offset < 25; offset += 10) {
+            pages.addAll(loaded.getHashes(offset, 10));
+        }
+        Assert.assertEquals("pages should contain the hashes in the stored order", expected, pages);
+        Assert.assertEquals("page after the last hash should be empty", Collections.emptyList(),
+                loaded.getHashes(25, 10));
+        Assert.assertArrayEquals("undecoded value should be written back unchanged", hashes.bytes(), loaded.bytes());
+    }
+
+    @Test
+    public void testPagesOfModifiedSet() {
+        Hashes hashes = new Hashes();
+        hashes.read(new byte[0]);
+        Hash first = getRandomTransactionHash();
+        Hash second = getRandomTransactionHash();
+        hashes.set.add(first);
+        hashes.set.add(second);
+
+        Assert.assertEquals("modified set should be paged", Collections.singletonList(second),
+                hashes.getHashes(1, 5));
+        Assert.assertEquals("modified set should be counted", 2, hashes.countHashes());
+    }
+}
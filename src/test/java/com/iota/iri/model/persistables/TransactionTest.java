@@ -0,0 +1,73 @@
+package com.iota.iri.model.persistables;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+
+public class TransactionTest {
+
+    @Test
+    public void hashesAreDecodedFromTheMetadata() {
+        Transaction transaction = createTransaction();
+
+        Transaction loaded = new Transaction();
+        loaded.readMetadata(transaction.metadata());
+
+        Assert.assertNull("hashes should not be decoded before they are accessed", loaded.trunk);
+        Assert.assertEquals("unexpected address", transaction.address, loaded.getAddress());
+        Assert.assertEquals("unexpected bundle", transaction.bundle, loaded.getBundle());
+        Assert.assertEquals("unexpected trunk", transaction.trunk, loaded.getTrunk());
+        Assert.assertEquals("unexpected branch", transaction.branch, loaded.getBranch());
+        Assert.assertEquals("unexpected obsolete tag", transaction.obsoleteTag, loaded.getObsoleteTag());
+        Assert.assertEquals("unexpected tag", transaction.tag, loaded.getTag());
+        Assert.assertEquals("unexpected value", transaction.value, loaded.value);
+        Assert.assertEquals("unexpected attachment timestamp", transaction.attachmentTimestamp,
+                loaded.attachmentTimestamp);
+    }
+
+    @Test
+    public void metadataCanBeSerializedWithoutDecodingTheHashes() {
+        Transaction transaction = createTransaction();
+        transaction.sender = "127.0.0.1";
+        transaction.solid = true;
+
+        Transaction loaded = new Transaction();
+        loaded.readMetadata(transaction.metadata());
+        loaded.getTrunk();
+        loaded.snapshot = 42;
+
+        Transaction reloaded = new Transaction();
+        reloaded.readMetadata(loaded.metadata());
+        Assert.assertEquals("unexpected trunk", transaction.trunk, reloaded.getTrunk());
+        Assert.assertEquals("unexpected address", transaction.address, reloaded.getAddress());
+        Assert.assertEquals("unexpected tag", transaction.tag, reloaded.getTag());
+        Assert.assertEquals("unexpected snapshot", 42, reloaded.snapshot);
+        Assert.assertEquals("unexpected sender", "127.0.0.1", reloaded.sender);
+        Assert.assertTrue("unexpected solid flag", reloaded.solid);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void metadataOfAnUnknownTransactionCanNotBeSerialized() {
+        new Transaction().metadata();
+    }
+
+    private static Transaction createTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.address = randomHash(HashFactory.ADDRESS);
+        transaction.bundle = randomHash(HashFactory.BUNDLE);
+        transaction.trunk = randomHash(HashFactory.TRANSACTION);
+        transaction.branch = randomHash(HashFactory.TRANSACTION);
+        transaction.obsoleteTag = randomHash(HashFactory.OBSOLETETAG);
+        transaction.tag = randomHash(HashFactory.TAG);
+        transaction.value = 1234;
+        transaction.attachmentTimestamp = 5678;
+        return transaction;
+    }
+
+    private static Hash randomHash(HashFactory factory) {
+        return factory.create(getRandomTransactionHash().bytes(), 0, Hash.SIZE_IN_BYTES);
+    }
+}
@@ -0,0 +1,124 @@
+package com.iota.iri.service.rescan;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Bundle;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.memory.InMemoryPersistenceProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionTrits;
+
+public class DatabaseRescannerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Tangle tangle;
+
+    private File progressFile;
+
+    private List<TransactionViewModel> transactions;
+
+    @Before
+    public void setUp() throws Exception {
+        tangle = new Tangle();
+        tangle.addPersistenceProvider(new InMemoryPersistenceProvider(Tangle.COLUMN_FAMILIES,
+                Tangle.METADATA_COLUMN_FAMILY));
+        tangle.init();
+        progressFile = new File(folder.getRoot(), "rescan.progress");
+
+        transactions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            byte[] trits = getRandomTransactionTrits();
+            TransactionViewModel transaction = new TransactionViewModel(trits,
+                    TransactionHash.calculate(SpongeFactory.Mode.CURLP81, trits));
+            tangle.saveBatch(transaction.getSaveBatch());
+            transactions.add(transaction);
+        }
+        tangle.clearColumn(Address.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tangle.shutdown();
+    }
+
+    @Test
+    public void rescanShouldRebuildTheIndexes() throws Exception {
+        DatabaseRescanner rescanner = new DatabaseRescanner(tangle, progressFile, 4);
+        Assert.assertFalse("no rescan should be pending", rescanner.isInterrupted());
+
+        rescanner.rescan();
+
+        for (TransactionViewModel transaction : transactions) {
+            Address address = (Address) tangle.load(Address.class, transaction.getAddressHash());
+            Assert.assertTrue("address index should be rebuilt", address.set.contains(transaction.getHash()));
+        }
+        Assert.assertTrue("transactions should be kept", TransactionViewModel.exists(tangle,
+                transactions.get(0).getHash()));
+        Assert.assertFalse("progress should be deleted after the rescan", progressFile.exists());
+    }
+
+    @Test
+    public void rescanInterruptedWhileClearingTheIndexesShouldBePending() throws Exception {
+        Tangle failingTangle = Mockito.spy(tangle);
+        Mockito.doThrow(new IllegalStateException("crash while clearing the indexes"))
+                .when(failingTangle).clearColumn(Bundle.class);
+
+        try {
+            new DatabaseRescanner(failingTangle, progressFile, 4).rescan();
+            Assert.fail("the failure should interrupt the rescan");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue("rescan should be pending",
+                    new DatabaseRescanner(tangle, progressFile, 4).isInterrupted());
+        }
+
+        new DatabaseRescanner(tangle, progressFile, 4).rescan();
+
+        for (TransactionViewModel transaction : transactions) {
+            Address address = (Address) tangle.load(Address.class, transaction.getAddressHash());
+            Assert.assertTrue("address index should be rebuilt", address.set.contains(transaction.getHash()));
+        }
+        Assert.assertFalse("progress should be deleted after the rescan", progressFile.exists());
+    }
+
+    @Test
+    public void interruptedRescanShouldSkipFinishedRanges() throws Exception {
+        // all ranges but the one of the first transaction were finished before the interruption
+        int pendingPartition = transactions.get(0).getHash().bytes()[0] & 0xFF;
+        String finished = IntStream.range(0, DatabaseRescanner.PARTITIONS)
+                .filter(partition -> partition != pendingPartition)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining("\n"));
+        Files.write(progressFile.toPath(), finished.getBytes(StandardCharsets.UTF_8));
+
+        DatabaseRescanner rescanner = new DatabaseRescanner(tangle, progressFile, 4);
+        Assert.assertTrue("rescan should be pending", rescanner.isInterrupted());
+        rescanner.rescan();
+
+        for (TransactionViewModel transaction : transactions) {
+            Address address = (Address) tangle.load(Address.class, transaction.getAddressHash());
+            boolean pending = (transaction.getHash().bytes()[0] & 0xFF) == pendingPartition;
+            Assert.assertEquals("only the pending range should be rescanned", pending,
+                    address.set.contains(transaction.getHash()));
+        }
+        Assert.assertFalse("progress should be deleted after the rescan", progressFile.exists());
+    }
+}
@@ -0,0 +1,87 @@
+package com.iota.iri.service.snapshot.impl;
+
+import com.iota.iri.service.snapshot.Snapshot;
+import com.iota.iri.service.snapshot.SnapshotException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LocalSnapshotWriterTest {
+
+    private static final String BASE_PATH = "local-snapshot";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private SnapshotProviderImpl snapshotProvider;
+
+    @Mock
+    private Snapshot snapshot;
+
+    @Mock
+    private Snapshot newerSnapshot;
+
+    private LocalSnapshotWriter writer;
+
+    @Before
+    public void setUp() {
+        writer = new LocalSnapshotWriter(snapshotProvider);
+    }
+
+    @After
+    public void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    public void persistCompletesWhenTheFilesWereWritten() throws Exception {
+        writer.start();
+
+        writer.persist(snapshot, BASE_PATH).get(10, TimeUnit.SECONDS);
+
+        Mockito.verify(snapshotProvider).writeSnapshotToDisk(Mockito.eq(snapshot), Mockito.eq(BASE_PATH),
+                Mockito.anyLong());
+    }
+
+    @Test
+    public void persistFailsWhenTheFilesCanNotBeWritten() throws Exception {
+        SnapshotException failure = new SnapshotException("failed to write snapshot files");
+        Mockito.doThrow(failure).when(snapshotProvider).writeSnapshotToDisk(Mockito.eq(snapshot),
+                Mockito.eq(BASE_PATH), Mockito.anyLong());
+        writer.start();
+
+        try {
+            writer.persist(snapshot, BASE_PATH).get(10, TimeUnit.SECONDS);
+            Assert.fail("the failed write should fail the future");
+        } catch (ExecutionException e) {
+            Assert.assertSame("the failure of the write should be the cause", failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void skippedSnapshotCompletesWithTheNewerOne() throws Exception {
+        Future<Void> skippedWrite = writer.persist(snapshot, BASE_PATH);
+        Future<Void> newerWrite = writer.persist(newerSnapshot, BASE_PATH);
+
+        writer.shutdown();
+
+        Assert.assertTrue("the newer snapshot should be written during the shutdown", newerWrite.isDone());
+        Assert.assertTrue("the skipped snapshot should complete with the newer one", skippedWrite.isDone());
+        newerWrite.get();
+        skippedWrite.get();
+        Mockito.verify(snapshotProvider).writeSnapshotToDisk(newerSnapshot, BASE_PATH, 0);
+        Mockito.verify(snapshotProvider, Mockito.never()).writeSnapshotToDisk(Mockito.eq(snapshot),
+                Mockito.anyString(), Mockito.anyLong());
+    }
+}
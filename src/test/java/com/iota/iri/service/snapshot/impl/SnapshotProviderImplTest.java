@@ -0,0 +1,104 @@
+package com.iota.iri.service.snapshot.impl;
+
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.conf.SnapshotConfig;
+import com.iota.iri.service.snapshot.Snapshot;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+public class SnapshotProviderImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SnapshotProviderImpl provider;
+
+    private SnapshotProviderImpl resumedProvider;
+
+    private String basePath;
+
+    private SnapshotConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        basePath = new File(folder.getRoot(), "mainnet").getAbsolutePath();
+        File spentAddressesDb = folder.newFolder("spent-addresses-db");
+        Assert.assertTrue(new File(spentAddressesDb, "000001.sst").createNewFile());
+        config = new MainnetConfig() {
+            @Override
+            public String getLocalSnapshotsBasePath() {
+                return basePath;
+            }
+
+            @Override
+            public String getSpentAddressesDbPath() {
+                return spentAddressesDb.getAbsolutePath();
+            }
+        };
+
+        provider = new SnapshotProviderImpl().init(new MainnetConfig());
+    }
+
+    @After
+    public void tearDown() {
+        provider.shutdown();
+        if (resumedProvider != null) {
+            resumedProvider.shutdown();
+        }
+    }
+
+    @Test
+    public void localSnapshotIsResumedFromTheBinaryStateFile() throws Exception {
+        Snapshot localSnapshot = createLocalSnapshot();
+
+        provider.writeSnapshotToDisk(localSnapshot, basePath);
+
+        Assert.assertTrue("the state should be written to the binary file",
+                new File(basePath + ".snapshot.state.bin").isFile());
+        Assert.assertFalse("no text state file should be written", new File(basePath + ".snapshot.state").exists());
+        resumedProvider = new SnapshotProviderImpl().init(config);
+        Assert.assertEquals("the node should resume from the local snapshot", localSnapshot.getIndex(),
+                resumedProvider.getInitialSnapshot().getIndex());
+    }
+
+    @Test
+    public void localSnapshotOfOlderVersionsIsResumedFromTheTextStateFile() throws Exception {
+        Snapshot localSnapshot = createLocalSnapshot();
+        provider.writeSnapshotToDisk(localSnapshot, basePath);
+        SnapshotStateFile.convertBinaryToText(basePath + ".snapshot.state.bin", basePath + ".snapshot.state");
+        Assert.assertTrue(new File(basePath + ".snapshot.state.bin").delete());
+
+        resumedProvider = new SnapshotProviderImpl().init(config);
+
+        Assert.assertEquals("the node should resume from the local snapshot of the older version",
+                localSnapshot.getIndex(), resumedProvider.getInitialSnapshot().getIndex());
+    }
+
+    @Test
+    public void textStateFileOfOlderVersionsIsMovedAsideWhenTheBinaryOneIsWritten() throws Exception {
+        provider.writeSnapshotToDisk(createLocalSnapshot(), basePath);
+        SnapshotStateFile.convertBinaryToText(basePath + ".snapshot.state.bin", basePath + ".snapshot.state");
+
+        provider.writeSnapshotToDisk(createLocalSnapshot(), basePath);
+
+        Assert.assertFalse("a downgraded node should not pair the stale text state with the new metadata",
+                new File(basePath + ".snapshot.state").exists());
+        Assert.assertTrue("the text state file should be kept as a backup",
+                new File(basePath + ".snapshot.state.bkp").isFile());
+        Assert.assertTrue("the binary state file should be written",
+                new File(basePath + ".snapshot.state.bin").isFile());
+    }
+
+    private Snapshot createLocalSnapshot() {
+        Snapshot localSnapshot = provider.getInitialSnapshot().clone();
+        localSnapshot.setIndex(localSnapshot.getIndex() + 10);
+
+        return localSnapshot;
+    }
+}
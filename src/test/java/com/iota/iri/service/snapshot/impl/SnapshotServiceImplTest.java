@@ -1,15 +1,22 @@
 package com.iota.iri.service.snapshot.impl;
 
 import com.iota.iri.TangleMockUtils;
+import com.iota.iri.conf.SnapshotConfig;
 import com.iota.iri.controllers.MilestoneViewModel;
 import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.SpongeFactory;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.TransactionHash;
 import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.service.snapshot.Snapshot;
 import com.iota.iri.service.snapshot.SnapshotException;
 import com.iota.iri.service.snapshot.SnapshotProvider;
+import com.iota.iri.service.transactionpruning.TransactionPruner;
 import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.memory.InMemoryPersistenceProvider;
+import com.iota.iri.utils.Converter;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.FixMethodOrder;
@@ -18,11 +25,20 @@ import org.junit.Test;
 import org.junit.runners.MethodSorters;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionTrits;
+import static com.iota.iri.TransactionTestUtils.getTransactionTritsWithTrunkAndBranch;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class SnapshotServiceImplTest {
@@ -64,6 +80,13 @@ public class SnapshotServiceImplTest {
     private static final Hash ADDRESS_3 = HashFactory.ADDRESS.create(
             "JLDULQUXBL99AGZZKXMACLJRAYDUTBTMFGLEHVTLDTHVUIBYV9ZKGHLWCVFJVIYGHNXNTQUYQTISHDUSW");
 
+    /**
+     * Holds the timestamp (in seconds) of the transactions that are persisted by the tests.
+     */
+    private static final long TIMESTAMP = 1_500_000_000L;
+
+    private static final String LOCAL_SNAPSHOTS_BASE_PATH = "local-snapshot";
+
     //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     //region [BOILERPLATE] /////////////////////////////////////////////////////////////////////////////////////////////
@@ -77,6 +100,10 @@ public class SnapshotServiceImplTest {
     @InjectMocks
     private SnapshotServiceImpl snapshotService;
 
+    private final List<Tangle> persistedTangles = new ArrayList<>();
+
+    private final List<SnapshotServiceImpl> services = new ArrayList<>();
+
     @Before
     public void setUp() {
         SnapshotMockUtils.mockSnapshotProvider(snapshotProvider);
@@ -84,6 +111,18 @@ public class SnapshotServiceImplTest {
         MilestoneViewModel.clear();
     }
 
+    @After
+    public void tearDown() throws Exception {
+        for (SnapshotServiceImpl service : services) {
+            service.shutdown();
+        }
+        for (Tangle persistedTangle : persistedTangles) {
+            persistedTangle.shutdown();
+        }
+
+        MilestoneViewModel.clear();
+    }
+
     //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     //region [TEST: replayMilestones] //////////////////////////////////////////////////////////////////////////////////
@@ -258,8 +297,238 @@ public class SnapshotServiceImplTest {
 
     //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    //region [TEST: generateSolidEntryPoints] ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void generateSolidEntryPointsMemoizesOrphanedStatus() throws Exception {
+        int milestoneIndex = snapshotProvider.getInitialSnapshot().getIndex() + 1;
+        Tangle persistedTangle = Mockito.spy(createTangle());
+        SnapshotServiceImpl service = createService(persistedTangle);
+
+        // every confirmed transaction has an unconfirmed approver and all of them are approved by the same subtangle
+        int confirmedTransactions = 20;
+        Hash confirmedTransaction = Hash.NULL_HASH;
+        Hash sharedApprover = Hash.NULL_HASH;
+        for (int i = 0; i < confirmedTransactions; i++) {
+            confirmedTransaction = storeTransaction(persistedTangle, confirmedTransaction, confirmedTransaction,
+                    milestoneIndex, 0).getHash();
+            Hash unconfirmedApprover = storeTransaction(persistedTangle, confirmedTransaction, confirmedTransaction, 0,
+                    0).getHash();
+            sharedApprover = storeTransaction(persistedTangle, unconfirmedApprover, sharedApprover, 0, 0).getHash();
+        }
+        Hash tip = sharedApprover;
+        for (int i = 0; i < 10; i++) {
+            tip = storeTransaction(persistedTangle, tip, tip, 0, 0).getHash();
+        }
+        MilestoneViewModel milestone = storeMilestone(persistedTangle, confirmedTransaction, milestoneIndex);
+
+        Map<Hash, Integer> solidEntryPoints = service.generateSolidEntryPoints(milestone);
+
+        Assert.assertEquals("only the milestone should be a solid entry point",
+                new HashSet<>(Arrays.asList(Hash.NULL_HASH, milestone.getHash())), solidEntryPoints.keySet());
+        // without memoization the subtangle would be traversed once per confirmed transaction
+        Mockito.verify(persistedTangle, Mockito.atMost(
+                Math.min(Runtime.getRuntime().availableProcessors(), confirmedTransactions - 1)))
+                .load(Transaction.class, tip);
+    }
+
+    @Test
+    public void generateSolidEntryPointsChecksTheArrivalOfIndirectApprovers() throws Exception {
+        int milestoneIndex = snapshotProvider.getInitialSnapshot().getIndex() + 1;
+        Tangle persistedTangle = createTangle();
+        SnapshotServiceImpl service = createService(persistedTangle);
+
+        Hash confirmedTransaction = storeTransaction(persistedTangle, Hash.NULL_HASH, Hash.NULL_HASH, milestoneIndex, 0)
+                .getHash();
+        Hash unconfirmedApprover = storeTransaction(persistedTangle, confirmedTransaction, confirmedTransaction, 0, 0)
+                .getHash();
+        // the approver of the unconfirmed approver arrived after the milestone, so the subtangle is not orphaned
+        storeTransaction(persistedTangle, unconfirmedApprover, unconfirmedApprover, 0, (TIMESTAMP + 60) * 1000L);
+        MilestoneViewModel milestone = storeMilestone(persistedTangle, confirmedTransaction, milestoneIndex);
+
+        Assert.assertTrue("a transaction with a non-orphaned indirect approver should be a solid entry point",
+                service.generateSolidEntryPoints(milestone).containsKey(confirmedTransaction));
+    }
+
+    @Test
+    public void generateSolidEntryPointsReusesConfirmedTransactions() throws Exception {
+        Tangle persistedTangle = createTangle();
+        SnapshotServiceImpl service = createService(persistedTangle);
+        List<MilestoneViewModel> milestones = storeMilestonesApprovingTheFirstOne(persistedTangle);
+        TransactionViewModel firstTransaction = TransactionViewModel.fromHash(persistedTangle,
+                milestones.get(0).getHash()).getTrunkTransaction(persistedTangle);
+
+        Assert.assertTrue("the transaction approved by a later milestone should be a solid entry point",
+                service.generateSolidEntryPoints(milestones.get(1)).containsKey(firstTransaction.getHash()));
+
+        // a new traversal would not find the transaction anymore
+        firstTransaction.setSnapshot(persistedTangle, snapshotProvider.getInitialSnapshot(), 0);
+
+        Assert.assertTrue("the confirmed transactions of the milestones should be reused",
+                service.generateSolidEntryPoints(milestones.get(1)).containsKey(firstTransaction.getHash()));
+    }
+
+    @Test
+    public void generateSolidEntryPointsEvictsConfirmedTransactions() throws Exception {
+        int initialIndex = snapshotProvider.getInitialSnapshot().getIndex();
+        Tangle persistedTangle = createTangle();
+        SnapshotServiceImpl service = createService(persistedTangle);
+        List<MilestoneViewModel> milestones = storeMilestonesApprovingTheFirstOne(persistedTangle);
+        TransactionViewModel firstTransaction = TransactionViewModel.fromHash(persistedTangle,
+                milestones.get(0).getHash()).getTrunkTransaction(persistedTangle);
+
+        service.generateSolidEntryPoints(milestones.get(1));
+
+        // the next snapshot starts after the first milestone, so its confirmed transactions are not needed anymore
+        SnapshotMockUtils.mockSnapshotProvider(snapshotProvider, initialIndex + 1);
+        service.generateSolidEntryPoints(milestones.get(2));
+
+        firstTransaction.setSnapshot(persistedTangle, snapshotProvider.getInitialSnapshot(), 0);
+        SnapshotMockUtils.mockSnapshotProvider(snapshotProvider, initialIndex);
+
+        Assert.assertFalse("the confirmed transactions of the first milestone should be traversed again",
+                service.generateSolidEntryPoints(milestones.get(1)).containsKey(firstTransaction.getHash()));
+    }
+
+    //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    //region [TEST: takeLocalSnapshot] //////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void takeLocalSnapshotReturnsBeforeTheFilesAreWritten() throws Exception {
+        SnapshotServiceImpl service = mockLocalSnapshot();
+        Snapshot newSnapshot = service.generateSnapshot(null, null);
+
+        CompletableFuture<Void> filesWritten = new CompletableFuture<>();
+        Mockito.when(snapshotProvider.writeSnapshotToDiskInBackground(newSnapshot, LOCAL_SNAPSHOTS_BASE_PATH))
+                .thenReturn(filesWritten);
+        TransactionPruner transactionPruner = Mockito.mock(TransactionPruner.class);
+
+        service.takeLocalSnapshot(null, transactionPruner);
+
+        Assert.assertFalse("the files should still be written", filesWritten.isDone());
+        Assert.assertEquals("the initial snapshot should be updated right away", newSnapshot.getIndex(),
+                snapshotProvider.getInitialSnapshot().getIndex());
+        Assert.assertEquals("the latest snapshot should start at the new snapshot", newSnapshot.getIndex(),
+                snapshotProvider.getLatestSnapshot().getInitialIndex());
+        Mockito.verifyZeroInteractions(transactionPruner);
+
+        filesWritten.complete(null);
+
+        Mockito.verify(transactionPruner).addJob(Mockito.any());
+    }
+
+    @Test
+    public void takeLocalSnapshotDoesNotPruneIfTheFilesCanNotBeWritten() throws Exception {
+        SnapshotServiceImpl service = mockLocalSnapshot();
+        Snapshot newSnapshot = service.generateSnapshot(null, null);
+
+        CompletableFuture<Void> filesWritten = new CompletableFuture<>();
+        Mockito.when(snapshotProvider.writeSnapshotToDiskInBackground(newSnapshot, LOCAL_SNAPSHOTS_BASE_PATH))
+                .thenReturn(filesWritten);
+        TransactionPruner transactionPruner = Mockito.mock(TransactionPruner.class);
+
+        service.takeLocalSnapshot(null, transactionPruner);
+        filesWritten.completeExceptionally(new SnapshotException("failed to write snapshot files"));
+
+        Mockito.verifyZeroInteractions(transactionPruner);
+    }
+
+    //endregion ////////////////////////////////////////////////////////////////////////////////////////////////////////
+
     //region [UTILITY METHODS] /////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Creates a service that takes a local snapshot of the milestone following the initial snapshot, without
+     * generating the ledger state of the local snapshot.
+     */
+    private SnapshotServiceImpl mockLocalSnapshot() throws Exception {
+        int initialIndex = snapshotProvider.getInitialSnapshot().getIndex();
+        Tangle persistedTangle = createTangle();
+        MilestoneViewModel milestone = storeMilestone(persistedTangle, Hash.NULL_HASH, initialIndex + 1);
+        snapshotProvider.getLatestSnapshot().setIndex(initialIndex + 2);
+
+        SnapshotConfig config = Mockito.mock(SnapshotConfig.class);
+        Mockito.when(config.getLocalSnapshotsDepth()).thenReturn(0);
+        Mockito.when(config.getLocalSnapshotsPruningDelay()).thenReturn(0);
+        Mockito.when(config.getMilestoneStartIndex()).thenReturn(initialIndex);
+        Mockito.when(config.getLocalSnapshotsBasePath()).thenReturn(LOCAL_SNAPSHOTS_BASE_PATH);
+
+        Snapshot newSnapshot = snapshotProvider.getInitialSnapshot().clone();
+        newSnapshot.setIndex(milestone.index());
+        newSnapshot.setHash(milestone.getHash());
+
+        SnapshotServiceImpl service = Mockito.spy(new SnapshotServiceImpl().init(persistedTangle, snapshotProvider,
+                null, null, config));
+        services.add(service);
+        Mockito.doReturn(newSnapshot).when(service).generateSnapshot(Mockito.any(), Mockito.any());
+
+        return service;
+    }
+
+    private Tangle createTangle() throws Exception {
+        Tangle persistedTangle = new Tangle();
+        persistedTangle.addPersistenceProvider(new InMemoryPersistenceProvider(Tangle.COLUMN_FAMILIES,
+                Tangle.METADATA_COLUMN_FAMILY));
+        persistedTangle.init();
+        persistedTangles.add(persistedTangle);
+
+        return persistedTangle;
+    }
+
+    private SnapshotServiceImpl createService(Tangle persistedTangle) {
+        SnapshotServiceImpl service = new SnapshotServiceImpl().init(persistedTangle, snapshotProvider, null, null,
+                null);
+        services.add(service);
+
+        return service;
+    }
+
+    /**
+     * Creates three consecutive milestones that confirm one transaction each. The transaction of the third milestone
+     * approves the transaction of the first one.
+     */
+    private List<MilestoneViewModel> storeMilestonesApprovingTheFirstOne(Tangle persistedTangle) throws Exception {
+        int initialIndex = snapshotProvider.getInitialSnapshot().getIndex();
+        List<MilestoneViewModel> milestones = new ArrayList<>();
+        Hash firstTransaction = storeTransaction(persistedTangle, Hash.NULL_HASH, Hash.NULL_HASH, initialIndex + 1, 0)
+                .getHash();
+        milestones.add(storeMilestone(persistedTangle, firstTransaction, initialIndex + 1));
+        Hash secondTransaction = storeTransaction(persistedTangle, Hash.NULL_HASH, Hash.NULL_HASH, initialIndex + 2,
+                0).getHash();
+        milestones.add(storeMilestone(persistedTangle, secondTransaction, initialIndex + 2));
+        Hash thirdTransaction = storeTransaction(persistedTangle, firstTransaction, secondTransaction,
+                initialIndex + 3, 0).getHash();
+        milestones.add(storeMilestone(persistedTangle, thirdTransaction, initialIndex + 3));
+
+        return milestones;
+    }
+
+    private MilestoneViewModel storeMilestone(Tangle persistedTangle, Hash trunk, int milestoneIndex)
+            throws Exception {
+
+        TransactionViewModel transaction = storeTransaction(persistedTangle, trunk, Hash.NULL_HASH, milestoneIndex, 0);
+        MilestoneViewModel milestone = new MilestoneViewModel(milestoneIndex, transaction.getHash());
+        milestone.store(persistedTangle);
+
+        return milestone;
+    }
+
+    private TransactionViewModel storeTransaction(Tangle persistedTangle, Hash trunk, Hash branch,
+            int snapshotIndex, long arrivalTime) throws Exception {
+
+        byte[] trits = getTransactionTritsWithTrunkAndBranch(getRandomTransactionTrits(), trunk, branch);
+        Converter.copyTrits(TIMESTAMP, trits, TransactionViewModel.TIMESTAMP_TRINARY_OFFSET,
+                TransactionViewModel.TIMESTAMP_TRINARY_SIZE);
+        TransactionViewModel transaction = new TransactionViewModel(trits,
+                TransactionHash.calculate(SpongeFactory.Mode.CURLP81, trits));
+        transaction.setArrivalTime(arrivalTime);
+        persistedTangle.saveBatch(transaction.getSaveBatch());
+        transaction.setSnapshot(persistedTangle, snapshotProvider.getInitialSnapshot(), snapshotIndex);
+
+        return transaction;
+    }
+
     private static <KEY, VALUE> Map<KEY, VALUE> createBalanceMap(Object... mapEntries) {
         Map<KEY, VALUE> result = new HashMap<>();
 
@@ -0,0 +1,80 @@
+package com.iota.iri.service.snapshot.impl;
+
+import com.iota.iri.TransactionTestUtils;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.service.snapshot.SnapshotException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SnapshotStateFileTest {
+    private static final Hash ADDRESS_1 = HashFactory.ADDRESS.create(
+            "EKRQUHQRZWDGFTRFSTSPAZYBXMEYGHOFIVXDCRRTXUJ9HXOAYLKFEBEZPWEPTG9ZFTOHGCQZCHIKKQ9RD");
+
+    private static final Hash ADDRESS_2 = HashFactory.ADDRESS.create(
+            "GRWY9LWHXEWNL9DTN9IGMIMIVSBQUIEIDSFRYTCSXQARRTVEUFSBWFZRQOJUQNAGQLWHTFNVECELCOFYB");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void binaryFileContainsTheSameBalances() throws Exception {
+        Map<Hash, Long> balances = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            balances.put(HashFactory.ADDRESS.create(TransactionTestUtils.getRandomTransactionHash().bytes()), (long) i + 1);
+        }
+        balances.put(ADDRESS_1, 0L);
+
+        String path = folder.newFile().getAbsolutePath();
+        SnapshotStateFile.writeBinary(balances, path);
+
+        balances.remove(ADDRESS_1);
+        Assert.assertEquals("the balances should survive the round trip", balances,
+                SnapshotStateFile.readBinary(path));
+    }
+
+    @Test
+    public void textFileCanBeConvertedBackAndForth() throws Exception {
+        File text = folder.newFile();
+        File binary = folder.newFile();
+        File convertedText = folder.newFile();
+        Files.write(text.toPath(), Arrays.asList(ADDRESS_1 + ";100", ADDRESS_2 + ";-100"), StandardCharsets.UTF_8);
+
+        SnapshotStateFile.convertTextToBinary(text.getAbsolutePath(), binary.getAbsolutePath());
+        SnapshotStateFile.convertBinaryToText(binary.getAbsolutePath(), convertedText.getAbsolutePath());
+
+        Assert.assertEquals("the binary file should hold the balances of the text file",
+                SnapshotStateFile.readText(text.getAbsolutePath()),
+                SnapshotStateFile.readBinary(binary.getAbsolutePath()));
+        Assert.assertEquals("the converted text file should be identical to the original",
+                Files.readAllLines(text.toPath()), Files.readAllLines(convertedText.toPath()));
+    }
+
+    @Test(expected = SnapshotException.class)
+    public void corruptedFileIsRejected() throws Exception {
+        Map<Hash, Long> balances = new HashMap<>();
+        balances.put(ADDRESS_1, 100L);
+        balances.put(ADDRESS_2, -100L);
+
+        String path = folder.newFile().getAbsolutePath();
+        SnapshotStateFile.writeBinary(balances, path);
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            file.seek(20);
+            int corrupted = file.read() ^ 1;
+            file.seek(20);
+            file.write(corrupted);
+        }
+
+        SnapshotStateFile.readBinary(path);
+    }
+}
@@ -1,15 +1,119 @@
 package com.iota.iri.service.spentaddresses.impl;
 
-import org.junit.Test;
+import com.iota.iri.conf.SnapshotConfig;
+import com.iota.iri.model.Hash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
 
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
 
 public class SpentAddressesProviderImplTest {
 
+    private static final int SAVING_THREADS = 4;
+
+    private static final int BATCHES_PER_THREAD = 50;
+
+    private static final int ADDRESSES_PER_BATCH = 200;
+
+    @Rule
+    public final TemporaryFolder dbFolder = new TemporaryFolder();
+
+    @Rule
+    public final TemporaryFolder logFolder = new TemporaryFolder();
+
+    private SpentAddressesProviderImpl provider;
+
+    @Before
+    public void setUp() throws Exception {
+        SnapshotConfig config = Mockito.mock(SnapshotConfig.class);
+        Mockito.when(config.isTestnet()).thenReturn(true);
+        Mockito.when(config.getSpentAddressesDbPath()).thenReturn(dbFolder.getRoot().getAbsolutePath());
+        Mockito.when(config.getSpentAddressesDbLogPath()).thenReturn(logFolder.getRoot().getAbsolutePath());
+
+        provider = new SpentAddressesProviderImpl().init(config);
+    }
+
+    @After
+    public void tearDown() {
+        provider.shutdown();
+    }
+
     @Test
-    public void saveAddressBatch() {
+    public void saveAddressBatch() throws Exception {
+        List<Hash> addresses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            addresses.add(getRandomTransactionHash());
+        }
+        Hash unspent = getRandomTransactionHash();
+
+        provider.saveAddressesBatch(addresses);
 
+        for (Hash address : addresses) {
+            Assert.assertTrue("saved address should be spent", provider.containsAddress(address));
+        }
+        Assert.assertFalse("other address should not be spent", provider.containsAddress(unspent));
+        Assert.assertEquals("only the saved addresses should be spent", Collections.emptySet(),
+                provider.containsAddresses(Collections.singletonList(unspent)));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void addressesSavedDuringARebuildAreFound() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SAVING_THREADS + 1);
+        AtomicBoolean saving = new AtomicBoolean(true);
+        List<Future<List<Hash>>> savedAddresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < SAVING_THREADS; i++) {
+                savedAddresses.add(executor.submit(() -> {
+                    List<Hash> addresses = new ArrayList<>();
+                    for (int j = 0; j < BATCHES_PER_THREAD; j++) {
+                        List<Hash> batch = new ArrayList<>();
+                        for (int k = 0; k < ADDRESSES_PER_BATCH; k++) {
+                            batch.add(getRandomTransactionHash());
+                        }
+                        provider.saveAddressesBatch(batch);
+                        addresses.addAll(batch);
+                    }
+                    return addresses;
+                }));
+            }
+            Future<?> rebuilds = executor.submit(() -> {
+                // every rebuild needs a larger capacity, otherwise it is skipped
+                long capacity = 1 << 20;
+                while (saving.get()) {
+                    provider.rebuildFilter(++capacity);
+                }
+                return null;
+            });
+
+            List<Hash> addresses = new ArrayList<>();
+            for (Future<List<Hash>> future : savedAddresses) {
+                addresses.addAll(future.get());
+            }
+            saving.set(false);
+            rebuilds.get();
+
+            for (Hash address : addresses) {
+                Assert.assertTrue("address saved during a rebuild should be spent", provider.containsAddress(address));
+            }
+        } finally {
+            saving.set(false);
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.iota.iri.service.tipselection.impl;
+
+import com.iota.iri.model.Hash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+
+public class MaxDepthCacheTest {
+
+    @Test
+    public void keepResultsForSameMilestone() {
+        MaxDepthCache maxDepthCache = new MaxDepthCache();
+        Hash okHash = getRandomTransactionHash();
+        Hash belowHash = getRandomTransactionHash();
+
+        maxDepthCache.getScope(10, 5).addMaxDepthOk(okHash);
+        maxDepthCache.getScope(10, 5).addBelowMaxDepth(belowHash);
+
+        MaxDepthCache.Scope scope = maxDepthCache.getScope(10, 5);
+        Assert.assertTrue("ok result should have been memorized", scope.isMaxDepthOk(okHash));
+        Assert.assertTrue("below max depth result should have been memorized", scope.isBelowMaxDepth(belowHash));
+        Assert.assertFalse(scope.isMaxDepthOk(belowHash));
+        Assert.assertFalse(scope.isBelowMaxDepth(okHash));
+    }
+
+    @Test
+    public void dropResultsWhenLatestMilestoneChanges() {
+        MaxDepthCache maxDepthCache = new MaxDepthCache();
+        Hash hash = getRandomTransactionHash();
+        MaxDepthCache.Scope oldScope = maxDepthCache.getScope(10, 5);
+        oldScope.addMaxDepthOk(hash);
+
+        Assert.assertFalse("results of an old milestone should have been dropped",
+                maxDepthCache.getScope(11, 5).isMaxDepthOk(hash));
+
+        //late results of a validation based on the old milestone must not leak into the new scope
+        oldScope.addBelowMaxDepth(hash);
+        Assert.assertFalse(maxDepthCache.getScope(11, 5).isBelowMaxDepth(hash));
+    }
+
+    @Test
+    public void scopeIsBoundToTheAllowedSnapshotIndex() {
+        MaxDepthCache maxDepthCache = new MaxDepthCache();
+
+        Assert.assertEquals("scope should know the bound its results are computed with", 10,
+                maxDepthCache.getScope(10, 5).getLowerAllowedSnapshotIndex());
+        Assert.assertEquals("scope should know the bound its results are computed with", 11,
+                maxDepthCache.getScope(11, 5).getLowerAllowedSnapshotIndex());
+    }
+
+    @Test
+    public void dropResultsWhenSolidEntryPointsChange() {
+        MaxDepthCache maxDepthCache = new MaxDepthCache();
+        Hash hash = getRandomTransactionHash();
+        maxDepthCache.getScope(10, 5).addBelowMaxDepth(hash);
+
+        Assert.assertFalse("results of old solid entry points should have been dropped",
+                maxDepthCache.getScope(10, 6).isBelowMaxDepth(hash));
+    }
+}
@@ -337,10 +337,64 @@ public class WalkValidatorImplTest {
         Assert.assertFalse("Validation of tx4 succeeded but should have failed since tx is below max depth",
                 walkValidator.isValid(tx4.getHash()));
 
-        //Now assume milestone 99 confirmed tx3
-        tx3.setSnapshot(tangle, snapshotProvider.getInitialSnapshot(), 99);
+        //Now assume milestone 101 confirmed tx3
+        tx3.setSnapshot(tangle, snapshotProvider.getInitialSnapshot(), 101);
+        snapshotProvider.getLatestSnapshot().setIndex(101);
 
         Assert.assertTrue("Validation of tx4 failed but should have succeeded since tx is above max depth",
                 walkValidator.isValid(tx4.getHash()));
     }
+
+    @Test
+    public void shareBelowMaxDepthResultsBetweenValidators() throws Exception {
+        TransactionViewModel tx = TransactionTestUtils.createBundleHead(0);
+        tx.updateSolid(true);
+        tx.store(tangle, snapshotProvider.getInitialSnapshot());
+        tx.setSnapshot(tangle, snapshotProvider.getInitialSnapshot(), 2);
+        Hash hash = tx.getHash();
+        Mockito.when(ledgerService.isBalanceDiffConsistent(new HashSet<>(), new HashMap<>(), hash))
+                .thenReturn(true);
+        snapshotProvider.getLatestSnapshot().setIndex(100);
+
+        MaxDepthCache maxDepthCache = new MaxDepthCache();
+        WalkValidatorImpl walkValidator = new WalkValidatorImpl(tangle, snapshotProvider, ledgerService,
+                config, maxDepthCache);
+        Assert.assertFalse("Validation succeeded but should have failed tx is below max depth",
+                walkValidator.isValid(hash));
+        Assert.assertTrue("Result should have been shared with other validators",
+                maxDepthCache.getScope(100 - config.getMaxDepth(), snapshotProvider.getInitialSnapshot().getIndex())
+                        .isBelowMaxDepth(hash));
+    }
+
+    @Test
+    public void dontShareBelowMaxDepthResultsOfTruncatedTraversals() throws Exception {
+        final int maxAnalyzedTxs = config.getBelowMaxDepthTransactionLimit();
+        TransactionViewModel tx = TransactionTestUtils.createBundleHead(0);
+        tx.store(tangle, snapshotProvider.getInitialSnapshot());
+        tx.setSnapshot(tangle, snapshotProvider.getInitialSnapshot(), 92);
+        Hash hash = tx.getHash();
+        for (int i = 0; i < maxAnalyzedTxs ; i++) {
+            tx = new TransactionViewModel(getTransactionWithTrunkAndBranch(hash, hash),
+                    getRandomTransactionHash());
+            TransactionTestUtils.setLastIndex(tx,0);
+            TransactionTestUtils.setCurrentIndex(tx,0);
+            hash = tx.getHash();
+            tx.updateSolid(true);
+            tx.store(tangle, snapshotProvider.getInitialSnapshot());
+        }
+        Mockito.when(ledgerService.isBalanceDiffConsistent(new HashSet<>(), new HashMap<>(), hash))
+                .thenReturn(true);
+        snapshotProvider.getLatestSnapshot().setIndex(100);
+
+        MaxDepthCache maxDepthCache = new MaxDepthCache();
+        WalkValidatorImpl walkValidator = new WalkValidatorImpl(tangle, snapshotProvider, ledgerService,
+                config, maxDepthCache);
+        Assert.assertFalse("Validation succeeded but should have failed since the chain is too long",
+                walkValidator.isValid(hash));
+        MaxDepthCache.Scope scope = maxDepthCache.getScope(100 - config.getMaxDepth(),
+                snapshotProvider.getInitialSnapshot().getIndex());
+        Assert.assertFalse("The aborted check should not have been shared with other validators",
+                scope.isBelowMaxDepth(hash));
+        Assert.assertFalse(scope.isMaxDepthOk(hash));
+    }
 }
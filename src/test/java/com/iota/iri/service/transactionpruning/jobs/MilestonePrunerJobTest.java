@@ -0,0 +1,323 @@
+package com.iota.iri.service.transactionpruning.jobs;
+
+import com.iota.iri.controllers.MilestoneViewModel;
+import com.iota.iri.controllers.TipsViewModel;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.IntegerIndex;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Approvee;
+import com.iota.iri.model.persistables.Bundle;
+import com.iota.iri.model.persistables.GraphNode;
+import com.iota.iri.model.persistables.Milestone;
+import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.service.snapshot.Snapshot;
+import com.iota.iri.service.spentaddresses.SpentAddressesService;
+import com.iota.iri.service.transactionpruning.TransactionPruner;
+import com.iota.iri.service.transactionpruning.TransactionPrunerJob;
+import com.iota.iri.service.transactionpruning.TransactionPrunerJobStatus;
+import com.iota.iri.service.transactionpruning.TransactionPruningException;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.memory.InMemoryPersistenceProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionTrits;
+import static com.iota.iri.TransactionTestUtils.getTransactionTritsWithTrunkAndBranch;
+
+public class MilestonePrunerJobTest {
+
+    private static final int MILESTONES = 8;
+
+    /**
+     * Holds the number of milestones without transactions that make the job sweep the transactions.
+     */
+    private static final int SWEPT_MILESTONES = 1000;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private TransactionPruner transactionPruner;
+
+    @Mock
+    private Snapshot snapshot;
+
+    @Mock
+    private SpentAddressesService spentAddressesService;
+
+    private final List<Tangle> tangles = new ArrayList<>();
+
+    private final ForkJoinPool traversalPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Holds the trits of the milestone transaction and of the transaction confirmed by it, by the number of the
+     * milestone (starting at 1).
+     */
+    private final List<List<byte[]>> milestoneTransactions = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        MilestoneViewModel.clear();
+        Mockito.when(spentAddressesService.wasAddressSpentFrom(Mockito.any())).thenReturn(true);
+
+        milestoneTransactions.add(new ArrayList<>());
+        Hash previousMilestone = Hash.NULL_HASH;
+        for (int milestone = 1; milestone <= MILESTONES; milestone++) {
+            byte[] transaction = getTransactionTritsWithTrunkAndBranch(getRandomTransactionTrits(), previousMilestone,
+                    previousMilestone);
+            byte[] milestoneTransaction = getTransactionTritsWithTrunkAndBranch(getRandomTransactionTrits(),
+                    hash(transaction), previousMilestone);
+
+            List<byte[]> transactions = new ArrayList<>();
+            transactions.add(milestoneTransaction);
+            transactions.add(transaction);
+            milestoneTransactions.add(transactions);
+            previousMilestone = hash(milestoneTransaction);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Tangle tangle : tangles) {
+            tangle.shutdown();
+        }
+        traversalPool.shutdown();
+        MilestoneViewModel.clear();
+    }
+
+    @Test
+    public void milestonesArePrunedInBatches() throws Exception {
+        Tangle tangle = createTangle(0);
+        MilestonePrunerJob job = createJob(tangle, 1, MILESTONES - 2);
+
+        job.process();
+
+        Assert.assertEquals("job should be done", TransactionPrunerJobStatus.DONE, job.getStatus());
+        Assert.assertEquals("progress should advance past the target", MILESTONES - 1, job.getCurrentIndex());
+        for (int milestone = 1; milestone <= MILESTONES; milestone++) {
+            boolean pruned = milestone <= MILESTONES - 2;
+            Assert.assertEquals("unexpected milestone #" + milestone, !pruned,
+                    tangle.exists(Milestone.class, new IntegerIndex(milestone)));
+            for (byte[] trits : milestoneTransactions.get(milestone)) {
+                Hash hash = hash(trits);
+                Assert.assertEquals("unexpected transaction of milestone #" + milestone, !pruned,
+                        tangle.exists(Transaction.class, hash));
+                Assert.assertEquals("unexpected graph node of milestone #" + milestone, !pruned,
+                        tangle.exists(GraphNode.class, hash));
+                Assert.assertEquals("unexpected address index of milestone #" + milestone, !pruned,
+                        tangle.exists(Address.class, new TransactionViewModel(trits, hash).getAddressHash()));
+            }
+            Assert.assertEquals("unexpected approvers of milestone #" + milestone, !pruned,
+                    tangle.exists(Approvee.class, hash(milestoneTransactions.get(milestone).get(1))));
+        }
+    }
+
+    @Test
+    public void failingMilestoneFailsTheJob() throws Exception {
+        int failingIndex = 3;
+        Tangle tangle = createTangle(0);
+        Tangle failingTangle = Mockito.spy(tangle);
+        Mockito.doThrow(new IllegalStateException("milestone can not be read"))
+                .when(failingTangle).load(Milestone.class, new IntegerIndex(failingIndex));
+
+        MilestonePrunerJob job = createJob(failingTangle, 1, MILESTONES - 2);
+
+        try {
+            job.process();
+            Assert.fail("the failing milestone should fail the job");
+        } catch (TransactionPruningException e) {
+            Assert.assertEquals("job should have failed", TransactionPrunerJobStatus.FAILED, job.getStatus());
+        }
+
+        Assert.assertTrue("progress should not skip the failing milestone", job.getCurrentIndex() <= failingIndex);
+        for (int milestone = job.getCurrentIndex(); milestone <= MILESTONES; milestone++) {
+            Assert.assertTrue("milestone #" + milestone + " should be kept",
+                    tangle.exists(Milestone.class, new IntegerIndex(milestone)));
+            for (byte[] trits : milestoneTransactions.get(milestone)) {
+                Assert.assertTrue("transactions of milestone #" + milestone + " should be kept",
+                        tangle.exists(Transaction.class, hash(trits)));
+            }
+        }
+    }
+
+    @Test
+    public void deletionsAreSyncedBeforeTheProgressAdvances() throws Exception {
+        Tangle tangle = Mockito.spy(createTangle(0));
+        MilestonePrunerJob job = createJob(tangle, 1, MILESTONES - 2);
+
+        // holds the progress of the job and whether the deletion was synced for every deletion
+        List<Integer> progressOfDeletions = new ArrayList<>();
+        List<Boolean> syncedDeletions = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            progressOfDeletions.add(job.getCurrentIndex());
+            syncedDeletions.add((Boolean) invocation.getArguments()[1]);
+            return invocation.callRealMethod();
+        }).when(tangle).deleteBatch(Mockito.any(), Mockito.anyBoolean());
+
+        job.process();
+
+        Assert.assertFalse("milestones should be deleted", progressOfDeletions.isEmpty());
+        for (int i = 0; i < progressOfDeletions.size(); i++) {
+            boolean lastDeletionOfBatch = i == progressOfDeletions.size() - 1 ||
+                    !progressOfDeletions.get(i).equals(progressOfDeletions.get(i + 1));
+            if (lastDeletionOfBatch) {
+                Assert.assertTrue("the last deletion before the progress advances should be synced",
+                        syncedDeletions.get(i));
+            }
+        }
+        Mockito.verify(tangle, Mockito.never()).deleteBatch(Mockito.any());
+    }
+
+    @Test
+    public void sweepPrunesLikeTheTraversal() throws Exception {
+        // the last pruned milestone is a solid entry point that is approved by the following milestones
+        Hash solidEntryPoint = hash(milestoneTransactions.get(MILESTONES - 2).get(0));
+        Mockito.when(snapshot.hasSolidEntryPoint(solidEntryPoint)).thenReturn(true);
+
+        Tangle traversedTangle = createTangle(SWEPT_MILESTONES);
+        createJob(traversedTangle, SWEPT_MILESTONES + 1, SWEPT_MILESTONES + MILESTONES - 2).process();
+        MilestoneViewModel.clear();
+
+        Tangle sweptTangle = createTangle(SWEPT_MILESTONES);
+        for (int index = 1; index <= SWEPT_MILESTONES; index++) {
+            new MilestoneViewModel(index, getRandomTransactionHash()).store(sweptTangle);
+        }
+        createJob(sweptTangle, 1, SWEPT_MILESTONES + MILESTONES - 2).process();
+
+        for (int milestone = 1; milestone <= MILESTONES; milestone++) {
+            IntegerIndex index = new IntegerIndex(SWEPT_MILESTONES + milestone);
+            Assert.assertEquals("milestone #" + milestone + " should be pruned like by the traversal",
+                    traversedTangle.exists(Milestone.class, index), sweptTangle.exists(Milestone.class, index));
+            for (byte[] trits : milestoneTransactions.get(milestone)) {
+                TransactionViewModel transaction = new TransactionViewModel(trits, hash(trits));
+                for (Tangle tangle : tangles) {
+                    Assert.assertEquals("transactions should be pruned like by the traversal",
+                            milestone <= MILESTONES - 2, !tangle.exists(Transaction.class, transaction.getHash()));
+                    Assert.assertEquals("graph nodes should be pruned like by the traversal",
+                            milestone <= MILESTONES - 2, !tangle.exists(GraphNode.class, transaction.getHash()));
+                }
+                Assert.assertEquals("addresses should be pruned like by the traversal",
+                        traversedTangle.exists(Address.class, transaction.getAddressHash()),
+                        sweptTangle.exists(Address.class, transaction.getAddressHash()));
+                Assert.assertEquals("bundles should be pruned like by the traversal",
+                        traversedTangle.exists(Bundle.class, transaction.getBundleHash()),
+                        sweptTangle.exists(Bundle.class, transaction.getBundleHash()));
+                Assert.assertEquals("approvers should be pruned like by the traversal",
+                        traversedTangle.exists(Approvee.class, transaction.getHash()),
+                        sweptTangle.exists(Approvee.class, transaction.getHash()));
+            }
+        }
+        Assert.assertFalse("empty milestones should be pruned as well",
+                sweptTangle.exists(Milestone.class, new IntegerIndex(1)));
+
+        for (Tangle tangle : tangles) {
+            Assert.assertTrue("approvers of the solid entry point should be kept",
+                    tangle.exists(Approvee.class, solidEntryPoint));
+        }
+        ArgumentCaptor<TransactionPrunerJob> jobs = ArgumentCaptor.forClass(TransactionPrunerJob.class);
+        Mockito.verify(transactionPruner, Mockito.atLeastOnce()).addJob(jobs.capture());
+        for (TransactionPrunerJob job : jobs.getAllValues()) {
+            Assert.assertNotEquals("the orphans of a solid entry point should not be pruned",
+                    solidEntryPoint.toString(), job.serialize());
+        }
+    }
+
+    @Test
+    public void sweepRemovesOnlyTheTransactionsOfPrunedMilestones() throws Exception {
+        Tangle tangle = Mockito.spy(createTangle(SWEPT_MILESTONES));
+        for (int index = 1; index <= SWEPT_MILESTONES; index++) {
+            new MilestoneViewModel(index, getRandomTransactionHash()).store(tangle);
+        }
+        Hash transactionBeforeTheRange = storeTransaction(tangle, 1);
+        Hash unconfirmedTransaction = storeTransaction(tangle, 0);
+
+        createJob(tangle, 2, SWEPT_MILESTONES + MILESTONES - 2).process();
+
+        Mockito.verify(tangle).forEachMetadataInRange(Mockito.eq(Transaction.class), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any());
+        for (int milestone = 1; milestone <= MILESTONES; milestone++) {
+            for (byte[] trits : milestoneTransactions.get(milestone)) {
+                Assert.assertEquals("unexpected transaction of milestone #" + milestone,
+                        milestone > MILESTONES - 2, tangle.exists(Transaction.class, hash(trits)));
+            }
+        }
+        Assert.assertTrue("transactions of milestones before the range should be kept",
+                tangle.exists(Transaction.class, transactionBeforeTheRange));
+        Assert.assertTrue("milestones before the range should be kept",
+                tangle.exists(Milestone.class, new IntegerIndex(1)));
+        Assert.assertFalse("empty milestones of the range should be pruned",
+                tangle.exists(Milestone.class, new IntegerIndex(2)));
+        Assert.assertTrue("unconfirmed transactions should be kept",
+                tangle.exists(Transaction.class, unconfirmedTransaction));
+    }
+
+    /**
+     * Creates a tangle that holds the milestones of the test (starting after {@code indexOffset}) and their
+     * transactions.
+     */
+    private Tangle createTangle(int indexOffset) throws Exception {
+        Tangle tangle = new Tangle();
+        tangle.addPersistenceProvider(new InMemoryPersistenceProvider(Tangle.COLUMN_FAMILIES,
+                Tangle.METADATA_COLUMN_FAMILY));
+        tangle.init();
+        tangles.add(tangle);
+
+        // the transactions were confirmed before they became solid entry points
+        Snapshot initialSnapshot = Mockito.mock(Snapshot.class);
+        for (int milestone = 1; milestone <= MILESTONES; milestone++) {
+            int index = indexOffset + milestone;
+            for (byte[] trits : milestoneTransactions.get(milestone)) {
+                TransactionViewModel transaction = new TransactionViewModel(trits, hash(trits));
+                tangle.saveBatch(transaction.getSaveBatch());
+                transaction.setSnapshot(tangle, initialSnapshot, index);
+            }
+            new MilestoneViewModel(index, hash(milestoneTransactions.get(milestone).get(0))).store(tangle);
+        }
+        return tangle;
+    }
+
+    private MilestonePrunerJob createJob(Tangle tangle, int startingIndex, int targetIndex) {
+        MilestonePrunerJob job = new MilestonePrunerJob(startingIndex, targetIndex);
+        job.setTangle(tangle);
+        job.setTransactionPruner(transactionPruner);
+        job.setSnapshot(snapshot);
+        job.setSpentAddressesService(spentAddressesService);
+        job.setTipsViewModel(new TipsViewModel());
+        job.setTraversalPool(traversalPool);
+        return job;
+    }
+
+    /**
+     * Stores a random transaction that was confirmed by the given milestone (or is unconfirmed if it is 0).
+     */
+    private Hash storeTransaction(Tangle tangle, int snapshotIndex) throws Exception {
+        byte[] trits = getRandomTransactionTrits();
+        TransactionViewModel transaction = new TransactionViewModel(trits, hash(trits));
+        tangle.saveBatch(transaction.getSaveBatch());
+        if (snapshotIndex != 0) {
+            transaction.setSnapshot(tangle, Mockito.mock(Snapshot.class), snapshotIndex);
+        }
+
+        return transaction.getHash();
+    }
+
+    private static Hash hash(byte[] trits) {
+        return TransactionHash.calculate(SpongeFactory.Mode.CURLP81, trits);
+    }
+}
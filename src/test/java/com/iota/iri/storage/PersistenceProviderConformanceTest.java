@@ -0,0 +1,371 @@
+package com.iota.iri.storage;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.IntegerIndex;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Approvee;
+import com.iota.iri.model.persistables.Milestone;
+import com.iota.iri.model.persistables.Tag;
+import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.utils.Pair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransaction;
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+
+/**
+ * Describes the behaviour that the rest of the node expects from a {@link PersistenceProvider}. Every provider gets a
+ * subclass of this test that creates an instance with the column families of the {@link Tangle}.
+ */
+public abstract class PersistenceProviderConformanceTest {
+
+    protected PersistenceProvider provider;
+
+    /**
+     * @return a new provider with {@link Tangle#COLUMN_FAMILIES} and {@link Tangle#METADATA_COLUMN_FAMILY}
+     * @throws Exception if the provider could not be created
+     */
+    protected abstract PersistenceProvider createProvider() throws Exception;
+
+    /**
+     * Frees the resources of the provider after {@link PersistenceProvider#shutdown()} was called.
+     *
+     * @throws Exception if the resources could not be freed
+     */
+    protected void destroyProvider() throws Exception {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        provider = createProvider();
+        provider.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.shutdown();
+        destroyProvider();
+    }
+
+    @Test
+    public void savedModelsCanBeLoadedWithTheirMetadata() throws Exception {
+        Transaction transaction = getRandomTransaction();
+        Hash hash = getRandomTransactionHash();
+
+        Assert.assertTrue("save should succeed", provider.save(transaction, hash));
+        Assert.assertTrue("saved model should exist", provider.exists(Transaction.class, hash));
+        Assert.assertTrue("saved model may exist", provider.mayExist(Transaction.class, hash));
+
+        Transaction loaded = (Transaction) provider.get(Transaction.class, hash);
+        Assert.assertArrayEquals("unexpected value", transaction.bytes(), loaded.bytes());
+        Assert.assertArrayEquals("unexpected metadata", transaction.metadata(), loaded.metadata());
+    }
+
+    @Test
+    public void missingModelsAreLoadedEmpty() throws Exception {
+        Hash hash = getRandomTransactionHash();
+
+        Assert.assertFalse("model should not exist", provider.exists(Transaction.class, hash));
+        Assert.assertNull("missing model should be empty", provider.get(Transaction.class, hash).bytes());
+    }
+
+    @Test
+    public void batchesAreLoadedInOrder() throws Exception {
+        Transaction first = getRandomTransaction();
+        Transaction second = getRandomTransaction();
+        Hash firstHash = getRandomTransactionHash();
+        Hash secondHash = getRandomTransactionHash();
+        provider.save(first, firstHash);
+        provider.save(second, secondHash);
+
+        List<Persistable> loaded = provider.getBatch(Transaction.class,
+                Arrays.asList(secondHash, getRandomTransactionHash(), firstHash));
+
+        Assert.assertEquals("unexpected amount of models", 3, loaded.size());
+        Assert.assertArrayEquals("models should be in the order of the keys", second.bytes(), loaded.get(0).bytes());
+        Assert.assertNull("missing model should be empty", loaded.get(1).bytes());
+        Assert.assertArrayEquals("models should be in the order of the keys", first.bytes(), loaded.get(2).bytes());
+    }
+
+    @Test
+    public void batchesAreOnlySavedIfTheModelIsAbsent() throws Exception {
+        Transaction first = getRandomTransaction();
+        Transaction second = getRandomTransaction();
+        Hash hash = getRandomTransactionHash();
+
+        Assert.assertTrue("absent model should be saved", provider.saveBatchIfAbsent(Transaction.class, hash,
+                Collections.singletonList(new Pair<>(hash, first))));
+        Assert.assertFalse("present model should not be saved", provider.saveBatchIfAbsent(Transaction.class, hash,
+                Collections.singletonList(new Pair<>(hash, second))));
+        Assert.assertArrayEquals("first model should be kept", first.bytes(),
+                provider.get(Transaction.class, hash).bytes());
+    }
+
+    @Test
+    public void mergeableModelsAreMergedInBatches() throws Exception {
+        Hash address = getRandomTransactionHash();
+        Hash firstTransaction = getRandomTransactionHash();
+        Hash secondTransaction = getRandomTransactionHash();
+
+        provider.saveBatch(Collections.singletonList(new Pair<>(address, new Address(firstTransaction))));
+        provider.saveBatch(Collections.singletonList(new Pair<>(address, new Address(secondTransaction))));
+
+        Address loaded = (Address) provider.get(Address.class, address);
+        Assert.assertEquals("merged values should contain both transactions",
+                new HashSet<>(Arrays.asList(firstTransaction, secondTransaction)), loaded.set);
+    }
+
+    @Test
+    public void hashesCanBeRemovedFromIndexes() throws Exception {
+        Hash address = getRandomTransactionHash();
+        Hash otherAddress = getRandomTransactionHash();
+        Hash prunedTransaction = getRandomTransactionHash();
+        Hash keptTransaction = getRandomTransactionHash();
+        provider.saveBatch(Arrays.asList(new Pair<>(address, new Address(prunedTransaction)),
+                new Pair<>(address, new Address(keptTransaction)),
+                new Pair<>(otherAddress, new Address(prunedTransaction))));
+
+        long removedBytes = provider.removeFromIndexes(Arrays.asList(
+                new Pair<>(address, new Address(prunedTransaction)),
+                new Pair<>(otherAddress, new Address(prunedTransaction)),
+                new Pair<>(getRandomTransactionHash(), new Address(prunedTransaction))));
+
+        Assert.assertEquals("only the kept transaction should remain",
+                Collections.singleton(keptTransaction), ((Address) provider.get(Address.class, address)).set);
+        Assert.assertFalse("empty index should be deleted", provider.exists(Address.class, otherAddress));
+        Assert.assertEquals("unexpected amount of removed bytes",
+                Hash.SIZE_IN_BYTES + 1 + otherAddress.bytes().length + Hash.SIZE_IN_BYTES, removedBytes);
+    }
+
+    @Test
+    public void nullKeysAreNotRemovedFromIndexes() throws Exception {
+        Hash emptyTag = HashFactory.TAG.create(new byte[Hash.SIZE_IN_BYTES]);
+        Hash transaction = getRandomTransactionHash();
+        provider.saveBatch(Arrays.asList(new Pair<>(emptyTag, new Tag(transaction)),
+                new Pair<>(Hash.NULL_HASH, new Approvee(transaction))));
+
+        long removedBytes = provider.removeFromIndexes(Arrays.asList(new Pair<>(emptyTag, new Tag(transaction)),
+                new Pair<>(Hash.NULL_HASH, new Approvee(transaction))));
+
+        Assert.assertEquals("no bytes should be removed", 0, removedBytes);
+        Assert.assertEquals("empty tag should be kept", Collections.singleton(transaction),
+                ((Tag) provider.get(Tag.class, emptyTag)).set);
+        Assert.assertEquals("approvers of the null hash should be kept", Collections.singleton(transaction),
+                ((Approvee) provider.get(Approvee.class, Hash.NULL_HASH)).set);
+    }
+
+    @Test
+    public void modelsAreIteratedInKeyOrder() throws Exception {
+        for (int index : new int[]{5, 1, 3, 300}) {
+            provider.save(milestone(index), new IntegerIndex(index));
+        }
+
+        Assert.assertEquals("unexpected first key", new IntegerIndex(1),
+                provider.first(Milestone.class, IntegerIndex.class).low);
+        Assert.assertEquals("unexpected latest key", new IntegerIndex(300),
+                provider.latest(Milestone.class, IntegerIndex.class).low);
+        Assert.assertEquals("unexpected next key", new IntegerIndex(5),
+                provider.next(Milestone.class, new IntegerIndex(3)).low);
+        Assert.assertEquals("unexpected previous key", new IntegerIndex(3),
+                provider.previous(Milestone.class, new IntegerIndex(5)).low);
+        Assert.assertEquals("unexpected value", new IntegerIndex(300),
+                ((Milestone) provider.next(Milestone.class, new IntegerIndex(5)).hi).index);
+        Assert.assertNull("there should be no key after the latest one",
+                provider.next(Milestone.class, new IntegerIndex(300)).low);
+        Assert.assertNull("there should be no key before the first one",
+                provider.previous(Milestone.class, new IntegerIndex(1)).low);
+    }
+
+    @Test
+    public void rangesAreIteratedInKeyOrder() throws Exception {
+        for (int index = 1; index <= 2500; index++) {
+            provider.save(milestone(index), new IntegerIndex(index));
+        }
+
+        List<Integer> visited = new ArrayList<>();
+        provider.forEachInRange(Milestone.class, IntegerIndex.class, new IntegerIndex(10).bytes(),
+                new IntegerIndex(2400).bytes(), (index, milestone) -> {
+                    Assert.assertEquals("value should belong to the key", index, ((Milestone) milestone).index);
+                    visited.add(((IntegerIndex) index).getValue());
+                });
+
+        Assert.assertEquals("unexpected number of models in the range", 2390, visited.size());
+        Assert.assertEquals("range should start at the first key", 10, (int) visited.get(0));
+        Assert.assertEquals("range should end before the last key", 2399, (int) visited.get(visited.size() - 1));
+    }
+
+    @Test
+    public void metadataRangesAreIteratedWithoutTheValues() throws Exception {
+        for (int index = 1; index <= 5; index++) {
+            Transaction transaction = getRandomTransaction();
+            transaction.snapshot = index;
+            provider.save(transaction, new IntegerIndex(index));
+        }
+
+        List<Integer> visited = new ArrayList<>();
+        provider.forEachMetadataInRange(Transaction.class, IntegerIndex.class, new IntegerIndex(2).bytes(),
+                new IntegerIndex(5).bytes(), (index, transaction) -> {
+                    Assert.assertEquals("metadata should belong to the key", ((IntegerIndex) index).getValue(),
+                            ((Transaction) transaction).snapshot);
+                    Assert.assertNull("value should not be read", transaction.bytes());
+                    visited.add(((IntegerIndex) index).getValue());
+                });
+
+        Assert.assertEquals("unexpected keys in the range", Arrays.asList(2, 3, 4), visited);
+    }
+
+    @Test
+    public void emptyColumnsHaveNoFirstOrLatestModel() throws Exception {
+        Assert.assertNull("empty column should have no first model",
+                provider.first(Milestone.class, IntegerIndex.class).low);
+        Assert.assertNull("empty column should have no latest model",
+                provider.latest(Milestone.class, IntegerIndex.class).low);
+    }
+
+    @Test
+    public void keysAreFoundByPrefix() throws Exception {
+        byte[] prefix = {1, 2, 3, 4, 5};
+        Hash first = tagHash(prefix, (byte) 1);
+        Hash second = tagHash(prefix, (byte) 2);
+        Hash other = tagHash(new byte[]{1, 2, 3, 4, 6}, (byte) 1);
+        for (Hash tag : Arrays.asList(first, second, other)) {
+            provider.saveBatch(Collections.singletonList(new Pair<>(tag, new Tag(getRandomTransactionHash()))));
+        }
+
+        Assert.assertEquals("unexpected keys with the prefix", new HashSet<>(Arrays.asList(first, second)),
+                provider.keysStartingWith(Tag.class, prefix));
+        Assert.assertTrue("no key should have this prefix",
+                provider.keysStartingWith(Tag.class, new byte[]{7, 7, 7}).isEmpty());
+        Assert.assertNotNull("seek should find a model with the prefix", provider.seek(Tag.class, prefix).bytes());
+    }
+
+    @Test
+    public void batchesAreDeletedWithTheirMetadata() throws Exception {
+        Transaction transaction = getRandomTransaction();
+        Hash deleted = getRandomTransactionHash();
+        Hash kept = getRandomTransactionHash();
+        provider.save(transaction, deleted);
+        provider.save(transaction, kept);
+
+        provider.deleteBatch(Collections.singletonList(new Pair<>(deleted, Transaction.class)));
+
+        Assert.assertFalse("deleted model should not exist", provider.exists(Transaction.class, deleted));
+        Transaction loaded = (Transaction) provider.get(Transaction.class, deleted);
+        Assert.assertNull("metadata should be deleted as well", loaded.getAddress());
+        Assert.assertTrue("other models should be kept", provider.exists(Transaction.class, kept));
+        Assert.assertNotNull("metadata of other models should be kept",
+                ((Transaction) provider.get(Transaction.class, kept)).getAddress());
+    }
+
+    @Test
+    public void updatesOnlyChangeTheMetadata() throws Exception {
+        Transaction transaction = getRandomTransaction();
+        Hash hash = getRandomTransactionHash();
+        provider.save(transaction, hash);
+
+        Transaction updated = getRandomTransaction();
+        updated.snapshot = 42;
+        provider.update(updated, hash, "snapshot");
+
+        Transaction loaded = (Transaction) provider.get(Transaction.class, hash);
+        Assert.assertArrayEquals("value should not change", transaction.bytes(), loaded.bytes());
+        Assert.assertEquals("metadata should be updated", 42, loaded.snapshot);
+    }
+
+    @Test
+    public void updatesCanSaveModelsInTheSameWrite() throws Exception {
+        Transaction transaction = getRandomTransaction();
+        Hash hash = getRandomTransactionHash();
+        Hash tag = getRandomTransactionHash();
+        provider.save(transaction, hash);
+
+        transaction.snapshot = 42;
+        provider.update(transaction, hash, "snapshot",
+                Collections.singletonList(new Pair<>(tag, new Tag(hash))));
+
+        Assert.assertEquals("metadata should be updated", 42,
+                ((Transaction) provider.get(Transaction.class, hash)).snapshot);
+        Assert.assertEquals("models should be saved", Collections.singleton(hash),
+                ((Tag) provider.get(Tag.class, tag)).set);
+    }
+
+    @Test
+    public void columnsCanBeClearedAndCounted() throws Exception {
+        Set<Hash> hashes = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Hash hash = getRandomTransactionHash();
+            provider.save(getRandomTransaction(), hash);
+            hashes.add(hash);
+        }
+
+        Assert.assertEquals("unexpected count", 10, provider.count(Transaction.class));
+        Set<Hash> loadedKeys = new HashSet<>();
+        for (byte[] key : provider.loadAllKeysFromTable(Transaction.class)) {
+            loadedKeys.add(HashFactory.TRANSACTION.create(key));
+        }
+        Assert.assertEquals("unexpected keys", hashes, loadedKeys);
+
+        provider.clear(Transaction.class);
+        provider.clearMetadata(Transaction.class);
+        Assert.assertTrue("column should be empty", provider.loadAllKeysFromTable(Transaction.class).isEmpty());
+        Assert.assertNull("metadata should be empty",
+                ((Transaction) provider.get(Transaction.class, hashes.iterator().next())).getAddress());
+    }
+
+    @Test
+    public void keysWithMissingReferencesAreFound() throws Exception {
+        Hash referenced = getRandomTransactionHash();
+        Hash unreferenced = getRandomTransactionHash();
+        provider.save(getRandomTransaction(), referenced);
+        for (Hash hash : Arrays.asList(referenced, unreferenced)) {
+            provider.saveBatch(Collections.singletonList(new Pair<>(hash, new Approvee(getRandomTransactionHash()))));
+        }
+
+        Assert.assertEquals("unexpected keys without transaction", Collections.singleton(unreferenced),
+                provider.keysWithMissingReferences(Approvee.class, Transaction.class));
+    }
+
+    @Test
+    public void keysWithMissingReferencesAreFoundBetweenReferencedKeys() throws Exception {
+        Set<Hash> unreferenced = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Hash hash = getRandomTransactionHash();
+            if (i % 3 == 0) {
+                unreferenced.add(hash);
+            } else {
+                provider.save(getRandomTransaction(), hash);
+            }
+            provider.saveBatch(Collections.singletonList(new Pair<>(hash, new Approvee(getRandomTransactionHash()))));
+        }
+        // transactions that are not referenced must not show up either
+        provider.save(getRandomTransaction(), getRandomTransactionHash());
+
+        Assert.assertEquals("unexpected keys without transaction", unreferenced,
+                provider.keysWithMissingReferences(Approvee.class, Transaction.class));
+    }
+
+    private static Milestone milestone(int index) {
+        Milestone milestone = new Milestone();
+        milestone.index = new IntegerIndex(index);
+        milestone.hash = getRandomTransactionHash();
+        return milestone;
+    }
+
+    private static Hash tagHash(byte[] prefix, byte suffix) {
+        byte[] bytes = new byte[Hash.SIZE_IN_BYTES];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        bytes[prefix.length] = suffix;
+        return HashFactory.TAG.create(bytes);
+    }
+}
@@ -0,0 +1,13 @@
+package com.iota.iri.storage.memory;
+
+import com.iota.iri.storage.PersistenceProvider;
+import com.iota.iri.storage.PersistenceProviderConformanceTest;
+import com.iota.iri.storage.Tangle;
+
+public class InMemoryPersistenceProviderTest extends PersistenceProviderConformanceTest {
+
+    @Override
+    protected PersistenceProvider createProvider() {
+        return new InMemoryPersistenceProvider(Tangle.COLUMN_FAMILIES, Tangle.METADATA_COLUMN_FAMILY);
+    }
+}
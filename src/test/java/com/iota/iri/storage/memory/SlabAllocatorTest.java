@@ -0,0 +1,52 @@
+package com.iota.iri.storage.memory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class SlabAllocatorTest {
+
+    @Test
+    public void releasedChunksAreReused() {
+        SlabAllocator allocator = new SlabAllocator();
+        ByteBuffer first = allocator.allocate(new byte[1604]);
+        allocator.release(first);
+        ByteBuffer second = allocator.allocate(new byte[2000]);
+
+        Assert.assertSame("chunk of the same size class should be reused", first, second);
+        Assert.assertEquals("only one slab should be reserved", SlabAllocator.SLAB_SIZE, allocator.getReservedBytes());
+    }
+
+    @Test
+    public void valuesAreCopied() {
+        SlabAllocator allocator = new SlabAllocator();
+        byte[] value = {1, 2, 3};
+        ByteBuffer chunk = allocator.allocate(value);
+        value[0] = 42;
+
+        byte[] stored = new byte[chunk.remaining()];
+        chunk.get(stored);
+        Assert.assertArrayEquals("stored value should not change", new byte[]{1, 2, 3}, stored);
+    }
+
+    @Test
+    public void largeValuesGetDedicatedBuffers() {
+        SlabAllocator allocator = new SlabAllocator();
+        ByteBuffer chunk = allocator.allocate(new byte[SlabAllocator.SLAB_SIZE + 1]);
+
+        Assert.assertEquals("unexpected size of the value", SlabAllocator.SLAB_SIZE + 1, chunk.remaining());
+        allocator.release(chunk);
+        Assert.assertEquals("dedicated buffer should be released", 0, allocator.getReservedBytes());
+    }
+
+    @Test
+    public void slabsAreFilledBeforeNewOnesAreReserved() {
+        SlabAllocator allocator = new SlabAllocator();
+        for (int i = 0; i < SlabAllocator.SLAB_SIZE / 2048; i++) {
+            allocator.allocate(new byte[2048]);
+        }
+
+        Assert.assertEquals("values should fit into one slab", SlabAllocator.SLAB_SIZE, allocator.getReservedBytes());
+    }
+}
@@ -0,0 +1,26 @@
+package com.iota.iri.storage.rocksDB;
+
+import com.iota.iri.storage.PersistenceProvider;
+import com.iota.iri.storage.PersistenceProviderConformanceTest;
+import com.iota.iri.storage.Tangle;
+import org.junit.rules.TemporaryFolder;
+
+public class RocksDBPersistenceProviderConformanceTest extends PersistenceProviderConformanceTest {
+
+    private final TemporaryFolder dbFolder = new TemporaryFolder();
+    private final TemporaryFolder logFolder = new TemporaryFolder();
+
+    @Override
+    protected PersistenceProvider createProvider() throws Exception {
+        dbFolder.create();
+        logFolder.create();
+        return new RocksDBPersistenceProvider(dbFolder.getRoot().getAbsolutePath(),
+                logFolder.getRoot().getAbsolutePath(), 1000, Tangle.COLUMN_FAMILIES, Tangle.METADATA_COLUMN_FAMILY);
+    }
+
+    @Override
+    protected void destroyProvider() {
+        dbFolder.delete();
+        logFolder.delete();
+    }
+}
@@ -1,6 +1,8 @@
 package com.iota.iri.storage.rocksDB;
 
+import com.iota.iri.model.Hash;
 import com.iota.iri.model.IntegerIndex;
+import com.iota.iri.model.persistables.Address;
 import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.storage.Indexable;
 import com.iota.iri.storage.Persistable;
@@ -11,11 +13,22 @@ import org.junit.*;
 import org.junit.runners.MethodSorters;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class RocksDBPersistenceProviderTest {
 
@@ -76,4 +89,223 @@ public class RocksDBPersistenceProviderTest {
                     rocksDBPersistenceProvider.get(Transaction.class, index).bytes());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetBatch() throws Exception {
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 1);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+        List<Pair<Indexable, Persistable>> models = IntStream.range(1, 100)
+                .mapToObj(i -> new Pair<>((Indexable) new IntegerIndex(i), tx))
+                .collect(Collectors.toList());
+
+        rocksDBPersistenceProvider.saveBatch(models);
+
+        // request an unknown key and a duplicate in between the stored ones
+        List<IntegerIndex> indexes = IntStream.of(5, 500, 7, 5)
+                .mapToObj(IntegerIndex::new)
+                .collect(Collectors.toList());
+        List<Persistable> loaded = rocksDBPersistenceProvider.getBatch(Transaction.class, indexes);
+
+        Assert.assertEquals("unexpected amount of loaded objects", indexes.size(), loaded.size());
+        Assert.assertArrayEquals("loaded bytes are not as expected", tx.bytes(), loaded.get(0).bytes());
+        Assert.assertNull("unknown key should be loaded empty", loaded.get(1).bytes());
+        Assert.assertArrayEquals("loaded bytes are not as expected", tx.bytes(), loaded.get(2).bytes());
+        Assert.assertArrayEquals("loaded bytes are not as expected", tx.bytes(), loaded.get(3).bytes());
+        Assert.assertArrayEquals("loaded metadata is not as expected",
+                rocksDBPersistenceProvider.get(Transaction.class, indexes.get(0)).metadata(),
+                loaded.get(0).metadata());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 1);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+        List<Pair<Indexable, Persistable>> models = IntStream.range(1, 1000)
+                .mapToObj(i -> new Pair<>((Indexable) new IntegerIndex(i), tx))
+                .collect(Collectors.toList());
+
+        rocksDBPersistenceProvider.saveBatch(models);
+        rocksDBPersistenceProvider.clear(Transaction.class);
+        rocksDBPersistenceProvider.clearMetadata(Transaction.class);
+
+        Assert.assertTrue("column should be empty after clear",
+                rocksDBPersistenceProvider.loadAllKeysFromTable(Transaction.class).isEmpty());
+        Assert.assertNull("first and last key should be deleted as well",
+                rocksDBPersistenceProvider.get(Transaction.class, new IntegerIndex(999)).bytes());
+
+        rocksDBPersistenceProvider.save(tx, new IntegerIndex(999));
+        Assert.assertArrayEquals("column should be usable after clear", tx.bytes(),
+                rocksDBPersistenceProvider.get(Transaction.class, new IntegerIndex(999)).bytes());
+    }
+
+    @Test
+    public void testReopenWithOtherColumnFamilySettings() throws Exception {
+        String path = "tmpdb-profiles", logPath = "tmplogs-profiles";
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 1);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+
+        try {
+            RocksDBPersistenceProvider tuned = new RocksDBPersistenceProvider(path, logPath, 1000,
+                    Tangle.COLUMN_FAMILIES, Tangle.METADATA_COLUMN_FAMILY, true, "lz4");
+            tuned.init();
+            tuned.save(tx, new IntegerIndex(1));
+            tuned.shutdown();
+
+            RocksDBPersistenceProvider untuned = new RocksDBPersistenceProvider(path, logPath, 1000,
+                    Tangle.COLUMN_FAMILIES, Tangle.METADATA_COLUMN_FAMILY, false, "none");
+            untuned.init();
+            Assert.assertArrayEquals("data should be readable with other table settings", tx.bytes(),
+                    untuned.get(Transaction.class, new IntegerIndex(1)).bytes());
+            untuned.shutdown();
+        } finally {
+            FileUtils.deleteQuietly(new File(path));
+            FileUtils.deleteQuietly(new File(logPath));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCompression() {
+        ColumnFamilyProfile.parseCompression("foo");
+    }
+
+    @Test
+    public void testBulkIngest() throws Exception {
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 1);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+        List<Pair<Indexable, Persistable>> models = IntStream.range(1, 1000)
+                .mapToObj(i -> new Pair<>((Indexable) new IntegerIndex(i), tx))
+                .collect(Collectors.toList());
+
+        rocksDBPersistenceProvider.startBulkIngest();
+        Assert.assertTrue("provider should be in bulk ingest mode", rocksDBPersistenceProvider.isBulkIngest());
+
+        rocksDBPersistenceProvider.saveBatch(models);
+        rocksDBPersistenceProvider.save(tx, new IntegerIndex(1000));
+        Assert.assertArrayEquals("writes without the log should be readable", tx.bytes(),
+                rocksDBPersistenceProvider.get(Transaction.class, new IntegerIndex(1000)).bytes());
+
+        rocksDBPersistenceProvider.stopBulkIngest();
+        Assert.assertFalse("provider should have left the bulk ingest mode", rocksDBPersistenceProvider.isBulkIngest());
+        Assert.assertEquals("writes of the bulk ingest should be kept", 1000,
+                rocksDBPersistenceProvider.loadAllKeysFromTable(Transaction.class).size());
+    }
+
+    @Test
+    public void testInsertCounters() throws Exception {
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 1);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+        long inserted = rocksDBPersistenceProvider.getInsertedModels();
+        long duplicates = rocksDBPersistenceProvider.getDuplicateInserts();
+
+        List<Pair<Indexable, Persistable>> models = Collections.singletonList(new Pair<>(new IntegerIndex(4242), tx));
+        Assert.assertTrue("new model should be saved", rocksDBPersistenceProvider.saveBatchIfAbsent(
+                Transaction.class, new IntegerIndex(4242), models));
+        Assert.assertFalse("existing model should not be saved again", rocksDBPersistenceProvider.saveBatchIfAbsent(
+                Transaction.class, new IntegerIndex(4242), models));
+
+        Assert.assertEquals("unexpected number of inserts", inserted + 1,
+                rocksDBPersistenceProvider.getInsertedModels());
+        Assert.assertEquals("unexpected number of duplicates", duplicates + 1,
+                rocksDBPersistenceProvider.getDuplicateInserts());
+    }
+
+    @Test
+    public void testRemoveFromIndexesWithConcurrentMerges() throws Exception {
+        List<Hash> addresses = IntStream.range(0, 50)
+                .mapToObj(i -> getRandomTransactionHash())
+                .collect(Collectors.toList());
+        Map<Hash, Set<Hash>> mergedTransactions = new ConcurrentHashMap<>();
+        addresses.forEach(address -> mergedTransactions.put(address, ConcurrentHashMap.newKeySet()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<?>> merges = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                merges.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        List<Pair<Indexable, Persistable>> models = new ArrayList<>();
+                        for (int k = 0; k < 5; k++) {
+                            Hash address = addresses.get(ThreadLocalRandom.current().nextInt(addresses.size()));
+                            Hash transaction = getRandomTransactionHash();
+                            mergedTransactions.get(address).add(transaction);
+                            models.add(new Pair<>(address, new Address(transaction)));
+                        }
+                        rocksDBPersistenceProvider.saveBatch(models);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> removals = executor.submit(() -> {
+                // every round adds a transaction to all addresses and removes it again, so the values are rewritten
+                while (merges.stream().anyMatch(merge -> !merge.isDone())) {
+                    Hash prunedTransaction = getRandomTransactionHash();
+                    List<Pair<Indexable, Persistable>> models = addresses.stream()
+                            .map(address -> new Pair<Indexable, Persistable>(address, new Address(prunedTransaction)))
+                            .collect(Collectors.toList());
+                    rocksDBPersistenceProvider.saveBatch(models);
+                    rocksDBPersistenceProvider.removeFromIndexes(models);
+                }
+                return null;
+            });
+
+            for (Future<?> merge : merges) {
+                merge.get();
+            }
+            removals.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Hash address : addresses) {
+            Assert.assertEquals("merges should not be lost while the index is rewritten",
+                    mergedTransactions.get(address),
+                    ((Address) rocksDBPersistenceProvider.get(Address.class, address)).set);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStatistics() throws Exception {
+        String path = "tmpdb-statistics", logPath = "tmplogs-statistics";
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 1);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+
+        RocksDBPersistenceProvider provider = new RocksDBPersistenceProvider(path, logPath, 1000,
+                Tangle.COLUMN_FAMILIES, Tangle.METADATA_COLUMN_FAMILY, true, "snappy", true);
+        try {
+            provider.init();
+            provider.save(tx, new IntegerIndex(1));
+            provider.get(Transaction.class, new IntegerIndex(1));
+
+            Map<String, Object> statistics = provider.getStatistics();
+            Assert.assertTrue("statistics should be enabled", provider.isStatisticsEnabled());
+            Assert.assertTrue("cache counters should be collected", statistics.containsKey("blockCacheHitRate"));
+            Assert.assertEquals("every column family should be reported", Tangle.COLUMN_FAMILIES.size() + 1,
+                    ((Map<String, Object>) statistics.get("columnFamilies")).size());
+            Assert.assertFalse("counters should only be collected if enabled",
+                    rocksDBPersistenceProvider.getStatistics().containsKey("blockCacheHitRate"));
+        } finally {
+            provider.shutdown();
+            FileUtils.deleteQuietly(new File(path));
+            FileUtils.deleteQuietly(new File(logPath));
+        }
+    }
+}
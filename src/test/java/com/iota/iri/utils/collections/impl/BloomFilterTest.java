@@ -0,0 +1,53 @@
+package com.iota.iri.utils.collections.impl;
+
+import com.iota.iri.TransactionTestUtils;
+import com.iota.iri.model.Hash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BloomFilterTest {
+
+    private static final int KEYS = 100000;
+
+    @Test
+    public void testAddedKeysAreFound() {
+        BloomFilter filter = new BloomFilter(KEYS, 10);
+        List<Hash> keys = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            Hash key = TransactionTestUtils.getRandomTransactionHash();
+            keys.add(key);
+            filter.add(key.bytes());
+        }
+
+        for (Hash key : keys) {
+            Assert.assertTrue("added key is missing", filter.mightContain(key.bytes()));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(KEYS, 10);
+        for (int i = 0; i < KEYS; i++) {
+            filter.add(TransactionTestUtils.getRandomTransactionHash().bytes());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (filter.mightContain(TransactionTestUtils.getRandomTransactionHash().bytes())) {
+                falsePositives++;
+            }
+        }
+
+        Assert.assertTrue("too many false positives: " + falsePositives, falsePositives < KEYS * 0.02);
+    }
+
+    @Test
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1, 10);
+        Assert.assertFalse("unexpected key",
+                filter.mightContain(TransactionTestUtils.getRandomTransactionHash().bytes()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.iota.iri.utils.collections.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class OpenAddressingHashSetTest {
+
+    @Test
+    public void testAddAndContains() {
+        Set<Integer> set = new OpenAddressingHashSet<>();
+        Assert.assertTrue("can't add", set.add(1));
+        Assert.assertTrue("can't add", set.add(2));
+        Assert.assertFalse("duplicate was added", set.add(1));
+        Assert.assertEquals("unexpected size", 2, set.size());
+        Assert.assertTrue("element is missing", set.contains(1));
+        Assert.assertTrue("element is missing", set.contains(2));
+        Assert.assertFalse("unexpected element", set.contains(3));
+        Assert.assertFalse("unexpected element", set.contains(null));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAddNull() {
+        new OpenAddressingHashSet<>().add(null);
+    }
+
+    @Test
+    public void testResize() {
+        OpenAddressingHashSet<Integer> set = new OpenAddressingHashSet<>(4);
+        int initialCapacity = set.capacity();
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertTrue("can't add", set.add(i));
+        }
+        Assert.assertTrue("table did not grow", set.capacity() > initialCapacity);
+        Assert.assertEquals("unexpected size", 10_000, set.size());
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertTrue("element is missing after resize", set.contains(i));
+        }
+    }
+
+    @Test
+    public void testClearKeepsCapacity() {
+        OpenAddressingHashSet<Integer> set = new OpenAddressingHashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            set.add(i);
+        }
+        int capacity = set.capacity();
+        set.clear();
+        Assert.assertTrue("set is not empty", set.isEmpty());
+        Assert.assertEquals("clear should keep the table", capacity, set.capacity());
+        Assert.assertFalse("element survived clear", set.contains(1));
+    }
+
+    @Test
+    public void testBehavesLikeHashSet() {
+        Random random = new Random(42);
+        Set<Integer> expected = new HashSet<>();
+        Set<Integer> actual = new OpenAddressingHashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            // a small key range produces long clusters and exercises the backward shift of removals
+            Integer element = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                Assert.assertEquals("add differs", expected.add(element), actual.add(element));
+            } else {
+                Assert.assertEquals("remove differs", expected.remove(element), actual.remove(element));
+            }
+        }
+        Assert.assertEquals("sets should be equal", expected, actual);
+        Assert.assertEquals("iteration should return every element", expected, new HashSet<>(actual));
+    }
+}
@@ -0,0 +1,153 @@
+package com.iota.iri.utils.dag;
+
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.model.Hash;
+import com.iota.iri.service.snapshot.SnapshotProvider;
+import com.iota.iri.service.snapshot.impl.SnapshotProviderImpl;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.iota.iri.TransactionTestUtils.getRandomTransactionHash;
+import static com.iota.iri.TransactionTestUtils.getTransactionWithTrunkAndBranch;
+
+public class DAGHelperTest {
+
+    private static final TemporaryFolder dbFolder = new TemporaryFolder();
+    private static final TemporaryFolder logFolder = new TemporaryFolder();
+    private static Tangle tangle;
+    private static SnapshotProvider snapshotProvider;
+    private static List<Hash> transactions;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        tangle = new Tangle();
+        snapshotProvider = new SnapshotProviderImpl().init(new MainnetConfig());
+        dbFolder.create();
+        logFolder.create();
+        tangle.addPersistenceProvider(new RocksDBPersistenceProvider(
+                dbFolder.getRoot().getAbsolutePath(), logFolder.getRoot().getAbsolutePath(), 1000,
+                Tangle.COLUMN_FAMILIES, Tangle.METADATA_COLUMN_FAMILY));
+        tangle.init();
+
+        // every transaction approves its predecessor and a random older transaction
+        Random random = new Random(7);
+        transactions = new ArrayList<>();
+        transactions.add(getRandomTransactionHash());
+        storeTransaction(transactions.get(0), getRandomTransactionHash(), getRandomTransactionHash());
+        for (int i = 1; i < 3000; i++) {
+            Hash hash = getRandomTransactionHash();
+            storeTransaction(hash, transactions.get(i - 1), transactions.get(random.nextInt(i)));
+            transactions.add(hash);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        tangle.shutdown();
+        snapshotProvider.shutdown();
+        dbFolder.delete();
+        logFolder.delete();
+    }
+
+    @Test
+    public void batchedApproveesTraversalFindsSameTransactions() throws Exception {
+        Hash startingTransaction = transactions.get(transactions.size() - 1);
+        Set<Hash> expected = new HashSet<>();
+        DAGHelper.get(tangle).traverseApprovees(startingTransaction, transaction -> true,
+                transaction -> expected.add(transaction.getHash()));
+
+        Set<Hash> sequential = new HashSet<>();
+        DAGHelper.get(tangle).traverseApproveesBatched(startingTransaction, transaction -> true,
+                transaction -> sequential.add(transaction.getHash()), null);
+
+        Set<Hash> parallel = Collections.synchronizedSet(new HashSet<>());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DAGHelper.get(tangle).traverseApproveesBatched(startingTransaction, transaction -> true,
+                    transaction -> parallel.add(transaction.getHash()), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals("unexpected amount of approvees", transactions.size() - 1, expected.size());
+        Assert.assertEquals("batched traversal found different approvees", expected, sequential);
+        Assert.assertEquals("parallel traversal found different approvees", expected, parallel);
+    }
+
+    @Test
+    public void batchedApproversTraversalFindsSameTransactions() throws Exception {
+        Hash startingTransaction = transactions.get(0);
+        Set<Hash> expected = new HashSet<>();
+        DAGHelper.get(tangle).traverseApprovers(startingTransaction, transaction -> true,
+                transaction -> expected.add(transaction.getHash()));
+
+        Set<Hash> sequential = new HashSet<>();
+        DAGHelper.get(tangle).traverseApproversBatched(startingTransaction, transaction -> true,
+                transaction -> sequential.add(transaction.getHash()), null);
+
+        Set<Hash> parallel = Collections.synchronizedSet(new HashSet<>());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DAGHelper.get(tangle).traverseApproversBatched(startingTransaction, transaction -> true,
+                    transaction -> parallel.add(transaction.getHash()), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals("unexpected amount of approvers", transactions.size() - 1, expected.size());
+        Assert.assertEquals("batched traversal found different approvers", expected, sequential);
+        Assert.assertEquals("parallel traversal found different approvers", expected, parallel);
+    }
+
+    @Test
+    public void batchedTraversalStopsAtCondition() throws Exception {
+        Hash startingTransaction = transactions.get(transactions.size() - 1);
+        Hash boundary = transactions.get(transactions.size() - 2);
+        Set<Hash> found = new HashSet<>();
+        DAGHelper.get(tangle).traverseApproveesBatched(startingTransaction,
+                transaction -> !transaction.getHash().equals(boundary),
+                transaction -> found.add(transaction.getHash()), null);
+
+        Set<Hash> expected = new HashSet<>();
+        DAGHelper.get(tangle).traverseApprovees(startingTransaction,
+                transaction -> !transaction.getHash().equals(boundary),
+                transaction -> expected.add(transaction.getHash()));
+
+        Assert.assertFalse("condition was ignored", found.contains(boundary));
+        Assert.assertEquals("batched traversal found different approvees", expected, found);
+    }
+
+    @Test(expected = TraversalException.class)
+    public void batchedTraversalPropagatesConsumerErrors() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            DAGHelper.get(tangle).traverseApproveesBatched(transactions.get(transactions.size() - 1),
+                    transaction -> true,
+                    transaction -> {
+                        throw new IllegalStateException("consumer failed");
+                    }, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void storeTransaction(Hash hash, Hash trunk, Hash branch) throws Exception {
+        TransactionViewModel transaction = new TransactionViewModel(getTransactionWithTrunkAndBranch(trunk, branch),
+                hash);
+        transaction.store(tangle, snapshotProvider.getInitialSnapshot());
+    }
+}